@@ -0,0 +1,52 @@
+package de.thomasvoecking.screenruler.benchmarks;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler and writes the results as JSON, so they can be compared across
+ * commits. Accepts all JMH command line options.
+ * 
+ * The result file is target/jmh-result-&lt;label&gt;.json, where the label is taken from the system property 
+ * "benchmark.label" (e.g. the commit id) and defaults to the current time.
+ * 
+ * @author thomas
+ */
+public class BenchmarkRunner 
+{
+
+	/**
+	 * Runs the benchmarks
+	 * 
+	 * @param args JMH command line options
+	 * @throws CommandLineOptionException if the options are invalid.
+	 * @throws RunnerException if a benchmark fails.
+	 */
+	public static void main(final String[] args) throws CommandLineOptionException, RunnerException 
+	{
+		final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		final ChainedOptionsBuilder options = new OptionsBuilder()
+			.parent(commandLineOptions)
+			.addProfiler(GCProfiler.class)
+			.jvmArgsAppend("-Djava.awt.headless=true");
+		
+		if (!commandLineOptions.getResult().hasValue())
+		{
+			final String label = System.getProperty("benchmark.label", 
+					new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()));
+			options.resultFormat(ResultFormatType.JSON).result("target/jmh-result-" + label + ".json");
+		}
+		
+		new Runner(options.build()).run();
+	}
+	
+}
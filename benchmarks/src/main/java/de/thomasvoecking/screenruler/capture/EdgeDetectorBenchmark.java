@@ -0,0 +1,83 @@
+package de.thomasvoecking.screenruler.capture;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link EdgeDetector#findEdges(int[], int, int, int, int, int)} on strips as wide as common screens. 
+ * One detection has to fit well within one drag frame (16 ms at 60 Hz).
+ * 
+ * @author thomas
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class EdgeDetectorBenchmark 
+{
+
+	/**
+	 * The length of the strip in px
+	 */
+	@Param({ "1920", "3840", "7680" })
+	public int length;
+	
+	/**
+	 * The depth of the strip in px
+	 */
+	@Param({ "6" })
+	public int depth;
+	
+	/**
+	 * The strip: random blocks of color
+	 */
+	private int[] pixels;
+	
+	/**
+	 * The detector
+	 */
+	private final EdgeDetector edgeDetector = new EdgeDetector(32);
+	
+	/**
+	 * Creates the strip.
+	 */
+	@Setup
+	public void setUp()
+	{
+		final Random random = new Random(42);
+		this.pixels = new int[this.length * this.depth];
+		int rgb = 0;
+		for (int i = 0; i < this.length; i++)
+		{
+			if (random.nextInt(20) == 0) rgb = random.nextInt(0x1000000);
+			for (int j = 0; j < this.depth; j++)
+			{
+				this.pixels[j * this.length + i] = rgb;
+			}
+		}
+	}
+	
+	/**
+	 * @return The edges
+	 */
+	@Benchmark
+	public int[] findEdges()
+	{
+		return this.edgeDetector.findEdges(this.pixels, 0, this.length, 1, this.depth, this.length);
+	}
+	
+}
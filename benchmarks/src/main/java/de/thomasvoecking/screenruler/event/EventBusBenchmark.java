@@ -0,0 +1,95 @@
+package de.thomasvoecking.screenruler.event;
+
+import java.awt.Rectangle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.thomasvoecking.screenruler.journal.Measurement;
+
+/**
+ * Benchmarks the cost of publishing a drag event on the event dispatch thread, with a subscriber that is much
+ * slower than the publisher. The cost must not depend on the speed of the subscriber.
+ *
+ * @author thomas
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class EventBusBenchmark
+{
+
+	/**
+	 * What happens to an event if the queue of the slow subscriber is full
+	 */
+	@Param({ "DROP", "COALESCE" })
+	public BackPressure backPressure;
+
+	/**
+	 * The bus
+	 */
+	private EventBus eventBus;
+
+	/**
+	 * The published event
+	 */
+	private RulerEvent event;
+
+	/**
+	 * Subscribes a slow listener.
+	 */
+	@Setup
+	public void setUp()
+	{
+		this.eventBus = new EventBus();
+		this.eventBus.subscribe("slow", new RulerEventListener()
+		{
+			@Override
+			public void rulerEvent(final RulerEvent rulerEvent)
+			{
+				try
+				{
+					Thread.sleep(1);
+				}
+				catch (final InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		}, this.backPressure, 256);
+		this.event = new RulerEvent(RulerEvent.Type.MOVED,
+				new Measurement(1, 0, 0, new Rectangle(100, 100, 600, 80), false, "cm", 48, 129, false));
+	}
+
+	/**
+	 * Stops the subscriber.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		this.eventBus.close(0);
+	}
+
+	/**
+	 * Publishes one event.
+	 */
+	@Benchmark
+	public void publish()
+	{
+		this.eventBus.publish(this.event);
+	}
+
+}
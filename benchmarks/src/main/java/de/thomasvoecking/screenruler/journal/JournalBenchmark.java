@@ -0,0 +1,128 @@
+package de.thomasvoecking.screenruler.journal;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks reloading and searching a {@link MeasurementJournal} with a long history. Mapping and indexing
+ * the journal is part of the startup, so it has to take milliseconds, not seconds.
+ *
+ * @author thomas
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class JournalBenchmark
+{
+
+	/**
+	 * The number of measurements in the journal
+	 */
+	@Param({ "100000", "500000" })
+	public int size;
+
+	/**
+	 * The journal file
+	 */
+	private File file;
+
+	/**
+	 * The journal
+	 */
+	private MeasurementJournal journal;
+
+	/**
+	 * The mapped journal
+	 */
+	private JournalView view;
+
+	/**
+	 * Writes the journal: sessions of 100 measurements of 3 rulers each.
+	 *
+	 * @throws IOException if the journal could not be written.
+	 */
+	@Setup
+	public void setUp() throws IOException
+	{
+		this.file = File.createTempFile("screenruler", ".journal");
+		this.file.delete();
+		this.journal = new MeasurementJournal(this.file);
+		this.journal.open();
+		for (int i = 0; i < this.size; i++)
+		{
+			this.journal.append(new Measurement(i / 100, i % 3, 1000L * i, new Rectangle(i % 1000, 100, 500, 80),
+					i % 7 == 0, i % 2 == 0 ? "cm" : "in", i % 500, i % 500 + 80, false));
+		}
+		this.view = this.journal.map();
+	}
+
+	/**
+	 * Removes the journal.
+	 *
+	 * @throws IOException if the journal could not be closed.
+	 */
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		this.journal.close();
+		this.file.delete();
+	}
+
+	/**
+	 * @return The number of measurements after reopening, mapping and indexing the journal
+	 * @throws IOException if the journal could not be reopened.
+	 */
+	@Benchmark
+	public int reload() throws IOException
+	{
+		this.journal.close();
+		this.journal.open();
+		return this.journal.map().size();
+	}
+
+	/**
+	 * @return The layout of the last session
+	 */
+	@Benchmark
+	public List<Measurement> findLayout()
+	{
+		return this.view.findLayout();
+	}
+
+	/**
+	 * @return The measurements of a period
+	 */
+	@Benchmark
+	public List<Measurement> search()
+	{
+		return this.view.search(1000L * (this.size / 2), 1000L * (this.size / 2 + 1000));
+	}
+
+	/**
+	 * @return The measurements covering a value
+	 */
+	@Benchmark
+	public List<Measurement> searchByValue()
+	{
+		return this.view.searchByValue("cm", 250.5);
+	}
+
+}
@@ -0,0 +1,193 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.thomasvoecking.screenruler.config.ScreenrulerSettings;
+import de.thomasvoecking.screenruler.config.Translucency;
+import de.thomasvoecking.screenruler.ui.buttons.CloseButton;
+
+/**
+ * Benchmarks the equivalent of {@link ScreenrulerFrame#paint(java.awt.Graphics)} into a headless image.
+ * 
+ * @author thomas
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class FramePaintBenchmark 
+{
+
+	/**
+	 * The width of the frame in px
+	 */
+	@Param({ "200", "1000", "4000", "12000" })
+	public int width;
+	
+	/**
+	 * The height of the frame in px
+	 */
+	private static final int height = 65;
+	
+	/**
+	 * The settings
+	 */
+	private ScreenrulerSettings settings;
+	
+	/**
+	 * The ruler
+	 */
+	private Ruler ruler;
+	
+	/**
+	 * The compositor
+	 */
+	private ScreenrulerCompositor compositor;
+	
+	/**
+	 * The ruler of {@link #backgroundCompositor}
+	 */
+	private Ruler backgroundRuler;
+	
+	/**
+	 * A compositor whose ruler is rendered by {@link #backgroundRenderer}
+	 */
+	private ScreenrulerCompositor backgroundCompositor;
+	
+	/**
+	 * Renders the ruler of {@link #backgroundCompositor}
+	 */
+	private BackgroundRenderer backgroundRenderer;
+	
+	/**
+	 * The graphics of the target image
+	 */
+	private Graphics2D g2;
+	
+	/**
+	 * The distance of the right edge from its start position for {@link #resize()}
+	 */
+	private int resizeOffset;
+	
+	/**
+	 * The current frame of the zoom animation for {@link #zoom()}
+	 */
+	private int zoomFrame;
+	
+	/**
+	 * Creates the compositor and the target image.
+	 */
+	@Setup
+	public void setUp()
+	{
+		this.settings = new ScreenrulerSettings(0.7f, this.width, height, 200, 10, 30, 0, false, Translucency.AUTO);
+		this.ruler = new Ruler("cm", 48, 129);
+		this.compositor = new ScreenrulerCompositor(this.ruler, 
+				ScreenrulerResizeControl.LEFT, ScreenrulerResizeControl.RIGHT, new CloseButton());
+		this.backgroundRuler = new Ruler("cm", 48, 129);
+		this.backgroundCompositor = new ScreenrulerCompositor(this.backgroundRuler, 
+				ScreenrulerResizeControl.LEFT, ScreenrulerResizeControl.RIGHT, new CloseButton());
+		this.backgroundRenderer = new BackgroundRenderer(new Ruler("cm", 48, 129), new Runnable() 
+		{
+			@Override
+			public void run() { /* the next paint picks up the frame */ }
+		});
+		this.backgroundRenderer.start();
+		this.backgroundCompositor.setBackgroundRenderer(this.backgroundRenderer);
+		this.g2 = new BufferedImage(this.width, height, BufferedImage.TYPE_INT_RGB).createGraphics();
+		this.paint();
+	}
+	
+	/**
+	 * Disposes the graphics.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		this.backgroundRenderer.stop(1000);
+		this.g2.dispose();
+	}
+	
+	/**
+	 * A plain repaint, e.g. after the window has been moved.
+	 */
+	@Benchmark
+	public void paint()
+	{
+		this.compositor.paint(this.g2, this.width, height, 
+				this.settings.getRulerBounds(this.width, height), 
+				this.settings.getLeftResizeControlBounds(), 
+				this.settings.getRightResizeControlBounds(this.width), 
+				this.settings.getCloseButtonBounds(height));
+	}
+	
+	/**
+	 * A repaint with all layers rendered from scratch.
+	 */
+	@Benchmark
+	public void paintInvalidated()
+	{
+		this.compositor.invalidate();
+		this.paint();
+	}
+	
+	/**
+	 * A repaint while the right edge is dragged, one px per frame.
+	 */
+	@Benchmark
+	public void resize()
+	{
+		this.resizeOffset = (this.resizeOffset + 1) % 64;
+		final int frameWidth = this.width - this.resizeOffset;
+		this.compositor.paint(this.g2, frameWidth, height, 
+				this.settings.getRulerBounds(frameWidth, height), 
+				this.settings.getLeftResizeControlBounds(), 
+				this.settings.getRightResizeControlBounds(frameWidth), 
+				this.settings.getCloseButtonBounds(height));
+	}
+	
+	/**
+	 * A repaint during a zoom animation: each frame has a new range.
+	 */
+	@Benchmark
+	public void zoom()
+	{
+		this.zoomFrame = (this.zoomFrame + 1) % 64;
+		this.ruler.setRulerBounds(48, 129 + this.zoomFrame * 2.5);
+		this.paint();
+	}
+	
+	/**
+	 * {@link #zoom()} with the ruler rendered on a background thread: only the time the painting thread is 
+	 * blocked is measured.
+	 */
+	@Benchmark
+	public void zoomInBackground()
+	{
+		this.zoomFrame = (this.zoomFrame + 1) % 64;
+		this.backgroundRuler.setRulerBounds(48, 129 + this.zoomFrame * 2.5);
+		this.backgroundCompositor.paint(this.g2, this.width, height, 
+				this.settings.getRulerBounds(this.width, height), 
+				this.settings.getLeftResizeControlBounds(), 
+				this.settings.getRightResizeControlBounds(this.width), 
+				this.settings.getCloseButtonBounds(height));
+	}
+	
+}
@@ -0,0 +1,61 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link Ruler#guessRulerBaseValue()}.
+ * 
+ * @author thomas
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RulerBaseValueBenchmark 
+{
+
+	/**
+	 * The value range of the ruler ("start:end")
+	 */
+	@Param({ "48:129", "0:1", "0:1000", "0.55:0.7" })
+	public String range;
+	
+	/**
+	 * The ruler
+	 */
+	private Ruler ruler;
+	
+	/**
+	 * Creates the ruler.
+	 */
+	@Setup
+	public void setUp()
+	{
+		final String[] values = this.range.split(":");
+		this.ruler = new Ruler("cm", Double.parseDouble(values[0]), Double.parseDouble(values[1]));
+	}
+	
+	/**
+	 * @return The base value
+	 */
+	@Benchmark
+	public double guessRulerBaseValue()
+	{
+		return this.ruler.guessRulerBaseValue();
+	}
+	
+}
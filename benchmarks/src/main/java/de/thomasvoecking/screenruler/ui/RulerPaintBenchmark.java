@@ -0,0 +1,122 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link Ruler#paint(java.awt.Graphics, Rectangle)} into a headless image.
+ * 
+ * @author thomas
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RulerPaintBenchmark 
+{
+
+	/**
+	 * The width of the ruler in px
+	 */
+	@Param({ "200", "1000", "4000", "12000" })
+	public int width;
+	
+	/**
+	 * The value range of the ruler ("start:end")
+	 */
+	@Param({ "48:129", "0:1", "0:1000", "0.55:0.7" })
+	public String range;
+	
+	/**
+	 * The ruler
+	 */
+	private Ruler ruler;
+	
+	/**
+	 * The area of the ruler
+	 */
+	private Rectangle bounds;
+	
+	/**
+	 * The graphics of the target image
+	 */
+	private Graphics2D g2;
+	
+	/**
+	 * The end value of the ruler
+	 */
+	private double rulerEndValue;
+	
+	/**
+	 * Toggles the end value for {@link #layoutAndPaint()}
+	 */
+	private boolean toggle;
+	
+	/**
+	 * Creates the ruler and the target image.
+	 */
+	@Setup
+	public void setUp()
+	{
+		final String[] values = this.range.split(":");
+		this.rulerEndValue = Double.parseDouble(values[1]);
+		this.ruler = new Ruler("cm", Double.parseDouble(values[0]), this.rulerEndValue);
+		this.bounds = new Rectangle(20, 0, this.width, 65);
+		
+		final BufferedImage image = new BufferedImage(this.width + 40, 65, BufferedImage.TYPE_INT_RGB);
+		this.g2 = image.createGraphics();
+		this.g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		this.g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+		this.g2.setColor(Color.BLACK);
+		this.ruler.paint(this.g2, this.bounds);
+	}
+	
+	/**
+	 * Disposes the graphics.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		this.g2.dispose();
+	}
+	
+	/**
+	 * A plain repaint of an unchanged ruler.
+	 */
+	@Benchmark
+	public void paint()
+	{
+		this.ruler.paint(this.g2, this.bounds);
+	}
+	
+	/**
+	 * A repaint after the range has changed, including the layout.
+	 */
+	@Benchmark
+	public void layoutAndPaint()
+	{
+		this.toggle = !this.toggle;
+		this.ruler.setRulerEndValue(this.toggle ? this.rulerEndValue * 1.001 : this.rulerEndValue);
+		this.ruler.paint(this.g2, this.bounds);
+	}
+	
+}
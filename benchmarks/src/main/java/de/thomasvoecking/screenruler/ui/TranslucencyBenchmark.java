@@ -0,0 +1,121 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.thomasvoecking.screenruler.config.ScreenrulerSettings;
+import de.thomasvoecking.screenruler.config.Translucency;
+import de.thomasvoecking.screenruler.ui.buttons.CloseButton;
+
+/**
+ * Benchmarks the compositing cost of the two translucency paths of {@link ScreenrulerFrame}: an opaque frame
+ * whose window is faded as a whole, and a frame with a translucent background that is copied into a translucent
+ * window buffer. Run it on the target machine to pick the cheaper path there.
+ *
+ * @author thomas
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TranslucencyBenchmark
+{
+
+	/**
+	 * The translucency path
+	 */
+	@Param({ "UNIFORM", "PERPIXEL" })
+	public Translucency translucency;
+
+	/**
+	 * The width of the frame in px
+	 */
+	@Param({ "1000", "4000" })
+	public int width;
+
+	/**
+	 * The height of the frame in px
+	 */
+	private static final int height = 65;
+
+	/**
+	 * The settings
+	 */
+	private ScreenrulerSettings settings;
+
+	/**
+	 * The compositor
+	 */
+	private ScreenrulerCompositor compositor;
+
+	/**
+	 * The graphics of the window buffer
+	 */
+	private Graphics2D g2;
+
+	/**
+	 * Creates the compositor and the window buffer for the path.
+	 */
+	@Setup
+	public void setUp()
+	{
+		this.settings = new ScreenrulerSettings(0.7f, this.width, height, 200, 10, 30, 0, false, this.translucency);
+		this.compositor = new ScreenrulerCompositor(new Ruler("cm", 48, 129),
+				ScreenrulerResizeControl.LEFT, ScreenrulerResizeControl.RIGHT, new CloseButton());
+		final boolean perPixel = this.translucency == Translucency.PERPIXEL;
+		this.compositor.setColors(new Color(255, 255, 255, perPixel ? 179 : 255), Color.BLACK);
+		this.g2 = new BufferedImage(this.width, height,
+				perPixel ? BufferedImage.TYPE_INT_ARGB_PRE : BufferedImage.TYPE_INT_RGB).createGraphics();
+		this.blit();
+	}
+
+	/**
+	 * Disposes the graphics.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		this.g2.dispose();
+	}
+
+	/**
+	 * A repaint that only copies the back buffer, e.g. after the window has been moved.
+	 */
+	@Benchmark
+	public void blit()
+	{
+		this.compositor.paint(this.g2, this.width, height,
+				this.settings.getRulerBounds(this.width, height),
+				this.settings.getLeftResizeControlBounds(),
+				this.settings.getRightResizeControlBounds(this.width),
+				this.settings.getCloseButtonBounds(height));
+	}
+
+	/**
+	 * A repaint with all layers rendered and composed from scratch.
+	 */
+	@Benchmark
+	public void compose()
+	{
+		this.compositor.invalidate();
+		this.blit();
+	}
+
+}
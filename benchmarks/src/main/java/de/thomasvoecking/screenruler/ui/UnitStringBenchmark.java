@@ -0,0 +1,109 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks drawing and measuring a single label ({@link Ruler#drawUnitString(Graphics2D, LabelCache.Label, int, int)}).
+ * 
+ * @author thomas
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class UnitStringBenchmark 
+{
+
+	/**
+	 * The ruler
+	 */
+	private final Ruler ruler = new Ruler("cm", 48, 129);
+	
+	/**
+	 * The label font
+	 */
+	private final Font font = new Font(Font.DIALOG, Font.PLAIN, 9);
+	
+	/**
+	 * A cache that can hold only one label, so that alternating texts always miss
+	 */
+	private final LabelCache missingLabelCache = new LabelCache(1);
+	
+	/**
+	 * The graphics of the target image
+	 */
+	private Graphics2D g2;
+	
+	/**
+	 * A cached label
+	 */
+	private LabelCache.Label label;
+	
+	/**
+	 * Toggles the text for {@link #measureUnitString()}
+	 */
+	private boolean toggle;
+	
+	/**
+	 * Creates the target image and the cached label.
+	 */
+	@Setup
+	public void setUp()
+	{
+		final BufferedImage image = new BufferedImage(200, 65, BufferedImage.TYPE_INT_RGB);
+		this.g2 = image.createGraphics();
+		this.g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		this.g2.setColor(Color.BLACK);
+		this.label = new LabelCache(1).get("130.0 cm", this.font, this.g2.getFontRenderContext());
+	}
+	
+	/**
+	 * Disposes the graphics.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		this.g2.dispose();
+	}
+	
+	/**
+	 * Draws a cached label.
+	 */
+	@Benchmark
+	public void drawUnitString()
+	{
+		this.ruler.drawUnitString(this.g2, this.label, 80, 0);
+	}
+	
+	/**
+	 * Measures and lays out a label that is not cached.
+	 * 
+	 * @return The label
+	 */
+	@Benchmark
+	public LabelCache.Label measureUnitString()
+	{
+		this.toggle = !this.toggle;
+		return this.missingLabelCache.get(this.toggle ? "130.0 cm" : "140.0 cm", this.font, this.g2.getFontRenderContext());
+	}
+	
+}
@@ -1,20 +1,52 @@
 package de.thomasvoecking.screenruler;
 
 
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
-import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
-import org.apache.commons.configuration.XMLConfiguration;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
+import de.thomasvoecking.screenruler.automation.AutomationServer;
+import de.thomasvoecking.screenruler.config.ConfigurationWatcher;
+import de.thomasvoecking.screenruler.config.ScreenrulerSettings;
+import de.thomasvoecking.screenruler.config.SettingsSource;
+import de.thomasvoecking.screenruler.export.BatchExporter;
+import de.thomasvoecking.screenruler.export.PdfExporter;
+import de.thomasvoecking.screenruler.export.SvgExporter;
+import de.thomasvoecking.screenruler.export.VectorExporter;
+import de.thomasvoecking.screenruler.journal.Measurement;
+import de.thomasvoecking.screenruler.journal.MeasurementJournal;
+import de.thomasvoecking.screenruler.ui.ImageRegistry;
+import de.thomasvoecking.screenruler.ui.Orientation;
 import de.thomasvoecking.screenruler.ui.ScreenrulerFrame;
+import de.thomasvoecking.screenruler.ui.Workspace;
 
 /**
  * Main entry point for this application
@@ -28,6 +60,26 @@ public class App
 	 */
 	private static final Log log = LogFactory.getLog(App.class);
 	
+	/**
+	 * The configuration file
+	 */
+	private static final File configurationFile = new File("config/configuration.xml");
+	
+	/**
+	 * The journal of the measurements
+	 */
+	private static final File journalFile = new File("journal/measurements.journal");
+	
+	/**
+	 * The maximum time in s to wait for the first paint before the startup timings are printed
+	 */
+	private static final int firstPaintTimeout = 10;
+	
+	/**
+	 * The ruler that is opened if no ruler is given on the command line
+	 */
+	private static final String defaultRuler = "cm:48:129";
+	
 	/**
 	 * Starts the application
 	 * 
@@ -35,9 +87,15 @@ public class App
 	 */
     public static void main(final String[] args)
     {
+    	final StartupTimer startupTimer = new StartupTimer();
+    	
+    	// The frames paint their complete contents from a back buffer. Erasing the background natively before 
+    	// each paint would only make resizing flicker.
+    	System.setProperty("sun.awt.noerasebackground", "true");
     	log.info("Starting screenruler");
     	
     	log.debug("Parsing command line arguments");
+    	startupTimer.begin("options");
     	final CommandLine options = parseOptions(args);
     	
         if (options.hasOption("loglevel"))
@@ -46,22 +104,448 @@ public class App
         	log.info("Setting loglevel to " + level);
         	Logger.getRootLogger().setLevel(level);
         }
+        checkOptions(options);
+        startupTimer.end("options");
+        
+        if (options.hasOption("export"))
+        {
+        	System.exit(export(new File(options.getOptionValue("export")), 
+        			new File(options.getOptionValue("output", "."))) ? 0 : 1);
+        }
+        if (options.hasOption("vector"))
+        {
+        	System.exit(exportVector(options.getOptionValue("vector")) ? 0 : 1);
+        }
         
         log.debug("Loading configuration");
-        final Configuration configuration;
+        startupTimer.begin("config");
+		ScreenrulerSettings settings;
 		try 
 		{
-			configuration = new XMLConfiguration("config/configuration.xml");
+			settings = ScreenrulerSettings.load(configurationFile);
 		} 
 		catch (final ConfigurationException e) 
 		{
 			throw new IllegalStateException("Could not load configuration", e);
 		}
+		catch (final RuntimeException e)
+		{
+			throw new IllegalStateException("Invalid configuration", e);
+		}
+		settings = applyOptions(settings, options);
+		startupTimer.end("config");
+		
+		log.debug("Opening journal");
+		startupTimer.begin("journal");
+		MeasurementJournal journal = new MeasurementJournal(journalFile);
+		List<Measurement> layout = Collections.emptyList();
+		try
+		{
+			journal.open();
+			layout = journal.map().findLayout();
+		}
+		catch (final IOException e)
+		{
+			log.warn("Could not open journal, measurements are not recorded", e);
+			journal = null;
+		}
+		startupTimer.end("journal");
+        
+		startupTimer.begin("window");
+		final SettingsSource settingsSource = new SettingsSource(settings);
+		final Workspace workspace = new Workspace(settingsSource);
+		workspace.setJournal(journal);
+		final List<ScreenrulerFrame> frames = new ArrayList<ScreenrulerFrame>();
+		if (!options.hasOption("ruler") && !layout.isEmpty())
+		{
+			log.debug("Restoring " + layout.size() + " rulers of the last session");
+			for (final Measurement measurement : layout)
+			{
+				final ScreenrulerFrame frame = workspace.createRuler(measurement.getUnitName(), measurement.getRulerStartValue(), 
+						measurement.getRulerEndValue(), measurement.isVertical() ? Orientation.VERTICAL : Orientation.HORIZONTAL);
+				frame.setBounds(measurement.getBounds());
+				frames.add(frame);
+			}
+		}
+		else
+		{
+			for (final String ruler : options.hasOption("ruler") ? options.getOptionValues("ruler") : new String[] { defaultRuler })
+			{
+				frames.add(createRuler(workspace, ruler));
+			}
+		}
+		startupTimer.end("window");
+		
+		// The controls only register their images, decode them while the window is shown
+		startupTimer.begin("images");
+		final ExecutorService imageLoader = createImageLoader();
+		final List<Future<BufferedImage>> images = ImageRegistry.getDefault().preload(imageLoader);
+		imageLoader.shutdown();
+		
+		final CountDownLatch firstPaint = new CountDownLatch(1);
+		startupTimer.begin("first paint");
+		frames.get(0).setFirstPaintListener(new Runnable() 
+		{
+			@Override
+			public void run() 
+			{
+				startupTimer.end("first paint");
+				firstPaint.countDown();
+			}
+		});
+		for (final ScreenrulerFrame frame : frames)
+		{
+			frame.setVisible(true);
+		}
         
-		final ScreenrulerFrame frame = new ScreenrulerFrame(configuration);
-        frame.setVisible(true);
+        awaitImages(images);
+        startupTimer.end("images");
         
+        log.debug("Watching configuration");
+        try
+        {
+        	new ConfigurationWatcher(configurationFile, settingsSource).start();
+        }
+        catch (final IOException e)
+        {
+        	log.warn("Could not watch configuration, changes require a restart", e);
+        }
         
+        if (options.hasOption("automation"))
+        {
+        	log.debug("Starting automation server");
+        	try
+        	{
+        		new AutomationServer(workspace, Integer.parseInt(options.getOptionValue("automation"))).start();
+        	}
+        	catch (final IOException e)
+        	{
+        		log.warn("Could not start automation server", e);
+        	}
+        }
+        
+        if (options.hasOption("timing"))
+        {
+        	try
+			{
+				if (!firstPaint.await(firstPaintTimeout, TimeUnit.SECONDS)) log.warn("Frame has not been painted yet");
+			}
+			catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+        	startupTimer.print(System.out);
+        }
+    }
+    
+    /**
+     * Exports the rulers of a spec file to PNG files without a display, using all processors, and prints the 
+     * throughput.
+     * 
+     * @param specFile The spec file, one ruler per line: unit:start:end:width:height[:file]
+     * @param outputDirectory The directory the images are written to
+     * @return true if all images have been written
+     */
+    private static boolean export(final File specFile, final File outputDirectory)
+    {
+    	// Must be set before the first AWT class is initialized
+    	System.setProperty("java.awt.headless", "true");
+    	log.info("Exporting rulers of " + specFile + " to " + outputDirectory);
+    	
+    	final BatchExporter exporter = new BatchExporter(outputDirectory, Runtime.getRuntime().availableProcessors());
+    	try
+    	{
+    		final BufferedReader specs = new BufferedReader(new InputStreamReader(new FileInputStream(specFile), "UTF-8"));
+    		try
+    		{
+    			exporter.export(specs);
+    		}
+    		finally
+    		{
+    			specs.close();
+    		}
+    	}
+    	catch (final IOException e)
+    	{
+    		log.error("Could not export rulers", e);
+    		System.err.println("Could not export rulers: " + e.getMessage());
+    		return false;
+    	}
+    	catch (final InterruptedException e)
+    	{
+    		Thread.currentThread().interrupt();
+    		return false;
+    	}
+    	catch (final IllegalArgumentException e)
+    	{
+    		printUsage("Invalid spec in " + specFile + ": " + e.getMessage());
+    		return false;
+    	}
+    	finally
+    	{
+    		exporter.print(System.out);
+    	}
+    	return exporter.getFailedCount() == 0;
+    }
+    
+    /**
+     * Writes a ruler as an SVG or PDF file at physical scale, without a display.
+     * 
+     * @param spec The ruler: unit:start:end:millimetersPerUnit:file. The format is chosen by the file extension.
+     * @return true if the file was written
+     */
+    private static boolean exportVector(final String spec)
+    {
+    	// Must be set before the first AWT class is initialized
+    	System.setProperty("java.awt.headless", "true");
+    	
+    	final String[] parts = spec.split(":", 5);
+    	final VectorExporter exporter;
+    	final File file;
+    	try
+    	{
+    		if (parts.length != 5) throw new IllegalArgumentException("Expected unit:start:end:millimetersPerUnit:file");
+    		file = new File(parts[4]);
+    		final double start = Double.parseDouble(parts[1]);
+    		final double end = Double.parseDouble(parts[2]);
+    		final double millimetersPerUnit = Double.parseDouble(parts[3]);
+    		if (!(start >= 0 && end > start && !Double.isInfinite(end)))
+    			throw new IllegalArgumentException("Expected 0 <= start < end, but start is " + parts[1] + " and end is " + parts[2]);
+    		if (!(millimetersPerUnit > 0 && !Double.isInfinite(millimetersPerUnit)))
+    			throw new IllegalArgumentException("Expected millimetersPerUnit > 0, but is " + parts[3]);
+    		exporter = parts[4].toLowerCase(Locale.ROOT).endsWith(".pdf") 
+    				? new PdfExporter(parts[0], start, end, millimetersPerUnit)
+    				: new SvgExporter(parts[0], start, end, millimetersPerUnit);
+    	}
+    	catch (final IllegalArgumentException e)
+    	{
+    		// Includes NumberFormatException
+    		printUsage("Invalid ruler \"" + spec + "\": " + e.getMessage());
+    		return false;
+    	}
+    	
+    	log.info("Exporting ruler " + spec);
+    	final long start = System.nanoTime();
+    	try
+    	{
+    		final FileOutputStream out = new FileOutputStream(file);
+    		try
+    		{
+    			exporter.export(out.getChannel());
+    		}
+    		finally
+    		{
+    			out.close();
+    		}
+    	}
+    	catch (final IOException e)
+    	{
+    		log.error("Could not write " + file, e);
+    		System.err.println("Could not write " + file + ": " + e.getMessage());
+    		return false;
+    	}
+    	System.out.println("Exported " + file + " (" + file.length() / 1024 + " KB) in " 
+    			+ (System.nanoTime() - start) / 1000000 + " ms");
+    	return true;
+    }
+    
+    /**
+     * Applies the size and the opacity of the command line to the settings of the configuration. Prints the usage
+     * and exits if they are invalid.
+     * 
+     * @param settings The settings of the configuration
+     * @param options The command line options
+     * @return The settings for the startup
+     */
+    private static ScreenrulerSettings applyOptions(final ScreenrulerSettings settings, final CommandLine options)
+    {
+    	if (!options.hasOption("size") && !options.hasOption("opacity")) return settings;
+    	
+    	try
+    	{
+    		int width = settings.getWidth();
+    		int height = settings.getHeight();
+    		if (options.hasOption("size"))
+    		{
+    			final String[] size = options.getOptionValue("size").split("x");
+    			if (size.length > 2)
+    				throw new IllegalArgumentException("Size \"" + options.getOptionValue("size") + "\" must be width[xheight]");
+    			width = Integer.parseInt(size[0]);
+    			if (size.length == 2) height = Integer.parseInt(size[1]);
+    		}
+    		final float opacity = options.hasOption("opacity") 
+    				? Float.parseFloat(options.getOptionValue("opacity")) : settings.getWindowOpacity();
+    		
+    		log.debug("Applying command line size " + width + "x" + height + " and opacity " + opacity);
+    		return new ScreenrulerSettings(opacity, width, height, settings.getMinWidth(), 
+    				settings.getResizeControlWidth(), settings.getResizeControlHeight(), settings.getDragFrameRate(), 
+    				settings.isBackgroundRendering(), settings.getTranslucency());
+    	}
+    	catch (final IllegalArgumentException e)
+    	{
+    		// Also a NumberFormatException for a value that is not a number, or a value out of range
+    		printUsage("Invalid option: " + e.getMessage());
+    		System.exit(1);
+    		return settings;
+    	}
+    }
+    
+    /**
+     * Checks the options that are only used after the first window is shown, so that an invalid command line 
+     * does not leave windows open. Prints the usage and exits if they are invalid.
+     * 
+     * @param options The command line options
+     */
+    private static void checkOptions(final CommandLine options)
+    {
+    	try
+    	{
+    		if (options.hasOption("ruler"))
+    		{
+    			for (final String ruler : options.getOptionValues("ruler")) parseRuler(ruler);
+    		}
+    		if (options.hasOption("automation"))
+    		{
+    			AutomationServer.checkPort(Integer.parseInt(options.getOptionValue("automation")));
+    		}
+    	}
+    	catch (final IllegalArgumentException e)
+    	{
+    		// Also a NumberFormatException for a value that is not a number
+    		printUsage("Invalid option: " + e.getMessage());
+    		System.exit(1);
+    	}
+    }
+    
+    /**
+     * Creates a ruler from its command line description.
+     * 
+     * @param workspace The workspace
+     * @param description The description: unit:start:end[:horizontal|vertical]. Checked by 
+     *   {@link #checkOptions(CommandLine)}.
+     * @return The frame of the ruler
+     */
+    private static ScreenrulerFrame createRuler(final Workspace workspace, final String description)
+    {
+    	final String[] parts = parseRuler(description);
+    	final Orientation orientation = parts.length == 4 ? Orientation.valueOf(parts[3].toUpperCase(Locale.ROOT)) : Orientation.HORIZONTAL;
+    	return workspace.createRuler(parts[0], Double.parseDouble(parts[1]), Double.parseDouble(parts[2]), orientation);
+    }
+    
+    /**
+     * Splits the command line description of a ruler and checks its values.
+     * 
+     * @param description The description: unit:start:end[:horizontal|vertical]
+     * @return The parts of the description
+     * @throws IllegalArgumentException if the description is invalid.
+     */
+    private static String[] parseRuler(final String description)
+    {
+    	final String[] parts = description.split(":");
+    	if (parts.length < 3 || parts.length > 4)
+    		throw new IllegalArgumentException("Ruler \"" + description + "\" must be unit:start:end[:horizontal|vertical]");
+    	
+    	Workspace.checkRulerRange(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+    	if (parts.length == 4)
+    	{
+    		try
+    		{
+    			Orientation.valueOf(parts[3].toUpperCase(Locale.ROOT));
+    		}
+    		catch (final IllegalArgumentException e)
+    		{
+    			throw new IllegalArgumentException("Ruler \"" + description + "\" must end with horizontal or vertical");
+    		}
+    	}
+    	return parts;
+    }
+    
+    /**
+     * Creates the executor that decodes the images at startup. The threads do not keep the application alive.
+     * 
+     * @return The executor
+     */
+    private static ExecutorService createImageLoader()
+    {
+    	return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() 
+    	{
+    		/**
+    		 * The number of created threads
+    		 */
+    		private final AtomicInteger threadCount = new AtomicInteger();
+    		
+			@Override
+			public Thread newThread(final Runnable runnable) 
+			{
+				final Thread thread = new Thread(runnable, "image-loader-" + this.threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+    }
+    
+    /**
+     * Waits until all images are decoded. Images that can not be decoded are logged, the controls report 
+     * the error again when they are painted.
+     * 
+     * @param images The decoding tasks
+     */
+    private static void awaitImages(final List<Future<BufferedImage>> images)
+    {
+    	for (final Future<BufferedImage> image : images)
+    	{
+    		try
+			{
+				image.get();
+			}
+			catch (final ExecutionException e)
+			{
+				log.warn("Could not preload image", e.getCause());
+			}
+			catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return;
+			}
+    	}
+    }
+
+	/**
+	 * @return The command line options
+	 */
+	private static Options createOptions()
+	{
+		final Options options = new Options();
+    	
+    	options.addOption("size", true, "The size of the panel at startup: width[xheight]");
+    	options.addOption("opacity", true, "The opacity of the panel at startup, between 0 and 1");
+    	options.addOption("loglevel", true, "The log4j level to use.");
+    	options.addOption("timing", false, "Print the duration of the startup phases.");
+    	options.addOption("ruler", true, "Opens a ruler: unit:start:end[:horizontal|vertical]. May be given several times.");
+    	options.addOption("automation", true, "Serves the rulers on this port of the loopback interface.");
+    	options.addOption("export", true, "Renders the rulers of this file to PNG files without a display and exits. "
+    			+ "One ruler per line: unit:start:end:width:height[:file]");
+    	options.addOption("vector", true, "Writes a ruler at physical scale to an SVG or PDF file and exits: "
+    			+ "unit:start:end:millimetersPerUnit:file.svg|file.pdf");
+    	options.addOption("output", true, "The directory the exported images are written to. Default: the current directory.");
+    	options.addOption("help", false, "Print this help and exit.");
+    	
+    	return options;
+	}
+
+    /**
+     * Prints an error and the usage to stderr.
+     * 
+     * @param message The error
+     */
+    private static void printUsage(final String message)
+    {
+    	System.err.println(message);
+    	final HelpFormatter formatter = new HelpFormatter();
+    	final PrintWriter err = new PrintWriter(System.err);
+    	formatter.printHelp(err, formatter.getWidth(), "screenruler", null, createOptions(), formatter.getLeftPadding(), 
+    			formatter.getDescPadding(), null);
+    	err.flush();
     }
 
     /**
@@ -72,14 +556,7 @@ public class App
      */
 	private static CommandLine parseOptions(final String[] args) 
 	{
-		// TODO finish this!
-		
-		final Options options = new Options();
-    	
-    	options.addOption("size", true, "The size of the panel at startup");
-    	options.addOption("opacity", true, "The opacity of the panel at startup");
-    	options.addOption("loglevel", true, "The log4j level to use.");
-    	options.addOption("help", false, "Print this help and exit.");
+		final Options options = createOptions();
     	
     	final HelpFormatter formatter = new HelpFormatter(); 
     	
@@ -96,8 +573,8 @@ public class App
 		} 
     	catch (final ParseException e) 
     	{
-    		formatter.printHelp("screenruler", options);
-    		System.exit(0);
+    		printUsage(e.getMessage());
+    		System.exit(1);
 		}
     	return null;
 	}
@@ -0,0 +1,123 @@
+package de.thomasvoecking.screenruler;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Records the duration of the startup phases. Phases may overlap and may be recorded from several threads.
+ *
+ * @author thomas
+ */
+public final class StartupTimer
+{
+
+	/**
+	 * The padding of the phase names in the printed table
+	 */
+	private static final int phasePadding = 20;
+
+	/**
+	 * The name of the phase from the start of the JVM to the start of the timer
+	 */
+	private static final String jvmPhase = "jvm";
+
+	/**
+	 * The time the timer has been started at, in ns
+	 */
+	private final long startNanos = System.nanoTime();
+
+	/**
+	 * The time the timer has been started at, in ms
+	 */
+	private final long startMillis = System.currentTimeMillis();
+
+	/**
+	 * Start and end time of each phase in ns since the start of the timer. The end time is -1 while the phase
+	 * is running.
+	 */
+	private final Map<String, long[]> phases = new LinkedHashMap<String, long[]>();
+
+	/**
+	 * Starts a phase.
+	 *
+	 * @param phase The name of the phase
+	 */
+	public synchronized void begin(final String phase)
+	{
+		this.phases.put(phase, new long[] { System.nanoTime() - this.startNanos, -1 });
+	}
+
+	/**
+	 * Ends a phase.
+	 *
+	 * @param phase The name of the phase
+	 * @throws IllegalStateException if the phase has not been started.
+	 */
+	public synchronized void end(final String phase)
+	{
+		final long[] times = this.phases.get(phase);
+		if (times == null) throw new IllegalStateException("Phase \"" + phase + "\" has not been started");
+		times[1] = System.nanoTime() - this.startNanos;
+	}
+
+	/**
+	 * @param phase The name of the phase
+	 * @return The duration of the phase in ns, or -1 if the phase has not been finished.
+	 */
+	public synchronized long getDurationNanos(final String phase)
+	{
+		final long[] times = this.phases.get(phase);
+		return times == null || times[1] < 0 ? -1 : times[1] - times[0];
+	}
+
+	/**
+	 * Prints all phases ordered by their start. The first line is the time from the start of the JVM to the
+	 * start of the timer, which is mostly class loading.
+	 *
+	 * @param out The stream to print to
+	 */
+	public synchronized void print(final PrintStream out)
+	{
+		out.println(StringUtils.rightPad("phase", phasePadding) + StringUtils.leftPad("start", 10)
+				+ StringUtils.leftPad("duration", 10));
+		out.println(StringUtils.rightPad(jvmPhase, phasePadding) + StringUtils.leftPad("", 10)
+				+ StringUtils.leftPad((this.startMillis - ManagementFactory.getRuntimeMXBean().getStartTime()) + " ms", 10));
+
+		final List<Map.Entry<String, long[]>> entries = new ArrayList<Map.Entry<String, long[]>>(this.phases.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, long[]>>()
+		{
+			@Override
+			public int compare(final Map.Entry<String, long[]> o1, final Map.Entry<String, long[]> o2)
+			{
+				return o1.getValue()[0] < o2.getValue()[0] ? -1 : (o1.getValue()[0] == o2.getValue()[0] ? 0 : 1);
+			}
+		});
+		for (final Map.Entry<String, long[]> entry : entries)
+		{
+			final long[] times = entry.getValue();
+			out.println(StringUtils.rightPad(entry.getKey(), phasePadding)
+					+ StringUtils.leftPad(toMillis(times[0]) + " ms", 10)
+					+ StringUtils.leftPad(times[1] < 0 ? "-" : toMillis(times[1] - times[0]) + " ms", 10));
+		}
+		out.println(StringUtils.rightPad("loaded classes", phasePadding) + StringUtils.leftPad("", 10)
+				+ StringUtils.leftPad(String.valueOf(ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount()), 10));
+	}
+
+	/**
+	 * @param nanos A time in ns
+	 * @return The time in ms
+	 */
+	private static long toMillis(final long nanos)
+	{
+		return nanos / 1000000;
+	}
+
+}
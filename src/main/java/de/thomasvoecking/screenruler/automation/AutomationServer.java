@@ -0,0 +1,614 @@
+package de.thomasvoecking.screenruler.automation;
+
+import java.awt.Rectangle;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.thomasvoecking.screenruler.event.BackPressure;
+import de.thomasvoecking.screenruler.event.RulerEvent;
+import de.thomasvoecking.screenruler.event.RulerEventListener;
+import de.thomasvoecking.screenruler.event.Subscription;
+import de.thomasvoecking.screenruler.journal.Measurement;
+
+/**
+ * Line based automation server on the loopback interface.
+ *
+ * All connections are served by one selector thread. Requests are answered from the snapshots of the
+ * {@link RulerController}, so the server never waits for the event dispatch thread. Changes of the rulers are
+ * received through a coalescing subscription and coalesced per ruler again until the selector thread picks them
+ * up, encoded once and appended to the output of all subscribers. The output of a connection is written with one
+ * call per loop iteration.
+ *
+ * Requests:
+ * <pre>
+ * LIST                          RULER line for each open ruler, then END
+ * GET index                     RULER line
+ * SET index start end           OK, changes the range
+ * MOVE index x y width height   OK, changes the bounds
+ * SUBSCRIBE                     OK, then an EVENT or CLOSED line for each change
+ * UNSUBSCRIBE                   OK
+ * </pre>
+ * A RULER or EVENT line is "index x y width height horizontal|vertical start end unit". Errors are answered by
+ * "ERROR message".
+ *
+ * @author thomas
+ */
+public class AutomationServer implements RulerEventListener, Closeable
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(AutomationServer.class);
+
+	/**
+	 * The charset of the protocol
+	 */
+	private static final Charset charset = Charset.forName("UTF-8");
+
+	/**
+	 * The maximum length of a request in bytes
+	 */
+	private static final int maxLineLength = 1024;
+
+	/**
+	 * The maximum output in bytes a connection may lag behind before it is closed
+	 */
+	private static final int maxPendingOutput = 1 << 20;
+
+	/**
+	 * The capacity of the event queue
+	 */
+	private static final int eventQueueCapacity = 256;
+
+	/**
+	 * The rulers that are served
+	 */
+	private final RulerController rulerController;
+
+	/**
+	 * The port to listen on. 0 for any free port.
+	 */
+	private final int port;
+
+	/**
+	 * Receives the requests. Only used on the selector thread.
+	 */
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+
+	/**
+	 * The changes that have not been sent yet, the latest change of each ruler by its index
+	 */
+	private final ConcurrentHashMap<Integer, RulerEvent> pendingEvents = new ConcurrentHashMap<Integer, RulerEvent>();
+
+	/**
+	 * Set if the selector has been woken up and not yet picked up the pending events
+	 */
+	private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+	/**
+	 * The open connections. Only used on the selector thread.
+	 */
+	private final List<Connection> connections = new ArrayList<Connection>();
+
+	/**
+	 * The selector. Null if the server is not running.
+	 */
+	private volatile Selector selector;
+
+	/**
+	 * The server channel
+	 */
+	private ServerSocketChannel serverChannel;
+
+	/**
+	 * The selector thread
+	 */
+	private Thread thread;
+
+	/**
+	 * Receives the changes of the rulers
+	 */
+	private Subscription subscription;
+
+	/**
+	 * The number of write calls
+	 */
+	private volatile long writeCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param rulerController The rulers that are served
+	 * @param port The port to listen on. 0 for any free port.
+	 */
+	public AutomationServer(final RulerController rulerController, final int port)
+	{
+		checkPort(port);
+
+		this.rulerController = rulerController;
+		this.port = port;
+	}
+
+	/**
+	 * Checks a port before the server is created.
+	 *
+	 * @param port The port to listen on. 0 for any free port.
+	 * @throws IllegalArgumentException if the port is invalid.
+	 */
+	public static void checkPort(final int port)
+	{
+		if (port < 0 || port > 0xffff)
+			throw new IllegalArgumentException("Param \"port\" must be between 0 and 65535, but is " + port);
+	}
+
+	/**
+	 * Binds the server to the loopback interface and starts the selector thread.
+	 *
+	 * @throws IOException if the server could not be bound.
+	 */
+	public synchronized void start() throws IOException
+	{
+		if (this.selector != null) return;
+
+		final Selector newSelector = Selector.open();
+		try
+		{
+			this.serverChannel = ServerSocketChannel.open();
+			this.serverChannel.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), this.port));
+			this.serverChannel.configureBlocking(false);
+			this.serverChannel.register(newSelector, SelectionKey.OP_ACCEPT);
+		}
+		catch (final IOException e)
+		{
+			if (this.serverChannel != null) this.serverChannel.close();
+			newSelector.close();
+			throw e;
+		}
+		this.selector = newSelector;
+		this.subscription = this.rulerController.getEventBus().subscribe("automation", this, BackPressure.COALESCE,
+				eventQueueCapacity);
+
+		this.thread = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				AutomationServer.this.run(newSelector);
+			}
+		}, "automation-server");
+		this.thread.setDaemon(true);
+		this.thread.start();
+		log.info("Automation server listening on " + this.serverChannel.socket().getLocalSocketAddress());
+	}
+
+	/**
+	 * @return The port the server listens on
+	 */
+	public int getPort()
+	{
+		return this.serverChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * @return The number of write calls
+	 */
+	public long getWriteCount()
+	{
+		return this.writeCount;
+	}
+
+	/**
+	 * Stops the server and closes all connections.
+	 *
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public synchronized void close() throws IOException
+	{
+		final Selector runningSelector = this.selector;
+		if (runningSelector == null) return;
+
+		this.subscription.cancel();
+		this.selector = null;
+		runningSelector.wakeup();
+		try
+		{
+			this.thread.join();
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Queues the change for the subscribers. Replaces an earlier change of the same ruler that has not been sent
+	 * yet.
+	 *
+	 * @see de.thomasvoecking.screenruler.event.RulerEventListener#rulerEvent(de.thomasvoecking.screenruler.event.RulerEvent)
+	 */
+	@Override
+	public void rulerEvent(final RulerEvent event)
+	{
+		this.pendingEvents.put(Integer.valueOf(event.getMeasurement().getRulerIndex()), event);
+
+		// One wakeup per batch of events
+		final Selector runningSelector = this.selector;
+		if (runningSelector != null && this.wakeupPending.compareAndSet(false, true)) runningSelector.wakeup();
+	}
+
+	/**
+	 * The selector loop. Runs until the server is closed.
+	 *
+	 * @param runningSelector The selector
+	 */
+	private void run(final Selector runningSelector)
+	{
+		try
+		{
+			while (this.selector != null)
+			{
+				runningSelector.select();
+				this.wakeupPending.set(false);
+
+				final Iterator<SelectionKey> keys = runningSelector.selectedKeys().iterator();
+				while (keys.hasNext())
+				{
+					final SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) continue;
+
+					if (key.isAcceptable())
+					{
+						this.accept(runningSelector);
+						continue;
+					}
+
+					final Connection connection = (Connection) key.attachment();
+					try
+					{
+						if (key.isReadable()) this.read(connection);
+					}
+					catch (final IOException e)
+					{
+						log.debug("Connection failed", e);
+						this.close(connection);
+					}
+				}
+
+				this.dispatchEvents();
+				this.flush();
+			}
+		}
+		catch (final IOException e)
+		{
+			log.warn("Automation server failed", e);
+		}
+		catch (final ClosedSelectorException e)
+		{
+			log.warn("Automation server failed", e);
+		}
+		finally
+		{
+			for (final Connection connection : new ArrayList<Connection>(this.connections))
+			{
+				this.close(connection);
+			}
+			try
+			{
+				this.serverChannel.close();
+				runningSelector.close();
+			}
+			catch (final IOException e)
+			{
+				log.warn("Could not close automation server", e);
+			}
+			log.debug("Automation server stopped");
+		}
+	}
+
+	/**
+	 * Accepts a connection.
+	 *
+	 * @param runningSelector The selector
+	 * @throws IOException if the server channel failed.
+	 */
+	private void accept(final Selector runningSelector) throws IOException
+	{
+		final SocketChannel channel = this.serverChannel.accept();
+		if (channel == null) return;
+
+		channel.configureBlocking(false);
+		final Connection connection = new Connection(channel);
+		connection.key = channel.register(runningSelector, SelectionKey.OP_READ, connection);
+		this.connections.add(connection);
+		log.debug("Accepted " + channel.socket().getRemoteSocketAddress());
+	}
+
+	/**
+	 * Reads the available input of a connection and handles all complete requests.
+	 *
+	 * @param connection The connection
+	 * @throws IOException if the connection failed.
+	 */
+	private void read(final Connection connection) throws IOException
+	{
+		this.readBuffer.clear();
+		final int count = connection.channel.read(this.readBuffer);
+		if (count < 0)
+		{
+			this.close(connection);
+			return;
+		}
+
+		for (int i = 0; i < count; i++)
+		{
+			final byte b = this.readBuffer.get(i);
+			if (b == '\n')
+			{
+				this.handle(connection, new String(connection.line, 0, connection.lineLength, charset).trim());
+				connection.lineLength = 0;
+			}
+			else if (connection.lineLength == maxLineLength)
+			{
+				throw new IOException("Request is longer than " + maxLineLength + " bytes");
+			}
+			else
+			{
+				connection.line[connection.lineLength++] = b;
+			}
+		}
+	}
+
+	/**
+	 * Handles a request.
+	 *
+	 * @param connection The connection
+	 * @param request The request
+	 */
+	private void handle(final Connection connection, final String request)
+	{
+		if (request.length() == 0) return;
+
+		final String[] parts = request.split("\\s+");
+		final String command = parts[0].toUpperCase(Locale.ROOT);
+		try
+		{
+			if ("LIST".equals(command) && parts.length == 1)
+			{
+				for (final Measurement measurement : this.rulerController.getMeasurements())
+				{
+					connection.write(format("RULER", measurement));
+				}
+				connection.write("END\n");
+			}
+			else if ("GET".equals(command) && parts.length == 2)
+			{
+				final Measurement measurement = this.rulerController.getMeasurement(Integer.parseInt(parts[1]));
+				if (measurement == null) throw new IllegalArgumentException("Ruler " + parts[1] + " does not exist");
+				connection.write(format("RULER", measurement));
+			}
+			else if ("SET".equals(command) && parts.length == 4)
+			{
+				this.rulerController.setRulerRange(Integer.parseInt(parts[1]), Double.parseDouble(parts[2]),
+						Double.parseDouble(parts[3]));
+				connection.write("OK\n");
+			}
+			else if ("MOVE".equals(command) && parts.length == 6)
+			{
+				this.rulerController.setRulerBounds(Integer.parseInt(parts[1]), new Rectangle(Integer.parseInt(parts[2]),
+						Integer.parseInt(parts[3]), Integer.parseInt(parts[4]), Integer.parseInt(parts[5])));
+				connection.write("OK\n");
+			}
+			else if ("SUBSCRIBE".equals(command) && parts.length == 1)
+			{
+				connection.subscribed = true;
+				connection.write("OK\n");
+			}
+			else if ("UNSUBSCRIBE".equals(command) && parts.length == 1)
+			{
+				connection.subscribed = false;
+				connection.write("OK\n");
+			}
+			else
+			{
+				connection.write("ERROR Unknown request: " + request + "\n");
+			}
+		}
+		catch (final IllegalArgumentException e)
+		{
+			// Includes NumberFormatException
+			connection.write("ERROR " + e.getMessage() + "\n");
+		}
+	}
+
+	/**
+	 * Appends the pending events to the output of all subscribers. Each event is encoded once.
+	 */
+	private void dispatchEvents()
+	{
+		if (this.pendingEvents.isEmpty()) return;
+
+		final Iterator<RulerEvent> events = this.pendingEvents.values().iterator();
+		while (events.hasNext())
+		{
+			final RulerEvent rulerEvent = events.next();
+			final Measurement measurement = rulerEvent.getMeasurement();
+			// Only removes the event if it has not been replaced in the meantime
+			this.pendingEvents.remove(Integer.valueOf(measurement.getRulerIndex()), rulerEvent);
+
+			final byte[] event = (rulerEvent.getType() == RulerEvent.Type.CLOSED
+					? "CLOSED " + measurement.getRulerIndex() + "\n"
+					: format("EVENT", measurement)).getBytes(charset);
+			for (final Connection connection : this.connections)
+			{
+				if (connection.subscribed) connection.write(event);
+			}
+		}
+	}
+
+	/**
+	 * Writes the output of all connections with one write call each. Closes connections that lag too far behind.
+	 */
+	private void flush()
+	{
+		for (final Connection connection : new ArrayList<Connection>(this.connections))
+		{
+			if (connection.output.position() == 0 && connection.key.interestOps() == SelectionKey.OP_READ) continue;
+
+			try
+			{
+				connection.output.flip();
+				connection.channel.write(connection.output);
+				this.writeCount++;
+				connection.output.compact();
+			}
+			catch (final IOException e)
+			{
+				log.debug("Connection failed", e);
+				this.close(connection);
+				continue;
+			}
+
+			if (connection.output.position() > maxPendingOutput)
+			{
+				log.warn("Closing " + connection.channel.socket().getRemoteSocketAddress() + ", it does not read its events");
+				this.close(connection);
+			}
+			else
+			{
+				// Wakes up the selector when the rest of the output can be written
+				connection.key.interestOps(connection.output.position() == 0 
+						? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			}
+		}
+	}
+
+	/**
+	 * Closes a connection.
+	 *
+	 * @param connection The connection
+	 */
+	private void close(final Connection connection)
+	{
+		this.connections.remove(connection);
+		if (connection.key != null) connection.key.cancel();
+		try
+		{
+			connection.channel.close();
+		}
+		catch (final IOException e)
+		{
+			log.debug("Could not close connection", e);
+		}
+	}
+
+	/**
+	 * @param type The type of the line
+	 * @param measurement The state of a ruler
+	 * @return The line that describes the state
+	 */
+	static String format(final String type, final Measurement measurement)
+	{
+		final Rectangle bounds = measurement.getBounds();
+		return type + " " + measurement.getRulerIndex()
+				+ " " + bounds.x + " " + bounds.y + " " + bounds.width + " " + bounds.height
+				+ " " + (measurement.isVertical() ? "vertical" : "horizontal")
+				+ " " + measurement.getRulerStartValue() + " " + measurement.getRulerEndValue()
+				+ " " + measurement.getUnitName() + "\n";
+	}
+
+	/**
+	 * The state of one connection
+	 *
+	 * @author thomas
+	 */
+	private static class Connection
+	{
+
+		/**
+		 * The channel
+		 */
+		private final SocketChannel channel;
+
+		/**
+		 * The key of the channel
+		 */
+		private SelectionKey key;
+
+		/**
+		 * The bytes of the incomplete request
+		 */
+		private final byte[] line = new byte[maxLineLength];
+
+		/**
+		 * The number of bytes of the incomplete request
+		 */
+		private int lineLength;
+
+		/**
+		 * The output that has not been written yet
+		 */
+		private ByteBuffer output = ByteBuffer.allocate(4096);
+
+		/**
+		 * Set if the connection receives the events
+		 */
+		private boolean subscribed;
+
+		/**
+		 * Constructor
+		 *
+		 * @param channel The channel
+		 */
+		Connection(final SocketChannel channel)
+		{
+			this.channel = channel;
+		}
+
+		/**
+		 * @param text Appended to the output
+		 */
+		void write(final String text)
+		{
+			this.write(text.getBytes(charset));
+		}
+
+		/**
+		 * @param bytes Appended to the output
+		 */
+		void write(final byte[] bytes)
+		{
+			if (this.output.remaining() < bytes.length)
+			{
+				final ByteBuffer newOutput = ByteBuffer.allocate(Math.max(this.output.capacity() * 2,
+						this.output.position() + bytes.length));
+				this.output.flip();
+				newOutput.put(this.output);
+				this.output = newOutput;
+			}
+			this.output.put(bytes);
+		}
+
+	}
+
+}
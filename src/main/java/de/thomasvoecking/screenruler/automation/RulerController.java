@@ -0,0 +1,55 @@
+package de.thomasvoecking.screenruler.automation;
+
+import java.awt.Rectangle;
+import java.util.List;
+
+import de.thomasvoecking.screenruler.event.EventBus;
+import de.thomasvoecking.screenruler.journal.Measurement;
+
+/**
+ * Gives access to the open rulers from outside the event dispatch thread.
+ *
+ * The state is read from snapshots, so queries never wait for the event dispatch thread. Changes are validated
+ * immediately and applied asynchronously. Their result is published on the {@link EventBus}.
+ *
+ * @author thomas
+ */
+public interface RulerController
+{
+
+	/**
+	 * @return The current state of all open rulers, ordered by their index
+	 */
+	List<Measurement> getMeasurements();
+
+	/**
+	 * @param rulerIndex The index of the ruler
+	 * @return The current state of the ruler. Null if there is no open ruler with this index.
+	 */
+	Measurement getMeasurement(int rulerIndex);
+
+	/**
+	 * Changes the range of a ruler.
+	 *
+	 * @param rulerIndex The index of the ruler
+	 * @param rulerStartValue The new start value
+	 * @param rulerEndValue The new end value. Must be greater than the start value.
+	 * @throws IllegalArgumentException if there is no open ruler with this index or the range is invalid.
+	 */
+	void setRulerRange(int rulerIndex, double rulerStartValue, double rulerEndValue);
+
+	/**
+	 * Moves and resizes the window of a ruler.
+	 *
+	 * @param rulerIndex The index of the ruler
+	 * @param bounds The new bounds in screen coordinates. Must not be empty.
+	 * @throws IllegalArgumentException if there is no open ruler with this index or the bounds are empty.
+	 */
+	void setRulerBounds(int rulerIndex, Rectangle bounds);
+
+	/**
+	 * @return Publishes all changes of the rulers
+	 */
+	EventBus getEventBus();
+
+}
@@ -0,0 +1,199 @@
+package de.thomasvoecking.screenruler.capture;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds visual edges across a strip of pixels.
+ *
+ * The strip runs along an axis. For each position on the axis, the luminance differences to the previous
+ * position are summed over the depth of the strip. Positions where this gradient is a local maximum and
+ * reaches the threshold are edges. The gradient is computed in parallel on a fork/join pool.
+ *
+ * @author thomas
+ */
+public class EdgeDetector
+{
+
+	/**
+	 * The pool for all detectors. Its threads are daemon threads.
+	 */
+	private static final ForkJoinPool pool = new ForkJoinPool();
+
+	/**
+	 * Positions per task below which the gradient is computed sequentially
+	 */
+	private static final int sequentialLength = 512;
+
+	/**
+	 * The minimum average luminance difference (1 - 255) of an edge
+	 */
+	private final int threshold;
+
+	/**
+	 * Constructor
+	 *
+	 * @param threshold The minimum average luminance difference (1 - 255) of an edge
+	 */
+	public EdgeDetector(final int threshold)
+	{
+		if (threshold < 1 || threshold > 255)
+			throw new IllegalArgumentException("Param \"threshold\" must be between 1 and 255, but is " + threshold);
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Finds the edges in a strip. The pixel at axis position i and depth j is
+	 * pixels[offset + i * axisStride + j * depthStride].
+	 *
+	 * @param pixels The RGB values of the strip
+	 * @param offset The index of the first pixel
+	 * @param length The length of the strip along the axis
+	 * @param axisStride The distance between two positions on the axis in the array
+	 * @param depth The depth of the strip
+	 * @param depthStride The distance between two rows of the strip in the array
+	 * @return The sorted axis positions of the edges. An edge at i lies between the positions i - 1 and i.
+	 */
+	public int[] findEdges(final int[] pixels, final int offset, final int length, final int axisStride,
+			final int depth, final int depthStride)
+	{
+		if (length < 2 || depth < 1) return new int[0];
+
+		final int[] gradient = new int[length];
+		pool.invoke(new GradientTask(pixels, offset, axisStride, depth, depthStride, gradient, 1, length));
+
+		final int minimum = this.threshold * depth;
+		final int[] edges = new int[length];
+		int edgeCount = 0;
+		for (int i = 1; i < length; i++)
+		{
+			final int value = gradient[i];
+			if (value >= minimum && value > gradient[i - 1] && (i == length - 1 || value >= gradient[i + 1]))
+			{
+				edges[edgeCount++] = i;
+			}
+		}
+		return Arrays.copyOf(edges, edgeCount);
+	}
+
+	/**
+	 * @param rgb An RGB value
+	 * @return The luminance (0 - 255)
+	 */
+	private static int luminance(final int rgb)
+	{
+		return (((rgb >> 16) & 0xff) * 77 + ((rgb >> 8) & 0xff) * 150 + (rgb & 0xff) * 29) >> 8;
+	}
+
+	/**
+	 * Computes the gradient of a range of axis positions, split into subtasks.
+	 *
+	 * @author thomas
+	 */
+	private static class GradientTask extends RecursiveAction
+	{
+
+		/**
+		 * SUID
+		 */
+		private static final long serialVersionUID = -8264310914727209431L;
+
+		/**
+		 * The RGB values of the strip
+		 */
+		private final int[] pixels;
+
+		/**
+		 * The index of the first pixel
+		 */
+		private final int offset;
+
+		/**
+		 * The distance between two positions on the axis in the array
+		 */
+		private final int axisStride;
+
+		/**
+		 * The depth of the strip
+		 */
+		private final int depth;
+
+		/**
+		 * The distance between two rows of the strip in the array
+		 */
+		private final int depthStride;
+
+		/**
+		 * Receives the gradient
+		 */
+		private final int[] gradient;
+
+		/**
+		 * The first position of the range
+		 */
+		private final int from;
+
+		/**
+		 * The end of the range (exclusive)
+		 */
+		private final int to;
+
+		/**
+		 * Constructor
+		 *
+		 * @param pixels The RGB values of the strip
+		 * @param offset The index of the first pixel
+		 * @param axisStride The distance between two positions on the axis in the array
+		 * @param depth The depth of the strip
+		 * @param depthStride The distance between two rows of the strip in the array
+		 * @param gradient Receives the gradient
+		 * @param from The first position of the range
+		 * @param to The end of the range (exclusive)
+		 */
+		GradientTask(final int[] pixels, final int offset, final int axisStride, final int depth, final int depthStride,
+				final int[] gradient, final int from, final int to)
+		{
+			this.pixels = pixels;
+			this.offset = offset;
+			this.axisStride = axisStride;
+			this.depth = depth;
+			this.depthStride = depthStride;
+			this.gradient = gradient;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute()
+		{
+			if (this.to - this.from > sequentialLength)
+			{
+				final int middle = (this.from + this.to) >>> 1;
+				invokeAll(
+						new GradientTask(this.pixels, this.offset, this.axisStride, this.depth, this.depthStride,
+								this.gradient, this.from, middle),
+						new GradientTask(this.pixels, this.offset, this.axisStride, this.depth, this.depthStride,
+								this.gradient, middle, this.to));
+				return;
+			}
+
+			for (int i = this.from; i < this.to; i++)
+			{
+				int sum = 0;
+				int index = this.offset + i * this.axisStride;
+				for (int j = 0; j < this.depth; j++)
+				{
+					sum += Math.abs(luminance(this.pixels[index]) - luminance(this.pixels[index - this.axisStride]));
+					index += this.depthStride;
+				}
+				this.gradient[i] = sum;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,88 @@
+package de.thomasvoecking.screenruler.capture;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+
+import javax.imageio.ImageIO;
+
+/**
+ * A screen backed by an image. Used where no screen is available, e.g. in headless tests.
+ * 
+ * @author thomas
+ */
+public class ImageScreenSource implements ScreenSource 
+{
+
+	/**
+	 * The image
+	 */
+	private final BufferedImage image;
+	
+	/**
+	 * The area of the image in screen coordinates
+	 */
+	private final Rectangle bounds;
+	
+	/**
+	 * The number of pixels that have been captured
+	 */
+	private long capturedPixelCount;
+	
+	/**
+	 * Constructor. The image is placed at the origin of the screen.
+	 * 
+	 * @param image The image
+	 */
+	public ImageScreenSource(final BufferedImage image) 
+	{
+		this.image = image;
+		this.bounds = new Rectangle(0, 0, image.getWidth(), image.getHeight());
+	}
+	
+	/**
+	 * Reads the screen from an image file, e.g. a PNG screenshot.
+	 * 
+	 * @param url The location of the image
+	 * @return The screen
+	 * @throws IOException if the image could not be read.
+	 */
+	public static ImageScreenSource read(final URL url) throws IOException
+	{
+		final BufferedImage image = ImageIO.read(url);
+		if (image == null) throw new IOException("\"" + url + "\" is no supported image");
+		return new ImageScreenSource(image);
+	}
+	
+	/**
+	 * @see de.thomasvoecking.screenruler.capture.ScreenSource#getBounds()
+	 */
+	@Override
+	public Rectangle getBounds() 
+	{
+		return new Rectangle(this.bounds);
+	}
+	
+	/**
+	 * @see de.thomasvoecking.screenruler.capture.ScreenSource#capture(java.awt.Rectangle, int[], int, int)
+	 */
+	@Override
+	public synchronized void capture(final Rectangle region, final int[] pixels, final int offset, final int scanline) 
+	{
+		if (!this.bounds.contains(region))
+			throw new IllegalArgumentException("Param \"region\" must be inside " + this.bounds + ", but is " + region);
+		
+		this.image.getRGB(region.x, region.y, region.width, region.height, pixels, offset, scanline);
+		this.capturedPixelCount += region.width * region.height;
+	}
+	
+	/**
+	 * @return The number of pixels that have been captured
+	 */
+	public synchronized long getCapturedPixelCount() 
+	{
+		return this.capturedPixelCount;
+	}
+	
+}
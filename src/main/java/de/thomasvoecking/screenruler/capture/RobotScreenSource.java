@@ -0,0 +1,74 @@
+package de.thomasvoecking.screenruler.capture;
+
+import java.awt.AWTException;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.Robot;
+import java.awt.image.BufferedImage;
+
+/**
+ * Captures the pixels of a screen device with a {@link Robot}.
+ * 
+ * @author thomas
+ */
+public class RobotScreenSource implements ScreenSource 
+{
+
+	/**
+	 * The robot
+	 */
+	private final Robot robot;
+	
+	/**
+	 * The area of the device in screen coordinates
+	 */
+	private final Rectangle bounds;
+	
+	/**
+	 * Constructor. Captures the default screen device.
+	 */
+	public RobotScreenSource() 
+	{
+		this(GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice());
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param device The device to capture
+	 * @throws IllegalStateException if the device can not be captured.
+	 */
+	public RobotScreenSource(final GraphicsDevice device) 
+	{
+		try 
+		{
+			this.robot = new Robot(device);
+		} 
+		catch (final AWTException e) 
+		{
+			throw new IllegalStateException("Screen \"" + device.getIDstring() + "\" can not be captured", e);
+		}
+		this.bounds = device.getDefaultConfiguration().getBounds();
+	}
+	
+	/**
+	 * @see de.thomasvoecking.screenruler.capture.ScreenSource#getBounds()
+	 */
+	@Override
+	public Rectangle getBounds() 
+	{
+		return new Rectangle(this.bounds);
+	}
+	
+	/**
+	 * @see de.thomasvoecking.screenruler.capture.ScreenSource#capture(java.awt.Rectangle, int[], int, int)
+	 */
+	@Override
+	public void capture(final Rectangle region, final int[] pixels, final int offset, final int scanline) 
+	{
+		final BufferedImage image = this.robot.createScreenCapture(region);
+		image.getRGB(0, 0, region.width, region.height, pixels, offset, scanline);
+	}
+	
+}
@@ -0,0 +1,29 @@
+package de.thomasvoecking.screenruler.capture;
+
+import java.awt.Rectangle;
+
+/**
+ * Provides the pixels of the screen.
+ * 
+ * @author thomas
+ */
+public interface ScreenSource 
+{
+
+	/**
+	 * @return The area of the screen that can be captured, in screen coordinates
+	 */
+	Rectangle getBounds();
+	
+	/**
+	 * Copies the pixels of a region of the screen into an array, in the layout of 
+	 * {@link java.awt.image.BufferedImage#getRGB(int, int, int, int, int[], int, int)}.
+	 * 
+	 * @param region The region in screen coordinates. Must be inside {@link #getBounds()}.
+	 * @param pixels Receives the pixels as RGB values
+	 * @param offset The index of the top left pixel of the region in the array
+	 * @param scanline The distance between two rows in the array
+	 */
+	void capture(Rectangle region, int[] pixels, int offset, int scanline);
+	
+}
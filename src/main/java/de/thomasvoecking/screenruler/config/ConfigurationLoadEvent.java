@@ -0,0 +1,35 @@
+package de.thomasvoecking.screenruler.config;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for one load of the configuration file, see {@link ScreenrulerSettings#load(java.io.File)}.
+ *
+ * @author thomas
+ */
+@Name("de.thomasvoecking.screenruler.ConfigurationLoad")
+@Label("Configuration Load")
+@Description("Reads the configuration file and compiles the settings")
+@Category({ "Screenruler", "Configuration" })
+@StackTrace(false)
+class ConfigurationLoadEvent extends jdk.jfr.Event
+{
+
+	/**
+	 * The configuration file
+	 */
+	@Label("Path")
+	String path;
+
+	/**
+	 * Set if the configuration has been read and is valid
+	 */
+	@Label("Loaded")
+	@Description("The configuration has been read and is valid")
+	boolean loaded;
+
+}
@@ -0,0 +1,176 @@
+package de.thomasvoecking.screenruler.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Watches the configuration file and swaps in new {@link ScreenrulerSettings} when it changes.
+ *
+ * Runs on its own daemon thread, so parsing never happens on the event dispatch thread. Edits are debounced:
+ * the file is only read when it has not been changed for {@link #debounceMillis} ms. Invalid configurations
+ * are logged and ignored, the current settings stay active.
+ *
+ * @author thomas
+ */
+public class ConfigurationWatcher implements Runnable
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(ConfigurationWatcher.class);
+
+	/**
+	 * The time in ms the file must be unchanged before it is read
+	 */
+	private static final long debounceMillis = 300;
+
+	/**
+	 * The configuration file
+	 */
+	private final File configurationFile;
+
+	/**
+	 * Receives the new settings
+	 */
+	private final SettingsSource settingsSource;
+
+	/**
+	 * The watch service. Null if the watcher is not running.
+	 */
+	private volatile WatchService watchService;
+
+	/**
+	 * Constructor
+	 *
+	 * @param configurationFile The configuration file
+	 * @param settingsSource Receives the new settings
+	 */
+	public ConfigurationWatcher(final File configurationFile, final SettingsSource settingsSource)
+	{
+		this.configurationFile = configurationFile.getAbsoluteFile();
+		this.settingsSource = settingsSource;
+	}
+
+	/**
+	 * Starts watching on a new daemon thread.
+	 *
+	 * @throws IOException if the directory of the configuration file can not be watched.
+	 */
+	public synchronized void start() throws IOException
+	{
+		if (this.watchService != null) return;
+
+		this.watchService = FileSystems.getDefault().newWatchService();
+		this.configurationFile.getParentFile().toPath().register(this.watchService,
+				StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+		final Thread thread = new Thread(this, "configuration-watcher");
+		thread.setDaemon(true);
+		thread.start();
+		log.debug("Watching " + this.configurationFile);
+	}
+
+	/**
+	 * Stops watching.
+	 */
+	public synchronized void stop()
+	{
+		if (this.watchService == null) return;
+
+		try
+		{
+			this.watchService.close();
+		}
+		catch (final IOException e)
+		{
+			log.warn("Could not close watch service", e);
+		}
+		this.watchService = null;
+	}
+
+	/**
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run()
+	{
+		final WatchService watchService = this.watchService;
+		try
+		{
+			while (true)
+			{
+				// Wait for the first change, then until the file is quiet
+				if (!this.pollChange(watchService.take())) continue;
+				WatchKey key;
+				while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null)
+				{
+					this.pollChange(key);
+				}
+				this.reload();
+			}
+		}
+		catch (final ClosedWatchServiceException e)
+		{
+			log.debug("Stopped watching " + this.configurationFile);
+		}
+		catch (final InterruptedException e)
+		{
+			log.debug("Interrupted while watching " + this.configurationFile);
+		}
+	}
+
+	/**
+	 * Consumes the events of a key.
+	 *
+	 * @param key The key
+	 * @return true if one of the events concerns the configuration file.
+	 */
+	private boolean pollChange(final WatchKey key)
+	{
+		boolean changed = false;
+		for (final WatchEvent<?> event : key.pollEvents())
+		{
+			final Object context = event.context();
+			if (context instanceof Path && ((Path) context).getFileName().toString().equals(this.configurationFile.getName()))
+			{
+				changed = true;
+			}
+		}
+		key.reset();
+		return changed;
+	}
+
+	/**
+	 * Reads the configuration file and swaps in the new settings.
+	 */
+	void reload()
+	{
+		log.debug("Reloading " + this.configurationFile);
+		try
+		{
+			this.settingsSource.update(ScreenrulerSettings.load(this.configurationFile));
+		}
+		catch (final ConfigurationException e)
+		{
+			log.warn("Could not load configuration, keeping current settings", e);
+		}
+		catch (final RuntimeException e)
+		{
+			log.warn("Invalid configuration, keeping current settings", e);
+		}
+	}
+
+}
@@ -0,0 +1,364 @@
+package de.thomasvoecking.screenruler.config;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.util.Locale;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+/**
+ * Immutable, validated snapshot of the configuration.
+ *
+ * Compiled once from the {@link Configuration}, so the UI never has to look up configuration keys while
+ * painting or dragging. Also contains the geometry that can be derived from the configuration.
+ *
+ * @author thomas
+ */
+public final class ScreenrulerSettings
+{
+
+	/**
+	 * The padding between the ruler and the resize controls.
+	 */
+	private static final int rulerPadding = 10;
+
+	/**
+	 * The size of the close button
+	 */
+	private static final int closeButtonSize = 16;
+
+	/**
+	 * The opacity of the window
+	 */
+	private final float windowOpacity;
+
+	/**
+	 * The initial width of the window
+	 */
+	private final int width;
+
+	/**
+	 * The height of the window
+	 */
+	private final int height;
+
+	/**
+	 * The minimum width of the window
+	 */
+	private final int minWidth;
+
+	/**
+	 * The width of the resize controls
+	 */
+	private final int resizeControlWidth;
+
+	/**
+	 * The height of the resize controls
+	 */
+	private final int resizeControlHeight;
+
+	/**
+	 * Window updates per second while dragging. 0 means the refresh rate of the display is used.
+	 */
+	private final int dragFrameRate;
+
+	/**
+	 * If set, the ruler is rendered on a background thread
+	 */
+	private final boolean backgroundRendering;
+
+	/**
+	 * How the opacity of the window is applied
+	 */
+	private final Translucency translucency;
+
+	/**
+	 * The distance between the window edges and the ruler
+	 */
+	private final int rulerInset;
+
+	/**
+	 * The bounding box of the left resize control
+	 */
+	private final Rectangle leftResizeControlBounds;
+
+	/**
+	 * Constructor
+	 *
+	 * @param windowOpacity The opacity of the window. Must be between 0 and 1.
+	 * @param width The initial width of the window. Must not be smaller than the minimum width.
+	 * @param height The height of the window. Must be greater than 0.
+	 * @param minWidth The minimum width of the window. Must leave space for the resize controls.
+	 * @param resizeControlWidth The width of the resize controls. Must be greater than 0.
+	 * @param resizeControlHeight The height of the resize controls. Must be greater than 0.
+	 * @param dragFrameRate Window updates per second while dragging. Must not be negative, 0 means the
+	 *   refresh rate of the display is used.
+	 * @param backgroundRendering If set, the ruler is rendered on a background thread
+	 * @param translucency How the opacity of the window is applied. Must not be null.
+	 */
+	public ScreenrulerSettings(final float windowOpacity, final int width, final int height, final int minWidth,
+			final int resizeControlWidth, final int resizeControlHeight, final int dragFrameRate,
+			final boolean backgroundRendering, final Translucency translucency)
+	{
+		if (windowOpacity < 0 || windowOpacity > 1)
+			throw new IllegalArgumentException("Param \"windowOpacity\" must be between 0 and 1, but is " + windowOpacity);
+		if (height <= 0)
+			throw new IllegalArgumentException("Param \"height\" must be > 0, but is " + height);
+		if (resizeControlWidth <= 0)
+			throw new IllegalArgumentException("Param \"resizeControlWidth\" must be > 0, but is " + resizeControlWidth);
+		if (resizeControlHeight <= 0)
+			throw new IllegalArgumentException("Param \"resizeControlHeight\" must be > 0, but is " + resizeControlHeight);
+		if (minWidth <= 2 * (resizeControlWidth + rulerPadding))
+			throw new IllegalArgumentException("Param \"minWidth\" must be > " + 2 * (resizeControlWidth + rulerPadding)
+					+ ", but is " + minWidth);
+		if (width < minWidth)
+			throw new IllegalArgumentException("Param \"width\" must be >= \"minWidth\", " +
+					"but width is " + width + " and minWidth is " + minWidth);
+		if (dragFrameRate < 0)
+			throw new IllegalArgumentException("Param \"dragFrameRate\" must be >= 0, but is " + dragFrameRate);
+		if (translucency == null)
+			throw new IllegalArgumentException("Param \"translucency\" must not be null");
+
+		this.windowOpacity = windowOpacity;
+		this.width = width;
+		this.height = height;
+		this.minWidth = minWidth;
+		this.resizeControlWidth = resizeControlWidth;
+		this.resizeControlHeight = resizeControlHeight;
+		this.dragFrameRate = dragFrameRate;
+		this.backgroundRendering = backgroundRendering;
+		this.translucency = translucency;
+
+		this.rulerInset = resizeControlWidth + rulerPadding;
+		this.leftResizeControlBounds = new Rectangle(0, 0, resizeControlWidth, resizeControlHeight);
+	}
+
+	/**
+	 * Reads the settings from a configuration file. Each load is recorded as a {@link ConfigurationLoadEvent}.
+	 *
+	 * @param configurationFile The configuration file
+	 * @return The settings
+	 * @throws ConfigurationException if the configuration file could not be read.
+	 * @throws IllegalArgumentException if the configuration contains invalid values.
+	 */
+	public static ScreenrulerSettings load(final File configurationFile) throws ConfigurationException
+	{
+		final ConfigurationLoadEvent event = new ConfigurationLoadEvent();
+		event.begin();
+		boolean loaded = false;
+		try
+		{
+			final ScreenrulerSettings settings = fromConfiguration(new XMLConfiguration(configurationFile));
+			loaded = true;
+			return settings;
+		}
+		finally
+		{
+			event.path = configurationFile.getPath();
+			event.loaded = loaded;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Compiles the settings from a configuration.
+	 *
+	 * @param configuration The configuration
+	 * @return The settings
+	 * @throws IllegalArgumentException if the configuration contains invalid values.
+	 */
+	public static ScreenrulerSettings fromConfiguration(final Configuration configuration)
+	{
+		return new ScreenrulerSettings(
+				configuration.getFloat("screenrulerFrame.window[@opacity]"),
+				configuration.getInt("screenrulerFrame.size[@width]"),
+				configuration.getInt("screenrulerFrame.size[@height]"),
+				configuration.getInt("screenrulerFrame.size[@minWidth]"),
+				configuration.getInt("screenrulerFrame.resizeControl.size[@width]"),
+				configuration.getInt("screenrulerFrame.resizeControl.size[@height]"),
+				configuration.getInt("screenrulerFrame.drag[@frameRate]", 0),
+				configuration.getBoolean("screenrulerFrame.render[@background]", false),
+				Translucency.valueOf(configuration.getString("screenrulerFrame.window[@translucency]", "auto").toUpperCase(Locale.ROOT)));
+	}
+
+	/**
+	 * @return The opacity of the window
+	 */
+	public float getWindowOpacity()
+	{
+		return this.windowOpacity;
+	}
+
+	/**
+	 * @return The initial width of the window
+	 */
+	public int getWidth()
+	{
+		return this.width;
+	}
+
+	/**
+	 * @return The height of the window
+	 */
+	public int getHeight()
+	{
+		return this.height;
+	}
+
+	/**
+	 * @return The minimum width of the window
+	 */
+	public int getMinWidth()
+	{
+		return this.minWidth;
+	}
+
+	/**
+	 * @return The width of the resize controls
+	 */
+	public int getResizeControlWidth()
+	{
+		return this.resizeControlWidth;
+	}
+
+	/**
+	 * @return The height of the resize controls
+	 */
+	public int getResizeControlHeight()
+	{
+		return this.resizeControlHeight;
+	}
+
+	/**
+	 * @return Window updates per second while dragging. 0 means the refresh rate of the display is used.
+	 */
+	public int getDragFrameRate()
+	{
+		return this.dragFrameRate;
+	}
+
+	/**
+	 * @return true if the ruler is rendered on a background thread
+	 */
+	public boolean isBackgroundRendering()
+	{
+		return this.backgroundRendering;
+	}
+
+	/**
+	 * @return How the opacity of the window is applied
+	 */
+	public Translucency getTranslucency()
+	{
+		return this.translucency;
+	}
+
+	/**
+	 * @return The distance between the window edges and the ruler
+	 */
+	public int getRulerInset()
+	{
+		return this.rulerInset;
+	}
+
+	/**
+	 * @param windowWidth The current width of the window
+	 * @param windowHeight The current height of the window
+	 * @return the bounding box for the ruler.
+	 */
+	public Rectangle getRulerBounds(final int windowWidth, final int windowHeight)
+	{
+		return new Rectangle(this.rulerInset, 0, windowWidth - 2 * this.rulerInset, windowHeight);
+	}
+
+	/**
+	 * @return the bounding box for the left resize control.
+	 */
+	public Rectangle getLeftResizeControlBounds()
+	{
+		return new Rectangle(this.leftResizeControlBounds);
+	}
+
+	/**
+	 * @param windowWidth The current width of the window
+	 * @return the bounding box for the right resize control.
+	 */
+	public Rectangle getRightResizeControlBounds(final int windowWidth)
+	{
+		return new Rectangle(windowWidth - this.resizeControlWidth, 0, this.resizeControlWidth, this.resizeControlHeight);
+	}
+
+	/**
+	 * @param windowHeight The current height of the window
+	 * @return the bounding box where the close button should be drawn to.
+	 */
+	public Rectangle getCloseButtonBounds(final int windowHeight)
+	{
+		return new Rectangle(4, windowHeight - closeButtonSize - 4, closeButtonSize, closeButtonSize);
+	}
+
+	/**
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (!(obj instanceof ScreenrulerSettings)) return false;
+		final ScreenrulerSettings other = (ScreenrulerSettings) obj;
+		return new EqualsBuilder()
+			.append(this.windowOpacity, other.windowOpacity)
+			.append(this.width, other.width)
+			.append(this.height, other.height)
+			.append(this.minWidth, other.minWidth)
+			.append(this.resizeControlWidth, other.resizeControlWidth)
+			.append(this.resizeControlHeight, other.resizeControlHeight)
+			.append(this.dragFrameRate, other.dragFrameRate)
+			.append(this.backgroundRendering, other.backgroundRendering)
+			.append(this.translucency, other.translucency)
+			.isEquals();
+	}
+
+	/**
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode()
+	{
+		return new HashCodeBuilder()
+			.append(this.windowOpacity)
+			.append(this.width)
+			.append(this.height)
+			.append(this.minWidth)
+			.append(this.resizeControlWidth)
+			.append(this.resizeControlHeight)
+			.append(this.dragFrameRate)
+			.append(this.backgroundRendering)
+			.append(this.translucency)
+			.toHashCode();
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return new ToStringBuilder(this)
+			.append("windowOpacity", this.windowOpacity)
+			.append("width", this.width)
+			.append("height", this.height)
+			.append("minWidth", this.minWidth)
+			.append("resizeControlWidth", this.resizeControlWidth)
+			.append("resizeControlHeight", this.resizeControlHeight)
+			.append("dragFrameRate", this.dragFrameRate)
+			.append("backgroundRendering", this.backgroundRendering)
+			.append("translucency", this.translucency)
+			.toString();
+	}
+
+}
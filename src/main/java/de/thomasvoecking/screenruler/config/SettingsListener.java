@@ -0,0 +1,19 @@
+package de.thomasvoecking.screenruler.config;
+
+/**
+ * Is notified when new settings have been swapped in.
+ * 
+ * @author thomas
+ */
+public interface SettingsListener 
+{
+
+	/**
+	 * Called on the event dispatch thread after new settings have been swapped in.
+	 * 
+	 * @param oldSettings The previous settings
+	 * @param newSettings The new settings
+	 */
+	void settingsChanged(ScreenrulerSettings oldSettings, ScreenrulerSettings newSettings);
+	
+}
@@ -0,0 +1,106 @@
+package de.thomasvoecking.screenruler.config;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.SwingUtilities;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Holds the current {@link ScreenrulerSettings}. New settings are swapped in atomically and can be provided
+ * from any thread, the listeners are always notified on the event dispatch thread.
+ * 
+ * @author thomas
+ */
+public class SettingsSource 
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(SettingsSource.class);
+	
+	/**
+	 * The current settings
+	 */
+	private final AtomicReference<ScreenrulerSettings> settings;
+	
+	/**
+	 * The registered listeners
+	 */
+	private final List<SettingsListener> listeners = new CopyOnWriteArrayList<SettingsListener>();
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param settings The initial settings
+	 */
+	public SettingsSource(final ScreenrulerSettings settings) 
+	{
+		if (settings == null) throw new IllegalArgumentException("Param \"settings\" must not be null");
+		this.settings = new AtomicReference<ScreenrulerSettings>(settings);
+	}
+	
+	/**
+	 * @return The current settings
+	 */
+	public ScreenrulerSettings get()
+	{
+		return this.settings.get();
+	}
+	
+	/**
+	 * Swaps in new settings and notifies all listeners on the event dispatch thread. 
+	 * Does nothing if the new settings are equal to the current ones.
+	 * 
+	 * @param newSettings The new settings
+	 */
+	public void update(final ScreenrulerSettings newSettings)
+	{
+		if (newSettings == null) throw new IllegalArgumentException("Param \"newSettings\" must not be null");
+		
+		final ScreenrulerSettings oldSettings = this.settings.getAndSet(newSettings);
+		if (oldSettings.equals(newSettings)) 
+		{
+			log.debug("Settings did not change");
+			return;
+		}
+		
+		log.info("New settings: " + newSettings);
+		SwingUtilities.invokeLater(new Runnable() 
+		{
+			@Override
+			public void run() 
+			{
+				for (final SettingsListener listener : SettingsSource.this.listeners)
+				{
+					listener.settingsChanged(oldSettings, newSettings);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Adds a listener.
+	 * 
+	 * @param listener The listener
+	 */
+	public void addSettingsListener(final SettingsListener listener)
+	{
+		this.listeners.add(listener);
+	}
+	
+	/**
+	 * Removes a listener.
+	 * 
+	 * @param listener The listener
+	 */
+	public void removeSettingsListener(final SettingsListener listener)
+	{
+		this.listeners.remove(listener);
+	}
+	
+}
@@ -0,0 +1,27 @@
+package de.thomasvoecking.screenruler.config;
+
+/**
+ * How the opacity of the window is applied.
+ *
+ * @author thomas
+ */
+public enum Translucency
+{
+
+	/**
+	 * Per-pixel translucency if the display supports it, otherwise a uniform opacity.
+	 */
+	AUTO,
+
+	/**
+	 * Only the background is translucent, the ticks and labels stay opaque. Falls back to a uniform opacity if
+	 * the display does not support it.
+	 */
+	PERPIXEL,
+
+	/**
+	 * The whole window is faded, including the ticks and labels.
+	 */
+	UNIFORM
+
+}
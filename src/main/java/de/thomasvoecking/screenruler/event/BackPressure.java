@@ -0,0 +1,31 @@
+package de.thomasvoecking.screenruler.event;
+
+/**
+ * What happens to an event if the queue of a subscription is full.
+ *
+ * @author thomas
+ */
+public enum BackPressure
+{
+
+	/**
+	 * The event is dropped. For listeners that only show the current state, like a display.
+	 */
+	DROP,
+
+	/**
+	 * A moved, resized or range changed event replaces the queued event of the same type and ruler, so a drag
+	 * occupies one slot per ruler no matter how fast it is. It never replaces an event queued before another
+	 * event of its ruler, so the order of the state and the other events is kept. No event is dropped: if the
+	 * queue is full, the events wait in an unbounded overflow queue, which only grows with the rare events that
+	 * can not be coalesced. The publisher never waits.
+	 */
+	COALESCE,
+
+	/**
+	 * The publisher waits until there is space. For listeners that must not lose events, like persistence. Must
+	 * only be used with listeners that keep up with the events in the long run, otherwise dragging stalls.
+	 */
+	BLOCK
+
+}
@@ -0,0 +1,154 @@
+package de.thomasvoecking.screenruler.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free bounded multi-producer multi-consumer queue after Dmitry Vyukov.
+ *
+ * Each slot has a sequence number that tells producers and consumers whether the slot is free for the current
+ * lap of the ring. A producer claims a slot by advancing the enqueue position with a CAS, writes the element
+ * and publishes it by setting the sequence number. Consumers work the same way on the dequeue position, so
+ * producers and consumers never contend on the same counter.
+ *
+ * @param <E> The type of the elements
+ * @author thomas
+ */
+final class BoundedQueue<E>
+{
+
+	/**
+	 * The elements
+	 */
+	private final AtomicReferenceArray<E> elements;
+
+	/**
+	 * The sequence number of each slot
+	 */
+	private final AtomicLongArray sequences;
+
+	/**
+	 * capacity - 1, the capacity is a power of two
+	 */
+	private final int mask;
+
+	/**
+	 * The position of the next offer
+	 */
+	private final AtomicLong enqueuePosition = new AtomicLong();
+
+	/**
+	 * The position of the next poll
+	 */
+	private final AtomicLong dequeuePosition = new AtomicLong();
+
+	/**
+	 * Constructor
+	 *
+	 * @param capacity The capacity. Rounded up to the next power of two.
+	 */
+	BoundedQueue(final int capacity)
+	{
+		if (capacity < 1 || capacity > 1 << 30)
+			throw new IllegalArgumentException("Param \"capacity\" must be between 1 and 2^30, but is " + capacity);
+
+		int size = 1;
+		while (size < capacity) size <<= 1;
+		this.elements = new AtomicReferenceArray<E>(size);
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++)
+		{
+			this.sequences.set(i, i);
+		}
+		this.mask = size - 1;
+	}
+
+	/**
+	 * @return The capacity
+	 */
+	int getCapacity()
+	{
+		return this.mask + 1;
+	}
+
+	/**
+	 * Adds an element if there is space.
+	 *
+	 * @param element The element. Must not be null.
+	 * @return true if the element has been added, false if the queue is full.
+	 */
+	boolean offer(final E element)
+	{
+		long position = this.enqueuePosition.get();
+		while (true)
+		{
+			final int index = (int) position & this.mask;
+			final long difference = this.sequences.get(index) - position;
+			if (difference == 0)
+			{
+				// The slot is free in this lap
+				if (this.enqueuePosition.compareAndSet(position, position + 1))
+				{
+					this.elements.lazySet(index, element);
+					this.sequences.set(index, position + 1);
+					return true;
+				}
+				position = this.enqueuePosition.get();
+			}
+			else if (difference < 0)
+			{
+				// The slot still holds the element of the previous lap
+				return false;
+			}
+			else
+			{
+				position = this.enqueuePosition.get();
+			}
+		}
+	}
+
+	/**
+	 * Removes the oldest element.
+	 *
+	 * @return The element. Null if the queue is empty.
+	 */
+	E poll()
+	{
+		long position = this.dequeuePosition.get();
+		while (true)
+		{
+			final int index = (int) position & this.mask;
+			final long difference = this.sequences.get(index) - (position + 1);
+			if (difference == 0)
+			{
+				// The slot has been filled in this lap
+				if (this.dequeuePosition.compareAndSet(position, position + 1))
+				{
+					final E element = this.elements.get(index);
+					this.elements.lazySet(index, null);
+					this.sequences.set(index, position + this.mask + 1);
+					return element;
+				}
+				position = this.dequeuePosition.get();
+			}
+			else if (difference < 0)
+			{
+				return null;
+			}
+			else
+			{
+				position = this.dequeuePosition.get();
+			}
+		}
+	}
+
+	/**
+	 * @return The number of elements. Only an estimate while other threads use the queue.
+	 */
+	int size()
+	{
+		return (int) Math.max(0, this.enqueuePosition.get() - this.dequeuePosition.get());
+	}
+
+}
@@ -0,0 +1,110 @@
+package de.thomasvoecking.screenruler.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Publishes {@link RulerEvent}s to subscribers without running them on the publishing thread.
+ *
+ * Every {@link Subscription} has its own lock-free bounded queue and dispatcher thread, so publishing an event
+ * costs one queue insertion per subscriber, and a slow subscriber does not delay the others. The rulers
+ * publish on the event dispatch thread while they are dragged, so subscribers like persistence or export
+ * never stall dragging, unless they choose {@link BackPressure#BLOCK}.
+ *
+ * @author thomas
+ */
+public class EventBus
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(EventBus.class);
+
+	/**
+	 * The active subscriptions
+	 */
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<Subscription>();
+
+	/**
+	 * Registers a listener.
+	 *
+	 * @param name The name of the subscription, used for its dispatcher thread
+	 * @param listener Receives the events
+	 * @param backPressure What happens to an event if the queue of the subscription is full
+	 * @param capacity The capacity of the queue. Rounded up to the next power of two.
+	 * @return The subscription
+	 */
+	public Subscription subscribe(final String name, final RulerEventListener listener, final BackPressure backPressure,
+			final int capacity)
+	{
+		final Subscription subscription = new Subscription(this, name, listener, backPressure, capacity);
+		subscription.start();
+		this.subscriptions.add(subscription);
+		log.debug("Subscribed " + name + " with " + backPressure + ", capacity " + capacity);
+		return subscription;
+	}
+
+	/**
+	 * Queues an event for all subscriptions. Only waits if a subscription with {@link BackPressure#BLOCK} is
+	 * full.
+	 *
+	 * @param event The event
+	 */
+	public void publish(final RulerEvent event)
+	{
+		for (final Subscription subscription : this.subscriptions)
+		{
+			subscription.offer(event);
+		}
+	}
+
+	/**
+	 * @param subscription A cancelled subscription
+	 */
+	void remove(final Subscription subscription)
+	{
+		this.subscriptions.remove(subscription);
+	}
+
+	/**
+	 * @return The active subscriptions
+	 */
+	public List<Subscription> getSubscriptions()
+	{
+		return Collections.unmodifiableList(this.subscriptions);
+	}
+
+	/**
+	 * Cancels all subscriptions and waits until their queued events have been delivered.
+	 *
+	 * @param timeoutMillis The maximum time to wait in ms
+	 * @return true if all events have been delivered
+	 */
+	public boolean close(final long timeoutMillis)
+	{
+		final List<Subscription> cancelled = new ArrayList<Subscription>(this.subscriptions);
+		for (final Subscription subscription : cancelled)
+		{
+			subscription.cancel();
+		}
+
+		final long deadline = System.currentTimeMillis() + timeoutMillis;
+		boolean terminated = true;
+		for (final Subscription subscription : cancelled)
+		{
+			if (!subscription.awaitTermination(Math.max(1, deadline - System.currentTimeMillis())))
+			{
+				log.warn("Subscription " + subscription.getName() + " did not deliver " + subscription.getQueuedCount() + " events");
+				terminated = false;
+			}
+		}
+		return terminated;
+	}
+
+}
@@ -0,0 +1,149 @@
+package de.thomasvoecking.screenruler.event;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import de.thomasvoecking.screenruler.journal.Measurement;
+
+/**
+ * A change of a ruler.
+ *
+ * @author thomas
+ */
+public final class RulerEvent
+{
+
+	/**
+	 * The kinds of changes
+	 *
+	 * @author thomas
+	 */
+	public enum Type
+	{
+		/** The ruler has been created */
+		CREATED(false),
+
+		/** The window has been moved */
+		MOVED(true),
+
+		/** The window has been resized */
+		RESIZED(true),
+
+		/** The range of the ruler has been changed */
+		RANGE_CHANGED(true),
+
+		/** The user started to drag the window, or to zoom or pan its range */
+		DRAG_STARTED(false),
+
+		/** The user stopped to drag the window, or a zoom or pan of its range has finished */
+		DRAG_ENDED(false),
+
+		/** The ruler has been closed */
+		CLOSED(false);
+
+		/**
+		 * true if an event of this type only reports the latest state, so it may be replaced by a later event
+		 * of the same type and ruler
+		 */
+		private final boolean coalescable;
+
+		/**
+		 * Constructor
+		 *
+		 * @param coalescable true if an event of this type may be replaced by a later one
+		 */
+		private Type(final boolean coalescable)
+		{
+			this.coalescable = coalescable;
+		}
+
+		/**
+		 * @return true if an event of this type may be replaced by a later event of the same type and ruler
+		 */
+		public boolean isCoalescable()
+		{
+			return this.coalescable;
+		}
+	}
+
+	/**
+	 * The kind of change
+	 */
+	private final Type type;
+
+	/**
+	 * The state of the ruler after the change
+	 */
+	private final Measurement measurement;
+
+	/**
+	 * Constructor
+	 *
+	 * @param type The kind of change. Must not be null.
+	 * @param measurement The state of the ruler after the change. Must not be null.
+	 */
+	public RulerEvent(final Type type, final Measurement measurement)
+	{
+		if (type == null) throw new IllegalArgumentException("Param \"type\" must not be null");
+		if (measurement == null) throw new IllegalArgumentException("Param \"measurement\" must not be null");
+
+		this.type = type;
+		this.measurement = measurement;
+	}
+
+	/**
+	 * @return The kind of change
+	 */
+	public Type getType()
+	{
+		return this.type;
+	}
+
+	/**
+	 * @return The state of the ruler after the change
+	 */
+	public Measurement getMeasurement()
+	{
+		return this.measurement;
+	}
+
+	/**
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (!(obj instanceof RulerEvent)) return false;
+		final RulerEvent other = (RulerEvent) obj;
+		return new EqualsBuilder()
+			.append(this.type, other.type)
+			.append(this.measurement, other.measurement)
+			.isEquals();
+	}
+
+	/**
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode()
+	{
+		return new HashCodeBuilder()
+			.append(this.type)
+			.append(this.measurement)
+			.toHashCode();
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return new ToStringBuilder(this)
+			.append("type", this.type)
+			.append("measurement", this.measurement)
+			.toString();
+	}
+
+}
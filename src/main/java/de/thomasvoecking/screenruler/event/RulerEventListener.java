@@ -0,0 +1,19 @@
+package de.thomasvoecking.screenruler.event;
+
+/**
+ * Receives the events of a {@link Subscription}.
+ *
+ * @author thomas
+ */
+public interface RulerEventListener
+{
+
+	/**
+	 * Called on the dispatcher thread of the subscription, one event at a time in the order they have been
+	 * published. May take its time, it never delays the publisher.
+	 *
+	 * @param event The event
+	 */
+	void rulerEvent(RulerEvent event);
+
+}
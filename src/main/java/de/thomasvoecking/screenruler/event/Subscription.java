@@ -0,0 +1,354 @@
+package de.thomasvoecking.screenruler.event;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A listener registered at an {@link EventBus}, with its own queue and dispatcher thread.
+ *
+ * The publisher only puts the event into the queue and wakes up the dispatcher if it is waiting. The listener
+ * runs on the dispatcher thread, so a slow listener only fills its own queue. What happens when the queue is
+ * full is determined by the {@link BackPressure}.
+ *
+ * @author thomas
+ */
+public final class Subscription
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(Subscription.class);
+
+	/**
+	 * The time in ns a blocked publisher waits before it checks the queue again
+	 */
+	private static final long blockedWaitNanos = TimeUnit.MICROSECONDS.toNanos(50);
+
+	/**
+	 * The bus this subscription is registered at
+	 */
+	private final EventBus eventBus;
+
+	/**
+	 * The name, used for the dispatcher thread
+	 */
+	private final String name;
+
+	/**
+	 * Receives the events
+	 */
+	private final RulerEventListener listener;
+
+	/**
+	 * What happens to an event if the queue is full
+	 */
+	private final BackPressure backPressure;
+
+	/**
+	 * The queued events. With {@link BackPressure#COALESCE}, coalescable events are represented by their key.
+	 */
+	private final BoundedQueue<Object> queue;
+
+	/**
+	 * With {@link BackPressure#COALESCE}, the events that did not fit into {@link #queue}. Once it is not empty,
+	 * all events are put here until it has been drained, so the order is kept. Only grows with the events that
+	 * can not be coalesced, which are rare.
+	 */
+	private final ConcurrentLinkedQueue<Object> overflow = new ConcurrentLinkedQueue<Object>();
+
+	/**
+	 * The latest coalescable event by its key, if the key is queued
+	 */
+	private final ConcurrentHashMap<Long, RulerEvent> latestEvents = new ConcurrentHashMap<Long, RulerEvent>();
+
+	/**
+	 * The number of queued other events per ruler. Part of the key of a coalescable event, so that a state event
+	 * never replaces one queued before the end of a drag or the close of its ruler.
+	 */
+	private final ConcurrentHashMap<Integer, Integer> rulerGenerations = new ConcurrentHashMap<Integer, Integer>();
+
+	/**
+	 * Delivers the events
+	 */
+	private final Thread dispatcher;
+
+	/**
+	 * Set while the dispatcher waits for events
+	 */
+	private volatile boolean waiting;
+
+	/**
+	 * Set when the subscription has been cancelled. The queued events are still delivered.
+	 */
+	private volatile boolean cancelled;
+
+	/**
+	 * The number of delivered events
+	 */
+	private volatile long deliveredCount;
+
+	/**
+	 * The number of dropped events
+	 */
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	/**
+	 * The number of events that have been replaced by a later event
+	 */
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	/**
+	 * The number of events the publisher had to wait for
+	 */
+	private final AtomicLong blockedCount = new AtomicLong();
+
+	/**
+	 * Constructor
+	 *
+	 * @param eventBus The bus this subscription is registered at
+	 * @param name The name, used for the dispatcher thread
+	 * @param listener Receives the events
+	 * @param backPressure What happens to an event if the queue is full
+	 * @param capacity The capacity of the queue. Rounded up to the next power of two.
+	 */
+	Subscription(final EventBus eventBus, final String name, final RulerEventListener listener,
+			final BackPressure backPressure, final int capacity)
+	{
+		this.eventBus = eventBus;
+		this.name = name;
+		this.listener = listener;
+		this.backPressure = backPressure;
+		this.queue = new BoundedQueue<Object>(capacity);
+		this.dispatcher = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				Subscription.this.dispatch();
+			}
+		}, "event-" + name);
+		this.dispatcher.setDaemon(true);
+	}
+
+	/**
+	 * Starts the dispatcher.
+	 */
+	void start()
+	{
+		this.dispatcher.start();
+	}
+
+	/**
+	 * Queues an event. Called by the publisher.
+	 *
+	 * @param event The event
+	 */
+	void offer(final RulerEvent event)
+	{
+		if (this.cancelled)
+		{
+			this.droppedCount.incrementAndGet();
+			return;
+		}
+
+		final Integer rulerIndex = Integer.valueOf(event.getMeasurement().getRulerIndex());
+		if (this.backPressure == BackPressure.COALESCE && event.getType().isCoalescable())
+		{
+			final Integer generation = this.rulerGenerations.get(rulerIndex);
+			final Long key = Long.valueOf((generation == null ? 0L : (long) generation.intValue() << 40)
+					| (long) rulerIndex.intValue() << 8 | event.getType().ordinal());
+			// If the key is still queued, the dispatcher picks up the replaced event
+			if (this.latestEvents.put(key, event) != null)
+			{
+				this.coalescedCount.incrementAndGet();
+				return;
+			}
+			this.enqueue(key);
+		}
+		else if (this.backPressure == BackPressure.COALESCE)
+		{
+			// The following state events of the ruler are queued after this event
+			final Integer generation = this.rulerGenerations.get(rulerIndex);
+			this.rulerGenerations.put(rulerIndex, Integer.valueOf(generation == null ? 1 : generation.intValue() + 1));
+			this.enqueue(event);
+		}
+		else if (!this.queue.offer(event))
+		{
+			if (this.backPressure != BackPressure.BLOCK)
+			{
+				this.droppedCount.incrementAndGet();
+				return;
+			}
+
+			this.blockedCount.incrementAndGet();
+			do
+			{
+				LockSupport.unpark(this.dispatcher);
+				LockSupport.parkNanos(blockedWaitNanos);
+				if (this.cancelled)
+				{
+					this.droppedCount.incrementAndGet();
+					return;
+				}
+			}
+			while (!this.queue.offer(event));
+		}
+
+		if (this.waiting) LockSupport.unpark(this.dispatcher);
+	}
+
+	/**
+	 * Queues an element without dropping it. Used with {@link BackPressure#COALESCE}, where the state events must
+	 * not be lost.
+	 *
+	 * @param element The event, or the key of a coalescable event
+	 */
+	private void enqueue(final Object element)
+	{
+		if (!this.overflow.isEmpty() || !this.queue.offer(element)) this.overflow.add(element);
+	}
+
+	/**
+	 * @return The next queued element. Null if there is none.
+	 */
+	private Object poll()
+	{
+		final Object element = this.queue.poll();
+		return element != null ? element : this.overflow.poll();
+	}
+
+	/**
+	 * The loop of the dispatcher. Runs until the subscription is cancelled and the queue is empty.
+	 */
+	private void dispatch()
+	{
+		while (true)
+		{
+			Object element = this.poll();
+			if (element == null)
+			{
+				// Announce the wait before checking again, so a publisher either sees it or its event is found
+				this.waiting = true;
+				element = this.poll();
+				if (element == null)
+				{
+					if (this.cancelled)
+					{
+						this.waiting = false;
+						return;
+					}
+					LockSupport.park(this);
+					this.waiting = false;
+					continue;
+				}
+				this.waiting = false;
+			}
+
+			final RulerEvent event = element instanceof RulerEvent ? (RulerEvent) element : this.latestEvents.remove(element);
+			if (event == null) continue;
+
+			try
+			{
+				this.listener.rulerEvent(event);
+			}
+			catch (final RuntimeException e)
+			{
+				log.warn("Listener " + this.name + " failed on " + event, e);
+			}
+			this.deliveredCount++;
+		}
+	}
+
+	/**
+	 * Removes the subscription from its bus. The queued events are still delivered.
+	 */
+	public void cancel()
+	{
+		this.eventBus.remove(this);
+		this.cancelled = true;
+		LockSupport.unpark(this.dispatcher);
+	}
+
+	/**
+	 * Waits until the queued events have been delivered after the subscription has been cancelled.
+	 *
+	 * @param timeoutMillis The maximum time to wait in ms
+	 * @return true if all events have been delivered
+	 */
+	boolean awaitTermination(final long timeoutMillis)
+	{
+		try
+		{
+			this.dispatcher.join(timeoutMillis);
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		return !this.dispatcher.isAlive();
+	}
+
+	/**
+	 * @return The name
+	 */
+	public String getName()
+	{
+		return this.name;
+	}
+
+	/**
+	 * @return What happens to an event if the queue is full
+	 */
+	public BackPressure getBackPressure()
+	{
+		return this.backPressure;
+	}
+
+	/**
+	 * @return The number of queued events. Only an estimate while events are published.
+	 */
+	public int getQueuedCount()
+	{
+		return this.queue.size() + this.overflow.size();
+	}
+
+	/**
+	 * @return The number of delivered events
+	 */
+	public long getDeliveredCount()
+	{
+		return this.deliveredCount;
+	}
+
+	/**
+	 * @return The number of dropped events
+	 */
+	public long getDroppedCount()
+	{
+		return this.droppedCount.get();
+	}
+
+	/**
+	 * @return The number of events that have been replaced by a later event
+	 */
+	public long getCoalescedCount()
+	{
+		return this.coalescedCount.get();
+	}
+
+	/**
+	 * @return The number of events the publisher had to wait for
+	 */
+	public long getBlockedCount()
+	{
+		return this.blockedCount.get();
+	}
+
+}
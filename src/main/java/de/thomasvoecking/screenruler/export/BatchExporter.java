@@ -0,0 +1,344 @@
+package de.thomasvoecking.screenruler.export;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.thomasvoecking.screenruler.ui.LabelCache;
+
+/**
+ * Renders rulers to PNG files without a display.
+ *
+ * The specs are read one line at a time, see {@link RulerSpec#parse(String, LabelCache)}. Empty lines and lines
+ * starting with "#" are skipped. The images are rendered and encoded by a fixed number of threads. The work queue
+ * is bounded: if it is full, the reading thread renders the next image itself, so any number of specs is
+ * exported in constant memory. Each thread reuses its image buffer and PNG writer, and the writer encodes
+ * directly into the file.
+ *
+ * The rulers are painted black on white, so the images are grayscale. Most of the time is spent compressing the
+ * pixels, and a gray pixel is a third of the data of an RGB pixel.
+ *
+ * An image that can not be written is logged and counted, the others are still exported.
+ *
+ * @author thomas
+ */
+public class BatchExporter
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(BatchExporter.class);
+
+	/**
+	 * The maximum number of cached labels, shared by all threads
+	 */
+	private static final int labelCacheSize = 4096;
+
+	/**
+	 * The number of queued images per thread
+	 */
+	private static final int queuedImagesPerThread = 2;
+
+	/**
+	 * The directory the images are written to
+	 */
+	private final File outputDirectory;
+
+	/**
+	 * The number of threads
+	 */
+	private final int threadCount;
+
+	/**
+	 * The cache for the measured labels, shared by all rulers
+	 */
+	private final LabelCache labelCache = new LabelCache(labelCacheSize);
+
+	/**
+	 * The image buffer of each thread. Grows to the largest image of the thread.
+	 */
+	private final ThreadLocal<BufferedImage> images = new ThreadLocal<BufferedImage>();
+
+	/**
+	 * The PNG writer of each thread
+	 */
+	private final ThreadLocal<ImageWriter> imageWriters = new ThreadLocal<ImageWriter>()
+	{
+		/**
+		 * @see java.lang.ThreadLocal#initialValue()
+		 */
+		@Override
+		protected ImageWriter initialValue()
+		{
+			return ImageIO.getImageWritersByFormatName("png").next();
+		}
+	};
+
+	/**
+	 * The number of written images
+	 */
+	private final AtomicLong exportedCount = new AtomicLong();
+
+	/**
+	 * The number of images that could not be written
+	 */
+	private final AtomicLong failedCount = new AtomicLong();
+
+	/**
+	 * The number of written bytes
+	 */
+	private final AtomicLong writtenBytes = new AtomicLong();
+
+	/**
+	 * The duration of the last export in ns
+	 */
+	private long durationNanos;
+
+	/**
+	 * Constructor
+	 *
+	 * @param outputDirectory The directory the images are written to. Created if it does not exist.
+	 * @param threadCount The number of threads. Must be greater than 0.
+	 */
+	public BatchExporter(final File outputDirectory, final int threadCount)
+	{
+		if (threadCount <= 0)
+			throw new IllegalArgumentException("Param \"threadCount\" must be > 0, but is " + threadCount);
+
+		this.outputDirectory = outputDirectory;
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Exports all specs. Returns after all images have been written.
+	 *
+	 * @param specs The specs, one per line
+	 * @throws IOException if the specs could not be read or the output directory could not be created.
+	 * @throws IllegalArgumentException if a spec is invalid. The images before it are still written.
+	 * @throws InterruptedException if the thread is interrupted while waiting for the images.
+	 */
+	public void export(final BufferedReader specs) throws IOException, InterruptedException
+	{
+		if (!this.outputDirectory.isDirectory() && !this.outputDirectory.mkdirs())
+			throw new IOException("Could not create output directory " + this.outputDirectory);
+
+		final long start = System.nanoTime();
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(this.threadCount, this.threadCount, 0,
+				TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queuedImagesPerThread * this.threadCount),
+				new ThreadFactory()
+				{
+					/**
+					 * The number of created threads
+					 */
+					private final AtomicInteger createdThreads = new AtomicInteger();
+
+					@Override
+					public Thread newThread(final Runnable runnable)
+					{
+						final Thread thread = new Thread(runnable, "png-exporter-" + this.createdThreads.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				},
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		try
+		{
+			int lineNumber = 0;
+			String line;
+			while ((line = specs.readLine()) != null)
+			{
+				lineNumber++;
+				final String spec = line.trim();
+				if (spec.isEmpty() || spec.startsWith("#")) continue;
+
+				final RulerSpec rulerSpec;
+				try
+				{
+					rulerSpec = RulerSpec.parse(spec, this.labelCache);
+				}
+				catch (final IllegalArgumentException e)
+				{
+					throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+				}
+				executor.execute(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						BatchExporter.this.exportImage(rulerSpec);
+					}
+				});
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			this.durationNanos = System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Renders one image and writes it.
+	 *
+	 * @param rulerSpec The spec of the image
+	 */
+	private void exportImage(final RulerSpec rulerSpec)
+	{
+		final File file = new File(this.outputDirectory, rulerSpec.getFileName());
+		try
+		{
+			final BufferedImage image = this.render(rulerSpec);
+			final ImageOutputStream out = openImageFile(file);
+			try
+			{
+				final ImageWriter imageWriter = this.imageWriters.get();
+				imageWriter.setOutput(out);
+				try
+				{
+					imageWriter.write(image);
+				}
+				finally
+				{
+					imageWriter.setOutput(null);
+				}
+				this.writtenBytes.addAndGet(out.length());
+			}
+			finally
+			{
+				out.close();
+			}
+			this.exportedCount.incrementAndGet();
+		}
+		catch (final IOException e)
+		{
+			log.warn("Could not write " + file, e);
+			this.failedCount.incrementAndGet();
+		}
+		catch (final RuntimeException e)
+		{
+			log.warn("Could not render " + file, e);
+			this.failedCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Opens an image file for writing. A previous file is truncated, so that it is replaced instead of only 
+	 * overwritten at its beginning.
+	 *
+	 * @param file The file
+	 * @return A stream that writes directly into the file
+	 * @throws IOException if the file could not be opened.
+	 */
+	private static ImageOutputStream openImageFile(final File file) throws IOException
+	{
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try
+		{
+			randomAccessFile.setLength(0);
+			return new FileImageOutputStream(randomAccessFile);
+		}
+		catch (final IOException e)
+		{
+			randomAccessFile.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Renders a ruler into the image buffer of the current thread.
+	 *
+	 * @param rulerSpec The spec of the image
+	 * @return The rendered part of the image buffer
+	 */
+	private BufferedImage render(final RulerSpec rulerSpec)
+	{
+		final int width = rulerSpec.getWidth();
+		final int height = rulerSpec.getHeight();
+		BufferedImage buffer = this.images.get();
+		if (buffer == null || buffer.getWidth() < width || buffer.getHeight() < height)
+		{
+			buffer = new BufferedImage(buffer == null ? width : Math.max(width, buffer.getWidth()),
+					buffer == null ? height : Math.max(height, buffer.getHeight()), BufferedImage.TYPE_BYTE_GRAY);
+			this.images.set(buffer);
+		}
+
+		final BufferedImage image = buffer.getSubimage(0, 0, width, height);
+		final Graphics2D g2 = image.createGraphics();
+		try
+		{
+			g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			g2.setColor(Color.WHITE);
+			g2.fillRect(0, 0, width, height);
+			g2.setColor(Color.BLACK);
+			rulerSpec.getRuler().paint(g2, new Rectangle(0, 0, width, height));
+		}
+		finally
+		{
+			g2.dispose();
+		}
+		return image;
+	}
+
+	/**
+	 * @return The number of written images
+	 */
+	public long getExportedCount()
+	{
+		return this.exportedCount.get();
+	}
+
+	/**
+	 * @return The number of images that could not be written
+	 */
+	public long getFailedCount()
+	{
+		return this.failedCount.get();
+	}
+
+	/**
+	 * @return The number of written bytes
+	 */
+	public long getWrittenBytes()
+	{
+		return this.writtenBytes.get();
+	}
+
+	/**
+	 * Prints the number of images and the throughput of the last export.
+	 *
+	 * @param out The stream to print to
+	 */
+	public void print(final PrintStream out)
+	{
+		final double seconds = Math.max(1, this.durationNanos) / 1e9;
+		out.println("Exported " + this.getExportedCount() + " images (" + this.getFailedCount() + " failed, "
+				+ this.getWrittenBytes() / 1024 + " KB) in " + Math.round(seconds * 1000) + " ms with "
+				+ this.threadCount + " threads: " + Math.round(this.getExportedCount() / seconds) + " images/s, "
+				+ Math.round(this.getWrittenBytes() / seconds / 1024) + " KB/s");
+	}
+
+}
@@ -0,0 +1,186 @@
+package de.thomasvoecking.screenruler.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Writes text to a channel through a buffer of a fixed size, so that any amount of text is written in constant
+ * memory. Counts the written bytes, e.g. for the offsets of a PDF file.
+ *
+ * @author thomas
+ */
+final class ChannelOutput
+{
+
+	/**
+	 * The number of buffered chars that triggers a write
+	 */
+	private static final int bufferSize = 8192;
+
+	/**
+	 * The powers of ten for the decimals of {@link #append(double, int)}
+	 */
+	private static final long[] powersOfTen = { 1, 10, 100, 1000, 10000, 100000, 1000000 };
+
+	/**
+	 * The channel
+	 */
+	private final WritableByteChannel channel;
+
+	/**
+	 * Encodes the text. Characters the charset can not encode are replaced.
+	 */
+	private final CharsetEncoder encoder;
+
+	/**
+	 * The text that has not been written yet
+	 */
+	private final StringBuilder text = new StringBuilder(bufferSize + 1024);
+
+	/**
+	 * The encoded text
+	 */
+	private final ByteBuffer bytes = ByteBuffer.allocate(2 * bufferSize);
+
+	/**
+	 * The number of bytes written to the channel
+	 */
+	private long position;
+
+	/**
+	 * Constructor
+	 *
+	 * @param channel The channel
+	 * @param charset The charset of the text
+	 */
+	ChannelOutput(final WritableByteChannel channel, final Charset charset)
+	{
+		this.channel = channel;
+		this.encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * @param s A string
+	 * @return This output
+	 * @throws IOException if the buffer could not be written.
+	 */
+	ChannelOutput append(final String s) throws IOException
+	{
+		this.text.append(s);
+		return this.writeIfFull();
+	}
+
+	/**
+	 * @param c A char
+	 * @return This output
+	 * @throws IOException if the buffer could not be written.
+	 */
+	ChannelOutput append(final char c) throws IOException
+	{
+		this.text.append(c);
+		return this.writeIfFull();
+	}
+
+	/**
+	 * @param l A number
+	 * @return This output
+	 * @throws IOException if the buffer could not be written.
+	 */
+	ChannelOutput append(final long l) throws IOException
+	{
+		this.text.append(l);
+		return this.writeIfFull();
+	}
+
+	/**
+	 * Appends a number in plain decimal notation, without trailing zeros. Much faster than formatting it.
+	 *
+	 * @param d A number
+	 * @param decimals The maximum number of decimals, between 0 and 6
+	 * @return This output
+	 * @throws IOException if the buffer could not be written.
+	 */
+	ChannelOutput append(final double d, final int decimals) throws IOException
+	{
+		final long scaled = Math.round(Math.abs(d) * powersOfTen[decimals]);
+		if (d < 0 && scaled != 0) this.text.append('-');
+		this.text.append(scaled / powersOfTen[decimals]);
+
+		long fraction = scaled % powersOfTen[decimals];
+		if (fraction != 0)
+		{
+			int digits = decimals;
+			while (fraction % 10 == 0)
+			{
+				fraction /= 10;
+				digits--;
+			}
+			this.text.append('.');
+			for (long p = powersOfTen[digits - 1]; p > fraction; p /= 10) this.text.append('0');
+			this.text.append(fraction);
+		}
+		return this.writeIfFull();
+	}
+
+	/**
+	 * @return The number of bytes written so far, including the buffered text
+	 * @throws IOException if the buffer could not be written.
+	 */
+	long position() throws IOException
+	{
+		this.write();
+		return this.position;
+	}
+
+	/**
+	 * Writes the buffered text.
+	 *
+	 * @throws IOException if the buffer could not be written.
+	 */
+	void flush() throws IOException
+	{
+		this.write();
+	}
+
+	/**
+	 * Writes the buffered text if the buffer is full.
+	 *
+	 * @return This output
+	 * @throws IOException if the buffer could not be written.
+	 */
+	private ChannelOutput writeIfFull() throws IOException
+	{
+		if (this.text.length() >= bufferSize) this.write();
+		return this;
+	}
+
+	/**
+	 * Encodes and writes the buffered text.
+	 *
+	 * @throws IOException if the text could not be written.
+	 */
+	private void write() throws IOException
+	{
+		final CharBuffer chars = CharBuffer.wrap(this.text);
+		CoderResult result;
+		do
+		{
+			result = this.encoder.encode(chars, this.bytes, true);
+			this.bytes.flip();
+			while (this.bytes.hasRemaining()) this.position += this.channel.write(this.bytes);
+			this.bytes.clear();
+		}
+		while (result.isOverflow());
+		this.encoder.reset();
+		this.text.setLength(0);
+	}
+
+}
@@ -0,0 +1,268 @@
+package de.thomasvoecking.screenruler.export;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Exports a ruler as a PDF file with one page per segment, so that a long ruler can be printed on several sheets
+ * and glued together.
+ *
+ * The objects are written as soon as they are complete: the catalog and the font first, then the page, the content
+ * stream and the length of the content stream of each segment. The page tree follows the last page, since it is
+ * only needed by the cross reference table, which is written last. Only the offsets of the objects are kept.
+ *
+ * The labels use the standard Helvetica font, so that no font is embedded. Their widths are measured with the
+ * sans serif font of the screen, which is close enough to center them.
+ *
+ * @author thomas
+ */
+public final class PdfExporter extends VectorExporter
+{
+
+	/**
+	 * The length of a segment in mm. Fits on A4 in landscape.
+	 */
+	private static final double segmentLength = 250;
+
+	/**
+	 * The number of decimals of the coordinates in mm
+	 */
+	private static final int decimals = 3;
+
+	/**
+	 * pt per mm
+	 */
+	private static final double pointsPerMillimeter = 72 / 25.4;
+
+	/**
+	 * The charset of the file. Matches the WinAnsi encoding of the font for all characters of the labels.
+	 */
+	private static final Charset charset = Charset.forName("ISO-8859-1");
+
+	/**
+	 * The number of the catalog object
+	 */
+	private static final int catalogObject = 1;
+
+	/**
+	 * The number of the page tree object
+	 */
+	private static final int pagesObject = 2;
+
+	/**
+	 * The number of the font object
+	 */
+	private static final int fontObject = 3;
+
+	/**
+	 * The number of objects per page: the page, its content stream and the length of the content stream
+	 */
+	private static final int objectsPerPage = 3;
+
+	/**
+	 * The offsets of the objects in the file, indexed by their number
+	 */
+	private long[] objectOffsets;
+
+	/**
+	 * The number of pages
+	 */
+	private int pageCount;
+
+	/**
+	 * The index of the current segment
+	 */
+	private int segment;
+
+	/**
+	 * The start of the current segment in mm
+	 */
+	private double segmentStart;
+
+	/**
+	 * The offset of the content stream of the current page
+	 */
+	private long streamStart;
+
+	/**
+	 * Constructor
+	 *
+	 * @param unitName The name of the unit (like "cm"). Only used for the labels.
+	 * @param rulerStartValue The start value. Must be >= 0.
+	 * @param rulerEndValue The end value. Must be greater than the start value.
+	 * @param millimetersPerUnit The length of one unit in mm (like 10 for "cm"). Must be greater than 0.
+	 */
+	public PdfExporter(final String unitName, final double rulerStartValue, final double rulerEndValue,
+			final double millimetersPerUnit)
+	{
+		super(unitName, rulerStartValue, rulerEndValue, millimetersPerUnit, segmentLength);
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.export.VectorExporter#getCharset()
+	 */
+	@Override
+	Charset getCharset()
+	{
+		return charset;
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.export.VectorExporter#beginDocument(ChannelOutput, double, int)
+	 */
+	@Override
+	void beginDocument(final ChannelOutput out, final double length, final int segmentCount) throws IOException
+	{
+		this.pageCount = segmentCount;
+		this.objectOffsets = new long[fontObject + objectsPerPage * segmentCount + 1];
+
+		// The comment with 4 bytes above 127 marks the file as binary for transfer programs
+		out.append("%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n");
+		this.beginObject(out, catalogObject);
+		out.append("<< /Type /Catalog /Pages ").append(pagesObject).append(" 0 R >>\n");
+		this.endObject(out);
+		this.beginObject(out, fontObject);
+		out.append("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>\n");
+		this.endObject(out);
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.export.VectorExporter#beginSegment(ChannelOutput, int, double, double)
+	 */
+	@Override
+	void beginSegment(final ChannelOutput out, final int segment, final double start, final double end)
+			throws IOException
+	{
+		this.segment = segment;
+		this.segmentStart = start;
+		final int pageObject = getPageObject(segment);
+
+		this.beginObject(out, pageObject);
+		out.append("<< /Type /Page /Parent ").append(pagesObject).append(" 0 R /MediaBox [0 0 ")
+			.append((end - start + 2 * margin) * pointsPerMillimeter, decimals).append(' ')
+			.append(height * pointsPerMillimeter, decimals).append("] /Resources << /Font << /F1 ")
+			.append(fontObject).append(" 0 R >> >> /Contents ").append(pageObject + 1).append(" 0 R >>\n");
+		this.endObject(out);
+
+		this.beginObject(out, pageObject + 1);
+		out.append("<< /Length ").append(pageObject + 2).append(" 0 R >>\nstream\n");
+		this.streamStart = out.position();
+
+		// All coordinates of the page are in mm
+		out.append(pointsPerMillimeter, 6).append(" 0 0 ").append(pointsPerMillimeter, 6).append(" 0 0 cm\n");
+		out.append(strokeWidth, decimals).append(" w\n");
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.export.VectorExporter#writeStroke(ChannelOutput, double, double)
+	 */
+	@Override
+	void writeStroke(final ChannelOutput out, final double position, final double length) throws IOException
+	{
+		final double x = margin + position - this.segmentStart;
+		out.append(x, decimals).append(' ').append(height, decimals).append(" m ")
+			.append(x, decimals).append(' ').append(height - length, decimals).append(" l\n");
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.export.VectorExporter#endStrokes(ChannelOutput)
+	 */
+	@Override
+	void endStrokes(final ChannelOutput out) throws IOException
+	{
+		out.append("S\n");
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.export.VectorExporter#writeLabel(ChannelOutput, String, double, double)
+	 */
+	@Override
+	void writeLabel(final ChannelOutput out, final String text, final double center, final double width)
+			throws IOException
+	{
+		out.append("BT /F1 ").append(fontSize, decimals).append(" Tf ")
+			.append(margin + center - width / 2 - this.segmentStart, decimals).append(' ')
+			.append(height - labelBaseline, decimals).append(" Td (");
+		for (int i = 0; i < text.length(); i++)
+		{
+			final char c = text.charAt(i);
+			if (c == '(' || c == ')' || c == '\\') out.append('\\');
+			out.append(c);
+		}
+		out.append(") Tj ET\n");
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.export.VectorExporter#endSegment(ChannelOutput)
+	 */
+	@Override
+	void endSegment(final ChannelOutput out) throws IOException
+	{
+		final long streamLength = out.position() - this.streamStart;
+		out.append("endstream\n");
+		this.endObject(out);
+
+		this.beginObject(out, getPageObject(this.segment) + 2);
+		out.append(streamLength).append('\n');
+		this.endObject(out);
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.export.VectorExporter#endDocument(ChannelOutput)
+	 */
+	@Override
+	void endDocument(final ChannelOutput out) throws IOException
+	{
+		this.beginObject(out, pagesObject);
+		out.append("<< /Type /Pages /Count ").append(this.pageCount).append(" /Kids [");
+		for (int i = 0; i < this.pageCount; i++) out.append(' ').append(getPageObject(i)).append(" 0 R");
+		out.append(" ] >>\n");
+		this.endObject(out);
+
+		final long xrefOffset = out.position();
+		out.append("xref\n0 ").append(this.objectOffsets.length).append('\n');
+		out.append("0000000000 65535 f \n");
+		for (int i = 1; i < this.objectOffsets.length; i++)
+		{
+			final String offset = Long.toString(this.objectOffsets[i]);
+			for (int j = offset.length(); j < 10; j++) out.append('0');
+			out.append(offset).append(" 00000 n \n");
+		}
+		out.append("trailer\n<< /Size ").append(this.objectOffsets.length).append(" /Root ").append(catalogObject)
+			.append(" 0 R >>\nstartxref\n").append(xrefOffset).append("\n%%EOF\n");
+	}
+
+	/**
+	 * @param segment The index of a segment
+	 * @return The number of the page object of the segment. The content stream and its length follow.
+	 */
+	private static int getPageObject(final int segment)
+	{
+		return fontObject + 1 + objectsPerPage * segment;
+	}
+
+	/**
+	 * Remembers the offset of an object and writes its header.
+	 *
+	 * @param out The output
+	 * @param object The number of the object
+	 * @throws IOException if the header could not be written.
+	 */
+	private void beginObject(final ChannelOutput out, final int object) throws IOException
+	{
+		this.objectOffsets[object] = out.position();
+		out.append(object).append(" 0 obj\n");
+	}
+
+	/**
+	 * Writes the end of an object.
+	 *
+	 * @param out The output
+	 * @throws IOException if the end could not be written.
+	 */
+	private void endObject(final ChannelOutput out) throws IOException
+	{
+		out.append("endobj\n");
+	}
+
+}
@@ -0,0 +1,107 @@
+package de.thomasvoecking.screenruler.export;
+
+import de.thomasvoecking.screenruler.ui.LabelCache;
+import de.thomasvoecking.screenruler.ui.Ruler;
+
+/**
+ * One image of a {@link BatchExporter}: a ruler, the size of the image and the name of the file.
+ *
+ * @author thomas
+ */
+final class RulerSpec
+{
+
+	/**
+	 * The ruler
+	 */
+	private final Ruler ruler;
+
+	/**
+	 * The width of the image in px
+	 */
+	private final int width;
+
+	/**
+	 * The height of the image in px
+	 */
+	private final int height;
+
+	/**
+	 * The name of the image file
+	 */
+	private final String fileName;
+
+	/**
+	 * Constructor
+	 *
+	 * @param ruler The ruler
+	 * @param width The width of the image in px
+	 * @param height The height of the image in px
+	 * @param fileName The name of the image file
+	 */
+	private RulerSpec(final Ruler ruler, final int width, final int height, final String fileName)
+	{
+		this.ruler = ruler;
+		this.width = width;
+		this.height = height;
+		this.fileName = fileName;
+	}
+
+	/**
+	 * Parses a spec. The file name defaults to unit_start_end_widthxheight.png.
+	 *
+	 * @param spec The spec: unit:start:end:width:height[:file]
+	 * @param labelCache The label cache for the ruler
+	 * @return The spec
+	 * @throws IllegalArgumentException if the spec is invalid.
+	 */
+	static RulerSpec parse(final String spec, final LabelCache labelCache)
+	{
+		final String[] parts = spec.split(":");
+		if (parts.length < 5 || parts.length > 6)
+			throw new IllegalArgumentException("Spec \"" + spec + "\" must be unit:start:end:width:height[:file]");
+
+		final int width = Integer.parseInt(parts[3]);
+		if (width <= 0) throw new IllegalArgumentException("Width must be > 0, but is " + width);
+		final int height = Integer.parseInt(parts[4]);
+		if (height <= 0) throw new IllegalArgumentException("Height must be > 0, but is " + height);
+
+		final Ruler ruler = new Ruler(parts[0], Double.parseDouble(parts[1]), Double.parseDouble(parts[2]), labelCache);
+		final String fileName = parts.length == 6 ? parts[5]
+				: parts[0] + "_" + parts[1] + "_" + parts[2] + "_" + width + "x" + height + ".png";
+		return new RulerSpec(ruler, width, height, fileName);
+	}
+
+	/**
+	 * @return The ruler
+	 */
+	Ruler getRuler()
+	{
+		return this.ruler;
+	}
+
+	/**
+	 * @return The width of the image in px
+	 */
+	int getWidth()
+	{
+		return this.width;
+	}
+
+	/**
+	 * @return The height of the image in px
+	 */
+	int getHeight()
+	{
+		return this.height;
+	}
+
+	/**
+	 * @return The name of the image file
+	 */
+	String getFileName()
+	{
+		return this.fileName;
+	}
+
+}
@@ -0,0 +1,138 @@
+package de.thomasvoecking.screenruler.export;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Exports a ruler as an SVG file. The user units are mm. Each segment is one path with all its strokes, followed
+ * by its labels.
+ *
+ * @author thomas
+ */
+public final class SvgExporter extends VectorExporter
+{
+
+	/**
+	 * The length of a segment in mm
+	 */
+	private static final double segmentLength = 1000;
+
+	/**
+	 * The number of decimals of the coordinates. 1 µm is far below the precision of any printer.
+	 */
+	private static final int decimals = 3;
+
+	/**
+	 * The charset of the file
+	 */
+	private static final Charset charset = Charset.forName("UTF-8");
+
+	/**
+	 * Constructor
+	 *
+	 * @param unitName The name of the unit (like "cm"). Only used for the labels.
+	 * @param rulerStartValue The start value. Must be >= 0.
+	 * @param rulerEndValue The end value. Must be greater than the start value.
+	 * @param millimetersPerUnit The length of one unit in mm (like 10 for "cm"). Must be greater than 0.
+	 */
+	public SvgExporter(final String unitName, final double rulerStartValue, final double rulerEndValue,
+			final double millimetersPerUnit)
+	{
+		super(unitName, rulerStartValue, rulerEndValue, millimetersPerUnit, segmentLength);
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.export.VectorExporter#getCharset()
+	 */
+	@Override
+	Charset getCharset()
+	{
+		return charset;
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.export.VectorExporter#beginDocument(ChannelOutput, double, int)
+	 */
+	@Override
+	void beginDocument(final ChannelOutput out, final double length, final int segmentCount) throws IOException
+	{
+		final double width = length + 2 * margin;
+		out.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		out.append("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\" width=\"").append(width, decimals)
+			.append("mm\" height=\"").append(height, decimals).append("mm\" viewBox=\"0 0 ").append(width, decimals)
+			.append(' ').append(height, decimals).append("\">\n");
+		out.append("<g font-family=\"sans-serif\" font-size=\"").append(fontSize, decimals)
+			.append("\" text-anchor=\"middle\">\n");
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.export.VectorExporter#beginSegment(ChannelOutput, int, double, double)
+	 */
+	@Override
+	void beginSegment(final ChannelOutput out, final int segment, final double start, final double end)
+			throws IOException
+	{
+		out.append("<path fill=\"none\" stroke=\"black\" stroke-width=\"").append(strokeWidth, decimals)
+			.append("\" d=\"");
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.export.VectorExporter#writeStroke(ChannelOutput, double, double)
+	 */
+	@Override
+	void writeStroke(final ChannelOutput out, final double position, final double length) throws IOException
+	{
+		out.append('M').append(margin + position, decimals).append(" 0v").append(length, decimals);
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.export.VectorExporter#endStrokes(ChannelOutput)
+	 */
+	@Override
+	void endStrokes(final ChannelOutput out) throws IOException
+	{
+		out.append("\"/>\n");
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.export.VectorExporter#writeLabel(ChannelOutput, String, double, double)
+	 */
+	@Override
+	void writeLabel(final ChannelOutput out, final String text, final double center, final double width)
+			throws IOException
+	{
+		out.append("<text x=\"").append(margin + center, decimals).append("\" y=\"")
+			.append(labelBaseline, decimals).append("\">");
+		for (int i = 0; i < text.length(); i++)
+		{
+			final char c = text.charAt(i);
+			switch (c)
+			{
+				case '<': out.append("&lt;"); break;
+				case '>': out.append("&gt;"); break;
+				case '&': out.append("&amp;"); break;
+				default: out.append(c);
+			}
+		}
+		out.append("</text>\n");
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.export.VectorExporter#endSegment(ChannelOutput)
+	 */
+	@Override
+	void endSegment(final ChannelOutput out) throws IOException
+	{
+		// The segments are only a means to bound the buffered labels
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.export.VectorExporter#endDocument(ChannelOutput)
+	 */
+	@Override
+	void endDocument(final ChannelOutput out) throws IOException
+	{
+		out.append("</g>\n</svg>\n");
+	}
+
+}
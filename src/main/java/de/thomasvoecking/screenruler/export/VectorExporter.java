@@ -0,0 +1,345 @@
+package de.thomasvoecking.screenruler.export;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import de.thomasvoecking.screenruler.ui.LabelCache;
+import de.thomasvoecking.screenruler.ui.TickSequence;
+
+/**
+ * Exports a ruler at physical scale as a vector graphic, e.g. for printing.
+ *
+ * The strokes are enumerated by a {@link TickSequence} and written in segments of a fixed length: first all
+ * strokes of a segment, then its labels. Only the labels of the current segment are kept, so the memory does not
+ * depend on the length of the ruler, and the time is linear in its length. The labels are the same as on the
+ * screen: the value followed by the unit, centered below a major stroke and skipped if they would overlap the
+ * previous label.
+ *
+ * All lengths are in mm. The strokes start at the top edge, the ruler starts after a margin at the left edge.
+ *
+ * @author thomas
+ */
+public abstract class VectorExporter
+{
+
+	/**
+	 * The margin left and right of the ruler in mm
+	 */
+	static final double margin = 5;
+
+	/**
+	 * The length of the major strokes in mm
+	 */
+	static final double majorStrokeLength = 8;
+
+	/**
+	 * The width of the strokes in mm
+	 */
+	static final double strokeWidth = 0.1;
+
+	/**
+	 * The font size of the labels in mm
+	 */
+	static final float fontSize = 2;
+
+	/**
+	 * The baseline of the labels in mm: 1 mm below the major strokes
+	 */
+	static final double labelBaseline = majorStrokeLength + 1 + fontSize;
+
+	/**
+	 * The height of the graphic in mm
+	 */
+	static final double height = 15;
+
+	/**
+	 * The minimum distance between two strokes in mm
+	 */
+	private static final double minimumStrokeDistance = 1;
+
+	/**
+	 * The minimum distance between two major strokes in mm
+	 */
+	private static final double minimumFieldLength = 10;
+
+	/**
+	 * The maximum number of cached labels. Labels are rarely repeated on one ruler.
+	 */
+	private static final int labelCacheSize = 64;
+
+	/**
+	 * The font the labels are measured with. Its size is in mm.
+	 */
+	private static final Font labelFont = new Font(Font.SANS_SERIF, Font.PLAIN, 1).deriveFont(fontSize);
+
+	/**
+	 * The font render context the labels are measured with. Unscaled, so that the sizes are in mm.
+	 */
+	private static final FontRenderContext fontRenderContext = new FontRenderContext(null, true, true);
+
+	/**
+	 * The name of the unit
+	 */
+	private final String unitName;
+
+	/**
+	 * The start value of the ruler
+	 */
+	private final double rulerStartValue;
+
+	/**
+	 * The end value of the ruler
+	 */
+	private final double rulerEndValue;
+
+	/**
+	 * The length of one unit in mm
+	 */
+	private final double millimetersPerUnit;
+
+	/**
+	 * The length of a segment in mm
+	 */
+	private final double segmentLength;
+
+	/**
+	 * Measures the labels
+	 */
+	private final LabelCache labelCache = new LabelCache(labelCacheSize);
+
+	/**
+	 * The texts of the labels of the current segment
+	 */
+	private String[] labelTexts = new String[16];
+
+	/**
+	 * The centers of the labels of the current segment, relative to the start of the ruler
+	 */
+	private double[] labelCenters = new double[16];
+
+	/**
+	 * The widths of the labels of the current segment
+	 */
+	private double[] labelWidths = new double[16];
+
+	/**
+	 * The number of labels of the current segment
+	 */
+	private int labelCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param unitName The name of the unit (like "cm"). Only used for the labels.
+	 * @param rulerStartValue The start value. Must be >= 0.
+	 * @param rulerEndValue The end value. Must be greater than the start value.
+	 * @param millimetersPerUnit The length of one unit in mm (like 10 for "cm"). Must be greater than 0.
+	 * @param segmentLength The length of a segment in mm. Must be greater than 0.
+	 */
+	VectorExporter(final String unitName, final double rulerStartValue, final double rulerEndValue,
+			final double millimetersPerUnit, final double segmentLength)
+	{
+		if (!(rulerStartValue >= 0))
+			throw new IllegalArgumentException("Param \"rulerStartValue\" must be >= 0, but is " + rulerStartValue);
+		if (!(rulerEndValue > rulerStartValue))
+			throw new IllegalArgumentException("Param \"rulerEndValue\" must be > \"rulerStartValue\", " +
+					"but rulerStartValue is " + rulerStartValue + " and rulerEndValue is " + rulerEndValue);
+		if (!(millimetersPerUnit > 0))
+			throw new IllegalArgumentException("Param \"millimetersPerUnit\" must be > 0, but is " + millimetersPerUnit);
+		if (!(segmentLength > 0))
+			throw new IllegalArgumentException("Param \"segmentLength\" must be > 0, but is " + segmentLength);
+
+		this.unitName = unitName;
+		this.rulerStartValue = rulerStartValue;
+		this.rulerEndValue = rulerEndValue;
+		this.millimetersPerUnit = millimetersPerUnit;
+		this.segmentLength = segmentLength;
+	}
+
+	/**
+	 * Writes the ruler. The channel is not closed.
+	 *
+	 * @param channel The channel
+	 * @throws IOException if the ruler could not be written.
+	 */
+	public final void export(final WritableByteChannel channel) throws IOException
+	{
+		final ChannelOutput out = new ChannelOutput(channel, this.getCharset());
+		final TickSequence ticks = new TickSequence(this.rulerStartValue, this.rulerEndValue,
+				this.getRulerBaseValue(), this.millimetersPerUnit, minimumStrokeDistance);
+		final double length = this.getLength();
+		final int segmentCount = this.getSegmentCount();
+
+		this.beginDocument(out, length, segmentCount);
+		int segment = 0;
+		this.beginSegment(out, segment, 0, Math.min(length, this.segmentLength));
+		double textUntil = -margin;
+		while (ticks.next())
+		{
+			final double position = ticks.getPosition();
+			while (segment < segmentCount - 1 && position >= (segment + 1) * this.segmentLength)
+			{
+				this.finishSegment(out);
+				segment++;
+				this.beginSegment(out, segment, segment * this.segmentLength,
+						Math.min(length, (segment + 1) * this.segmentLength));
+			}
+			this.writeStroke(out, position, majorStrokeLength * ticks.getLengthRatio());
+
+			if (ticks.isMajor())
+			{
+				final String text = ticks.getValue() + " " + this.unitName;
+				final double halfWidth = this.labelCache.get(text, labelFont, fontRenderContext).getWidth() / 2;
+				if (textUntil < position - halfWidth && position + halfWidth <= length + margin)
+				{
+					this.addLabel(text, position, 2 * halfWidth);
+					textUntil = position + halfWidth;
+				}
+			}
+		}
+		this.finishSegment(out);
+		this.endDocument(out);
+		out.flush();
+	}
+
+	/**
+	 * @return The distance between two major strokes: the smallest power of ten whose length is at least
+	 *   {@link #minimumFieldLength}
+	 */
+	double getRulerBaseValue()
+	{
+		return Math.pow(10, Math.ceil(Math.log10(minimumFieldLength / this.millimetersPerUnit) - 1e-9));
+	}
+
+	/**
+	 * @return The length of the ruler in mm, without the margins
+	 */
+	double getLength()
+	{
+		return (this.rulerEndValue - this.rulerStartValue) * this.millimetersPerUnit;
+	}
+
+	/**
+	 * @return The number of segments
+	 */
+	int getSegmentCount()
+	{
+		return (int) Math.max(1, Math.ceil(this.getLength() / this.segmentLength - 1e-9));
+	}
+
+	/**
+	 * Remembers a label of the current segment.
+	 *
+	 * @param text The text
+	 * @param center The center of the label, relative to the start of the ruler
+	 * @param width The width of the label
+	 */
+	private void addLabel(final String text, final double center, final double width)
+	{
+		if (this.labelCount == this.labelTexts.length)
+		{
+			final int capacity = 2 * this.labelCount;
+			this.labelTexts = Arrays.copyOf(this.labelTexts, capacity);
+			this.labelCenters = Arrays.copyOf(this.labelCenters, capacity);
+			this.labelWidths = Arrays.copyOf(this.labelWidths, capacity);
+		}
+		this.labelTexts[this.labelCount] = text;
+		this.labelCenters[this.labelCount] = center;
+		this.labelWidths[this.labelCount] = width;
+		this.labelCount++;
+	}
+
+	/**
+	 * Writes the labels of the current segment and ends it.
+	 *
+	 * @param out The output
+	 * @throws IOException if the segment could not be written.
+	 */
+	private void finishSegment(final ChannelOutput out) throws IOException
+	{
+		this.endStrokes(out);
+		for (int i = 0; i < this.labelCount; i++)
+		{
+			this.writeLabel(out, this.labelTexts[i], this.labelCenters[i], this.labelWidths[i]);
+			this.labelTexts[i] = null;
+		}
+		this.labelCount = 0;
+		this.endSegment(out);
+	}
+
+	/**
+	 * @return The charset of the document
+	 */
+	abstract Charset getCharset();
+
+	/**
+	 * Writes the beginning of the document.
+	 *
+	 * @param out The output
+	 * @param length The length of the ruler in mm, without the margins
+	 * @param segmentCount The number of segments
+	 * @throws IOException if the document could not be written.
+	 */
+	abstract void beginDocument(ChannelOutput out, double length, int segmentCount) throws IOException;
+
+	/**
+	 * Begins a segment. The strokes of the segment follow.
+	 *
+	 * @param out The output
+	 * @param segment The index of the segment
+	 * @param start The start of the segment in mm, relative to the start of the ruler
+	 * @param end The end of the segment in mm, relative to the start of the ruler
+	 * @throws IOException if the segment could not be written.
+	 */
+	abstract void beginSegment(ChannelOutput out, int segment, double start, double end) throws IOException;
+
+	/**
+	 * Writes a stroke of the current segment.
+	 *
+	 * @param out The output
+	 * @param position The position in mm, relative to the start of the ruler
+	 * @param length The length in mm
+	 * @throws IOException if the stroke could not be written.
+	 */
+	abstract void writeStroke(ChannelOutput out, double position, double length) throws IOException;
+
+	/**
+	 * Ends the strokes of the current segment. The labels of the segment follow.
+	 *
+	 * @param out The output
+	 * @throws IOException if the segment could not be written.
+	 */
+	abstract void endStrokes(ChannelOutput out) throws IOException;
+
+	/**
+	 * Writes a label of the current segment.
+	 *
+	 * @param out The output
+	 * @param text The text
+	 * @param center The center of the label in mm, relative to the start of the ruler
+	 * @param width The width of the label in mm
+	 * @throws IOException if the label could not be written.
+	 */
+	abstract void writeLabel(ChannelOutput out, String text, double center, double width) throws IOException;
+
+	/**
+	 * Ends the current segment.
+	 *
+	 * @param out The output
+	 * @throws IOException if the segment could not be written.
+	 */
+	abstract void endSegment(ChannelOutput out) throws IOException;
+
+	/**
+	 * Writes the end of the document.
+	 *
+	 * @param out The output
+	 * @throws IOException if the document could not be written.
+	 */
+	abstract void endDocument(ChannelOutput out) throws IOException;
+
+}
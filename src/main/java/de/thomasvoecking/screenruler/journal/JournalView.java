@@ -0,0 +1,357 @@
+package de.thomasvoecking.screenruler.journal;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Read-only view of the measurements in a journal.
+ *
+ * When the view is created, the frames are checked once and the offsets of their payloads are indexed. All
+ * further access reads the fields directly from the buffer. A measurement is only decoded into an object if it
+ * is returned.
+ *
+ * @author thomas
+ */
+public class JournalView
+{
+
+	/**
+	 * The content of the journal
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * The offsets of the payloads of the valid frames
+	 */
+	private final int[] payloadOffsets;
+
+	/**
+	 * The number of valid frames
+	 */
+	private final int size;
+
+	/**
+	 * The length of the journal up to the end of the last valid frame
+	 */
+	private final int validLength;
+
+	/**
+	 * Constructor. Indexes the valid frames.
+	 *
+	 * @param buffer The content of the journal, starting with the header
+	 * @throws IllegalArgumentException if the content does not start with the header of a journal.
+	 */
+	JournalView(final ByteBuffer buffer)
+	{
+		if (buffer.limit() < MeasurementJournal.headerSize || buffer.getInt(0) != MeasurementJournal.magic)
+			throw new IllegalArgumentException("The content is no measurement journal");
+
+		this.buffer = buffer;
+
+		final CRC32 crc = new CRC32();
+		int[] offsets = new int[Math.max(16, buffer.limit() / (MeasurementJournal.unitNameOffset + 32))];
+		int count = 0;
+		int position = MeasurementJournal.headerSize;
+		int frameLength;
+		while ((frameLength = getFrameLength(buffer, position, crc)) > 0)
+		{
+			if (count == offsets.length) offsets = Arrays.copyOf(offsets, count * 2);
+			offsets[count++] = position + 4;
+			position += frameLength;
+		}
+
+		this.payloadOffsets = offsets;
+		this.size = count;
+		this.validLength = position;
+	}
+
+	/**
+	 * Finds the end of the last valid frame by reading the journal through a channel, without mapping it. A
+	 * mapped file can not be truncated on all platforms.
+	 *
+	 * @param channel The channel of the journal. Its position is changed.
+	 * @return The length of the journal up to the end of the last valid frame
+	 * @throws IOException if the journal could not be read.
+	 * @throws IllegalArgumentException if the content does not start with the header of a journal.
+	 */
+	static long findValidLength(final FileChannel channel) throws IOException
+	{
+		// Large enough for the largest frame
+		final ByteBuffer window = ByteBuffer.allocate(
+				4 * (MeasurementJournal.maxPayloadSize + MeasurementJournal.frameOverhead));
+		channel.position(0);
+		fill(channel, window);
+		if (window.limit() < MeasurementJournal.headerSize || window.getInt(0) != MeasurementJournal.magic)
+			throw new IllegalArgumentException("The content is no measurement journal");
+
+		final CRC32 crc = new CRC32();
+		long validLength = MeasurementJournal.headerSize;
+		window.position(MeasurementJournal.headerSize);
+		while (true)
+		{
+			int frameLength = getFrameLength(window, window.position(), crc);
+			if (frameLength == 0 && window.position() > 0)
+			{
+				// The frame may continue after the window
+				window.compact();
+				fill(channel, window);
+				frameLength = getFrameLength(window, 0, crc);
+			}
+			if (frameLength == 0) return validLength;
+			window.position(window.position() + frameLength);
+			validLength += frameLength;
+		}
+	}
+
+	/**
+	 * Reads from a channel until a buffer is full or the end of the channel is reached, and flips the buffer.
+	 *
+	 * @param channel The channel
+	 * @param buffer The buffer. Its content up to the position is kept.
+	 * @throws IOException if the channel could not be read.
+	 */
+	private static void fill(final FileChannel channel, final ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer) < 0) break;
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Checks the frame at a position: the length of the payload, the length of the unit name and the checksum.
+	 *
+	 * @param buffer The content of the journal, up to the limit
+	 * @param position The position of the frame
+	 * @param crc Computes the checksum
+	 * @return The length of the frame in bytes. 0 if it is incomplete or invalid.
+	 */
+	private static int getFrameLength(final ByteBuffer buffer, final int position, final CRC32 crc)
+	{
+		if (position + MeasurementJournal.frameOverhead > buffer.limit()) return 0;
+
+		final int payloadSize = buffer.getInt(position);
+		if (payloadSize < MeasurementJournal.unitNameOffset || payloadSize > MeasurementJournal.maxPayloadSize
+				|| payloadSize > buffer.limit() - position - MeasurementJournal.frameOverhead)
+			return 0;
+
+		final int payloadOffset = position + 4;
+		if (MeasurementJournal.unitNameOffset + unsignedShort(buffer, payloadOffset + MeasurementJournal.unitNameLengthOffset) != payloadSize)
+			return 0;
+
+		final ByteBuffer payload = buffer.duplicate();
+		payload.limit(payloadOffset + payloadSize).position(payloadOffset);
+		crc.reset();
+		crc.update(payload);
+		if ((int) crc.getValue() != buffer.getInt(payloadOffset + payloadSize)) return 0;
+		return payloadSize + MeasurementJournal.frameOverhead;
+	}
+
+	/**
+	 * @return The number of measurements
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * @return The length of the journal up to the end of the last valid frame
+	 */
+	int getValidLength()
+	{
+		return this.validLength;
+	}
+
+	/**
+	 * @param index The index of the measurement
+	 * @return The measurement
+	 */
+	public Measurement get(final int index)
+	{
+		final int offset = this.getPayloadOffset(index);
+		final int flags = this.buffer.get(offset + MeasurementJournal.flagsOffset);
+		final int boundsOffset = offset + MeasurementJournal.boundsOffset;
+		final Rectangle bounds = new Rectangle(this.buffer.getInt(boundsOffset), this.buffer.getInt(boundsOffset + 4),
+				this.buffer.getInt(boundsOffset + 8), this.buffer.getInt(boundsOffset + 12));
+		return new Measurement(
+				this.buffer.getLong(offset + MeasurementJournal.sessionIdOffset),
+				this.buffer.getInt(offset + MeasurementJournal.rulerIndexOffset),
+				this.buffer.getLong(offset + MeasurementJournal.timestampOffset),
+				bounds,
+				(flags & MeasurementJournal.verticalFlag) != 0,
+				new String(this.getUnitName(offset), MeasurementJournal.charset),
+				this.buffer.getDouble(offset + MeasurementJournal.rulerStartValueOffset),
+				this.buffer.getDouble(offset + MeasurementJournal.rulerEndValueOffset),
+				(flags & MeasurementJournal.closedFlag) != 0);
+	}
+
+	/**
+	 * @param index The index of the measurement
+	 * @return The timestamp of the measurement
+	 */
+	public long getTimestamp(final int index)
+	{
+		return this.buffer.getLong(this.getPayloadOffset(index) + MeasurementJournal.timestampOffset);
+	}
+
+	/**
+	 * Finds the measurements made in a period. The measurements are appended in the order they have been made,
+	 * so the period is found by a binary search over the timestamps.
+	 *
+	 * @param from The start of the period in ms since the epoch
+	 * @param to The end of the period in ms since the epoch (exclusive)
+	 * @return The measurements in the order they have been made
+	 */
+	public List<Measurement> search(final long from, final long to)
+	{
+		final List<Measurement> result = new ArrayList<Measurement>();
+		for (int i = this.firstIndexAtOrAfter(from); i < this.size && this.getTimestamp(i) < to; i++)
+		{
+			result.add(this.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the measurements whose ruler covers a value. Only the matching measurements are decoded.
+	 *
+	 * @param unitName The name of the unit
+	 * @param value The value
+	 * @return The measurements in the order they have been made
+	 */
+	public List<Measurement> searchByValue(final String unitName, final double value)
+	{
+		final byte[] unitNameBytes = unitName.getBytes(MeasurementJournal.charset);
+		final List<Measurement> result = new ArrayList<Measurement>();
+		for (int i = 0; i < this.size; i++)
+		{
+			final int offset = this.payloadOffsets[i];
+			final double start = this.buffer.getDouble(offset + MeasurementJournal.rulerStartValueOffset);
+			final double end = this.buffer.getDouble(offset + MeasurementJournal.rulerEndValueOffset);
+			if (value < Math.min(start, end) || value > Math.max(start, end)) continue;
+			if (!this.unitNameEquals(offset, unitNameBytes)) continue;
+			result.add(this.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the window layout at the end of the last session: the last measurement of each ruler that was still
+	 * open.
+	 *
+	 * @return The measurements ordered by their ruler index. Empty if the journal is empty.
+	 */
+	public List<Measurement> findLayout()
+	{
+		if (this.size == 0) return Collections.emptyList();
+
+		// A journal is used by one process at a time, so the last session is a contiguous block at the end
+		final long sessionId = this.buffer.getLong(this.payloadOffsets[this.size - 1] + MeasurementJournal.sessionIdOffset);
+		final List<Integer> seen = new ArrayList<Integer>();
+		final List<Measurement> layout = new ArrayList<Measurement>();
+		for (int i = this.size - 1; i >= 0; i--)
+		{
+			final int offset = this.payloadOffsets[i];
+			if (this.buffer.getLong(offset + MeasurementJournal.sessionIdOffset) != sessionId) break;
+
+			final Integer rulerIndex = Integer.valueOf(this.buffer.getInt(offset + MeasurementJournal.rulerIndexOffset));
+			if (seen.contains(rulerIndex)) continue;
+			seen.add(rulerIndex);
+
+			if ((this.buffer.get(offset + MeasurementJournal.flagsOffset) & MeasurementJournal.closedFlag) == 0)
+			{
+				layout.add(this.get(i));
+			}
+		}
+
+		Collections.sort(layout, new Comparator<Measurement>()
+		{
+			@Override
+			public int compare(final Measurement m1, final Measurement m2)
+			{
+				return m1.getRulerIndex() < m2.getRulerIndex() ? -1 : (m1.getRulerIndex() == m2.getRulerIndex() ? 0 : 1);
+			}
+		});
+		return layout;
+	}
+
+	/**
+	 * @param timestamp A time in ms since the epoch
+	 * @return The index of the first measurement made at or after the time
+	 */
+	private int firstIndexAtOrAfter(final long timestamp)
+	{
+		int low = 0;
+		int high = this.size;
+		while (low < high)
+		{
+			final int middle = (low + high) >>> 1;
+			if (this.getTimestamp(middle) < timestamp) low = middle + 1;
+			else high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * @param index The index of a measurement
+	 * @return The offset of its payload
+	 */
+	private int getPayloadOffset(final int index)
+	{
+		if (index < 0 || index >= this.size)
+			throw new IndexOutOfBoundsException("Index " + index + " is not between 0 and " + (this.size - 1));
+		return this.payloadOffsets[index];
+	}
+
+	/**
+	 * @param payloadOffset The offset of a payload
+	 * @return The encoded unit name of the payload
+	 */
+	private byte[] getUnitName(final int payloadOffset)
+	{
+		final byte[] unitName = new byte[unsignedShort(this.buffer, payloadOffset + MeasurementJournal.unitNameLengthOffset)];
+		final ByteBuffer source = this.buffer.duplicate();
+		source.position(payloadOffset + MeasurementJournal.unitNameOffset);
+		source.get(unitName);
+		return unitName;
+	}
+
+	/**
+	 * Compares the unit name of a payload without copying it.
+	 *
+	 * @param payloadOffset The offset of a payload
+	 * @param unitName An encoded unit name
+	 * @return true if the payload has the unit name
+	 */
+	private boolean unitNameEquals(final int payloadOffset, final byte[] unitName)
+	{
+		if (unsignedShort(this.buffer, payloadOffset + MeasurementJournal.unitNameLengthOffset) != unitName.length) return false;
+		final int unitNameOffset = payloadOffset + MeasurementJournal.unitNameOffset;
+		for (int i = 0; i < unitName.length; i++)
+		{
+			if (this.buffer.get(unitNameOffset + i) != unitName[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param buffer A buffer
+	 * @param index The index of the value
+	 * @return The unsigned short value at the index
+	 */
+	private static int unsignedShort(final ByteBuffer buffer, final int index)
+	{
+		return buffer.getShort(index) & 0xffff;
+	}
+
+}
@@ -0,0 +1,226 @@
+package de.thomasvoecking.screenruler.journal;
+
+import java.awt.Rectangle;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+/**
+ * One completed measurement: the state of a ruler after it has been moved, resized or closed.
+ *
+ * @author thomas
+ */
+public final class Measurement
+{
+
+	/**
+	 * Identifies the run of the application the measurement has been made in
+	 */
+	private final long sessionId;
+
+	/**
+	 * Identifies the ruler within its session
+	 */
+	private final int rulerIndex;
+
+	/**
+	 * The time of the measurement in ms since the epoch
+	 */
+	private final long timestamp;
+
+	/**
+	 * The bounds of the window in screen coordinates
+	 */
+	private final Rectangle bounds;
+
+	/**
+	 * true if the ruler runs from top to bottom
+	 */
+	private final boolean vertical;
+
+	/**
+	 * The name of the unit
+	 */
+	private final String unitName;
+
+	/**
+	 * The start value of the ruler
+	 */
+	private final double rulerStartValue;
+
+	/**
+	 * The end value of the ruler
+	 */
+	private final double rulerEndValue;
+
+	/**
+	 * true if the ruler has been closed while other rulers stayed open
+	 */
+	private final boolean closed;
+
+	/**
+	 * Constructor
+	 *
+	 * @param sessionId Identifies the run of the application the measurement has been made in
+	 * @param rulerIndex Identifies the ruler within its session. Must not be negative.
+	 * @param timestamp The time of the measurement in ms since the epoch
+	 * @param bounds The bounds of the window in screen coordinates
+	 * @param vertical true if the ruler runs from top to bottom
+	 * @param unitName The name of the unit. Must not be null.
+	 * @param rulerStartValue The start value of the ruler
+	 * @param rulerEndValue The end value of the ruler
+	 * @param closed true if the ruler has been closed while other rulers stayed open
+	 */
+	public Measurement(final long sessionId, final int rulerIndex, final long timestamp, final Rectangle bounds,
+			final boolean vertical, final String unitName, final double rulerStartValue, final double rulerEndValue,
+			final boolean closed)
+	{
+		if (rulerIndex < 0)
+			throw new IllegalArgumentException("Param \"rulerIndex\" must be >= 0, but is " + rulerIndex);
+		if (unitName == null)
+			throw new IllegalArgumentException("Param \"unitName\" must not be null");
+
+		this.sessionId = sessionId;
+		this.rulerIndex = rulerIndex;
+		this.timestamp = timestamp;
+		this.bounds = new Rectangle(bounds);
+		this.vertical = vertical;
+		this.unitName = unitName;
+		this.rulerStartValue = rulerStartValue;
+		this.rulerEndValue = rulerEndValue;
+		this.closed = closed;
+	}
+
+	/**
+	 * @return Identifies the run of the application the measurement has been made in
+	 */
+	public long getSessionId()
+	{
+		return this.sessionId;
+	}
+
+	/**
+	 * @return Identifies the ruler within its session
+	 */
+	public int getRulerIndex()
+	{
+		return this.rulerIndex;
+	}
+
+	/**
+	 * @return The time of the measurement in ms since the epoch
+	 */
+	public long getTimestamp()
+	{
+		return this.timestamp;
+	}
+
+	/**
+	 * @return The bounds of the window in screen coordinates
+	 */
+	public Rectangle getBounds()
+	{
+		return new Rectangle(this.bounds);
+	}
+
+	/**
+	 * @return true if the ruler runs from top to bottom
+	 */
+	public boolean isVertical()
+	{
+		return this.vertical;
+	}
+
+	/**
+	 * @return The name of the unit
+	 */
+	public String getUnitName()
+	{
+		return this.unitName;
+	}
+
+	/**
+	 * @return The start value of the ruler
+	 */
+	public double getRulerStartValue()
+	{
+		return this.rulerStartValue;
+	}
+
+	/**
+	 * @return The end value of the ruler
+	 */
+	public double getRulerEndValue()
+	{
+		return this.rulerEndValue;
+	}
+
+	/**
+	 * @return true if the ruler has been closed while other rulers stayed open
+	 */
+	public boolean isClosed()
+	{
+		return this.closed;
+	}
+
+	/**
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (!(obj instanceof Measurement)) return false;
+		final Measurement other = (Measurement) obj;
+		return new EqualsBuilder()
+			.append(this.sessionId, other.sessionId)
+			.append(this.rulerIndex, other.rulerIndex)
+			.append(this.timestamp, other.timestamp)
+			.append(this.bounds, other.bounds)
+			.append(this.vertical, other.vertical)
+			.append(this.unitName, other.unitName)
+			.append(this.rulerStartValue, other.rulerStartValue)
+			.append(this.rulerEndValue, other.rulerEndValue)
+			.append(this.closed, other.closed)
+			.isEquals();
+	}
+
+	/**
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode()
+	{
+		return new HashCodeBuilder()
+			.append(this.sessionId)
+			.append(this.rulerIndex)
+			.append(this.timestamp)
+			.append(this.bounds)
+			.append(this.vertical)
+			.append(this.unitName)
+			.append(this.rulerStartValue)
+			.append(this.rulerEndValue)
+			.append(this.closed)
+			.toHashCode();
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return new ToStringBuilder(this)
+			.append("sessionId", this.sessionId)
+			.append("rulerIndex", this.rulerIndex)
+			.append("timestamp", this.timestamp)
+			.append("bounds", this.bounds)
+			.append("vertical", this.vertical)
+			.append("unitName", this.unitName)
+			.append("rulerStartValue", this.rulerStartValue)
+			.append("rulerEndValue", this.rulerEndValue)
+			.append("closed", this.closed)
+			.toString();
+	}
+
+}
@@ -0,0 +1,285 @@
+package de.thomasvoecking.screenruler.journal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Append-only binary journal of {@link Measurement}s.
+ *
+ * The file starts with a magic number, followed by one frame per measurement: the length of the payload, the
+ * payload and the CRC32 of the payload. A frame that has not been written completely, e.g. because the process
+ * has been killed, fails the length or checksum check. When the journal is opened, such a tail is cut off, so
+ * all following frames are appended after the last valid one.
+ *
+ * The journal is read through a memory mapped {@link JournalView}, so it can not be larger than 2 GB. The file is
+ * locked while it is open.
+ *
+ * @author thomas
+ */
+public class MeasurementJournal implements Closeable
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(MeasurementJournal.class);
+
+	/**
+	 * The first four bytes of a journal: "SRJ1"
+	 */
+	static final int magic = 0x534a5231;
+
+	/**
+	 * The size of the header in bytes
+	 */
+	static final int headerSize = 4;
+
+	/**
+	 * The size of the frame around a payload: length and checksum
+	 */
+	static final int frameOverhead = 8;
+
+	/**
+	 * The charset of the unit names
+	 */
+	static final Charset charset = Charset.forName("UTF-8");
+
+	/** Payload offset of the session id (long) */
+	static final int sessionIdOffset = 0;
+
+	/** Payload offset of the timestamp (long) */
+	static final int timestampOffset = 8;
+
+	/** Payload offset of the ruler index (int) */
+	static final int rulerIndexOffset = 16;
+
+	/** Payload offset of the flags (byte) */
+	static final int flagsOffset = 20;
+
+	/** Payload offset of the bounds (4 ints) */
+	static final int boundsOffset = 21;
+
+	/** Payload offset of the start value (double) */
+	static final int rulerStartValueOffset = 37;
+
+	/** Payload offset of the end value (double) */
+	static final int rulerEndValueOffset = 45;
+
+	/** Payload offset of the length of the unit name (unsigned short) */
+	static final int unitNameLengthOffset = 53;
+
+	/** Payload offset of the unit name (UTF-8) */
+	static final int unitNameOffset = 55;
+
+	/** Flag: the ruler is vertical */
+	static final int verticalFlag = 1;
+
+	/** Flag: the ruler has been closed */
+	static final int closedFlag = 2;
+
+	/**
+	 * The maximum size of a payload
+	 */
+	static final int maxPayloadSize = unitNameOffset + 0xffff;
+
+	/**
+	 * The journal file
+	 */
+	private final File file;
+
+	/**
+	 * The channel of the open journal. Null if the journal is not open.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * The lock of the open journal
+	 */
+	private FileLock lock;
+
+	/**
+	 * The last mapped view. Reused until a measurement is appended.
+	 */
+	private JournalView view;
+
+	/**
+	 * Encodes the frames. Reused for all appends.
+	 */
+	private ByteBuffer buffer = ByteBuffer.allocate(unitNameOffset + 64 + frameOverhead);
+
+	/**
+	 * Computes the checksums
+	 */
+	private final CRC32 crc = new CRC32();
+
+	/**
+	 * Constructor
+	 *
+	 * @param file The journal file. Created with its directory if it does not exist.
+	 */
+	public MeasurementJournal(final File file)
+	{
+		this.file = file;
+	}
+
+	/**
+	 * Opens the journal. Cuts off an incomplete tail.
+	 *
+	 * @throws IOException if the file can not be opened, is no journal or is used by another process.
+	 */
+	public synchronized void open() throws IOException
+	{
+		if (this.channel != null) return;
+
+		final File directory = this.file.getAbsoluteFile().getParentFile();
+		if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Could not create " + directory);
+
+		final FileChannel newChannel = new RandomAccessFile(this.file, "rw").getChannel();
+		try
+		{
+			try
+			{
+				this.lock = newChannel.tryLock();
+			}
+			catch (final OverlappingFileLockException e)
+			{
+				// Thrown instead of returning null if the lock is held within this process
+				this.lock = null;
+			}
+			if (this.lock == null) throw new IOException("Journal " + this.file + " is used by another process");
+
+			if (newChannel.size() > Integer.MAX_VALUE)
+				throw new IOException("Journal " + this.file + " is larger than 2 GB and can not be read");
+			if (newChannel.size() == 0)
+			{
+				final ByteBuffer header = ByteBuffer.allocate(headerSize);
+				header.putInt(magic).flip();
+				while (header.hasRemaining()) newChannel.write(header);
+			}
+
+			// The tail is cut off before the journal is mapped, a mapped file can not be truncated on all platforms
+			final long validLength;
+			try
+			{
+				validLength = JournalView.findValidLength(newChannel);
+			}
+			catch (final IllegalArgumentException e)
+			{
+				throw new IOException(this.file + " is no measurement journal", e);
+			}
+			if (validLength < newChannel.size())
+			{
+				log.warn("Cutting off " + (newChannel.size() - validLength) + " bytes of an incomplete frame");
+				newChannel.truncate(validLength);
+			}
+			newChannel.position(validLength);
+			final JournalView view = new JournalView(newChannel.map(FileChannel.MapMode.READ_ONLY, 0, validLength));
+			this.view = view;
+			log.debug("Opened journal " + this.file + " with " + view.size() + " measurements");
+		}
+		catch (final IOException e)
+		{
+			// Also releases the lock
+			newChannel.close();
+			this.lock = null;
+			throw e;
+		}
+		this.channel = newChannel;
+	}
+
+	/**
+	 * Appends a measurement. The frame is written with one write call, but not forced to the disk.
+	 *
+	 * @param measurement The measurement
+	 * @throws IOException if the measurement could not be written.
+	 */
+	public synchronized void append(final Measurement measurement) throws IOException
+	{
+		if (this.channel == null) throw new IllegalStateException("Journal " + this.file + " is not open");
+
+		final byte[] unitName = measurement.getUnitName().getBytes(charset);
+		if (unitName.length > 0xffff)
+			throw new IllegalArgumentException("Unit name must not be longer than 65535 bytes, but is " + unitName.length);
+
+		final int payloadSize = unitNameOffset + unitName.length;
+		if (this.channel.position() + payloadSize + frameOverhead > Integer.MAX_VALUE)
+			throw new IOException("Journal " + this.file + " is full, it can not be larger than 2 GB");
+		if (this.buffer.capacity() < payloadSize + frameOverhead)
+		{
+			this.buffer = ByteBuffer.allocate(payloadSize + frameOverhead);
+		}
+
+		this.buffer.clear();
+		this.buffer.putInt(payloadSize);
+		this.buffer.putLong(measurement.getSessionId());
+		this.buffer.putLong(measurement.getTimestamp());
+		this.buffer.putInt(measurement.getRulerIndex());
+		this.buffer.put((byte) ((measurement.isVertical() ? verticalFlag : 0) | (measurement.isClosed() ? closedFlag : 0)));
+		this.buffer.putInt(measurement.getBounds().x);
+		this.buffer.putInt(measurement.getBounds().y);
+		this.buffer.putInt(measurement.getBounds().width);
+		this.buffer.putInt(measurement.getBounds().height);
+		this.buffer.putDouble(measurement.getRulerStartValue());
+		this.buffer.putDouble(measurement.getRulerEndValue());
+		this.buffer.putShort((short) unitName.length);
+		this.buffer.put(unitName);
+
+		this.crc.reset();
+		this.crc.update(this.buffer.array(), 4, payloadSize);
+		this.buffer.putInt((int) this.crc.getValue());
+		this.buffer.flip();
+		while (this.buffer.hasRemaining()) this.channel.write(this.buffer);
+	}
+
+	/**
+	 * Maps the current content of the journal.
+	 *
+	 * @return The view. Does not contain measurements that are appended later.
+	 * @throws IOException if the journal could not be mapped.
+	 */
+	public synchronized JournalView map() throws IOException
+	{
+		if (this.channel == null) throw new IllegalStateException("Journal " + this.file + " is not open");
+		if (this.view.getValidLength() != this.channel.position())
+		{
+			this.view = new JournalView(this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.channel.position()));
+		}
+		return this.view;
+	}
+
+	/**
+	 * Forces all appended measurements to the disk and closes the journal.
+	 *
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public synchronized void close() throws IOException
+	{
+		if (this.channel == null) return;
+
+		try
+		{
+			this.channel.force(false);
+			this.lock.release();
+		}
+		finally
+		{
+			this.channel.close();
+			this.channel = null;
+			this.lock = null;
+			this.view = null;
+		}
+	}
+
+}
@@ -0,0 +1,483 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Renders the ruler layer on a dedicated thread, so that an expensive layout does not block the event dispatch
+ * thread.
+ *
+ * The event dispatch thread submits the inputs of the layer as a {@link Request}. The render thread only renders
+ * the latest request, requests that are replaced before it gets to them are skipped. Finished frames are published
+ * through a lock-free swap: the render thread puts a frame into the ready slot, the event dispatch thread takes it
+ * from there and returns the frame it has shown before. A frame is never rendered into while it is shown, three
+ * frames are enough for this.
+ *
+ * A frame that is replaced in the ready slot before it has been taken is counted as dropped. Taking a frame that
+ * has been rendered for other inputs than the current ones is counted as stale.
+ *
+ * The render thread uses its own {@link Ruler}, the ruler of the frame is only read on the event dispatch thread.
+ *
+ * @author thomas
+ */
+class BackgroundRenderer
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(BackgroundRenderer.class);
+
+	/**
+	 * The ruler that is rendered. Only used on the render thread.
+	 */
+	private final Ruler ruler;
+
+	/**
+	 * Notified on the render thread after a frame has been published
+	 */
+	private final Runnable frameListener;
+
+	/**
+	 * Renders the frames
+	 */
+	private final Thread renderThread;
+
+	/**
+	 * The latest request that has not been rendered yet
+	 */
+	private final AtomicReference<Request> pendingRequest = new AtomicReference<Request>();
+
+	/**
+	 * Frames that can be rendered into
+	 */
+	private final Queue<Frame> freeFrames = new ConcurrentLinkedQueue<Frame>();
+
+	/**
+	 * The latest rendered frame that has not been taken yet
+	 */
+	private final AtomicReference<Frame> readyFrame = new AtomicReference<Frame>();
+
+	/**
+	 * The frame that is shown. Only used on the event dispatch thread.
+	 */
+	private Frame shownFrame;
+
+	/**
+	 * The latest submitted request. Only used on the event dispatch thread.
+	 */
+	private Request submittedRequest;
+
+	/**
+	 * Set while the render thread waits for requests
+	 */
+	private volatile boolean waiting;
+
+	/**
+	 * Set when the renderer has been stopped
+	 */
+	private volatile boolean stopped;
+
+	/**
+	 * The number of rendered frames
+	 */
+	private final AtomicLong renderedCount = new AtomicLong();
+
+	/**
+	 * The number of frames that have been replaced before they have been shown
+	 */
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	/**
+	 * The number of times a frame has been shown that does not match the current inputs
+	 */
+	private final AtomicLong staleCount = new AtomicLong();
+
+	/**
+	 * Constructor
+	 *
+	 * @param ruler The ruler that is rendered. Must not be used by any other thread.
+	 * @param frameListener Notified on the render thread after a frame has been published
+	 */
+	BackgroundRenderer(final Ruler ruler, final Runnable frameListener)
+	{
+		this.ruler = ruler;
+		this.frameListener = frameListener;
+		this.renderThread = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				BackgroundRenderer.this.renderLoop();
+			}
+		}, "ruler-renderer");
+		this.renderThread.setDaemon(true);
+	}
+
+	/**
+	 * Starts the render thread.
+	 */
+	void start()
+	{
+		this.renderThread.start();
+	}
+
+	/**
+	 * Stops the render thread. A frame that is being rendered is finished.
+	 *
+	 * @param timeoutMillis The maximum time to wait for the render thread in ms
+	 * @return true if the render thread has stopped
+	 */
+	boolean stop(final long timeoutMillis)
+	{
+		this.stopped = true;
+		LockSupport.unpark(this.renderThread);
+		try
+		{
+			this.renderThread.join(timeoutMillis);
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		log.debug("Renderer stopped: " + this.renderedCount + " frames rendered, " + this.droppedCount
+				+ " dropped, " + this.staleCount + " stale");
+		return !this.renderThread.isAlive();
+	}
+
+	/**
+	 * Submits the inputs of the next frame. Called on the event dispatch thread. Does nothing if the inputs are
+	 * the same as the last submitted ones.
+	 *
+	 * @param request The inputs
+	 */
+	void submit(final Request request)
+	{
+		if (request.equals(this.submittedRequest)) return;
+		this.submittedRequest = request;
+		this.pendingRequest.set(request);
+		if (this.waiting) LockSupport.unpark(this.renderThread);
+	}
+
+	/**
+	 * Returns the latest rendered frame. Called on the event dispatch thread. The frame may be shown until the
+	 * next call.
+	 *
+	 * @param request The current inputs. Counts the frame as stale if it has been rendered for other inputs.
+	 * @return The frame, or null if nothing has been rendered yet.
+	 */
+	Frame getFrame(final Request request)
+	{
+		final Frame frame = this.readyFrame.getAndSet(null);
+		if (frame != null)
+		{
+			if (this.shownFrame != null) this.freeFrames.add(this.shownFrame);
+			this.shownFrame = frame;
+		}
+		if (this.shownFrame != null && !this.shownFrame.request.equals(request)) this.staleCount.incrementAndGet();
+		return this.shownFrame;
+	}
+
+	/**
+	 * The loop of the render thread. Runs until the renderer is stopped.
+	 */
+	private void renderLoop()
+	{
+		while (!this.stopped)
+		{
+			Request request = this.pendingRequest.getAndSet(null);
+			if (request == null)
+			{
+				// Announce the wait before checking again, so a submitter either sees it or its request is found
+				this.waiting = true;
+				request = this.pendingRequest.getAndSet(null);
+				if (request == null)
+				{
+					if (!this.stopped) LockSupport.park(this);
+					this.waiting = false;
+					continue;
+				}
+				this.waiting = false;
+			}
+
+			final Frame frame = this.render(request);
+			frame.sequence = this.renderedCount.incrementAndGet();
+			final Frame replacedFrame = this.readyFrame.getAndSet(frame);
+			if (replacedFrame != null)
+			{
+				this.droppedCount.incrementAndGet();
+				this.freeFrames.add(replacedFrame);
+			}
+
+			try
+			{
+				this.frameListener.run();
+			}
+			catch (final RuntimeException e)
+			{
+				log.warn("Frame listener failed", e);
+			}
+		}
+	}
+
+	/**
+	 * Renders a frame. Reuses a free frame if there is one.
+	 *
+	 * @param request The inputs
+	 * @return The frame
+	 */
+	private Frame render(final Request request)
+	{
+		Frame frame = this.freeFrames.poll();
+		if (frame == null) frame = new Frame();
+		frame.prepare(request);
+
+		final Graphics2D g2 = frame.image.createGraphics();
+		try
+		{
+			g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			// Replaces the previous contents, also if the background is translucent
+			g2.setComposite(AlphaComposite.Src);
+			g2.setColor(request.background);
+			g2.fillRect(0, 0, request.width, request.height);
+			g2.setComposite(AlphaComposite.SrcOver);
+			g2.setColor(request.foreground);
+			this.ruler.setRulerBounds(request.rulerStartValue, request.rulerEndValue);
+			this.ruler.paint(g2, request.rulerBounds);
+		}
+		finally
+		{
+			g2.dispose();
+		}
+		return frame;
+	}
+
+	/**
+	 * @return The number of rendered frames
+	 */
+	long getRenderedCount()
+	{
+		return this.renderedCount.get();
+	}
+
+	/**
+	 * @return The number of frames that have been replaced before they have been shown
+	 */
+	long getDroppedCount()
+	{
+		return this.droppedCount.get();
+	}
+
+	/**
+	 * @return The number of times a frame has been shown that does not match the current inputs
+	 */
+	long getStaleCount()
+	{
+		return this.staleCount.get();
+	}
+
+	/**
+	 * The inputs of the ruler layer. Immutable.
+	 *
+	 * @author thomas
+	 */
+	static final class Request
+	{
+
+		/**
+		 * The start value of the ruler
+		 */
+		private final double rulerStartValue;
+
+		/**
+		 * The end value of the ruler
+		 */
+		private final double rulerEndValue;
+
+		/**
+		 * The width of the layer
+		 */
+		private final int width;
+
+		/**
+		 * The height of the layer
+		 */
+		private final int height;
+
+		/**
+		 * The area of the ruler
+		 */
+		private final Rectangle rulerBounds;
+
+		/**
+		 * The background color
+		 */
+		private final Color background;
+
+		/**
+		 * The foreground color
+		 */
+		private final Color foreground;
+
+		/**
+		 * The graphics configuration to create the image for. May be null.
+		 */
+		private final GraphicsConfiguration graphicsConfiguration;
+
+		/**
+		 * All inputs, for {@link #equals(Object)}
+		 */
+		private final Object[] key;
+
+		/**
+		 * Constructor
+		 *
+		 * @param rulerStartValue The start value of the ruler
+		 * @param rulerEndValue The end value of the ruler
+		 * @param width The width of the layer
+		 * @param height The height of the layer
+		 * @param rulerBounds The area of the ruler. Is copied.
+		 * @param background The background color
+		 * @param foreground The foreground color
+		 * @param graphicsConfiguration The graphics configuration to create the image for. May be null.
+		 */
+		Request(final double rulerStartValue, final double rulerEndValue, final int width, final int height,
+				final Rectangle rulerBounds, final Color background, final Color foreground,
+				final GraphicsConfiguration graphicsConfiguration)
+		{
+			this.rulerStartValue = rulerStartValue;
+			this.rulerEndValue = rulerEndValue;
+			this.width = width;
+			this.height = height;
+			this.rulerBounds = new Rectangle(rulerBounds);
+			this.background = background;
+			this.foreground = foreground;
+			this.graphicsConfiguration = graphicsConfiguration;
+			this.key = new Object[] { rulerStartValue, rulerEndValue, width, height, this.rulerBounds, background,
+					foreground, graphicsConfiguration };
+		}
+
+		/**
+		 * @return The width of the layer
+		 */
+		int getWidth()
+		{
+			return this.width;
+		}
+
+		/**
+		 * @return The height of the layer
+		 */
+		int getHeight()
+		{
+			return this.height;
+		}
+
+		/**
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(final Object obj)
+		{
+			return obj instanceof Request && Arrays.equals(this.key, ((Request) obj).key);
+		}
+
+		/**
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode()
+		{
+			return Arrays.hashCode(this.key);
+		}
+
+	}
+
+	/**
+	 * A rendered frame.
+	 *
+	 * @author thomas
+	 */
+	static final class Frame
+	{
+
+		/**
+		 * The image. May be larger than the layer.
+		 */
+		private BufferedImage image;
+
+		/**
+		 * The inputs the frame has been rendered for
+		 */
+		private Request request;
+
+		/**
+		 * The number of the frame. Frames are reused, so a new number means new contents.
+		 */
+		private long sequence;
+
+		/**
+		 * Prepares the frame to be rendered for a request. Reuses the image if it fits.
+		 *
+		 * @param request The inputs
+		 */
+		void prepare(final Request request)
+		{
+			final int width = Math.max(request.width, 1);
+			final int height = Math.max(request.height, 1);
+			final int transparency = request.background.getAlpha() == 255 ? Transparency.OPAQUE : Transparency.TRANSLUCENT;
+			if (this.image == null || this.image.getWidth() < width || this.image.getHeight() != height
+					|| this.image.getTransparency() != transparency
+					|| this.request.graphicsConfiguration != request.graphicsConfiguration)
+			{
+				this.image = request.graphicsConfiguration == null
+					? new BufferedImage(width, height, transparency == Transparency.OPAQUE 
+							? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE)
+					: request.graphicsConfiguration.createCompatibleImage(width, height, transparency);
+			}
+			this.request = request;
+		}
+
+		/**
+		 * @return The image. May be larger than the layer.
+		 */
+		BufferedImage getImage()
+		{
+			return this.image;
+		}
+
+		/**
+		 * @return The inputs the frame has been rendered for
+		 */
+		Request getRequest()
+		{
+			return this.request;
+		}
+
+		/**
+		 * @return The number of the frame. Frames are reused, so a new number means new contents.
+		 */
+		long getSequence()
+		{
+			return this.sequence;
+		}
+
+	}
+
+}
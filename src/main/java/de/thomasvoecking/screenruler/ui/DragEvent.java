@@ -0,0 +1,36 @@
+package de.thomasvoecking.screenruler.ui;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for one drag target submitted to the {@link DragScheduler}. Lasts from the submission
+ * until the target has been applied or replaced by a newer one.
+ *
+ * @author thomas
+ */
+@Name("de.thomasvoecking.screenruler.Drag")
+@Label("Drag")
+@Description("A drag target from its submission until it has been applied or coalesced")
+@Category({ "Screenruler", "Input" })
+@StackTrace(false)
+class DragEvent extends jdk.jfr.Event
+{
+
+	/**
+	 * The dragging mode
+	 */
+	@Label("Mode")
+	String mode;
+
+	/**
+	 * Set if the target has been applied, unset if it has been replaced by a newer one
+	 */
+	@Label("Applied")
+	@Description("The target has been applied, otherwise it has been replaced by a newer one")
+	boolean applied;
+
+}
@@ -0,0 +1,230 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Rectangle;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Coalesces drag targets and applies at most one per frame.
+ *
+ * The first target of a frame is applied immediately to keep the latency low. Further targets within the
+ * same frame only replace the pending target, which is applied on the next tick of the {@link FrameClock}.
+ *
+ * Each target is recorded as a {@link DragEvent} from its submission until it has been applied or replaced.
+ *
+ * @author thomas
+ */
+class DragScheduler implements FrameClock.FrameListener
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(DragScheduler.class);
+
+	/**
+	 * The clock
+	 */
+	private final FrameClock frameClock;
+
+	/**
+	 * Applies the targets
+	 */
+	private final DragTarget dragTarget;
+
+	/**
+	 * The target that has not been applied yet. Null if there is none.
+	 */
+	private Rectangle pendingBounds;
+
+	/**
+	 * The flight recorder event of the pending target. Null if there is none.
+	 */
+	private DragEvent pendingEvent;
+
+	/**
+	 * The dragging mode of the current drag
+	 */
+	private DraggingMode draggingMode;
+
+	/**
+	 * The time the last target has been applied at, in ns
+	 */
+	private long lastApplied;
+
+	/**
+	 * The number of targets submitted during the current drag
+	 */
+	private int submittedCount;
+
+	/**
+	 * The number of targets applied during the current drag
+	 */
+	private int appliedCount;
+
+	/**
+	 * The number of targets submitted since this scheduler has been created
+	 */
+	private long totalSubmittedCount;
+
+	/**
+	 * The number of targets applied since this scheduler has been created
+	 */
+	private long totalAppliedCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param frameClock The clock
+	 * @param dragTarget Applies the targets
+	 */
+	DragScheduler(final FrameClock frameClock, final DragTarget dragTarget)
+	{
+		this.frameClock = frameClock;
+		this.dragTarget = dragTarget;
+	}
+
+	/**
+	 * Starts a new drag.
+	 *
+	 * @param draggingMode The dragging mode. Only used for the flight recorder events.
+	 */
+	void start(final DraggingMode draggingMode)
+	{
+		this.draggingMode = draggingMode;
+		this.pendingBounds = null;
+		this.pendingEvent = null;
+		this.submittedCount = 0;
+		this.appliedCount = 0;
+		this.lastApplied = System.nanoTime() - this.frameClock.getFrameIntervalNanos();
+		this.frameClock.addFrameListener(this);
+	}
+
+	/**
+	 * Submits a new target. The target is applied immediately if no target has been applied during the
+	 * current frame, otherwise it replaces the pending target.
+	 *
+	 * @param bounds The new bounds
+	 */
+	void submit(final Rectangle bounds)
+	{
+		this.submittedCount++;
+		this.totalSubmittedCount++;
+		if (this.pendingEvent != null) this.commit(this.pendingEvent, false);
+		this.pendingEvent = new DragEvent();
+		this.pendingEvent.begin();
+		this.pendingBounds = bounds;
+		if (System.nanoTime() - this.lastApplied >= this.frameClock.getFrameIntervalNanos()) this.flush();
+	}
+
+	/**
+	 * Ends the current drag. A pending target is applied.
+	 */
+	void stop()
+	{
+		this.flush();
+		this.frameClock.removeFrameListener(this);
+		log.debug("Drag finished: " + this.submittedCount + " events, " + this.appliedCount + " applied, "
+				+ this.getCoalescedCount() + " coalesced");
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.ui.FrameClock.FrameListener#frame()
+	 */
+	@Override
+	public void frame()
+	{
+		this.flush();
+	}
+
+	/**
+	 * Applies the pending target if there is one.
+	 */
+	private void flush()
+	{
+		if (this.pendingBounds == null) return;
+
+		final Rectangle bounds = this.pendingBounds;
+		this.pendingBounds = null;
+		final DragEvent event = this.pendingEvent;
+		this.pendingEvent = null;
+		this.lastApplied = System.nanoTime();
+		this.appliedCount++;
+		this.totalAppliedCount++;
+		this.dragTarget.applyDrag(bounds);
+		if (event != null) this.commit(event, true);
+	}
+
+	/**
+	 * Commits the flight recorder event of a target.
+	 *
+	 * @param event The event
+	 * @param applied true if the target has been applied, false if it has been replaced
+	 */
+	private void commit(final DragEvent event, final boolean applied)
+	{
+		if (event.shouldCommit())
+		{
+			event.mode = this.draggingMode == null ? null : this.draggingMode.name();
+			event.applied = applied;
+			event.commit();
+		}
+	}
+
+	/**
+	 * @return The number of targets submitted during the current drag
+	 */
+	int getSubmittedCount()
+	{
+		return this.submittedCount;
+	}
+
+	/**
+	 * @return The number of targets applied during the current drag
+	 */
+	int getAppliedCount()
+	{
+		return this.appliedCount;
+	}
+
+	/**
+	 * @return The number of targets that have been replaced by a newer one during the current drag
+	 */
+	int getCoalescedCount()
+	{
+		return this.submittedCount - this.appliedCount - (this.pendingBounds == null ? 0 : 1);
+	}
+
+	/**
+	 * @return The number of targets submitted since this scheduler has been created
+	 */
+	long getTotalSubmittedCount()
+	{
+		return this.totalSubmittedCount;
+	}
+
+	/**
+	 * @return The number of targets applied since this scheduler has been created
+	 */
+	long getTotalAppliedCount()
+	{
+		return this.totalAppliedCount;
+	}
+
+	/**
+	 * Applies drag targets.
+	 *
+	 * @author thomas
+	 */
+	interface DragTarget
+	{
+		/**
+		 * Applies a drag target.
+		 *
+		 * @param bounds The new bounds
+		 */
+		void applyDrag(Rectangle bounds);
+	}
+
+}
@@ -0,0 +1,21 @@
+package de.thomasvoecking.screenruler.ui;
+
+/**
+ * Possible dragging modes.
+ * 
+ * @author thomas
+ */
+enum DraggingMode
+{
+	/** Resize mode to the left side. */
+	RESIZE_LEFT,
+	
+	/** Resize mode to the right side. */
+	RESIZE_RIGHT,
+	
+	/** Move mode */
+	MOVE,
+	
+	/** Pan mode: moves the range of the ruler */
+	PAN
+}
\ No newline at end of file
@@ -0,0 +1,169 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.thomasvoecking.screenruler.capture.EdgeDetector;
+import de.thomasvoecking.screenruler.capture.ScreenSource;
+
+/**
+ * Snaps the ends of a ruler to visual edges on the screen while it is resized.
+ *
+ * The edges are detected in a thin strip along the measuring edge of the ruler, directly outside of the window,
+ * so the ruler itself is never part of the capture. The strip covers the whole screen along the ruler axis, so
+ * it only has to be captured again when the ruler is moved across its axis, not while it is resized.
+ *
+ * @author thomas
+ */
+class EdgeSnapper
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(EdgeSnapper.class);
+
+	/**
+	 * The depth of the captured strip in px
+	 */
+	static final int stripDepth = 6;
+
+	/**
+	 * The maximum distance in px an end is moved to snap to an edge
+	 */
+	static final int snapDistance = 8;
+
+	/**
+	 * The minimum average luminance difference of an edge
+	 */
+	private static final int edgeThreshold = 32;
+
+	/**
+	 * The captured screen
+	 */
+	private final ScreenSource screenSource;
+
+	/**
+	 * Finds the edges in the strip
+	 */
+	private final EdgeDetector edgeDetector = new EdgeDetector(edgeThreshold);
+
+	/**
+	 * The pixels of the strip. Reused for all captures of the same size.
+	 */
+	private int[] pixels = new int[0];
+
+	/**
+	 * The captured strip in screen coordinates. Null if nothing has been captured yet.
+	 */
+	private Rectangle stripRegion;
+
+	/**
+	 * The orientation the strip has been captured for
+	 */
+	private Orientation stripOrientation;
+
+	/**
+	 * The logical positions of the edges in the strip, sorted
+	 */
+	private int[] edges = new int[0];
+
+	/**
+	 * The number of captures
+	 */
+	private int captureCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param screenSource The captured screen
+	 */
+	EdgeSnapper(final ScreenSource screenSource)
+	{
+		this.screenSource = screenSource;
+	}
+
+	/**
+	 * Snaps a position on the ruler axis to the nearest edge.
+	 *
+	 * @param logicalBounds The bounds of the window in logical coordinates. Determines the strip.
+	 * @param orientation The orientation of the ruler
+	 * @param logicalX The position to snap, in logical coordinates
+	 * @return The position of the nearest edge within {@link #snapDistance}, or logicalX if there is none.
+	 */
+	int snap(final Rectangle logicalBounds, final Orientation orientation, final int logicalX)
+	{
+		this.update(logicalBounds, orientation);
+
+		// The edges are sorted, so only the neighbours of the insertion point are candidates
+		final int index = Arrays.binarySearch(this.edges, logicalX);
+		if (index >= 0) return logicalX;
+
+		final int insertionPoint = -index - 1;
+		int snapped = logicalX;
+		int distance = snapDistance + 1;
+		if (insertionPoint > 0 && logicalX - this.edges[insertionPoint - 1] < distance)
+		{
+			snapped = this.edges[insertionPoint - 1];
+			distance = logicalX - snapped;
+		}
+		if (insertionPoint < this.edges.length && this.edges[insertionPoint] - logicalX < distance)
+		{
+			snapped = this.edges[insertionPoint];
+		}
+		return snapped;
+	}
+
+	/**
+	 * Captures the strip for a window and detects its edges, unless the strip has not moved.
+	 *
+	 * @param logicalBounds The bounds of the window in logical coordinates
+	 * @param orientation The orientation of the ruler
+	 */
+	private void update(final Rectangle logicalBounds, final Orientation orientation)
+	{
+		// The strip runs along the whole screen, directly above the measuring edge of the ruler
+		final Rectangle logicalScreen = orientation.toLogical(this.screenSource.getBounds());
+		final Rectangle logicalStrip = new Rectangle(logicalScreen.x, logicalBounds.y - stripDepth,
+				logicalScreen.width, stripDepth).intersection(logicalScreen);
+		final Rectangle region = logicalStrip.isEmpty() ? null : orientation.toScreen(logicalStrip);
+		if (orientation == this.stripOrientation && (region == null ? this.stripRegion == null : region.equals(this.stripRegion)))
+			return;
+
+		this.stripOrientation = orientation;
+		this.stripRegion = region;
+		if (region == null)
+		{
+			this.edges = new int[0];
+			return;
+		}
+
+		final int pixelCount = region.width * region.height;
+		if (this.pixels.length != pixelCount) this.pixels = new int[pixelCount];
+		this.screenSource.capture(region, this.pixels, 0, region.width);
+		this.captureCount++;
+
+		// Logical x runs along the screen x axis for horizontal rulers and along the screen y axis for vertical ones
+		final int[] stripEdges = orientation == Orientation.HORIZONTAL
+				? this.edgeDetector.findEdges(this.pixels, 0, region.width, 1, region.height, region.width)
+				: this.edgeDetector.findEdges(this.pixels, 0, region.height, region.width, region.width, 1);
+		for (int i = 0; i < stripEdges.length; i++)
+		{
+			stripEdges[i] += logicalStrip.x;
+		}
+		this.edges = stripEdges;
+		log.debug("Captured " + region + ", " + this.edges.length + " edges");
+	}
+
+	/**
+	 * @return The number of captures
+	 */
+	int getCaptureCount()
+	{
+		return this.captureCount;
+	}
+
+}
@@ -0,0 +1,155 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.DisplayMode;
+import java.awt.GraphicsDevice;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.Timer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Ticks once per frame on the event dispatch thread while at least one {@link FrameListener} is registered.
+ *
+ * @author thomas
+ */
+class FrameClock implements ActionListener
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(FrameClock.class);
+
+	/**
+	 * The frame rate that is used if the refresh rate of the display is unknown.
+	 */
+	static final int defaultFrameRate = 60;
+
+	/**
+	 * The frame rate
+	 */
+	private int frameRate;
+
+	/**
+	 * The timer
+	 */
+	private final Timer timer;
+
+	/**
+	 * The registered listeners
+	 */
+	private final List<FrameListener> listeners = new ArrayList<FrameListener>();
+
+	/**
+	 * Constructor
+	 *
+	 * @param frameRate The number of ticks per second. Must be greater than 0.
+	 */
+	FrameClock(final int frameRate)
+	{
+		this.timer = new Timer(1, this);
+		this.timer.setCoalesce(true);
+		this.setFrameRate(frameRate);
+	}
+
+	/**
+	 * Changes the frame rate. A running clock ticks with the new rate after the next tick.
+	 *
+	 * @param frameRate The number of ticks per second. Must be greater than 0.
+	 */
+	void setFrameRate(final int frameRate)
+	{
+		if (frameRate <= 0)
+			throw new IllegalArgumentException("Param \"frameRate\" must be > 0, but is " + frameRate);
+
+		log.debug("Frame rate: " + frameRate);
+		this.frameRate = frameRate;
+		this.timer.setDelay(Math.max(1, 1000 / frameRate));
+	}
+
+	/**
+	 * Returns the refresh rate of the given device.
+	 *
+	 * @param device The device. May be null.
+	 * @return The refresh rate of the display mode or {@link #defaultFrameRate} if it is unknown.
+	 */
+	static int getRefreshRate(final GraphicsDevice device)
+	{
+		if (device == null) return defaultFrameRate;
+		final DisplayMode displayMode = device.getDisplayMode();
+		if (displayMode == null || displayMode.getRefreshRate() == DisplayMode.REFRESH_RATE_UNKNOWN)
+			return defaultFrameRate;
+		return displayMode.getRefreshRate();
+	}
+
+	/**
+	 * Adds a listener. The clock is started if it is the first listener.
+	 *
+	 * @param listener The listener
+	 */
+	void addFrameListener(final FrameListener listener)
+	{
+		if (this.listeners.contains(listener)) return;
+		this.listeners.add(listener);
+		if (!this.timer.isRunning()) this.timer.start();
+	}
+
+	/**
+	 * Removes a listener. The clock is stopped if it was the last listener.
+	 *
+	 * @param listener The listener
+	 */
+	void removeFrameListener(final FrameListener listener)
+	{
+		this.listeners.remove(listener);
+		if (this.listeners.isEmpty()) this.timer.stop();
+	}
+
+	/**
+	 * @return The number of ticks per second
+	 */
+	int getFrameRate()
+	{
+		return this.frameRate;
+	}
+
+	/**
+	 * @return The duration of one frame in ns
+	 */
+	long getFrameIntervalNanos()
+	{
+		return 1000000000L / this.frameRate;
+	}
+
+	/**
+	 * @see java.awt.event.ActionListener#actionPerformed(java.awt.event.ActionEvent)
+	 */
+	@Override
+	public void actionPerformed(final ActionEvent e)
+	{
+		// Copy the listeners, they may unregister themselves
+		for (final FrameListener listener : this.listeners.toArray(new FrameListener[this.listeners.size()]))
+		{
+			listener.frame();
+		}
+	}
+
+	/**
+	 * Listener that is called once per frame.
+	 *
+	 * @author thomas
+	 */
+	interface FrameListener
+	{
+		/**
+		 * Called once per frame on the event dispatch thread.
+		 */
+		void frame();
+	}
+
+}
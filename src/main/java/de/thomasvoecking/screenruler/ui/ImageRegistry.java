@@ -0,0 +1,257 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Shared registry for the images of the controls.
+ *
+ * Each resource is decoded only once, on first use or by {@link #preload(ExecutorService)}, and converted to
+ * the image type of the default screen, so it can be drawn on the accelerated pipeline. Scaled variants are
+ * cached per target size, so drawing a control is an unscaled blit.
+ *
+ * @author thomas
+ */
+public final class ImageRegistry
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(ImageRegistry.class);
+
+	/**
+	 * The registry used by the controls
+	 */
+	private static final ImageRegistry defaultRegistry = new ImageRegistry();
+
+	/**
+	 * The sprites by resource path
+	 */
+	private final Map<String, Sprite> sprites = new HashMap<String, Sprite>();
+
+	/**
+	 * @return The registry used by the controls
+	 */
+	public static ImageRegistry getDefault()
+	{
+		return defaultRegistry;
+	}
+
+	/**
+	 * Returns the sprite for a resource. The resource is not read before the first image is requested.
+	 *
+	 * @param path The path of the resource on the classpath
+	 * @return The sprite
+	 */
+	public synchronized Sprite getSprite(final String path)
+	{
+		Sprite sprite = this.sprites.get(path);
+		if (sprite == null)
+		{
+			sprite = new Sprite(path);
+			this.sprites.put(path, sprite);
+		}
+		return sprite;
+	}
+
+	/**
+	 * Decodes all registered images that have not been decoded yet, one task per image. A control that is 
+	 * painted while its image is still decoded waits for the decoding task instead of decoding it again.
+	 * 
+	 * @param executor Runs the decoding tasks
+	 * @return One future per submitted image. Failed futures contain the exception of {@link Sprite#getImage()}.
+	 */
+	public synchronized List<Future<BufferedImage>> preload(final ExecutorService executor)
+	{
+		final List<Future<BufferedImage>> futures = new ArrayList<Future<BufferedImage>>();
+		for (final Sprite sprite : this.sprites.values())
+		{
+			if (sprite.isLoaded()) continue;
+			futures.add(executor.submit(new Callable<BufferedImage>()
+			{
+				@Override
+				public BufferedImage call()
+				{
+					return sprite.getImage();
+				}
+			}));
+		}
+		return futures;
+	}
+	
+	/**
+	 * Creates an image of the type of the default screen.
+	 *
+	 * @param width The width
+	 * @param height The height
+	 * @param transparency The transparency, see {@link Transparency}
+	 * @return The image
+	 */
+	private static BufferedImage createCompatibleImage(final int width, final int height, final int transparency)
+	{
+		if (GraphicsEnvironment.isHeadless())
+		{
+			return new BufferedImage(width, height,
+					transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE);
+		}
+		return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration()
+				.createCompatibleImage(width, height, transparency);
+	}
+
+	/**
+	 * One image resource and its scaled variants.
+	 *
+	 * @author thomas
+	 */
+	public static final class Sprite
+	{
+
+		/**
+		 * The path of the resource on the classpath
+		 */
+		private final String path;
+
+		/**
+		 * The decoded image in its original size. Null if it has not been read yet.
+		 */
+		private BufferedImage image;
+
+		/**
+		 * The scaled variants by size
+		 */
+		private final Map<Dimension, BufferedImage> scaledImages = new HashMap<Dimension, BufferedImage>();
+
+		/**
+		 * The variant returned last, which is checked before the map is used
+		 */
+		private BufferedImage lastImage;
+
+		/**
+		 * Constructor
+		 *
+		 * @param path The path of the resource on the classpath
+		 */
+		private Sprite(final String path)
+		{
+			this.path = path;
+		}
+
+		/**
+		 * @return The image in its original size
+		 * @throws RuntimeException if the resource could not be read.
+		 */
+		public synchronized BufferedImage getImage()
+		{
+			if (this.image == null)
+			{
+				final BufferedImage decoded = this.read();
+				this.image = scale(decoded, decoded.getWidth(), decoded.getHeight());
+				this.scaledImages.put(new Dimension(this.image.getWidth(), this.image.getHeight()), this.image);
+				log.debug("Loaded \"" + this.path + "\" (" + this.image.getWidth() + "x" + this.image.getHeight() + ")");
+			}
+			return this.image;
+		}
+
+		/**
+		 * @return true if the image has already been decoded
+		 */
+		public synchronized boolean isLoaded()
+		{
+			return this.image != null;
+		}
+
+		/**
+		 * Returns the image scaled to the given size.
+		 *
+		 * @param width The width in px. Must be > 0.
+		 * @param height The height in px. Must be > 0.
+		 * @return The scaled image
+		 * @throws RuntimeException if the resource could not be read.
+		 */
+		public synchronized BufferedImage getImage(final int width, final int height)
+		{
+			if (this.lastImage != null && this.lastImage.getWidth() == width && this.lastImage.getHeight() == height)
+				return this.lastImage;
+
+			if (width <= 0) throw new IllegalArgumentException("Param \"width\" must be > 0, but is " + width);
+			if (height <= 0) throw new IllegalArgumentException("Param \"height\" must be > 0, but is " + height);
+
+			final Dimension size = new Dimension(width, height);
+			BufferedImage scaledImage = this.scaledImages.get(size);
+			if (scaledImage == null)
+			{
+				scaledImage = scale(this.getImage(), width, height);
+				this.scaledImages.put(size, scaledImage);
+				log.debug("Scaled \"" + this.path + "\" to " + width + "x" + height);
+			}
+			this.lastImage = scaledImage;
+			return scaledImage;
+		}
+
+		/**
+		 * Decodes the resource.
+		 *
+		 * @return The decoded image
+		 */
+		private BufferedImage read()
+		{
+			final URL url = ClassLoader.getSystemResource(this.path);
+			if (url == null) throw new RuntimeException("Resource \"" + this.path + "\" could not be found.");
+			try
+			{
+				return ImageIO.read(url);
+			}
+			catch (final IOException e)
+			{
+				throw new RuntimeException(
+						"Resource \"" + this.path + "\" could not be read.", e);
+			}
+		}
+
+		/**
+		 * Draws an image into a new compatible image of the given size.
+		 *
+		 * @param source The source image
+		 * @param width The width of the new image
+		 * @param height The height of the new image
+		 * @return The new image
+		 */
+		private static BufferedImage scale(final BufferedImage source, final int width, final int height)
+		{
+			final BufferedImage target = createCompatibleImage(width, height, source.getTransparency());
+			final Graphics2D g2 = target.createGraphics();
+			try
+			{
+				g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+				g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+				g2.drawImage(source, 0, 0, width, height, null);
+			}
+			finally
+			{
+				g2.dispose();
+			}
+			return target;
+		}
+
+	}
+
+}
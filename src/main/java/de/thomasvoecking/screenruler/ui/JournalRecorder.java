@@ -0,0 +1,104 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.thomasvoecking.screenruler.event.RulerEvent;
+import de.thomasvoecking.screenruler.event.RulerEventListener;
+import de.thomasvoecking.screenruler.journal.MeasurementJournal;
+
+/**
+ * Appends the completed measurements to a journal.
+ *
+ * The intermediate positions and ranges of a drag are skipped, only its end is recorded. All other changes are
+ * recorded as they happen. Runs on the dispatcher thread of its subscription.
+ *
+ * @author thomas
+ */
+class JournalRecorder implements RulerEventListener
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(JournalRecorder.class);
+
+	/**
+	 * The journal. Null if it has been closed or has failed.
+	 */
+	private MeasurementJournal journal;
+
+	/**
+	 * The indices of the rulers that are dragged
+	 */
+	private final Set<Integer> dragged = new HashSet<Integer>();
+
+	/**
+	 * Constructor
+	 *
+	 * @param journal The open journal
+	 */
+	JournalRecorder(final MeasurementJournal journal)
+	{
+		this.journal = journal;
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.event.RulerEventListener#rulerEvent(de.thomasvoecking.screenruler.event.RulerEvent)
+	 */
+	@Override
+	public synchronized void rulerEvent(final RulerEvent event)
+	{
+		final Integer rulerIndex = Integer.valueOf(event.getMeasurement().getRulerIndex());
+		switch (event.getType())
+		{
+			case DRAG_STARTED:
+				this.dragged.add(rulerIndex);
+				return;
+			case DRAG_ENDED:
+				this.dragged.remove(rulerIndex);
+				break;
+			case MOVED:
+			case RESIZED:
+			case RANGE_CHANGED:
+				if (this.dragged.contains(rulerIndex)) return;
+				break;
+			default:
+				break;
+		}
+
+		if (this.journal == null) return;
+		try
+		{
+			this.journal.append(event.getMeasurement());
+		}
+		catch (final IOException e)
+		{
+			log.warn("Could not record the measurement, disabling the journal", e);
+			this.close();
+		}
+	}
+
+	/**
+	 * Closes the journal. Later events are not recorded.
+	 */
+	synchronized void close()
+	{
+		if (this.journal == null) return;
+
+		try
+		{
+			this.journal.close();
+		}
+		catch (final IOException e)
+		{
+			log.warn("Could not close the journal", e);
+		}
+		this.journal = null;
+	}
+
+}
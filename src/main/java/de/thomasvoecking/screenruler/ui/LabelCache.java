@@ -0,0 +1,288 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache for measured and laid out label texts.
+ *
+ * Each entry holds the bounds and the {@link GlyphVector} of one text in one font, so drawing a label does
+ * not need any font metrics or text layout once it has been cached.
+ *
+ * @author thomas
+ */
+public class LabelCache
+{
+
+	/**
+	 * The chars whose advances are cached, see {@link #getAdvance(String, Font, FontRenderContext)}
+	 */
+	private static final int cachedAdvanceCount = 128;
+
+	/**
+	 * The maximum number of fonts whose char advances are cached
+	 */
+	private static final int maximumAdvanceFonts = 8;
+
+	/**
+	 * The cached labels. Uses access order to evict the least recently used label.
+	 */
+	private final Map<Key, Label> labels;
+
+	/**
+	 * The advances of the ASCII chars per font and font render context. The text of the keys is empty. An
+	 * advance of -1 has not been measured yet.
+	 */
+	private final Map<Key, float[]> charAdvances = new HashMap<Key, float[]>();
+
+	/**
+	 * The number of lookups that found a cached label
+	 */
+	private long hitCount;
+
+	/**
+	 * The number of lookups that had to measure the label
+	 */
+	private long missCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param capacity The maximum number of labels to cache. Must be greater than 0.
+	 */
+	public LabelCache(final int capacity)
+	{
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Param \"capacity\" must be > 0, but is " + capacity);
+
+		this.labels = new LinkedHashMap<Key, Label>(16, 0.75f, true)
+		{
+			/**
+			 * SUID
+			 */
+			private static final long serialVersionUID = -2893611410734575862L;
+
+			/**
+			 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+			 */
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Key, Label> eldest)
+			{
+				return this.size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the label for the given text. Measures and lays out the text if it is not cached yet.
+	 *
+	 * @param text The text
+	 * @param font The font
+	 * @param fontRenderContext The font render context of the target graphics
+	 * @return The label
+	 */
+	public synchronized Label get(final String text, final Font font, final FontRenderContext fontRenderContext)
+	{
+		final Key key = new Key(text, font, fontRenderContext);
+		Label label = this.labels.get(key);
+		if (label == null)
+		{
+			this.missCount++;
+			label = new Label(
+					font.createGlyphVector(fontRenderContext, text),
+					font.getStringBounds(text, fontRenderContext));
+			this.labels.put(key, label);
+		}
+		else
+		{
+			this.hitCount++;
+		}
+		return label;
+	}
+
+	/**
+	 * Estimates the width of a text without laying it out: the sum of the advances of its chars, which are
+	 * measured once per font. Matches the width of the label as long as the font does not kern. Does not count
+	 * as a lookup.
+	 *
+	 * @param text The text
+	 * @param font The font
+	 * @param fontRenderContext The font render context of the target graphics
+	 * @return The estimated width in px
+	 */
+	public synchronized double getAdvance(final String text, final Font font, final FontRenderContext fontRenderContext)
+	{
+		final Key key = new Key("", font, fontRenderContext);
+		float[] advances = this.charAdvances.get(key);
+		if (advances == null)
+		{
+			if (this.charAdvances.size() >= maximumAdvanceFonts) this.charAdvances.clear();
+			advances = new float[cachedAdvanceCount];
+			Arrays.fill(advances, -1);
+			this.charAdvances.put(key, advances);
+		}
+
+		double advance = 0;
+		for (int i = 0; i < text.length(); i++)
+		{
+			final char c = text.charAt(i);
+			if (c >= cachedAdvanceCount) return font.getStringBounds(text, fontRenderContext).getWidth();
+			if (advances[c] < 0) advances[c] = (float) font.getStringBounds(String.valueOf(c), fontRenderContext).getWidth();
+			advance += advances[c];
+		}
+		return advance;
+	}
+
+	/**
+	 * @return The number of cached labels
+	 */
+	public synchronized int size()
+	{
+		return this.labels.size();
+	}
+
+	/**
+	 * @return The number of lookups that found a cached label
+	 */
+	public synchronized long getHitCount()
+	{
+		return this.hitCount;
+	}
+
+	/**
+	 * @return The number of lookups that had to measure the label
+	 */
+	public synchronized long getMissCount()
+	{
+		return this.missCount;
+	}
+
+	/**
+	 * A measured and laid out label text.
+	 *
+	 * @author thomas
+	 */
+	public static final class Label
+	{
+
+		/**
+		 * The laid out glyphs
+		 */
+		private final GlyphVector glyphVector;
+
+		/**
+		 * The bounds of the text, relative to its baseline
+		 */
+		private final Rectangle2D bounds;
+
+		/**
+		 * Constructor
+		 *
+		 * @param glyphVector The laid out glyphs
+		 * @param bounds The bounds of the text, relative to its baseline
+		 */
+		Label(final GlyphVector glyphVector, final Rectangle2D bounds)
+		{
+			this.glyphVector = glyphVector;
+			this.bounds = bounds;
+		}
+
+		/**
+		 * @return The laid out glyphs
+		 */
+		public GlyphVector getGlyphVector()
+		{
+			return this.glyphVector;
+		}
+
+		/**
+		 * @return The width of the text in px
+		 */
+		public double getWidth()
+		{
+			return this.bounds.getWidth();
+		}
+
+		/**
+		 * @return The height of the text in px
+		 */
+		public double getHeight()
+		{
+			return this.bounds.getHeight();
+		}
+
+		/**
+		 * @return The horizontal center of the text, relative to its origin
+		 */
+		public double getCenterX()
+		{
+			return this.bounds.getCenterX();
+		}
+	}
+
+	/**
+	 * Cache key
+	 *
+	 * @author thomas
+	 */
+	private static final class Key
+	{
+
+		/**
+		 * The text
+		 */
+		private final String text;
+
+		/**
+		 * The font
+		 */
+		private final Font font;
+
+		/**
+		 * The font render context
+		 */
+		private final FontRenderContext fontRenderContext;
+
+		/**
+		 * Constructor
+		 *
+		 * @param text The text
+		 * @param font The font
+		 * @param fontRenderContext The font render context
+		 */
+		Key(final String text, final Font font, final FontRenderContext fontRenderContext)
+		{
+			this.text = text;
+			this.font = font;
+			this.fontRenderContext = fontRenderContext;
+		}
+
+		/**
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode()
+		{
+			return (this.text.hashCode() * 31 + this.font.hashCode()) * 31 + this.fontRenderContext.hashCode();
+		}
+
+		/**
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(final Object obj)
+		{
+			if (!(obj instanceof Key)) return false;
+			final Key other = (Key) obj;
+			return this.text.equals(other.text) && this.font.equals(other.font)
+				&& this.fontRenderContext.equals(other.fontRenderContext);
+		}
+	}
+
+}
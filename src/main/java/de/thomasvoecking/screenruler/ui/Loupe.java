@@ -0,0 +1,305 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.thomasvoecking.screenruler.capture.ScreenSource;
+
+/**
+ * Renders a zoomed view with a pixel grid of the screen around a point.
+ *
+ * Only the small region around the point is captured. When the point moves, the pixels that are still inside
+ * the region are moved within the buffer and only the newly exposed strips are captured. Every
+ * {@link #fullCaptureInterval} frames the whole region is captured, so changes of the screen content show up.
+ *
+ * {@link #update(Point)} is called on a capture thread, {@link #getImage()} on the event dispatch thread. Three
+ * images rotate between them, so neither thread waits for the other.
+ *
+ * @author thomas
+ */
+class Loupe
+{
+
+	/**
+	 * Every this many frames the whole region is captured
+	 */
+	static final int fullCaptureInterval = 10;
+
+	/**
+	 * The color of the pixel grid
+	 */
+	private static final int gridColor = 0x808080;
+
+	/**
+	 * The captured screen
+	 */
+	private final ScreenSource screenSource;
+
+	/**
+	 * The width and height of the captured region in px
+	 */
+	private final int size;
+
+	/**
+	 * The width and height of one zoomed pixel, including the grid line
+	 */
+	private final int zoom;
+
+	/**
+	 * The captured pixels, row by row
+	 */
+	private int[] pixels;
+
+	/**
+	 * Receives the moved pixels, swapped with {@link #pixels}
+	 */
+	private int[] movedPixels;
+
+	/**
+	 * The region that {@link #pixels} contains. Null if nothing has been captured yet.
+	 */
+	private Rectangle capturedRegion;
+
+	/**
+	 * The number of rendered frames
+	 */
+	private long frameCount;
+
+	/**
+	 * The number of captured pixels
+	 */
+	private long capturedPixelCount;
+
+	/**
+	 * The number of frames that have been skipped because no image was free
+	 */
+	private long droppedFrameCount;
+
+	/**
+	 * Images that can be rendered into
+	 */
+	private final Queue<BufferedImage> freeImages = new ConcurrentLinkedQueue<BufferedImage>();
+
+	/**
+	 * The latest rendered image that has not been shown yet
+	 */
+	private final AtomicReference<BufferedImage> readyImage = new AtomicReference<BufferedImage>();
+
+	/**
+	 * The image that is shown. Only used on the event dispatch thread.
+	 */
+	private BufferedImage shownImage;
+
+	/**
+	 * Constructor
+	 *
+	 * @param screenSource The captured screen
+	 * @param size The width and height of the captured region in px. Must be > 0 and fit on the screen.
+	 * @param zoom The width and height of one zoomed pixel. Must be > 1.
+	 */
+	Loupe(final ScreenSource screenSource, final int size, final int zoom)
+	{
+		final Rectangle screenBounds = screenSource.getBounds();
+		if (size <= 0 || size > screenBounds.width || size > screenBounds.height)
+			throw new IllegalArgumentException("Param \"size\" must be > 0 and fit on " + screenBounds + ", but is " + size);
+		if (zoom <= 1)
+			throw new IllegalArgumentException("Param \"zoom\" must be > 1, but is " + zoom);
+
+		this.screenSource = screenSource;
+		this.size = size;
+		this.zoom = zoom;
+		this.pixels = new int[size * size];
+		this.movedPixels = new int[size * size];
+		for (int i = 0; i < 3; i++)
+		{
+			this.freeImages.add(new BufferedImage(size * zoom, size * zoom, BufferedImage.TYPE_INT_RGB));
+		}
+	}
+
+	/**
+	 * Captures the region around a point and renders the zoomed view. Called on the capture thread.
+	 *
+	 * @param center The point in screen coordinates
+	 * @return false if the frame has been skipped because the event dispatch thread holds all images.
+	 */
+	boolean update(final Point center)
+	{
+		final BufferedImage image = this.freeImages.poll();
+		if (image == null)
+		{
+			this.droppedFrameCount++;
+			return false;
+		}
+
+		this.capture(this.getRegion(center));
+		this.render(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+		this.frameCount++;
+
+		final BufferedImage replacedImage = this.readyImage.getAndSet(image);
+		if (replacedImage != null) this.freeImages.add(replacedImage);
+		return true;
+	}
+
+	/**
+	 * Returns the latest rendered image. Called on the event dispatch thread.
+	 *
+	 * @return The image, or null if nothing has been rendered yet.
+	 */
+	BufferedImage getImage()
+	{
+		final BufferedImage image = this.readyImage.getAndSet(null);
+		if (image != null)
+		{
+			if (this.shownImage != null) this.freeImages.add(this.shownImage);
+			this.shownImage = image;
+		}
+		return this.shownImage;
+	}
+
+	/**
+	 * @param center A point in screen coordinates
+	 * @return The region around the point, moved onto the screen if necessary
+	 */
+	private Rectangle getRegion(final Point center)
+	{
+		final Rectangle screenBounds = this.screenSource.getBounds();
+		final int x = Math.max(screenBounds.x, Math.min(screenBounds.x + screenBounds.width - this.size, center.x - this.size / 2));
+		final int y = Math.max(screenBounds.y, Math.min(screenBounds.y + screenBounds.height - this.size, center.y - this.size / 2));
+		return new Rectangle(x, y, this.size, this.size);
+	}
+
+	/**
+	 * Brings {@link #pixels} up to date for a region. Reuses the pixels of the previous region where possible.
+	 *
+	 * @param region The region
+	 */
+	private void capture(final Rectangle region)
+	{
+		final Rectangle previousRegion = this.capturedRegion;
+		this.capturedRegion = region;
+		if (previousRegion == null || this.frameCount % fullCaptureInterval == 0 || !previousRegion.intersects(region))
+		{
+			this.captureStrip(region);
+			return;
+		}
+
+		final int dx = region.x - previousRegion.x;
+		final int dy = region.y - previousRegion.y;
+		if (dx == 0 && dy == 0) return;
+
+		// Move the pixels that are in both regions
+		final int overlapWidth = this.size - Math.abs(dx);
+		final int sourceX = Math.max(0, dx);
+		final int targetX = Math.max(0, -dx);
+		for (int targetY = Math.max(0, -dy); targetY < Math.min(this.size, this.size - dy); targetY++)
+		{
+			System.arraycopy(this.pixels, (targetY + dy) * this.size + sourceX,
+					this.movedPixels, targetY * this.size + targetX, overlapWidth);
+		}
+		final int[] swap = this.pixels;
+		this.pixels = this.movedPixels;
+		this.movedPixels = swap;
+
+		// Capture the exposed columns over the full height, then the exposed rows next to them
+		if (dx != 0)
+		{
+			this.captureStrip(new Rectangle(dx > 0 ? region.x + overlapWidth : region.x, region.y, Math.abs(dx), this.size));
+		}
+		if (dy != 0)
+		{
+			this.captureStrip(new Rectangle(region.x + targetX, dy > 0 ? region.y + this.size - dy : region.y,
+					overlapWidth, Math.abs(dy)));
+		}
+	}
+
+	/**
+	 * Captures a part of the current region into {@link #pixels}.
+	 *
+	 * @param strip The part in screen coordinates
+	 */
+	private void captureStrip(final Rectangle strip)
+	{
+		final int offset = (strip.y - this.capturedRegion.y) * this.size + strip.x - this.capturedRegion.x;
+		this.screenSource.capture(strip, this.pixels, offset, this.size);
+		this.capturedPixelCount += strip.width * strip.height;
+	}
+
+	/**
+	 * Renders the zoomed view. Each zoomed row is built once and then copied for the other rows of the pixel.
+	 *
+	 * @param target The pixels of the target image
+	 */
+	private void render(final int[] target)
+	{
+		final int width = this.size * this.zoom;
+		for (int y = 0; y < this.size; y++)
+		{
+			final int rowStart = y * this.zoom * width;
+			for (int x = 0; x < this.size; x++)
+			{
+				final int rgb = this.pixels[y * this.size + x];
+				final int cellStart = rowStart + x * this.zoom;
+				for (int i = 0; i < this.zoom - 1; i++)
+				{
+					target[cellStart + i] = rgb;
+				}
+				target[cellStart + this.zoom - 1] = gridColor;
+			}
+			for (int i = 1; i < this.zoom - 1; i++)
+			{
+				System.arraycopy(target, rowStart, target, rowStart + i * width, width);
+			}
+			final int gridRowStart = rowStart + (this.zoom - 1) * width;
+			for (int x = 0; x < width; x++)
+			{
+				target[gridRowStart + x] = gridColor;
+			}
+		}
+	}
+
+	/**
+	 * @return The width and height of the zoomed view in px
+	 */
+	int getViewSize()
+	{
+		return this.size * this.zoom;
+	}
+
+	/**
+	 * @return The width and height of one zoomed pixel, including the grid line
+	 */
+	int getZoom()
+	{
+		return this.zoom;
+	}
+
+	/**
+	 * @return The region of the last frame, or null if nothing has been captured yet.
+	 */
+	Rectangle getCapturedRegion()
+	{
+		return this.capturedRegion == null ? null : new Rectangle(this.capturedRegion);
+	}
+
+	/**
+	 * @return The number of captured pixels
+	 */
+	long getCapturedPixelCount()
+	{
+		return this.capturedPixelCount;
+	}
+
+	/**
+	 * @return The number of frames that have been skipped because no image was free
+	 */
+	long getDroppedFrameCount()
+	{
+		return this.droppedFrameCount;
+	}
+
+}
@@ -0,0 +1,178 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.MouseInfo;
+import java.awt.PointerInfo;
+import java.awt.Rectangle;
+import java.awt.Window;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JWindow;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.thomasvoecking.screenruler.capture.ScreenSource;
+
+/**
+ * Shows a zoomed view of the screen around the mouse cursor below its ruler.
+ *
+ * The view is captured and rendered by a {@link Loupe} on a background thread. The event dispatch thread only
+ * draws the latest rendered image.
+ *
+ * @author thomas
+ */
+class LoupeWindow extends JWindow
+{
+
+	/**
+	 * SUID
+	 */
+	private static final long serialVersionUID = -4012925069419137405L;
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(LoupeWindow.class);
+
+	/**
+	 * The width and height of the captured region in px
+	 */
+	private static final int captureSize = 31;
+
+	/**
+	 * The width and height of one zoomed pixel
+	 */
+	private static final int zoom = 8;
+
+	/**
+	 * The color of the marker around the pixel under the cursor
+	 */
+	private static final Color markerColor = Color.RED;
+
+	/**
+	 * Captures and renders the view
+	 */
+	private final Loupe loupe;
+
+	/**
+	 * The clock that determines the capture rate
+	 */
+	private final FrameClock frameClock;
+
+	/**
+	 * Runs the captures. Null if the loupe is not running.
+	 */
+	private ScheduledExecutorService captureExecutor;
+
+	/**
+	 * Constructor
+	 *
+	 * @param owner The frame of the ruler
+	 * @param screenSource The captured screen
+	 * @param frameClock The clock that determines the capture rate
+	 */
+	LoupeWindow(final Window owner, final ScreenSource screenSource, final FrameClock frameClock)
+	{
+		super(owner);
+		this.loupe = new Loupe(screenSource, captureSize, zoom);
+		this.frameClock = frameClock;
+		this.setSize(this.loupe.getViewSize(), this.loupe.getViewSize());
+		this.setFocusableWindowState(false);
+	}
+
+	/**
+	 * Shows the loupe below its ruler and starts capturing.
+	 */
+	void start()
+	{
+		if (this.captureExecutor != null) return;
+
+		final Rectangle ownerBounds = this.getOwner().getBounds();
+		this.setLocation(ownerBounds.x, ownerBounds.y + ownerBounds.height);
+		this.setVisible(true);
+
+		this.captureExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(final Runnable runnable)
+			{
+				final Thread thread = new Thread(runnable, "loupe-capture");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.captureExecutor.scheduleAtFixedRate(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				LoupeWindow.this.capture();
+			}
+		}, 0, this.frameClock.getFrameIntervalNanos(), TimeUnit.NANOSECONDS);
+		log.debug("Loupe started");
+	}
+
+	/**
+	 * Stops capturing and hides the loupe.
+	 */
+	void stop()
+	{
+		if (this.captureExecutor == null) return;
+
+		this.captureExecutor.shutdownNow();
+		this.captureExecutor = null;
+		this.setVisible(false);
+		log.debug("Loupe stopped, " + this.loupe.getCapturedPixelCount() + " pixels captured, "
+				+ this.loupe.getDroppedFrameCount() + " frames dropped");
+	}
+
+	/**
+	 * @return true if the loupe is running
+	 */
+	boolean isRunning()
+	{
+		return this.captureExecutor != null;
+	}
+
+	/**
+	 * Captures one frame. Called on the capture thread.
+	 */
+	private void capture()
+	{
+		final PointerInfo pointerInfo = MouseInfo.getPointerInfo();
+		// Null if the pointer is on no screen
+		if (pointerInfo == null) return;
+
+		try
+		{
+			if (this.loupe.update(pointerInfo.getLocation())) this.repaint();
+		}
+		catch (final RuntimeException e)
+		{
+			// An exception would cancel the scheduled task silently
+			log.warn("Could not capture the screen", e);
+		}
+	}
+
+	/**
+	 * @see java.awt.Window#paint(java.awt.Graphics)
+	 */
+	@Override
+	public void paint(final Graphics g)
+	{
+		final BufferedImage image = this.loupe.getImage();
+		if (image == null) return;
+
+		g.drawImage(image, 0, 0, null);
+		final int center = captureSize / 2 * zoom;
+		g.setColor(markerColor);
+		g.drawRect(center - 1, center - 1, zoom, zoom);
+	}
+
+}
@@ -0,0 +1,99 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+
+/**
+ * The orientation of a ruler.
+ *
+ * A frame always lays out and paints its contents in logical coordinates, where the ruler runs along the
+ * x axis. The orientation maps these coordinates to the screen.
+ *
+ * @author thomas
+ */
+public enum Orientation
+{
+	/** The ruler runs from left to right */
+	HORIZONTAL (new AffineTransform(), new AffineTransform()),
+
+	/** The ruler runs from top to bottom. The strokes are at the right edge. */
+	VERTICAL (new AffineTransform(0, 1, -1, 0, 0, 0), new AffineTransform(0, -1, 1, 0, 0, 0));
+
+	/**
+	 * Rotates logical coordinates to screen coordinates
+	 */
+	private final AffineTransform toScreen;
+
+	/**
+	 * Rotates screen coordinates to logical coordinates
+	 */
+	private final AffineTransform toLogical;
+
+	/**
+	 * Constructor
+	 *
+	 * @param toScreen Rotates logical coordinates to screen coordinates
+	 * @param toLogical The inverse of toScreen
+	 */
+	private Orientation(final AffineTransform toScreen, final AffineTransform toLogical)
+	{
+		this.toScreen = toScreen;
+		this.toLogical = toLogical;
+	}
+
+	/**
+	 * @param logicalBounds Bounds in logical coordinates
+	 * @return The bounds in screen coordinates
+	 */
+	public Rectangle toScreen(final Rectangle logicalBounds)
+	{
+		return this.toScreen.createTransformedShape(logicalBounds).getBounds();
+	}
+
+	/**
+	 * @param logicalSize A size in logical coordinates
+	 * @return The size in screen coordinates
+	 */
+	public Dimension toScreen(final Dimension logicalSize)
+	{
+		return this.toScreen(new Rectangle(logicalSize)).getSize();
+	}
+
+	/**
+	 * @param screenBounds Bounds in screen coordinates
+	 * @return The bounds in logical coordinates
+	 */
+	public Rectangle toLogical(final Rectangle screenBounds)
+	{
+		return this.toLogical.createTransformedShape(screenBounds).getBounds();
+	}
+
+	/**
+	 * @param screenPoint A point in screen coordinates
+	 * @return The point in logical coordinates
+	 */
+	public Point toLogical(final Point screenPoint)
+	{
+		final Point logicalPoint = new Point();
+		this.toLogical.transform(screenPoint, logicalPoint);
+		return logicalPoint;
+	}
+
+	/**
+	 * Returns the transformation from logical coordinates relative to a window to coordinates relative to
+	 * the same window.
+	 *
+	 * @param logicalSize The logical size of the window
+	 * @return The transformation
+	 */
+	public AffineTransform getWindowTransform(final Dimension logicalSize)
+	{
+		final Rectangle windowBounds = this.toScreen(new Rectangle(logicalSize));
+		final AffineTransform transform = AffineTransform.getTranslateInstance(-windowBounds.getX(), -windowBounds.getY());
+		transform.concatenate(this.toScreen);
+		return transform;
+	}
+
+}
@@ -0,0 +1,205 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects the paint times and the heap allocation of painted frames.
+ *
+ * The paint times are counted in a histogram with a fixed number of buckets: four buckets per power of two, so
+ * a bucket is at most a quarter wider than its lower bound. All counters are lock-free, so frames may be
+ * recorded from any thread while a {@link Snapshot} is taken.
+ *
+ * @author thomas
+ */
+final class PaintStatistics
+{
+
+	/**
+	 * The number of buckets. The last bucket holds all paint times of about 2 s and more.
+	 */
+	static final int bucketCount = 80;
+
+	/**
+	 * Measures the heap allocation of threads
+	 */
+	private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+	/**
+	 * The number of frames per bucket
+	 */
+	private final AtomicLongArray buckets = new AtomicLongArray(bucketCount);
+
+	/**
+	 * The number of recorded frames
+	 */
+	private final AtomicLong frameCount = new AtomicLong();
+
+	/**
+	 * The number of bytes allocated by the recorded frames
+	 */
+	private final AtomicLong allocatedBytes = new AtomicLong();
+
+	/**
+	 * Records a painted frame.
+	 *
+	 * @param paintNanos The paint time in ns
+	 * @param allocatedBytes The number of bytes allocated while painting the frame
+	 */
+	void record(final long paintNanos, final long allocatedBytes)
+	{
+		this.buckets.incrementAndGet(getBucket(paintNanos / 1000));
+		this.allocatedBytes.addAndGet(allocatedBytes);
+		this.frameCount.incrementAndGet();
+	}
+
+	/**
+	 * @param now The current time in ns
+	 * @return The current state of all counters
+	 */
+	Snapshot snapshot(final long now)
+	{
+		final long[] counts = new long[bucketCount];
+		for (int i = 0; i < bucketCount; i++) counts[i] = this.buckets.get(i);
+		return new Snapshot(now, counts, this.frameCount.get(), this.allocatedBytes.get());
+	}
+
+	/**
+	 * @param micros A paint time in µs
+	 * @return The bucket of the paint time
+	 */
+	static int getBucket(final long micros)
+	{
+		if (micros < 4) return (int) Math.max(0, micros);
+		final int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		final int bucket = 4 * (exponent - 1) + (int) ((micros >>> (exponent - 2)) & 3);
+		return Math.min(bucketCount - 1, bucket);
+	}
+
+	/**
+	 * @param bucket A bucket
+	 * @return The smallest paint time in µs that is not counted in the bucket or any bucket below
+	 */
+	static long getUpperBound(final int bucket)
+	{
+		if (bucket < 4) return bucket + 1;
+		final int exponent = bucket / 4 + 1;
+		return (long) (4 + bucket % 4 + 1) << (exponent - 2);
+	}
+
+	/**
+	 * @return The number of bytes the current thread has allocated so far, or -1 if the JVM does not measure it
+	 */
+	static long getAllocatedBytes()
+	{
+		if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) return -1;
+		final com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+		if (!allocationMXBean.isThreadAllocatedMemorySupported() || !allocationMXBean.isThreadAllocatedMemoryEnabled())
+			return -1;
+		return allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * The state of the counters at one point in time, or the difference between two points in time.
+	 *
+	 * @author thomas
+	 */
+	static final class Snapshot
+	{
+
+		/**
+		 * The time the snapshot has been taken at, in ns. The length of the interval for a difference.
+		 */
+		private final long time;
+
+		/**
+		 * The number of frames per bucket
+		 */
+		private final long[] counts;
+
+		/**
+		 * The number of frames
+		 */
+		private final long frameCount;
+
+		/**
+		 * The number of allocated bytes
+		 */
+		private final long allocatedBytes;
+
+		/**
+		 * Constructor
+		 *
+		 * @param time The time the snapshot has been taken at, in ns
+		 * @param counts The number of frames per bucket
+		 * @param frameCount The number of frames
+		 * @param allocatedBytes The number of allocated bytes
+		 */
+		Snapshot(final long time, final long[] counts, final long frameCount, final long allocatedBytes)
+		{
+			this.time = time;
+			this.counts = counts;
+			this.frameCount = frameCount;
+			this.allocatedBytes = allocatedBytes;
+		}
+
+		/**
+		 * @param previous An earlier snapshot of the same statistics
+		 * @return The frames that have been recorded since the earlier snapshot
+		 */
+		Snapshot since(final Snapshot previous)
+		{
+			final long[] counts = new long[bucketCount];
+			for (int i = 0; i < bucketCount; i++) counts[i] = this.counts[i] - previous.counts[i];
+			return new Snapshot(this.time - previous.time, counts, this.frameCount - previous.frameCount,
+					this.allocatedBytes - previous.allocatedBytes);
+		}
+
+		/**
+		 * @param percentile The percentile, between 0 and 1
+		 * @return The upper bound in µs of the bucket that contains the percentile. 0 if there are no frames.
+		 */
+		long getPercentile(final double percentile)
+		{
+			if (!(percentile >= 0 && percentile <= 1))
+				throw new IllegalArgumentException("Param \"percentile\" must be between 0 and 1, but is " + percentile);
+			if (this.frameCount == 0) return 0;
+
+			final long rank = Math.max(1, (long) Math.ceil(percentile * this.frameCount));
+			long count = 0;
+			for (int i = 0; i < bucketCount; i++)
+			{
+				count += this.counts[i];
+				if (count >= rank) return getUpperBound(i);
+			}
+			return getUpperBound(bucketCount - 1);
+		}
+
+		/**
+		 * @return The time the snapshot has been taken at, in ns. The length of the interval for a difference.
+		 */
+		long getTime()
+		{
+			return this.time;
+		}
+
+		/**
+		 * @return The number of frames
+		 */
+		long getFrameCount()
+		{
+			return this.frameCount;
+		}
+
+		/**
+		 * @return The number of allocated bytes
+		 */
+		long getAllocatedBytes()
+		{
+			return this.allocatedBytes;
+		}
+	}
+
+}
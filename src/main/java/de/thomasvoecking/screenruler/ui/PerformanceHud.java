@@ -0,0 +1,249 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+
+/**
+ * An overlay that shows where the time of a {@link ScreenrulerFrame} goes: the paint time percentiles, the frame
+ * rate, the heap allocation per frame, the rate of drag events versus applied window updates and the hit rates of
+ * the layer and label caches.
+ *
+ * The frames are recorded in {@link PaintStatistics}, which only exist while the overlay is shown. All other
+ * numbers are derived from counters the components keep anyway. The shown numbers are computed by
+ * {@link #update(long)} from the difference to the previous update, so they cover the last interval only.
+ *
+ * @author thomas
+ */
+class PerformanceHud
+{
+
+	/**
+	 * The interval the numbers are updated in, in ms
+	 */
+	static final int updateInterval = 1000;
+
+	/**
+	 * The font
+	 */
+	private static final Font font = new Font(Font.MONOSPACED, Font.PLAIN, 10);
+
+	/**
+	 * The background of the overlay
+	 */
+	private static final Color background = new Color(0, 0, 0, 192);
+
+	/**
+	 * The text color of the overlay
+	 */
+	private static final Color foreground = new Color(0, 255, 0);
+
+	/**
+	 * The recorded frames
+	 */
+	private final PaintStatistics paintStatistics = new PaintStatistics();
+
+	/**
+	 * The drag scheduler of the frame
+	 */
+	private final DragScheduler dragScheduler;
+
+	/**
+	 * The compositor of the frame
+	 */
+	private final ScreenrulerCompositor compositor;
+
+	/**
+	 * The label cache of the ruler
+	 */
+	private final LabelCache labelCache;
+
+	/**
+	 * The frames at the previous update
+	 */
+	private PaintStatistics.Snapshot previousSnapshot;
+
+	/**
+	 * The number of submitted drag targets at the previous update
+	 */
+	private long previousDragSubmittedCount;
+
+	/**
+	 * The number of applied drag targets at the previous update
+	 */
+	private long previousDragAppliedCount;
+
+	/**
+	 * The number of layer lookups at the previous update
+	 */
+	private long previousLayerLookupCount;
+
+	/**
+	 * The number of rendered layers at the previous update
+	 */
+	private long previousLayerRenderCount;
+
+	/**
+	 * The number of label cache hits at the previous update
+	 */
+	private long previousLabelHitCount;
+
+	/**
+	 * The number of label cache misses at the previous update
+	 */
+	private long previousLabelMissCount;
+
+	/**
+	 * The shown lines
+	 */
+	private String[] lines = { "Collecting..." };
+
+	/**
+	 * Constructor
+	 *
+	 * @param dragScheduler The drag scheduler of the frame
+	 * @param compositor The compositor of the frame
+	 * @param labelCache The label cache of the ruler
+	 * @param now The current time in ns
+	 */
+	PerformanceHud(final DragScheduler dragScheduler, final ScreenrulerCompositor compositor,
+			final LabelCache labelCache, final long now)
+	{
+		this.dragScheduler = dragScheduler;
+		this.compositor = compositor;
+		this.labelCache = labelCache;
+		this.previousSnapshot = this.paintStatistics.snapshot(now);
+		this.previousDragSubmittedCount = dragScheduler.getTotalSubmittedCount();
+		this.previousDragAppliedCount = dragScheduler.getTotalAppliedCount();
+		this.previousLayerLookupCount = compositor.getLayerLookupCount();
+		this.previousLayerRenderCount = compositor.getLayerRenderCount();
+		this.previousLabelHitCount = labelCache.getHitCount();
+		this.previousLabelMissCount = labelCache.getMissCount();
+	}
+
+	/**
+	 * @return The statistics the painted frames are recorded in
+	 */
+	PaintStatistics getPaintStatistics()
+	{
+		return this.paintStatistics;
+	}
+
+	/**
+	 * Computes the shown numbers for the interval since the previous update.
+	 *
+	 * @param now The current time in ns
+	 */
+	void update(final long now)
+	{
+		final PaintStatistics.Snapshot snapshot = this.paintStatistics.snapshot(now);
+		final PaintStatistics.Snapshot interval = snapshot.since(this.previousSnapshot);
+		if (interval.getTime() <= 0) return;
+		final double seconds = interval.getTime() / 1e9;
+
+		final long dragSubmittedCount = this.dragScheduler.getTotalSubmittedCount();
+		final long dragAppliedCount = this.dragScheduler.getTotalAppliedCount();
+		final long layerLookupCount = this.compositor.getLayerLookupCount();
+		final long layerRenderCount = this.compositor.getLayerRenderCount();
+		final long labelHitCount = this.labelCache.getHitCount();
+		final long labelMissCount = this.labelCache.getMissCount();
+
+		final String allocation = PaintStatistics.getAllocatedBytes() < 0 ? "n/a"
+				: formatBytes(interval.getFrameCount() == 0 ? 0 : interval.getAllocatedBytes() / interval.getFrameCount());
+		this.lines = new String[] {
+				"paint p50 " + formatMicros(interval.getPercentile(0.5))
+						+ "  p95 " + formatMicros(interval.getPercentile(0.95))
+						+ "  p99 " + formatMicros(interval.getPercentile(0.99))
+						+ "  max " + formatMicros(interval.getPercentile(1.0)),
+				Math.round(interval.getFrameCount() / seconds) + " fps  " + allocation + "/frame",
+				"drag " + Math.round((dragSubmittedCount - this.previousDragSubmittedCount) / seconds) + "/s  window "
+						+ Math.round((dragAppliedCount - this.previousDragAppliedCount) / seconds) + "/s",
+				"hits layers " + formatRate(layerLookupCount - this.previousLayerLookupCount
+								- (layerRenderCount - this.previousLayerRenderCount),
+								layerLookupCount - this.previousLayerLookupCount)
+						+ "  labels " + formatRate(labelHitCount - this.previousLabelHitCount,
+								labelHitCount - this.previousLabelHitCount + labelMissCount - this.previousLabelMissCount)
+		};
+
+		this.previousSnapshot = snapshot;
+		this.previousDragSubmittedCount = dragSubmittedCount;
+		this.previousDragAppliedCount = dragAppliedCount;
+		this.previousLayerLookupCount = layerLookupCount;
+		this.previousLayerRenderCount = layerRenderCount;
+		this.previousLabelHitCount = labelHitCount;
+		this.previousLabelMissCount = labelMissCount;
+	}
+
+	/**
+	 * @return The shown lines
+	 */
+	String[] getLines()
+	{
+		return this.lines.clone();
+	}
+
+	/**
+	 * Paints the overlay in the upper left corner of an area.
+	 *
+	 * @param g2 The graphics object
+	 * @param area The area
+	 */
+	void paint(final Graphics2D g2, final Rectangle area)
+	{
+		final Graphics2D hudGraphics = (Graphics2D) g2.create();
+		try
+		{
+			hudGraphics.clipRect(area.x, area.y, area.width, area.height);
+			hudGraphics.setFont(font);
+			final int lineHeight = hudGraphics.getFontMetrics().getHeight();
+			int width = 0;
+			for (final String line : this.lines) width = Math.max(width, hudGraphics.getFontMetrics().stringWidth(line));
+
+			hudGraphics.setColor(background);
+			hudGraphics.fillRect(area.x, area.y, width + 4, lineHeight * this.lines.length + 2);
+			hudGraphics.setColor(foreground);
+			for (int i = 0; i < this.lines.length; i++)
+			{
+				hudGraphics.drawString(this.lines[i], area.x + 2,
+						area.y + 1 + i * lineHeight + hudGraphics.getFontMetrics().getAscent());
+			}
+		}
+		finally
+		{
+			hudGraphics.dispose();
+		}
+	}
+
+	/**
+	 * @param micros A time in µs
+	 * @return The time in µs or ms
+	 */
+	static String formatMicros(final long micros)
+	{
+		if (micros < 1000) return micros + " us";
+		return Math.round(micros / 100.0) / 10.0 + " ms";
+	}
+
+	/**
+	 * @param bytes A number of bytes
+	 * @return The number of bytes, in KB above 1 KB
+	 */
+	static String formatBytes(final long bytes)
+	{
+		if (bytes < 1024) return bytes + " B";
+		return Math.round(bytes / 102.4) / 10.0 + " KB";
+	}
+
+	/**
+	 * @param hits The number of hits
+	 * @param lookups The number of lookups
+	 * @return The hit rate in percent, or "-" if there have been no lookups
+	 */
+	static String formatRate(final long hits, final long lookups)
+	{
+		if (lookups <= 0) return "-";
+		return Math.round(100.0 * hits / lookups) + "%";
+	}
+
+}
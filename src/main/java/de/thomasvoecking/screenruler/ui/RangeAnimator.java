@@ -0,0 +1,316 @@
+package de.thomasvoecking.screenruler.ui;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Animates the range of a ruler towards a target range, e.g. while zooming with the mouse wheel.
+ *
+ * The animation is time based: on each tick of the {@link FrameClock} the range is interpolated for the current
+ * time and applied once, so the ruler is only rendered at the range of the current frame. A new target continues
+ * the animation from the current range. If rendering a frame takes longer than a frame, the following ticks are
+ * dropped until the time has been made up, and the next frame jumps ahead to the range of its time.
+ *
+ * @author thomas
+ */
+class RangeAnimator implements FrameClock.FrameListener
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(RangeAnimator.class);
+
+	/**
+	 * The duration of an animation in ns
+	 */
+	static final long duration = 150000000L;
+
+	/**
+	 * The smallest range width
+	 */
+	static final double minimumRangeWidth = 1e-6;
+
+	/**
+	 * The smallest range width in ulps of the values. At large values, {@link #minimumRangeWidth} is below the
+	 * precision of a double.
+	 */
+	static final double minimumRangeUlps = 16;
+
+	/**
+	 * The largest range width
+	 */
+	static final double maximumRangeWidth = 1e9;
+
+	/**
+	 * The clock
+	 */
+	private final FrameClock frameClock;
+
+	/**
+	 * Applies the ranges
+	 */
+	private final RangeTarget rangeTarget;
+
+	/**
+	 * Set while an animation is running
+	 */
+	private boolean running;
+
+	/**
+	 * The start value at the beginning of the current animation
+	 */
+	private double fromStartValue;
+
+	/**
+	 * The end value at the beginning of the current animation
+	 */
+	private double fromEndValue;
+
+	/**
+	 * The target start value
+	 */
+	private double toStartValue;
+
+	/**
+	 * The target end value
+	 */
+	private double toEndValue;
+
+	/**
+	 * The time the current animation has started at, in ns
+	 */
+	private long animationStart;
+
+	/**
+	 * The start value applied last
+	 */
+	private double currentStartValue;
+
+	/**
+	 * The end value applied last
+	 */
+	private double currentEndValue;
+
+	/**
+	 * Ticks before this time in ns are dropped
+	 */
+	private long resumeTime;
+
+	/**
+	 * The number of frames applied during the current animation
+	 */
+	private int appliedCount;
+
+	/**
+	 * The number of ticks dropped during the current animation
+	 */
+	private int droppedCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param frameClock The clock
+	 * @param rangeTarget Applies the ranges
+	 */
+	RangeAnimator(final FrameClock frameClock, final RangeTarget rangeTarget)
+	{
+		this.frameClock = frameClock;
+		this.rangeTarget = rangeTarget;
+	}
+
+	/**
+	 * Zooms around an anchor. The value at the anchor stays in place. Successive zooms during an animation add up.
+	 *
+	 * @param rulerStartValue The current start value of the ruler
+	 * @param rulerEndValue The current end value of the ruler
+	 * @param factor The factor the range width is multiplied with. Greater than 1 zooms out.
+	 * @param anchor The position of the anchor as fraction of the ruler width, between 0 and 1
+	 */
+	void zoom(final double rulerStartValue, final double rulerEndValue, final double factor, final double anchor)
+	{
+		final double startValue = this.running ? this.toStartValue : rulerStartValue;
+		final double endValue = this.running ? this.toEndValue : rulerEndValue;
+		final double anchorValue = startValue + anchor * (endValue - startValue);
+		final double minimumWidth = Math.max(minimumRangeWidth, minimumRangeUlps * Math.ulp(anchorValue));
+		final double width = Math.min(maximumRangeWidth, Math.max(minimumWidth, (endValue - startValue) * factor));
+		final double newStartValue = Math.max(0, anchorValue - anchor * width);
+		final double newEndValue = newStartValue + width;
+		if (!(newStartValue < newEndValue))
+		{
+			log.debug("Ignoring zoom step that can not be represented at " + anchorValue);
+			return;
+		}
+		this.animateTo(rulerStartValue, rulerEndValue, newStartValue, newEndValue, System.nanoTime());
+	}
+
+	/**
+	 * Moves the range without changing its width. The range does not move below 0.
+	 *
+	 * @param rulerStartValue The current start value of the ruler
+	 * @param rulerEndValue The current end value of the ruler
+	 * @param targetStartValue The target start value
+	 * @param targetEndValue The target end value
+	 */
+	void pan(final double rulerStartValue, final double rulerEndValue, final double targetStartValue,
+			final double targetEndValue)
+	{
+		final double offset = Math.max(0, -targetStartValue);
+		this.animateTo(rulerStartValue, rulerEndValue, targetStartValue + offset, targetEndValue + offset,
+				System.nanoTime());
+	}
+
+	/**
+	 * Starts or continues an animation towards a target range.
+	 *
+	 * @param rulerStartValue The current start value of the ruler
+	 * @param rulerEndValue The current end value of the ruler
+	 * @param targetStartValue The target start value. Must be >= 0.
+	 * @param targetEndValue The target end value. Must be greater than the target start value.
+	 * @param now The current time in ns
+	 */
+	void animateTo(final double rulerStartValue, final double rulerEndValue, final double targetStartValue,
+			final double targetEndValue, final long now)
+	{
+		if (!(targetStartValue >= 0))
+			throw new IllegalArgumentException("Param \"targetStartValue\" must be >= 0, but is " + targetStartValue);
+		if (!(targetStartValue < targetEndValue))
+			throw new IllegalArgumentException("Param \"targetEndValue\" must be > \"targetStartValue\", " +
+					"but targetStartValue is " + targetStartValue + " and targetEndValue is " + targetEndValue);
+
+		if (!this.running)
+		{
+			this.running = true;
+			this.appliedCount = 0;
+			this.droppedCount = 0;
+			this.resumeTime = now;
+			this.currentStartValue = rulerStartValue;
+			this.currentEndValue = rulerEndValue;
+			this.frameClock.addFrameListener(this);
+		}
+		this.fromStartValue = this.currentStartValue;
+		this.fromEndValue = this.currentEndValue;
+		this.toStartValue = targetStartValue;
+		this.toEndValue = targetEndValue;
+		this.animationStart = now;
+	}
+
+	/**
+	 * Reports the time it took to render the last frame. If it is longer than a frame, the following ticks are
+	 * dropped until the time has been made up.
+	 *
+	 * @param renderNanos The render time in ns
+	 */
+	void reportRenderTime(final long renderNanos)
+	{
+		this.reportRenderTime(renderNanos, System.nanoTime());
+	}
+
+	/**
+	 * Reports the time it took to render the last frame.
+	 *
+	 * @param renderNanos The render time in ns
+	 * @param now The current time in ns
+	 */
+	void reportRenderTime(final long renderNanos, final long now)
+	{
+		if (!this.running) return;
+		final long overrun = renderNanos - this.frameClock.getFrameIntervalNanos();
+		if (overrun > 0 && now + overrun - this.resumeTime > 0) this.resumeTime = now + overrun;
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.ui.FrameClock.FrameListener#frame()
+	 */
+	@Override
+	public void frame()
+	{
+		this.frame(System.nanoTime());
+	}
+
+	/**
+	 * Applies the range for the given time.
+	 *
+	 * @param now The current time in ns
+	 */
+	void frame(final long now)
+	{
+		if (!this.running) return;
+		if (now - this.resumeTime < 0)
+		{
+			this.droppedCount++;
+			return;
+		}
+
+		final double progress = Math.min(1.0, (double) (now - this.animationStart) / duration);
+		if (progress >= 1.0)
+		{
+			this.currentStartValue = this.toStartValue;
+			this.currentEndValue = this.toEndValue;
+		}
+		else
+		{
+			// Ease out: fast at the beginning, slow at the end
+			final double eased = 1.0 - Math.pow(1.0 - progress, 3);
+			this.currentStartValue = this.fromStartValue + (this.toStartValue - this.fromStartValue) * eased;
+			this.currentEndValue = this.fromEndValue + (this.toEndValue - this.fromEndValue) * eased;
+		}
+		this.appliedCount++;
+		this.rangeTarget.applyRange(this.currentStartValue, this.currentEndValue);
+
+		if (progress >= 1.0)
+		{
+			this.running = false;
+			this.frameClock.removeFrameListener(this);
+			log.debug("Animation finished: " + this.appliedCount + " frames applied, " + this.droppedCount
+					+ " dropped");
+			this.rangeTarget.animationFinished();
+		}
+	}
+
+	/**
+	 * @return true if an animation is running
+	 */
+	boolean isRunning()
+	{
+		return this.running;
+	}
+
+	/**
+	 * @return The number of frames applied during the current or last animation
+	 */
+	int getAppliedCount()
+	{
+		return this.appliedCount;
+	}
+
+	/**
+	 * @return The number of ticks dropped during the current or last animation
+	 */
+	int getDroppedCount()
+	{
+		return this.droppedCount;
+	}
+
+	/**
+	 * Applies the animated ranges.
+	 *
+	 * @author thomas
+	 */
+	interface RangeTarget
+	{
+		/**
+		 * Applies a range. Called at most once per frame.
+		 *
+		 * @param rulerStartValue The start value
+		 * @param rulerEndValue The end value
+		 */
+		void applyRange(double rulerStartValue, double rulerEndValue);
+
+		/**
+		 * Called after the target range has been applied.
+		 */
+		void animationFinished();
+	}
+
+}
@@ -0,0 +1,111 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Component;
+import java.awt.Rectangle;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects repaint requests of all rulers and issues them together on the next tick of the {@link FrameClock}.
+ *
+ * Several requests for the same component within one frame are merged into one repaint of the union of the
+ * requested areas, so all rulers are painted in the same frame and at most once per frame.
+ *
+ * @author thomas
+ */
+class RepaintScheduler implements FrameClock.FrameListener
+{
+
+	/**
+	 * The clock
+	 */
+	private final FrameClock frameClock;
+
+	/**
+	 * The requested areas by component. A null area means the whole component.
+	 */
+	private final Map<Component, Rectangle> pendingAreas = new LinkedHashMap<Component, Rectangle>();
+
+	/**
+	 * The number of issued repaints
+	 */
+	private long repaintCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param frameClock The clock
+	 */
+	RepaintScheduler(final FrameClock frameClock)
+	{
+		this.frameClock = frameClock;
+	}
+
+	/**
+	 * Requests a repaint of a whole component.
+	 *
+	 * @param component The component
+	 */
+	void requestRepaint(final Component component)
+	{
+		this.pendingAreas.put(component, null);
+		this.frameClock.addFrameListener(this);
+	}
+
+	/**
+	 * Requests a repaint of an area of a component.
+	 *
+	 * @param component The component
+	 * @param area The area in the coordinates of the component
+	 */
+	void requestRepaint(final Component component, final Rectangle area)
+	{
+		if (!this.pendingAreas.containsKey(component))
+		{
+			this.pendingAreas.put(component, new Rectangle(area));
+		}
+		else
+		{
+			final Rectangle pendingArea = this.pendingAreas.get(component);
+			if (pendingArea != null) pendingArea.add(area);
+		}
+		this.frameClock.addFrameListener(this);
+	}
+
+	/**
+	 * Drops all requests of a component.
+	 *
+	 * @param component The component
+	 */
+	void cancel(final Component component)
+	{
+		this.pendingAreas.remove(component);
+		if (this.pendingAreas.isEmpty()) this.frameClock.removeFrameListener(this);
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.ui.FrameClock.FrameListener#frame()
+	 */
+	@Override
+	public void frame()
+	{
+		for (final Map.Entry<Component, Rectangle> entry : this.pendingAreas.entrySet())
+		{
+			final Rectangle area = entry.getValue();
+			if (area == null) entry.getKey().repaint();
+			else entry.getKey().repaint(area.x, area.y, area.width, area.height);
+			this.repaintCount++;
+		}
+		this.pendingAreas.clear();
+		this.frameClock.removeFrameListener(this);
+	}
+
+	/**
+	 * @return The number of issued repaints
+	 */
+	long getRepaintCount()
+	{
+		return this.repaintCount;
+	}
+
+}
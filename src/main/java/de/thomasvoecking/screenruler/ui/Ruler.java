@@ -2,12 +2,8 @@ package de.thomasvoecking.screenruler.ui;
 
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Rectangle;
-import java.awt.geom.Rectangle2D;
-
-import org.apache.commons.lang.StringUtils;
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
 
 /**
  * 
@@ -18,16 +14,6 @@ import org.apache.commons.logging.LogFactory;
 public class Ruler 
 {
 
-	/**
-	 * The logger
-	 */
-	private static final Log log = LogFactory.getLog(Ruler.class);
-
-	/**
-	 * Logging prepend
-	 */
-	private static final int logPrependPadding = 21;
-
 	/**
 	 * The length of the (main) stroke in px 
 	 */
@@ -38,6 +24,11 @@ public class Ruler
 	 */
 	private static int minimumInnerFieldStrokeWidth = 7;
 	
+	/**
+	 * The maximum number of cached labels
+	 */
+	private static final int labelCacheSize = 512;
+	
 	/**
 	 * Start value of the ruler
 	 */
@@ -53,6 +44,21 @@ public class Ruler
 	 */
 	private String unitName;
 	
+	/**
+	 * The layout of the last paint call
+	 */
+	private RulerLayout layout;
+	
+	/**
+	 * The font for the labels
+	 */
+	private Font labelFont;
+	
+	/**
+	 * The cache for the measured labels
+	 */
+	private final LabelCache labelCache;
+	
 	
 	/**
 	 * Constructor
@@ -62,8 +68,22 @@ public class Ruler
 	 * @param rulerEndValue The end value in the given unit (like "25 cm")
 	 */
 	public Ruler(final String unitName, final double rulerStartValue, final double rulerEndValue) 
+	{
+		this(unitName, rulerStartValue, rulerEndValue, new LabelCache(labelCacheSize));
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param unitName The name of this unit (like "cm"). Only used for displaying.
+	 * @param rulerStartValue The start value in the given unit (like "5 cm")
+	 * @param rulerEndValue The end value in the given unit (like "25 cm")
+	 * @param labelCache The cache for the measured labels. May be shared with other rulers.
+	 */
+	public Ruler(final String unitName, final double rulerStartValue, final double rulerEndValue, final LabelCache labelCache) 
 	{
 		this.unitName = unitName;
+		this.labelCache = labelCache;
 		this.setRulerBounds(rulerStartValue, rulerEndValue);
 	}
 
@@ -75,137 +95,116 @@ public class Ruler
 	 */
 	public void paint(final Graphics graphics, final Rectangle bounds)
 	{
+		final RulerPaintEvent event = new RulerPaintEvent();
+		event.begin();
+		final RulerLayout layout = this.getLayout((int) bounds.getWidth());
+		final Graphics2D g2 = (Graphics2D) graphics;
 
-		log.debug("Painting ruler");
-		log.debug(StringUtils.rightPad("rulerStartValue", logPrependPadding) + ": " + this.rulerStartValue);
-		log.debug(StringUtils.rightPad("rulerEndValue", logPrependPadding) + ": " + this.rulerEndValue);
-		log.debug(StringUtils.rightPad("bounds", logPrependPadding) + ": " + bounds);
-
-		// The width of the ruler in the current unit
-		final double rulerValueWidth = this.rulerEndValue - this.rulerStartValue;
-		log.debug(StringUtils.rightPad("rulerValueWidth", logPrependPadding) + ": " + rulerValueWidth + " " + this.unitName);
-		
-		// The highest unit we can display
-		final double rulerBaseValue = this.guessRulerBaseValue();
-		log.debug(StringUtils.rightPad("rulerBaseValue", logPrependPadding) + ": " + rulerBaseValue + " " + this.unitName);		
-		
-		// The left offset for the highest unit
-		final double rulerBaseValueOffset = (rulerBaseValue - this.rulerStartValue) % rulerBaseValue;
-		log.debug(StringUtils.rightPad("rulerBaseValueOffset", logPrependPadding) + ": " + rulerBaseValueOffset + " " + this.unitName);
-		
-		// The number of pixels per 1.0 units
-		final double resolution = bounds.getWidth() / rulerValueWidth; 
-		log.debug(StringUtils.rightPad("resolution", logPrependPadding) + ": " + resolution + "px/" + this.unitName + " (" + (resolution * rulerBaseValue) + "/" + rulerBaseValue + "cm)");
-
-		// The number of strokes to display.
-		final int numberOfStrokes = (int) (rulerValueWidth / rulerBaseValue);
-		log.debug(StringUtils.rightPad("numberOfStrokes", logPrependPadding) + ": " + numberOfStrokes);
-
-		// Save the last position where text has been drawn to 
-		int textUntil = 0;
-
-		// Draw a stroke at the beginning of the ruler
-		graphics.drawLine((int) (bounds.getX()), 0, (int) (bounds.getX()), strokeLength);
-		textUntil = this.drawUnitString(graphics, this.rulerStartValue, (int) (bounds.getX()), textUntil);
-
-		int lastX = 0;
-		// Iterate over all major strokes, iterate over one extra step in both directions to ensure that 
-		// he minor scale is drawn.
-		for (int i = 0; i <= numberOfStrokes + 1; i++)
+		// Submit each tick level as one shape
+		g2.translate((int) bounds.getX(), (int) bounds.getY());
+		try
 		{
-			final double value = this.rulerStartValue + rulerBaseValueOffset + i * rulerBaseValue;
-			final int x = (int) (bounds.getX() + ((rulerBaseValueOffset + i * rulerBaseValue) * resolution));			
-			
-			log.debug(StringUtils.rightPad("x (" + value + " " + this.unitName + ")", logPrependPadding) + ": " + x + " px" + (i > 0 ? ", Distance to last x : " + (x - lastX) + " px" : ""));
-			
-			// Draw the inner strokes if possible
-			if (i > 0)
+			for (int level = 0; level < layout.getLevelCount(); level++)
 			{
-				final double fieldWidth = resolution * rulerBaseValue;
-				
-				// Check if we have enough space to draw 10 strokes
-				if (fieldWidth / 10.0 >= minimumInnerFieldStrokeWidth) 
-				{
-					this.drawInnerUnit(graphics, bounds, lastX, x, 9, (int) (strokeLength / 2.0));
-				}
-				// else check if we have enough space to draw 5 strokes
-				else if (fieldWidth / 5.0 >= minimumInnerFieldStrokeWidth) 
-				{
-					this.drawInnerUnit(graphics, bounds, lastX, x, 4, (int) (strokeLength / 2.0));
-				}
-				
-				// Draw this step only if it is inside the range of this ruler.
-				if (value >= this.rulerStartValue && value <= this.rulerEndValue)
-				{
-					graphics.drawLine(x, 0, x, strokeLength);			
-					textUntil = this.drawUnitString(graphics, value, x, textUntil);
-				}
+				g2.draw(layout.getTickShape(level, layout.getTickLength(level, strokeLength)));
 			}
+		}
+		finally
+		{
+			g2.translate((int) -bounds.getX(), (int) -bounds.getY());
+		}
 
-			lastX = x;
+		final Font labelFont = this.getLabelFont(graphics.getFont());
+		final int labelCount = layout.placeLabels(this.labelCache, this.unitName, labelFont, 
+				g2.getFontRenderContext(), (int) bounds.getX());
+		for (int i = 0; i < labelCount; i++)
+		{
+			this.drawUnitString(g2, layout.getPlacedLabel(i), (int) bounds.getX() + layout.getPlacedLabelX(i), 
+					(int) bounds.getY());
 		}
 		
-		// Draw a stroke at the end of the ruler
-		if (this.rulerEndValue % rulerBaseValue != 0)
+		if (event.shouldCommit())
 		{
-			final int x = (int) (bounds.getMaxX());
-			graphics.drawLine(x, 0, x, strokeLength);
-			textUntil = this.drawUnitString(graphics, this.rulerEndValue, x, textUntil);
+			event.width = (int) bounds.getWidth();
+			event.tickCount = layout.getTickCount();
+			event.labelCount = labelCount;
+			event.commit();
 		}
 	}
 
 	/**
-	 * Tries to draw the strokes of an inner field. Returns if it is not possible.
+	 * Returns the layout for the current ruler bounds and the given width. The layout is only recomputed if 
+	 * the start value, the end value or the width have changed since the last call. If only the width has 
+	 * changed, e.g. while the ruler is resized, the strokes are only moved.
 	 * 
-	 * @param graphics The graphics object
-	 * @param bounds The bounds 
-	 * @param x1 Left bound of the current field
-	 * @param x2 Right bound of the current field
-	 * @param numberOfStrokes The number of strokes to draw
-	 * @param innerStrokeLength The length of the stroke to draw
+	 * @param width The width of the ruler in px
+	 * @return The layout
 	 */
-	private void drawInnerUnit(final Graphics graphics, final Rectangle bounds, final int x1, final int x2, 
-			final int numberOfStrokes, final int innerStrokeLength)
+	RulerLayout getLayout(final int width)
 	{
+		final RulerLayout previousLayout = this.layout;
+		final RulerLayoutEvent event = new RulerLayoutEvent();
+		event.begin();
+		if (previousLayout == null || !previousLayout.hasRange(this.rulerStartValue, this.rulerEndValue))
+		{
+			this.layout = new RulerLayout(this.rulerStartValue, this.rulerEndValue, this.guessRulerBaseValue(), 
+					width, minimumInnerFieldStrokeWidth);
+		}
+		else
+		{
+			this.layout = previousLayout.withWidth(width, minimumInnerFieldStrokeWidth);
+			// The layout is reused as it is if the width has not changed
+			if (this.layout == previousLayout) return this.layout;
+			event.incremental = this.layout.sharesStrokesWith(previousLayout);
+		}
 		
-		// Draw the strokes
-		for (int i = 0; i < numberOfStrokes; i++)
+		if (event.shouldCommit())
 		{
-			final int x = (int) (x1 + ((double) (i + 1) / (numberOfStrokes + 1)) * (x2 - x1));
-			log.debug(StringUtils.rightPad("inner stroke x:", logPrependPadding) + ": " + x + " px");
-
-			if (x > bounds.getX() + 1 && x < bounds.getMaxX() - 1) graphics.drawLine(x, 0, x, innerStrokeLength);
-			
-			// TODO second scale
+			event.rulerStartValue = this.rulerStartValue;
+			event.rulerEndValue = this.rulerEndValue;
+			event.width = width;
+			event.levelCount = this.layout.getLevelCount();
+			event.tickCount = this.layout.getTickCount();
+			event.commit();
 		}
+		return this.layout;
+	}
+	
+	/**
+	 * @return The cache for the measured labels
+	 */
+	LabelCache getLabelCache()
+	{
+		return this.labelCache;
 	}
 	
 	/**
 	 * Draws a unit string ("13.0 cm")
 	 *  
-	 * @param graphics
-	 * @param value The value to draw
-	 * @param x The position where to draw
-	 * @param currentTextUntil The current text position.
+	 * @param g2 The graphics object
+	 * @param label The label to draw
+	 * @param x The position of the text origin
+	 * @param y The top of the ruler. The strokes start there.
+	 */
+	void drawUnitString(final Graphics2D g2, final LabelCache.Label label, final int x, final int y) 
+	{
+		g2.drawGlyphVector(label.getGlyphVector(), x, y + (int) (strokeLength + 2 + label.getHeight()));
+	}
+	
+	/**
+	 * Returns the font for the labels. The font is derived from the given font and only recreated if the 
+	 * font name changes.
 	 * 
-	 * @return The new textUntil 
+	 * @param currentFont The current font of the graphics object
+	 * @return The label font
 	 */
-	private int drawUnitString(final Graphics graphics, final double value, 
-			final int x, final int currentTextUntil) 
+	private Font getLabelFont(final Font currentFont)
 	{
-		final String text = value + " " + this.unitName;
-		final Font currentFont = graphics.getFont();
-		final Font font = new Font(currentFont.getName(), Font.PLAIN, 9);
-		graphics.setFont(font);
-		final Rectangle2D textBounds = graphics.getFontMetrics().getStringBounds(text, graphics);
-		
-		if (currentTextUntil < x - textBounds.getCenterX())
+		if (this.labelFont == null || !this.labelFont.getName().equals(currentFont.getName()))
 		{
-			graphics.drawString(text, (int) (x - textBounds.getCenterX()), (int) (strokeLength + 2 + textBounds.getHeight()));
-			return (int) (x + textBounds.getCenterX());
+			this.labelFont = new Font(currentFont.getName(), Font.PLAIN, 9);
 		}
-		
-		return currentTextUntil;
+		return this.labelFont;
 	}
 	
 	
@@ -245,6 +244,30 @@ public class Ruler
 		this.rulerEndValue = rulerEndValue;
 	}
 	
+	/**
+	 * @return The name of the unit of this ruler.
+	 */
+	public String getUnitName() 
+	{
+		return this.unitName;
+	}
+	
+	/**
+	 * @return The start value of this ruler.
+	 */
+	public double getRulerStartValue() 
+	{
+		return this.rulerStartValue;
+	}
+	
+	/**
+	 * @return The end value of this ruler.
+	 */
+	public double getRulerEndValue() 
+	{
+		return this.rulerEndValue;
+	}
+	
 	/**
 	 * Set's the start value of this ruler. 
 	 * 
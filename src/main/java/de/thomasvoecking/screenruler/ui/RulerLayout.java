@@ -0,0 +1,554 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Path2D;
+import java.util.Arrays;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The precomputed tick layout of a {@link Ruler}.
+ *
+ * Contains the x positions and levels of all strokes and the positions of all labels for one combination of
+ * start value, end value and width. All positions are relative to the left edge of the ruler.
+ *
+ * @author thomas
+ */
+final class RulerLayout
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(RulerLayout.class);
+
+	/**
+	 * Logging prepend
+	 */
+	private static final int logPrependPadding = 21;
+
+	/**
+	 * Tick level of the major strokes
+	 */
+	static final int MAJOR_LEVEL = 0;
+
+	/**
+	 * How far in px the estimated label width may be off before a label is skipped without measuring it
+	 */
+	private static final double labelSkipTolerance = 0.5;
+
+	/**
+	 * Start value the layout has been computed for
+	 */
+	private final double rulerStartValue;
+
+	/**
+	 * End value the layout has been computed for
+	 */
+	private final double rulerEndValue;
+
+	/**
+	 * The base value of the ruler
+	 */
+	private final double rulerBaseValue;
+
+	/**
+	 * Width in px the layout has been computed for
+	 */
+	private final int width;
+
+	/**
+	 * The tick levels of the strokes
+	 */
+	private final TickHierarchy tickHierarchy;
+
+	/**
+	 * The index of the first stroke between the ruler ends, in steps of the finest level counted from value 0
+	 */
+	private final long firstIndex;
+
+	/**
+	 * The start value in steps of the finest level
+	 */
+	private final double startIndex;
+
+	/**
+	 * The levels of all strokes between the ruler ends, starting at {@link #firstIndex}. Does not depend on the
+	 * width, so it is shared by all layouts of the same range and hierarchy.
+	 */
+	private final byte[] strokeLevels;
+
+	/**
+	 * The values of all major strokes between the ruler ends, in drawing order. Shared like
+	 * {@link #strokeLevels}.
+	 */
+	private final double[] majorValues;
+
+	/**
+	 * The x positions of all strokes
+	 */
+	private final int[] tickX;
+
+	/**
+	 * The levels of all strokes (see {@link #MAJOR_LEVEL} and {@link TickHierarchy})
+	 */
+	private final byte[] tickLevel;
+
+	/**
+	 * The number of valid entries in {@link #tickX} and {@link #tickLevel}
+	 */
+	private int tickCount;
+
+	/**
+	 * The number of strokes of each level
+	 */
+	private final int[] levelTickCount;
+
+	/**
+	 * The values of all labels, in drawing order
+	 */
+	private final double[] labelValues;
+
+	/**
+	 * The x positions of all labels, in drawing order
+	 */
+	private final int[] labelX;
+
+	/**
+	 * The number of valid entries in {@link #labelValues} and {@link #labelX}
+	 */
+	private int labelCount;
+
+	/**
+	 * One batched shape per tick level. Created lazily.
+	 */
+	private final Shape[] tickShapes;
+
+	/**
+	 * The stroke length each shape of {@link #tickShapes} was created for
+	 */
+	private final int[] tickShapeLengths;
+
+	/**
+	 * The font the labels have been placed for
+	 */
+	private Font placedLabelFont;
+
+	/**
+	 * The font render context the labels have been placed for
+	 */
+	private FontRenderContext placedLabelFontRenderContext;
+
+	/**
+	 * The left edge of the ruler the labels have been placed for
+	 */
+	private int placedLabelOriginX;
+
+	/**
+	 * The labels that do not overlap, in drawing order
+	 */
+	private LabelCache.Label[] placedLabels;
+
+	/**
+	 * The x positions of the text origins of {@link #placedLabels}
+	 */
+	private int[] placedLabelX;
+
+	/**
+	 * The number of valid entries in {@link #placedLabels} and {@link #placedLabelX}
+	 */
+	private int placedLabelCount;
+
+	/**
+	 * Constructor. Computes the layout.
+	 *
+	 * @param rulerStartValue The start value of the ruler
+	 * @param rulerEndValue The end value of the ruler
+	 * @param rulerBaseValue The base value of the ruler (see {@link Ruler#guessRulerBaseValue()})
+	 * @param width The width of the ruler in px
+	 * @param minimumInnerFieldStrokeWidth The minimum distance between two inner strokes in px
+	 */
+	RulerLayout(final double rulerStartValue, final double rulerEndValue, final double rulerBaseValue,
+			final int width, final int minimumInnerFieldStrokeWidth)
+	{
+		this.rulerStartValue = rulerStartValue;
+		this.rulerEndValue = rulerEndValue;
+		this.rulerBaseValue = rulerBaseValue;
+		this.width = width;
+
+		// Choose the finest division of a field whose strokes are still far enough apart
+		this.tickHierarchy = TickHierarchy.forFieldWidth(
+				getFieldWidth(rulerStartValue, rulerEndValue, rulerBaseValue, width), minimumInnerFieldStrokeWidth);
+		final int division = this.tickHierarchy.getDivision();
+
+		// The strokes between the ruler ends are those of a tick sequence. An empty range has none.
+		final TickSequence ticks = rulerEndValue > rulerStartValue ? new TickSequence(rulerStartValue, 
+				rulerEndValue, rulerBaseValue, width / (rulerEndValue - rulerStartValue), this.tickHierarchy) : null;
+		this.startIndex = ticks != null ? ticks.getStartIndex() : 0;
+		this.firstIndex = ticks != null ? ticks.getFirstIndex() : 1;
+		final int numberOfSteps = ticks != null ? (int) (ticks.getTickCount() - 2) : 0;
+
+		// Layouts are computed for every frame while zooming, so the messages are only built if they are logged
+		if (log.isDebugEnabled())
+		{
+			log.debug("Computing ruler layout");
+			log.debug(StringUtils.rightPad("rulerStartValue", logPrependPadding) + ": " + rulerStartValue);
+			log.debug(StringUtils.rightPad("rulerEndValue", logPrependPadding) + ": " + rulerEndValue);
+			log.debug(StringUtils.rightPad("width", logPrependPadding) + ": " + width);
+			log.debug(StringUtils.rightPad("rulerBaseValue", logPrependPadding) + ": " + rulerBaseValue);
+			log.debug(StringUtils.rightPad("division", logPrependPadding) + ": " + division);
+			log.debug(StringUtils.rightPad("numberOfSteps", logPrependPadding) + ": " + numberOfSteps);
+		}
+
+		this.strokeLevels = new byte[numberOfSteps];
+		final double[] values = new double[numberOfSteps / division + 1];
+		int majorCount = 0;
+		if (ticks != null)
+		{
+			// Skip the stroke at the start of the ruler. The stroke at the end follows the inner strokes.
+			ticks.next();
+			for (int i = 0; i < numberOfSteps && ticks.next(); i++)
+			{
+				this.strokeLevels[i] = (byte) ticks.getLevel();
+				if (ticks.isMajor()) values[majorCount++] = ticks.getValue();
+			}
+		}
+		this.majorValues = Arrays.copyOf(values, majorCount);
+
+		// All inner strokes plus the strokes at both ends
+		this.tickX = new int[numberOfSteps + 2];
+		this.tickLevel = new byte[this.tickX.length];
+		this.levelTickCount = new int[this.tickHierarchy.getLevelCount()];
+		this.labelValues = new double[majorCount + 2];
+		this.labelX = new int[this.labelValues.length];
+		this.tickShapes = new Shape[this.tickHierarchy.getLevelCount()];
+		this.tickShapeLengths = new int[this.tickShapes.length];
+		this.place();
+	}
+
+	/**
+	 * Constructor. Computes the layout of the same range for another width. The strokes and their levels are 
+	 * taken from the given layout, only their positions are computed.
+	 *
+	 * @param layout The layout of the same range and the same tick hierarchy
+	 * @param width The width of the ruler in px
+	 */
+	private RulerLayout(final RulerLayout layout, final int width)
+	{
+		this.rulerStartValue = layout.rulerStartValue;
+		this.rulerEndValue = layout.rulerEndValue;
+		this.rulerBaseValue = layout.rulerBaseValue;
+		this.width = width;
+		this.tickHierarchy = layout.tickHierarchy;
+		this.firstIndex = layout.firstIndex;
+		this.startIndex = layout.startIndex;
+		this.strokeLevels = layout.strokeLevels;
+		this.majorValues = layout.majorValues;
+		this.tickX = new int[layout.tickX.length];
+		this.tickLevel = new byte[layout.tickLevel.length];
+		this.levelTickCount = new int[layout.levelTickCount.length];
+		this.labelValues = new double[layout.labelValues.length];
+		this.labelX = new int[layout.labelX.length];
+		this.tickShapes = new Shape[layout.tickShapes.length];
+		this.tickShapeLengths = new int[this.tickShapes.length];
+		this.place();
+	}
+
+	/**
+	 * Returns the layout of the same range for another width. If the new width keeps the tick hierarchy, only 
+	 * the positions of the strokes and labels are computed again. This is the case for most steps of a resize.
+	 *
+	 * @param width The width of the ruler in px
+	 * @param minimumInnerFieldStrokeWidth The minimum distance between two inner strokes in px
+	 * @return The layout
+	 */
+	RulerLayout withWidth(final int width, final int minimumInnerFieldStrokeWidth)
+	{
+		if (width == this.width) return this;
+		if (this.tickHierarchy != TickHierarchy.forFieldWidth(getFieldWidth(this.rulerStartValue, 
+				this.rulerEndValue, this.rulerBaseValue, width), minimumInnerFieldStrokeWidth))
+		{
+			return new RulerLayout(this.rulerStartValue, this.rulerEndValue, this.rulerBaseValue, width, 
+					minimumInnerFieldStrokeWidth);
+		}
+		return new RulerLayout(this, width);
+	}
+
+	/**
+	 * @param layout Another layout
+	 * @return true if this layout reuses the strokes of the other layout and only their positions have been 
+	 *   computed, see {@link #withWidth(int, int)}
+	 */
+	boolean sharesStrokesWith(final RulerLayout layout)
+	{
+		return this.strokeLevels == layout.strokeLevels;
+	}
+
+	/**
+	 * Computes the positions of the strokes and labels for the width of this layout.
+	 */
+	private void place()
+	{
+		// The distance between two strokes of the finest level in px
+		final double stepWidth = getFieldWidth(this.rulerStartValue, this.rulerEndValue, this.rulerBaseValue,
+				this.width) / this.tickHierarchy.getDivision();
+
+		// Add a stroke at the beginning of the ruler
+		this.addTick(0, MAJOR_LEVEL);
+		this.addLabel(this.rulerStartValue, 0);
+
+		int majorIndex = 0;
+		for (int i = 0; i < this.strokeLevels.length; i++)
+		{
+			final int x = (int) Math.floor((this.firstIndex + i - this.startIndex) * stepWidth 
+					+ TickSequence.indexTolerance);
+			final int level = this.strokeLevels[i];
+			if (level == MAJOR_LEVEL)
+			{
+				final double value = this.majorValues[majorIndex++];
+				if (x <= 0 || x >= this.width) continue;
+				this.addTick(x, MAJOR_LEVEL);
+				this.addLabel(value, x);
+			}
+			// Skip inner strokes too close to the ruler ends
+			else if (x > 1 && x < this.width - 1)
+			{
+				this.addTick(x, level);
+			}
+		}
+
+		// Add a stroke at the end of the ruler
+		this.addTick(this.width, MAJOR_LEVEL);
+		this.addLabel(this.rulerEndValue, this.width);
+
+		if (log.isDebugEnabled())
+		{
+			log.debug(StringUtils.rightPad("tickCount", logPrependPadding) + ": " + this.tickCount);
+			log.debug(StringUtils.rightPad("labelCount", logPrependPadding) + ": " + this.labelCount);
+		}
+	}
+
+	/**
+	 * @param rulerStartValue The start value of the ruler
+	 * @param rulerEndValue The end value of the ruler
+	 * @param rulerBaseValue The base value of the ruler
+	 * @param width The width of the ruler in px
+	 * @return The distance between two major strokes in px
+	 */
+	private static double getFieldWidth(final double rulerStartValue, final double rulerEndValue, 
+			final double rulerBaseValue, final int width)
+	{
+		final double rulerValueWidth = rulerEndValue - rulerStartValue;
+		return rulerValueWidth > 0 ? width / rulerValueWidth * rulerBaseValue : 0;
+	}
+
+	/**
+	 * Adds a stroke.
+	 *
+	 * @param x The x position
+	 * @param level The level
+	 */
+	private void addTick(final int x, final int level)
+	{
+		this.tickX[this.tickCount] = x;
+		this.tickLevel[this.tickCount] = (byte) level;
+		this.tickCount++;
+		this.levelTickCount[level]++;
+	}
+
+	/**
+	 * Adds a label.
+	 *
+	 * @param value The value to display
+	 * @param x The x position
+	 */
+	private void addLabel(final double value, final int x)
+	{
+		this.labelValues[this.labelCount] = value;
+		this.labelX[this.labelCount] = x;
+		this.labelCount++;
+	}
+
+	/**
+	 * Checks if this layout has been computed for the given range.
+	 *
+	 * @param rulerStartValue The start value of the ruler
+	 * @param rulerEndValue The end value of the ruler
+	 * @return true if this layout or a layout for another width (see {@link #withWidth(int, int)}) can be used.
+	 */
+	boolean hasRange(final double rulerStartValue, final double rulerEndValue)
+	{
+		return this.rulerStartValue == rulerStartValue && this.rulerEndValue == rulerEndValue;
+	}
+
+	/**
+	 * Returns all strokes of one level as one shape. Each stroke starts at y = 0. The shape is only recreated if
+	 * the length changes.
+	 *
+	 * @param level The tick level
+	 * @param length The length of the strokes of this level in px
+	 * @return The shape
+	 */
+	Shape getTickShape(final int level, final int length)
+	{
+		if (this.tickShapes[level] == null || this.tickShapeLengths[level] != length)
+		{
+			final Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, 2 * this.levelTickCount[level]);
+			for (int i = 0; i < this.tickCount; i++)
+			{
+				if (this.tickLevel[i] != level) continue;
+				path.moveTo(this.tickX[i], 0);
+				path.lineTo(this.tickX[i], length);
+			}
+			this.tickShapes[level] = path;
+			this.tickShapeLengths[level] = length;
+		}
+		return this.tickShapes[level];
+	}
+
+	/**
+	 * Decides which labels are drawn. A label is skipped if it would overlap the previous drawn label or if it 
+	 * would start left of the target graphics. Only the drawn labels are measured: the others are skipped by the
+	 * estimated width of their text. The placement is only recomputed if the font, the font render 
+	 * context or the origin have changed since the last call.
+	 *
+	 * @param labelCache The cache to measure the labels with
+	 * @param unitName The unit name that is appended to each value
+	 * @param font The label font
+	 * @param fontRenderContext The font render context of the target graphics
+	 * @param originX The left edge of the ruler in the target graphics
+	 * @return The number of labels to draw
+	 */
+	int placeLabels(final LabelCache labelCache, final String unitName, final Font font,
+			final FontRenderContext fontRenderContext, final int originX)
+	{
+		if (font.equals(this.placedLabelFont) && fontRenderContext.equals(this.placedLabelFontRenderContext)
+				&& originX == this.placedLabelOriginX)
+			return this.placedLabelCount;
+
+		if (this.placedLabels == null)
+		{
+			this.placedLabels = new LabelCache.Label[this.labelCount];
+			this.placedLabelX = new int[this.labelCount];
+		}
+		this.placedLabelCount = 0;
+
+		// Save the last position where text will be drawn to
+		int textUntil = -originX;
+		for (int i = 0; i < this.labelCount; i++)
+		{
+			final String text = this.labelValues[i] + " " + unitName;
+			final int x = this.labelX[i];
+
+			// Skip a label that can not fit before laying it out. Most labels are skipped when zoomed out.
+			if (textUntil >= x - labelCache.getAdvance(text, font, fontRenderContext) / 2 + labelSkipTolerance) continue;
+
+			final LabelCache.Label label = labelCache.get(text, font, fontRenderContext);
+			if (textUntil < x - label.getCenterX())
+			{
+				this.placedLabels[this.placedLabelCount] = label;
+				this.placedLabelX[this.placedLabelCount] = (int) Math.floor(x - label.getCenterX());
+				this.placedLabelCount++;
+				textUntil = (int) (x + label.getCenterX());
+			}
+		}
+
+		this.placedLabelFont = font;
+		this.placedLabelFontRenderContext = fontRenderContext;
+		this.placedLabelOriginX = originX;
+		return this.placedLabelCount;
+	}
+
+	/**
+	 * @param index The index of the label, see {@link #placeLabels(LabelCache, String, Font, FontRenderContext, int)}
+	 * @return The placed label
+	 */
+	LabelCache.Label getPlacedLabel(final int index)
+	{
+		return this.placedLabels[index];
+	}
+
+	/**
+	 * @param index The index of the label, see {@link #placeLabels(LabelCache, String, Font, FontRenderContext, int)}
+	 * @return The x position of the text origin of the placed label
+	 */
+	int getPlacedLabelX(final int index)
+	{
+		return this.placedLabelX[index];
+	}
+
+	/**
+	 * @return The number of tick levels. The major level is level 0.
+	 */
+	int getLevelCount()
+	{
+		return this.tickHierarchy.getLevelCount();
+	}
+
+	/**
+	 * @param level The tick level
+	 * @param majorLength The length of the major strokes in px
+	 * @return The length of the strokes of this level in px
+	 */
+	int getTickLength(final int level, final int majorLength)
+	{
+		return this.tickHierarchy.getLength(level, majorLength);
+	}
+
+	/**
+	 * @return The number of strokes
+	 */
+	int getTickCount()
+	{
+		return this.tickCount;
+	}
+
+	/**
+	 * @param index The index of the stroke
+	 * @return The x position of the stroke
+	 */
+	int getTickX(final int index)
+	{
+		return this.tickX[index];
+	}
+
+	/**
+	 * @param index The index of the stroke
+	 * @return The level of the stroke
+	 */
+	int getTickLevel(final int index)
+	{
+		return this.tickLevel[index];
+	}
+
+	/**
+	 * @return The number of labels
+	 */
+	int getLabelCount()
+	{
+		return this.labelCount;
+	}
+
+	/**
+	 * @param index The index of the label
+	 * @return The value of the label
+	 */
+	double getLabelValue(final int index)
+	{
+		return this.labelValues[index];
+	}
+
+	/**
+	 * @param index The index of the label
+	 * @return The x position of the label
+	 */
+	int getLabelX(final int index)
+	{
+		return this.labelX[index];
+	}
+
+}
@@ -0,0 +1,59 @@
+package de.thomasvoecking.screenruler.ui;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for one computation of a {@link RulerLayout}.
+ *
+ * @author thomas
+ */
+@Name("de.thomasvoecking.screenruler.RulerLayout")
+@Label("Ruler Layout")
+@Description("Computes the positions of the ticks and labels of a ruler")
+@Category({ "Screenruler", "Rendering" })
+@StackTrace(false)
+class RulerLayoutEvent extends jdk.jfr.Event
+{
+
+	/**
+	 * The start value of the ruler
+	 */
+	@Label("Start Value")
+	double rulerStartValue;
+
+	/**
+	 * The end value of the ruler
+	 */
+	@Label("End Value")
+	double rulerEndValue;
+
+	/**
+	 * The width of the ruler in px
+	 */
+	@Label("Width")
+	int width;
+
+	/**
+	 * The number of tick levels
+	 */
+	@Label("Level Count")
+	int levelCount;
+
+	/**
+	 * The number of ticks
+	 */
+	@Label("Tick Count")
+	int tickCount;
+
+	/**
+	 * Set if only the positions of the previous layout have been computed again
+	 */
+	@Label("Incremental")
+	@Description("Only the positions of the previous layout have been computed again")
+	boolean incremental;
+
+}
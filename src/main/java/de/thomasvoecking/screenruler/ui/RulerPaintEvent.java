@@ -0,0 +1,40 @@
+package de.thomasvoecking.screenruler.ui;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for one call of {@link Ruler#paint(java.awt.Graphics, java.awt.Rectangle)}.
+ *
+ * @author thomas
+ */
+@Name("de.thomasvoecking.screenruler.RulerPaint")
+@Label("Ruler Paint")
+@Description("Paints the ticks and labels of a ruler")
+@Category({ "Screenruler", "Rendering" })
+@StackTrace(false)
+class RulerPaintEvent extends jdk.jfr.Event
+{
+
+	/**
+	 * The width of the ruler in px
+	 */
+	@Label("Width")
+	int width;
+
+	/**
+	 * The number of painted ticks
+	 */
+	@Label("Tick Count")
+	int tickCount;
+
+	/**
+	 * The number of painted labels
+	 */
+	@Label("Label Count")
+	int labelCount;
+
+}
@@ -0,0 +1,548 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.thomasvoecking.screenruler.ui.buttons.AbstractButton;
+
+/**
+ * Composes the contents of the {@link ScreenrulerFrame} from cached layers.
+ *
+ * The ruler, the resize controls and the close button are each rendered into their own image. An image is
+ * only rendered again if the inputs of its layer have changed. The layers are composed into a back buffer, which
+ * is copied to the screen with one blit, so the screen never shows a partially composed frame.
+ *
+ * The layer images are larger than needed, so that they can be reused while the frame is resized.
+ *
+ * If the background color is translucent, the ruler layer and the back buffer are translucent as well, and the 
+ * back buffer replaces the contents of the target. This is used for windows with per-pixel translucency, where 
+ * only the background is translucent and the ticks and labels stay opaque.
+ *
+ * If a {@link BackgroundRenderer} is set, the ruler layer is rendered on its thread and the latest finished frame
+ * is composed. Only the first frame is rendered on the calling thread.
+ *
+ * @author thomas
+ */
+class ScreenrulerCompositor
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(ScreenrulerCompositor.class);
+
+	/**
+	 * The granularity of the width of the layer images in px
+	 */
+	private static final int capacityStep = 64;
+
+	/**
+	 * The ruler
+	 */
+	private final Ruler ruler;
+
+	/**
+	 * The left resize control
+	 */
+	private final ScreenrulerResizeControl leftResizeControl;
+
+	/**
+	 * The right resize control
+	 */
+	private final ScreenrulerResizeControl rightResizeControl;
+
+	/**
+	 * The close button
+	 */
+	private final AbstractButton closeButton;
+
+	/**
+	 * The graphics configuration to create the layer images for. May be null.
+	 */
+	private GraphicsConfiguration graphicsConfiguration;
+
+	/**
+	 * The background color
+	 */
+	private Color background = Color.WHITE;
+
+	/**
+	 * The foreground color
+	 */
+	private Color foreground = Color.BLACK;
+
+	/**
+	 * Static layer: background and ruler
+	 */
+	private final Layer rulerLayer = new Layer("ruler", Transparency.OPAQUE, true);
+
+	/**
+	 * Control layer: the resize controls
+	 */
+	private final Layer controlLayer = new Layer("controls", Transparency.TRANSLUCENT, false);
+
+	/**
+	 * Hover-state layer: the close button
+	 */
+	private final Layer hoverLayer = new Layer("hover", Transparency.TRANSLUCENT, false);
+
+	/**
+	 * The back buffer: all layers composed
+	 */
+	private final Layer frameLayer = new Layer("frame", Transparency.OPAQUE, true);
+
+	/**
+	 * Renders the ruler layer on a background thread. Null if it is rendered on the calling thread.
+	 */
+	private BackgroundRenderer backgroundRenderer;
+
+	/**
+	 * Constructor
+	 *
+	 * @param ruler The ruler
+	 * @param leftResizeControl The left resize control
+	 * @param rightResizeControl The right resize control
+	 * @param closeButton The close button
+	 */
+	ScreenrulerCompositor(final Ruler ruler, final ScreenrulerResizeControl leftResizeControl,
+			final ScreenrulerResizeControl rightResizeControl, final AbstractButton closeButton)
+	{
+		this.ruler = ruler;
+		this.leftResizeControl = leftResizeControl;
+		this.rightResizeControl = rightResizeControl;
+		this.closeButton = closeButton;
+	}
+
+	/**
+	 * Set's the graphics configuration the layer images are created for. All layers are invalidated if the
+	 * configuration changes.
+	 *
+	 * @param graphicsConfiguration The graphics configuration. May be null to create plain images.
+	 */
+	void setGraphicsConfiguration(final GraphicsConfiguration graphicsConfiguration)
+	{
+		if (this.graphicsConfiguration != graphicsConfiguration)
+		{
+			this.graphicsConfiguration = graphicsConfiguration;
+			this.invalidate();
+		}
+	}
+
+	/**
+	 * Set's the colors. All layers are invalidated if the colors change.
+	 *
+	 * @param background The background color. May be null to keep the current color. May be translucent.
+	 * @param foreground The foreground color. May be null to keep the current color.
+	 */
+	void setColors(final Color background, final Color foreground)
+	{
+		final Color newBackground = background == null ? this.background : background;
+		final Color newForeground = foreground == null ? this.foreground : foreground;
+		if (!newBackground.equals(this.background) || !newForeground.equals(this.foreground))
+		{
+			this.background = newBackground;
+			this.foreground = newForeground;
+			final int transparency = newBackground.getAlpha() == 255 ? Transparency.OPAQUE : Transparency.TRANSLUCENT;
+			this.rulerLayer.setTransparency(transparency);
+			this.frameLayer.setTransparency(transparency);
+			this.invalidate();
+		}
+	}
+
+	/**
+	 * Set's the renderer for the ruler layer.
+	 *
+	 * @param backgroundRenderer Renders the ruler layer on a background thread. May be null to render it on the
+	 *   calling thread.
+	 */
+	void setBackgroundRenderer(final BackgroundRenderer backgroundRenderer)
+	{
+		this.backgroundRenderer = backgroundRenderer;
+		this.invalidate();
+	}
+
+	/**
+	 * @return The renderer for the ruler layer. Null if it is rendered on the calling thread.
+	 */
+	BackgroundRenderer getBackgroundRenderer()
+	{
+		return this.backgroundRenderer;
+	}
+
+	/**
+	 * @return The number of times a layer has been looked up, summed over all layers
+	 */
+	long getLayerLookupCount()
+	{
+		return this.rulerLayer.lookupCount + this.controlLayer.lookupCount + this.hoverLayer.lookupCount 
+				+ this.frameLayer.lookupCount;
+	}
+
+	/**
+	 * @return The number of times a layer has been rendered, summed over all layers
+	 */
+	long getLayerRenderCount()
+	{
+		return this.rulerLayer.renderCount + this.controlLayer.renderCount + this.hoverLayer.renderCount 
+				+ this.frameLayer.renderCount;
+	}
+
+	/**
+	 * Discards the contents of all layers.
+	 */
+	void invalidate()
+	{
+		this.rulerLayer.invalidate();
+		this.controlLayer.invalidate();
+		this.hoverLayer.invalidate();
+		this.frameLayer.invalidate();
+	}
+
+	/**
+	 * Paints all layers. Layers are only rendered and composed if their inputs have changed since the last call.
+	 *
+	 * @param g2 The graphics object
+	 * @param width The width of the frame
+	 * @param height The height of the frame
+	 * @param rulerBounds The area of the ruler
+	 * @param leftResizeControlBounds The area of the left resize control
+	 * @param rightResizeControlBounds The area of the right resize control
+	 * @param closeButtonBounds The area of the close button
+	 */
+	void paint(final Graphics2D g2, final int width, final int height, final Rectangle rulerBounds,
+			final Rectangle leftResizeControlBounds, final Rectangle rightResizeControlBounds,
+			final Rectangle closeButtonBounds)
+	{
+		BufferedImage rulerImage = null;
+		int rulerWidth = width;
+		int rulerHeight = height;
+		Object rulerKey = null;
+		if (this.backgroundRenderer != null)
+		{
+			final BackgroundRenderer.Request request = new BackgroundRenderer.Request(this.ruler.getRulerStartValue(), 
+					this.ruler.getRulerEndValue(), width, height, rulerBounds, this.background, this.foreground, 
+					this.graphicsConfiguration);
+			this.backgroundRenderer.submit(request);
+			final BackgroundRenderer.Frame frame = this.backgroundRenderer.getFrame(request);
+			if (frame != null)
+			{
+				// May have been rendered for another size while the frame is resized
+				rulerImage = frame.getImage();
+				rulerWidth = Math.min(width, frame.getRequest().getWidth());
+				rulerHeight = Math.min(height, frame.getRequest().getHeight());
+				rulerKey = frame.getSequence();
+			}
+		}
+		if (rulerImage == null)
+		{
+			rulerImage = this.getRulerImage(width, height, rulerBounds);
+			rulerKey = this.rulerLayer.renderCount;
+		}
+		final BufferedImage controlImage = this.getControlImage(width, height, leftResizeControlBounds, 
+				rightResizeControlBounds);
+		final BufferedImage hoverImage = this.getHoverImage(closeButtonBounds);
+
+		final Object[] key = { rulerKey, this.controlLayer.renderCount, 
+				this.hoverLayer.renderCount, closeButtonBounds };
+		if (!this.frameLayer.isValid(width, height, key))
+		{
+			final Graphics2D frameGraphics = this.frameLayer.create(width, height, key);
+			try
+			{
+				// The ruler layer covers the frame, so it is copied instead of blended
+				frameGraphics.setComposite(AlphaComposite.Src);
+				if (rulerWidth < width || rulerHeight < height)
+				{
+					frameGraphics.setColor(this.background);
+					frameGraphics.fillRect(0, 0, width, height);
+				}
+				drawLayer(frameGraphics, rulerImage, new Rectangle(0, 0, rulerWidth, rulerHeight), 0, 0);
+				frameGraphics.setComposite(AlphaComposite.SrcOver);
+				// The control layer is transparent outside of the controls
+				drawLayer(frameGraphics, controlImage, leftResizeControlBounds, 
+						leftResizeControlBounds.x, leftResizeControlBounds.y);
+				drawLayer(frameGraphics, controlImage, rightResizeControlBounds, 
+						rightResizeControlBounds.x, rightResizeControlBounds.y);
+				drawLayer(frameGraphics, hoverImage, closeButtonBounds, 0, 0);
+			}
+			finally
+			{
+				frameGraphics.dispose();
+			}
+		}
+		if (this.frameLayer.transparency == Transparency.OPAQUE)
+		{
+			drawLayer(g2, this.frameLayer.image, new Rectangle(0, 0, width, height), 0, 0);
+		}
+		else
+		{
+			// Replace the previous contents instead of blending over them
+			final Composite composite = g2.getComposite();
+			g2.setComposite(AlphaComposite.Src);
+			drawLayer(g2, this.frameLayer.image, new Rectangle(0, 0, width, height), 0, 0);
+			g2.setComposite(composite);
+		}
+	}
+
+	/**
+	 * Draws a part of a layer image.
+	 *
+	 * @param g2 The graphics object
+	 * @param image The layer image
+	 * @param area The area to draw to
+	 * @param imageX The x position of the part in the image
+	 * @param imageY The y position of the part in the image
+	 */
+	private static void drawLayer(final Graphics2D g2, final BufferedImage image, final Rectangle area, 
+			final int imageX, final int imageY)
+	{
+		g2.drawImage(image, area.x, area.y, area.x + area.width, area.y + area.height, 
+				imageX, imageY, imageX + area.width, imageY + area.height, null);
+	}
+
+	/**
+	 * Returns the image of the ruler layer.
+	 *
+	 * @param width The width of the frame
+	 * @param height The height of the frame
+	 * @param rulerBounds The area of the ruler
+	 * @return The image
+	 */
+	private BufferedImage getRulerImage(final int width, final int height, final Rectangle rulerBounds)
+	{
+		final Object[] key = { rulerBounds, this.ruler.getRulerStartValue(), this.ruler.getRulerEndValue() };
+		if (this.rulerLayer.isValid(width, height, key)) return this.rulerLayer.image;
+
+		final Graphics2D g2 = this.rulerLayer.create(width, height, key);
+		try
+		{
+			// Copying a translucent background is much faster than blending it
+			g2.setComposite(AlphaComposite.Src);
+			g2.setColor(this.background);
+			g2.fillRect(0, 0, width, height);
+			g2.setComposite(AlphaComposite.SrcOver);
+			g2.setColor(this.foreground);
+			this.ruler.paint(g2, rulerBounds);
+		}
+		finally
+		{
+			g2.dispose();
+		}
+		return this.rulerLayer.image;
+	}
+
+	/**
+	 * Returns the image of the control layer.
+	 *
+	 * @param width The width of the frame
+	 * @param height The height of the frame
+	 * @param leftResizeControlBounds The area of the left resize control
+	 * @param rightResizeControlBounds The area of the right resize control
+	 * @return The image
+	 */
+	private BufferedImage getControlImage(final int width, final int height,
+			final Rectangle leftResizeControlBounds, final Rectangle rightResizeControlBounds)
+	{
+		final Object[] key = { leftResizeControlBounds, rightResizeControlBounds };
+		if (this.controlLayer.isValid(width, height, key)) return this.controlLayer.image;
+
+		final Graphics2D g2 = this.controlLayer.create(width, height, key);
+		try
+		{
+			this.leftResizeControl.paint(g2, leftResizeControlBounds);
+			this.rightResizeControl.paint(g2, rightResizeControlBounds);
+		}
+		finally
+		{
+			g2.dispose();
+		}
+		return this.controlLayer.image;
+	}
+
+	/**
+	 * Returns the image of the hover-state layer. The image only covers the close button.
+	 *
+	 * @param closeButtonBounds The area of the close button
+	 * @return The image
+	 */
+	private BufferedImage getHoverImage(final Rectangle closeButtonBounds)
+	{
+		final int width = (int) closeButtonBounds.getWidth();
+		final int height = (int) closeButtonBounds.getHeight();
+		final Object[] key = { this.closeButton.isMouseOver() };
+		if (this.hoverLayer.isValid(width, height, key)) return this.hoverLayer.image;
+
+		final Graphics2D g2 = this.hoverLayer.create(width, height, key);
+		try
+		{
+			this.closeButton.paint(g2, new Rectangle(0, 0, width, height));
+		}
+		finally
+		{
+			g2.dispose();
+		}
+		return this.hoverLayer.image;
+	}
+
+	/**
+	 * One cached layer.
+	 *
+	 * @author thomas
+	 */
+	private class Layer
+	{
+
+		/**
+		 * Name of this layer. Only used for logging.
+		 */
+		private final String name;
+
+		/**
+		 * The transparency of the layer image
+		 */
+		private int transparency;
+
+		/**
+		 * Set if the whole layer is painted over with {@link AlphaComposite#Src}, so it does not need to be 
+		 * cleared
+		 */
+		private final boolean covered;
+
+		/**
+		 * The rendered layer. Null if the layer has never been rendered.
+		 */
+		private BufferedImage image;
+
+		/**
+		 * The width the layer has been rendered for. May be smaller than the image.
+		 */
+		private int width;
+
+		/**
+		 * The height the layer has been rendered for. May be smaller than the image.
+		 */
+		private int height;
+
+		/**
+		 * The inputs the layer has been rendered for. Null if the layer is invalid.
+		 */
+		private Object[] key;
+
+		/**
+		 * The number of times the layer has been rendered
+		 */
+		private long renderCount;
+
+		/**
+		 * The number of times the layer has been checked for reuse
+		 */
+		private long lookupCount;
+
+		/**
+		 * Constructor
+		 *
+		 * @param name Name of this layer. Only used for logging.
+		 * @param transparency The transparency of the layer image, see {@link Transparency}
+		 * @param covered Set if the whole layer is painted over with {@link AlphaComposite#Src}
+		 */
+		Layer(final String name, final int transparency, final boolean covered)
+		{
+			this.name = name;
+			this.transparency = transparency;
+			this.covered = covered;
+		}
+
+		/**
+		 * Checks if the layer has been rendered for the given inputs.
+		 *
+		 * @param width The width of the layer
+		 * @param height The height of the layer
+		 * @param key All other inputs of the layer
+		 * @return true if the current image can be used
+		 */
+		boolean isValid(final int width, final int height, final Object[] key)
+		{
+			this.lookupCount++;
+			return this.image != null && this.width == width && this.height == height && Arrays.equals(this.key, key);
+		}
+
+		/**
+		 * Prepares the layer to be rendered for the given inputs. Reuses the current image if it is large 
+		 * enough and not much too large. A new image is a quarter wider than needed, so that it can be reused 
+		 * while the frame is resized.
+		 *
+		 * @param width The width of the layer
+		 * @param height The height of the layer
+		 * @param key All other inputs of the layer
+		 * @return A graphics object to render the layer with. Must be disposed by the caller.
+		 */
+		Graphics2D create(final int width, final int height, final Object[] key)
+		{
+			if (log.isDebugEnabled()) log.debug("Rendering layer \"" + this.name + "\"");
+
+			if (this.image == null || this.image.getWidth() < width || this.image.getWidth() > 2 * width + capacityStep
+					|| this.image.getHeight() != height)
+			{
+				final int capacity = ((width + width / 4) / capacityStep + 1) * capacityStep;
+				if (log.isDebugEnabled()) 
+					log.debug("Creating image for layer \"" + this.name + "\": " + capacity + "x" + height);
+				this.image = ScreenrulerCompositor.this.graphicsConfiguration == null
+					? new BufferedImage(capacity, Math.max(height, 1), this.transparency == Transparency.OPAQUE
+							? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE)
+					: ScreenrulerCompositor.this.graphicsConfiguration.createCompatibleImage(
+							capacity, Math.max(height, 1), this.transparency);
+			}
+			this.width = width;
+			this.height = height;
+			this.key = key;
+			this.renderCount++;
+
+			final Graphics2D g2 = this.image.createGraphics();
+			g2.clipRect(0, 0, width, height);
+			if (this.transparency != Transparency.OPAQUE && !this.covered)
+			{
+				// Clear the previous contents
+				g2.setComposite(AlphaComposite.Clear);
+				g2.fillRect(0, 0, width, height);
+				g2.setComposite(AlphaComposite.SrcOver);
+			}
+			g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			return g2;
+		}
+
+		/**
+		 * Set's the transparency of the layer image. The image is created again if the transparency changes.
+		 *
+		 * @param transparency The transparency, see {@link Transparency}
+		 */
+		void setTransparency(final int transparency)
+		{
+			if (this.transparency != transparency)
+			{
+				this.transparency = transparency;
+				this.image = null;
+			}
+		}
+
+		/**
+		 * Discards the contents of this layer.
+		 */
+		void invalidate()
+		{
+			this.key = null;
+		}
+	}
+
+}
@@ -29,22 +29,15 @@ class ScreenrulerDraggingData {
 	 * The current mouse position relative to the bottom right corner of the component. Is set when dragging is started.
 	 */
 	Point componentRelativeMouseLocationFromRight;
-
-}
-
-/**
- * Possible dragging modes.
- * 
- * @author thomas
- */
-enum DraggingMode
-{
-	/** Resize mode to the left side. */
-	RESIZE_LEFT,
 	
-	/** Resize mode to the right side. */
-	RESIZE_RIGHT,
+	/**
+	 * The start value of the ruler. Is set when panning is started.
+	 */
+	double rulerStartValue;
 	
-	/** Move mode */
-	MOVE
-}
\ No newline at end of file
+	/**
+	 * The end value of the ruler. Is set when panning is started.
+	 */
+	double rulerEndValue;
+
+}
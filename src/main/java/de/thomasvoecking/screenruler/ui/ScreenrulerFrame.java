@@ -6,28 +6,55 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Rectangle;
-import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
 
 import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
-import org.apache.commons.configuration.Configuration;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import com.sun.awt.AWTUtilities;
 
+import de.thomasvoecking.screenruler.capture.RobotScreenSource;
+import de.thomasvoecking.screenruler.capture.ScreenSource;
+import de.thomasvoecking.screenruler.config.ScreenrulerSettings;
+import de.thomasvoecking.screenruler.config.SettingsListener;
+import de.thomasvoecking.screenruler.config.Translucency;
+import de.thomasvoecking.screenruler.event.RulerEvent;
 import de.thomasvoecking.screenruler.ui.buttons.CloseButton;
 
 /**
  * The main frame. All components are directly painted on this component.
  * Also controls all dragging events.
  * 
+ * Layout, painting and dragging happen in logical coordinates, where the ruler runs along the x axis. The 
+ * {@link Orientation} maps them to the window and the screen.
+ * 
+ * Pressing "L" toggles a loupe that shows the screen around the mouse cursor. While resizing, the ends of the
+ * ruler snap to edges on the screen unless "Alt" is held. The mouse wheel zooms the range of the ruler around 
+ * the mouse cursor, dragging with the right mouse button pans it. Both are animated by a {@link RangeAnimator}.
+ * 
+ * Pressing "P" toggles a {@link PerformanceHud}. The painted frames are only measured while it is shown.
+ * 
+ * If the display supports it, only the background of the window is translucent and the ticks and labels stay 
+ * opaque. Otherwise the opacity is applied to the whole window, see {@link Translucency}.
+ * 
+ * If background rendering is configured, the ruler is rendered by a {@link BackgroundRenderer} and the event 
+ * dispatch thread only composes the latest finished frame.
+ * 
  * @author thomas
  */
-public class ScreenrulerFrame extends JFrame implements MouseListener, MouseMotionListener
+public class ScreenrulerFrame extends JFrame implements MouseListener, MouseMotionListener, SettingsListener
 {
 
 	/**
@@ -41,19 +68,40 @@ public class ScreenrulerFrame extends JFrame implements MouseListener, MouseMoti
 	private static final Log log = LogFactory.getLog(ScreenrulerFrame.class);
 
 	/**
-	 * The configuration
+	 * The workspace this ruler belongs to
 	 */
-	private final Configuration configuration;
+	private final Workspace workspace;
 	
 	/**
-	 * The padding between the ruler and the resize controls.
+	 * The orientation of this ruler
 	 */
-	private static final int rulerPadding = 10;
+	private final Orientation orientation;
 	
 	/**
-	 * The overlay color
+	 * The current settings
 	 */
-	private static final Color overlayColor = new Color(255, 245, 173);
+	private ScreenrulerSettings settings;
+	
+	/**
+	 * How the opacity is applied to this window. Either {@link Translucency#PERPIXEL} or 
+	 * {@link Translucency#UNIFORM}.
+	 */
+	private Translucency translucency = Translucency.UNIFORM;
+	
+	/**
+	 * The background of the window before it has been made transparent for per-pixel translucency
+	 */
+	private Color opaqueBackground;
+	
+	/**
+	 * The factor the range width is multiplied with per notch of the mouse wheel
+	 */
+	private static final double zoomFactor = 1.25;
+	
+	/**
+	 * The maximum time to wait for the render thread when it is stopped, in ms
+	 */
+	private static final long rendererStopTimeout = 1000;
 	
 	/**
 	 * The left resize control
@@ -68,110 +116,520 @@ public class ScreenrulerFrame extends JFrame implements MouseListener, MouseMoti
 	/** 
 	 * The ruler
 	 */
-	private final Ruler ruler = new Ruler("cm", 48, 129);
+	private final Ruler ruler;
 	
 	/**
 	 * The close button
 	 */
 	private final CloseButton closeButton = new CloseButton();
 	
+	/**
+	 * Composes the ruler, the resize controls and the close button from cached layers.
+	 */
+	private final ScreenrulerCompositor compositor;
+	
 	/**
 	 * Contains stateful data that is necessary for the dragging behaviour.
 	 */
 	private ScreenrulerDraggingData screenrulerDraggingData = new ScreenrulerDraggingData();
+	
+	/**
+	 * Applies the drag targets at most once per frame.
+	 */
+	private final DragScheduler dragScheduler;
+	
+	/**
+	 * Animates zooming and panning of the range.
+	 */
+	private final RangeAnimator rangeAnimator;
+	
+	/**
+	 * Renders the ruler on a background thread. Null if the ruler is rendered on the event dispatch thread.
+	 */
+	private BackgroundRenderer backgroundRenderer;
+	
+	/**
+	 * Notified after the first paint. Null if there is none or the frame has already been painted.
+	 */
+	private volatile Runnable firstPaintListener;
+	
+	/**
+	 * The performance overlay. Null if it is hidden.
+	 */
+	private PerformanceHud performanceHud;
+	
+	/**
+	 * Updates the performance overlay. Null if it is hidden.
+	 */
+	private Timer performanceHudTimer;
+	
+	/**
+	 * The loupe. Created when it is shown for the first time.
+	 */
+	private LoupeWindow loupeWindow;
+	
+	/**
+	 * Captures the screen for the loupe and the snapping. Created when it is used for the first time.
+	 */
+	private ScreenSource screenSource;
+	
+	/**
+	 * Snaps the ends of the ruler while resizing. Created when it is used for the first time.
+	 */
+	private EdgeSnapper edgeSnapper;
+	
+	/**
+	 * Set if the screen can not be captured, disables snapping.
+	 */
+	private boolean snappingUnavailable;
+	
+	/**
+	 * Set if the screen can not be captured, disables the loupe.
+	 */
+	private boolean loupeUnavailable;
 
 	/**
-	 * Constructor
+	 * Constructor. Use {@link Workspace#createRuler(String, double, double, Orientation)} to create rulers.
 	 * 
-	 * @param configuration The configuration 
+	 * @param workspace The workspace this ruler belongs to. The frame follows all changes of its settings.
+	 * @param ruler The ruler
+	 * @param orientation The orientation of the ruler
 	 */
-	public ScreenrulerFrame(final Configuration configuration) 
+	ScreenrulerFrame(final Workspace workspace, final Ruler ruler, final Orientation orientation) 
 	{
 		log.debug("Initializing frame.");
 		
-		this.configuration = configuration;
+		this.workspace = workspace;
+		this.ruler = ruler;
+		this.orientation = orientation;
+		this.settings = workspace.getSettingsSource().get();
+		this.compositor = new ScreenrulerCompositor(
+				this.ruler, this.leftResizeControl, this.rightResizeControl, this.closeButton);
 		
 		// Set window properties
 		this.setUndecorated(true);
-		this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		this.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
 		
-		final Dimension size = new Dimension(
-				this.configuration.getInt("screenrulerFrame.size[@width]"), 
-				this.configuration.getInt("screenrulerFrame.size[@height]"));
+		final Dimension size = orientation.toScreen(new Dimension(
+				this.settings.getWidth(), 
+				this.settings.getHeight()));
 		log.debug("Setting size: " + size); 
 		this.setSize(size);
 		this.setResizable(false);
 
-		log.debug("Setting opacity: " + this.configuration.getFloat("screenrulerFrame.window[@opacity]"));
-		AWTUtilities.setWindowOpacity(this, this.configuration.getFloat("screenrulerFrame.window[@opacity]"));
+		this.applyOpacity();
+		
+		this.dragScheduler = new DragScheduler(workspace.getFrameClock(), new DragScheduler.DragTarget() 
+		{
+			@Override
+			public void applyDrag(final Rectangle bounds) 
+			{
+				ScreenrulerFrame.this.setBounds(bounds);
+			}
+		});
+		
+		this.rangeAnimator = new RangeAnimator(workspace.getFrameClock(), new RangeAnimator.RangeTarget() 
+		{
+			@Override
+			public void applyRange(final double rulerStartValue, final double rulerEndValue) 
+			{
+				ScreenrulerFrame.this.setRulerRange(rulerStartValue, rulerEndValue);
+				workspace.publish(ScreenrulerFrame.this, RulerEvent.Type.RANGE_CHANGED);
+			}
+			
+			@Override
+			public void animationFinished() 
+			{
+				workspace.publish(ScreenrulerFrame.this, RulerEvent.Type.DRAG_ENDED);
+			}
+		});
 		
 		this.addMouseListener(this);
 		this.addMouseMotionListener(this);
+		this.addMouseWheelListener(new MouseWheelListener() 
+		{
+			@Override
+			public void mouseWheelMoved(final MouseWheelEvent e) 
+			{
+				ScreenrulerFrame.this.zoom(e);
+			}
+		});
+		this.addKeyListener(new KeyAdapter() 
+		{
+			@Override
+			public void keyPressed(final KeyEvent e) 
+			{
+				if (e.getKeyCode() == KeyEvent.VK_L) ScreenrulerFrame.this.toggleLoupe();
+				else if (e.getKeyCode() == KeyEvent.VK_P) ScreenrulerFrame.this.togglePerformanceHud();
+			}
+		});
+		workspace.getSettingsSource().addSettingsListener(this);
+		this.setBackgroundRendering(this.settings.isBackgroundRendering());
 	}
 	
 	/**
-	 * @see java.awt.Window#paint(java.awt.Graphics)
+	 * Applies the opacity of the settings. Uses per-pixel translucency if it is configured and supported by the 
+	 * display, otherwise the opacity is applied to the whole window.
 	 */
-	@Override
-	public void paint(final Graphics g) 
+	private void applyOpacity()
 	{
+		final Translucency translucency = TranslucencyProbe.resolve(this.settings.getTranslucency(), 
+				this.getGraphicsConfiguration());
+		if (translucency != this.translucency)
+		{
+			log.debug("Setting translucency: " + translucency);
+			if (translucency == Translucency.PERPIXEL)
+			{
+				// A background with alpha makes the window non-opaque
+				this.opaqueBackground = this.getBackground();
+				this.setBackground(new Color(0, 0, 0, 0));
+			}
+			else if (this.opaqueBackground != null)
+			{
+				this.setBackground(this.opaqueBackground);
+			}
+			this.translucency = translucency;
+		}
 		
-		final Graphics2D g2 = (Graphics2D) g;
-        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);		
-		g.clearRect(0, 0, this.getWidth(), this.getHeight());
+		final float opacity = translucency == Translucency.PERPIXEL ? 1.0f : this.settings.getWindowOpacity();
+		log.debug("Setting opacity: " + opacity);
+		this.setOpacity(opacity);
+	}
+	
+	/**
+	 * @return The background of the ruler. Translucent if per-pixel translucency is used.
+	 */
+	private Color getRulerBackground()
+	{
+		if (this.translucency != Translucency.PERPIXEL) return this.getBackground();
+		final Color background = this.opaqueBackground;
+		return new Color(background.getRed(), background.getGreen(), background.getBlue(), 
+				Math.round(this.settings.getWindowOpacity() * 255));
+	}
+	
+	/**
+	 * Starts or stops rendering the ruler on a background thread.
+	 * 
+	 * @param backgroundRendering true to render the ruler on a background thread
+	 */
+	private void setBackgroundRendering(final boolean backgroundRendering)
+	{
+		if (backgroundRendering == (this.backgroundRenderer != null)) return;
 		
-		// When the ruler is currently in resizing state, draw no ruler and no resize controls.
-		// Instead draw an overlay.
-		final boolean paintOverlay = 
-			this.screenrulerDraggingData.draggingMode == DraggingMode.RESIZE_LEFT || this.screenrulerDraggingData.draggingMode == DraggingMode.RESIZE_RIGHT; 
+		if (backgroundRendering)
+		{
+			log.debug("Starting background rendering");
+			this.backgroundRenderer = new BackgroundRenderer(new Ruler(this.ruler.getUnitName(), 
+					this.ruler.getRulerStartValue(), this.ruler.getRulerEndValue(), this.ruler.getLabelCache()), 
+					new Runnable() 
+					{
+						@Override
+						public void run() 
+						{
+							SwingUtilities.invokeLater(new Runnable() 
+							{
+								@Override
+								public void run() 
+								{
+									if (ScreenrulerFrame.this.isDisplayable()) 
+										ScreenrulerFrame.this.workspace.getRepaintScheduler().requestRepaint(ScreenrulerFrame.this);
+								}
+							});
+						}
+					});
+			this.backgroundRenderer.start();
+			this.compositor.setBackgroundRenderer(this.backgroundRenderer);
+		}
+		else
+		{
+			log.debug("Stopping background rendering");
+			this.compositor.setBackgroundRenderer(null);
+			this.backgroundRenderer.stop(rendererStopTimeout);
+			this.backgroundRenderer = null;
+		}
+	}
+	
+	/**
+	 * Changes the range of the ruler and renders it again. The range is part of the key of the ruler layer, so 
+	 * the other layers are kept.
+	 * 
+	 * @param rulerStartValue The new start value
+	 * @param rulerEndValue The new end value. Must be greater than the start value.
+	 */
+	void setRulerRange(final double rulerStartValue, final double rulerEndValue)
+	{
+		this.ruler.setRulerBounds(rulerStartValue, rulerEndValue);
+		this.workspace.getRepaintScheduler().requestRepaint(this);
+	}
+	
+	/**
+	 * Zooms the range of the ruler around the mouse cursor.
+	 * 
+	 * @param e The mouse wheel event
+	 */
+	private void zoom(final MouseWheelEvent e)
+	{
+		final Rectangle rulerBounds = this.getRulerBoundingBox();
+		if (rulerBounds.width <= 0) return;
 		
-		if (paintOverlay)
+		final double anchor = Math.min(1.0, Math.max(0.0, 
+				(this.getLogicalPoint(e).getX() - rulerBounds.getX()) / rulerBounds.getWidth()));
+		this.startRangeAnimation();
+		this.rangeAnimator.zoom(this.ruler.getRulerStartValue(), this.ruler.getRulerEndValue(), 
+				Math.pow(zoomFactor, e.getPreciseWheelRotation()), anchor);
+	}
+	
+	/**
+	 * Publishes the start of a range animation, so that the intermediate ranges are treated like a drag.
+	 */
+	private void startRangeAnimation()
+	{
+		if (!this.rangeAnimator.isRunning()) this.workspace.publish(this, RulerEvent.Type.DRAG_STARTED);
+	}
+	
+	/**
+	 * Sets a listener that is run on the event dispatch thread once the frame has been painted for the 
+	 * first time.
+	 * 
+	 * @param firstPaintListener The listener
+	 */
+	public void setFirstPaintListener(final Runnable firstPaintListener)
+	{
+		this.firstPaintListener = firstPaintListener;
+	}
+	
+	/**
+	 * Shows or hides the loupe.
+	 */
+	private void toggleLoupe()
+	{
+		if (this.loupeUnavailable) return;
+		if (this.loupeWindow == null)
 		{
-			this.paintOverlay(g);
+			try
+			{
+				this.loupeWindow = new LoupeWindow(this, this.getScreenSource(), this.workspace.getFrameClock());
+			}
+			catch (final IllegalStateException e)
+			{
+				log.warn("Screen can not be captured, the loupe is disabled", e);
+				this.loupeUnavailable = true;
+				return;
+			}
+		}
+		if (this.loupeWindow.isRunning()) this.loupeWindow.stop();
+		else this.loupeWindow.start();
+	}
+	
+	/**
+	 * Shows or hides the performance overlay.
+	 */
+	private void togglePerformanceHud()
+	{
+		if (this.performanceHud == null)
+		{
+			log.debug("Showing performance overlay");
+			this.performanceHud = new PerformanceHud(this.dragScheduler, this.compositor, this.ruler.getLabelCache(), 
+					System.nanoTime());
+			this.performanceHudTimer = new Timer(PerformanceHud.updateInterval, new ActionListener() 
+			{
+				@Override
+				public void actionPerformed(final ActionEvent e) 
+				{
+					ScreenrulerFrame.this.performanceHud.update(System.nanoTime());
+					ScreenrulerFrame.this.workspace.getRepaintScheduler().requestRepaint(ScreenrulerFrame.this);
+				}
+			});
+			this.performanceHudTimer.start();
 		}
 		else
 		{
-			this.paintArrows(g);
-			this.ruler.paint(g, new Rectangle(
-					this.configuration.getInt("screenrulerFrame.resizeControl.size[@width]") + rulerPadding, 
-					0, 
-					this.getWidth() - 2 * this.configuration.getInt("screenrulerFrame.resizeControl.size[@width]") - 2 * rulerPadding, 
-					this.getHeight()));
-			this.closeButton.paint(g, this.getCloseButtonBoundingBox());
+			log.debug("Hiding performance overlay");
+			this.performanceHudTimer.stop();
+			this.performanceHudTimer = null;
+			this.performanceHud = null;
+		}
+		this.workspace.getRepaintScheduler().requestRepaint(this);
+	}
+	
+	/**
+	 * @return Captures the screen of this frame
+	 */
+	private ScreenSource getScreenSource()
+	{
+		if (this.screenSource == null) this.screenSource = new RobotScreenSource(this.getGraphicsConfiguration().getDevice());
+		return this.screenSource;
+	}
+	
+	/**
+	 * Snaps a position on the ruler axis to the nearest edge on the screen.
+	 * 
+	 * @param logicalBounds The bounds of the frame in logical coordinates
+	 * @param logicalX The position in logical coordinates
+	 * @return The snapped position
+	 */
+	private int snap(final Rectangle logicalBounds, final int logicalX)
+	{
+		if (this.snappingUnavailable) return logicalX;
+		if (this.edgeSnapper == null)
+		{
+			try
+			{
+				this.edgeSnapper = new EdgeSnapper(this.getScreenSource());
+			}
+			catch (final IllegalStateException e)
+			{
+				log.warn("Screen can not be captured, snapping is disabled", e);
+				this.snappingUnavailable = true;
+				return logicalX;
+			}
 		}
+		return this.edgeSnapper.snap(logicalBounds, this.orientation, logicalX);
 	}
 	
 	/**
-	 * Paints the overlay.
+	 * Stops the loupe before the frame is disposed.
 	 * 
-	 * @param g The {@link Graphics} Object.
+	 * @see java.awt.Window#dispose()
 	 */
-	private void paintOverlay(final Graphics g)
+	@Override
+	public void dispose() 
 	{
-		final Color color = g.getColor();
-		g.setColor(overlayColor);
-		g.fillRect(0, 0, this.getWidth() + 100, this.getHeight());
-		g.setColor(color);
-		g.drawLine(
-				this.configuration.getInt("screenrulerFrame.resizeControl.size[@width]") + rulerPadding, 0, 
-				this.configuration.getInt("screenrulerFrame.resizeControl.size[@width]") + rulerPadding, (int) (this.getHeight() / 2.0));
-		g.drawLine(
-				this.getWidth() - this.configuration.getInt("screenrulerFrame.resizeControl.size[@width]") - rulerPadding, 0, 
-				this.getWidth() - this.configuration.getInt("screenrulerFrame.resizeControl.size[@width]") - rulerPadding, (int) (this.getHeight() / 2.0));
+		if (this.loupeWindow != null) this.loupeWindow.stop();
+		if (this.performanceHudTimer != null) this.performanceHudTimer.stop();
+		this.setBackgroundRendering(false);
+		super.dispose();
 	}
 	
 	/**
-	 * Paints the resize controls.
+	 * Applies new settings. Only the parts of the window that depend on changed settings are updated, e.g. 
+	 * a new opacity does not repaint the ruler.
 	 * 
-	 * @param g The {@link Graphics} Object.
+	 * @see de.thomasvoecking.screenruler.config.SettingsListener#settingsChanged(de.thomasvoecking.screenruler.config.ScreenrulerSettings, de.thomasvoecking.screenruler.config.ScreenrulerSettings)
+	 */
+	@Override
+	public void settingsChanged(final ScreenrulerSettings oldSettings, final ScreenrulerSettings newSettings) 
+	{
+		this.settings = newSettings;
+		
+		if (oldSettings.getWindowOpacity() != newSettings.getWindowOpacity() 
+				|| oldSettings.getTranslucency() != newSettings.getTranslucency())
+		{
+			this.applyOpacity();
+			// A per-pixel translucent background is part of the ruler layer
+			this.workspace.getRepaintScheduler().requestRepaint(this);
+		}
+		
+		if (oldSettings.getWidth() != newSettings.getWidth() || oldSettings.getHeight() != newSettings.getHeight())
+		{
+			final Dimension size = this.orientation.toScreen(new Dimension(
+					oldSettings.getWidth() != newSettings.getWidth() ? newSettings.getWidth() : this.getLogicalSize().width, 
+					newSettings.getHeight()));
+			log.debug("Setting size: " + size); 
+			this.setSize(size);
+		}
+		
+		if (oldSettings.isBackgroundRendering() != newSettings.isBackgroundRendering())
+		{
+			this.setBackgroundRendering(newSettings.isBackgroundRendering());
+			this.workspace.getRepaintScheduler().requestRepaint(this);
+		}
+		
+		// The layers are rendered again only if their bounds have changed
+		if (oldSettings.getRulerInset() != newSettings.getRulerInset() 
+				|| oldSettings.getResizeControlHeight() != newSettings.getResizeControlHeight())
+		{
+			this.workspace.getRepaintScheduler().requestRepaint(this);
+		}
+	}
+	
+	/**
+	 * @see java.awt.Window#paint(java.awt.Graphics)
 	 */
-	private void paintArrows(final Graphics g)
+	@Override
+	public void paint(final Graphics g) 
+	{
+		
+		final Graphics2D g2 = (Graphics2D) g;
+		final Dimension logicalSize = this.getLogicalSize();
+		final AffineTransform transform = g2.getTransform();
+		g2.transform(this.orientation.getWindowTransform(logicalSize));
+		
+		// The back buffer already contains the complete window contents, so there is no need to clear it first.
+		// This also holds while resizing: only the positions of the strokes are computed again, and the layer 
+		// images are reused.
+		this.compositor.setGraphicsConfiguration(this.getGraphicsConfiguration());
+		this.compositor.setColors(this.getRulerBackground(), this.getForeground());
+		final PerformanceHud performanceHud = this.performanceHud;
+		final long allocatedBefore = performanceHud == null ? 0 : PaintStatistics.getAllocatedBytes();
+		final long paintStart = System.nanoTime();
+		this.compositor.paint(g2, logicalSize.width, logicalSize.height, 
+				this.getRulerBoundingBox(), 
+				this.getLeftResizeControlBoundingBox(), 
+				this.getRightResizeControlBoundingBox(), 
+				this.getCloseButtonBoundingBox());
+		final long paintNanos = System.nanoTime() - paintStart;
+		this.rangeAnimator.reportRenderTime(paintNanos);
+		if (performanceHud != null)
+		{
+			// The overlay itself is not measured
+			final long allocatedBytes = PaintStatistics.getAllocatedBytes() - allocatedBefore;
+			performanceHud.getPaintStatistics().record(paintNanos, Math.max(0, allocatedBytes));
+			performanceHud.paint(g2, this.getRulerBoundingBox());
+		}
+		g2.setTransform(transform);
+		
+		if (this.firstPaintListener != null)
+		{
+			final Runnable listener = this.firstPaintListener;
+			this.firstPaintListener = null;
+			listener.run();
+		}
+	}
+	
+	/**
+	 * @return The ruler
+	 */
+	Ruler getRuler()
+	{
+		return this.ruler;
+	}
+	
+	/**
+	 * @return The orientation of this ruler
+	 */
+	Orientation getOrientation()
+	{
+		return this.orientation;
+	}
+
+	/**
+	 * @return The size of this frame in logical coordinates
+	 */
+	private Dimension getLogicalSize()
 	{
-		this.leftResizeControl.paint(g, this.getLeftResizeControlBoundingBox());
-		this.rightResizeControl.paint(g, this.getRightResizeControlBoundingBox());
+		return this.orientation.toLogical(new Rectangle(this.getSize())).getSize();
 	}
 	
+	/**
+	 * @return The bounds of this frame on the screen in logical coordinates
+	 */
+	private Rectangle getLogicalBounds()
+	{
+		return this.orientation.toLogical(new Rectangle(this.getLocationOnScreen(), this.getSize()));
+	}
+	
+	/**
+	 * @param e A mouse event
+	 * @return The location of the event relative to this frame in logical coordinates
+	 */
+	private Point getLogicalPoint(final MouseEvent e)
+	{
+		final Point point = this.orientation.toLogical(e.getLocationOnScreen());
+		final Rectangle bounds = this.getLogicalBounds();
+		point.translate(-bounds.x, -bounds.y);
+		return point;
+	}
 	
 	/**
 	 * @see java.awt.event.MouseListener#mousePressed(java.awt.event.MouseEvent)
@@ -181,22 +639,34 @@ public class ScreenrulerFrame extends JFrame implements MouseListener, MouseMoti
 	{
 		if (e.getButton() == MouseEvent.BUTTON1)
 		{
-			this.screenrulerDraggingData.componentRelativeMouseLocationFromLeft = e.getPoint();
+			final Point point = this.getLogicalPoint(e);
+			final Rectangle bounds = this.getLogicalBounds();
+			this.screenrulerDraggingData.componentRelativeMouseLocationFromLeft = point;
 			this.screenrulerDraggingData.componentRelativeMouseLocationFromRight = new Point(
-					(int) (this.getWidth() - e.getPoint().getX()), 
-					(int) (this.getHeight() - e.getPoint().getY()));
+					(int) (bounds.getWidth() - point.getX()), 
+					(int) (bounds.getHeight() - point.getY()));
 			this.screenrulerDraggingData.bottomRight = new Point(
-					(int) (this.getLocationOnScreen().getX() + this.getWidth()),
-					(int) (this.getLocationOnScreen().getY() + this.getHeight()));
+					(int) (bounds.getX() + bounds.getWidth()),
+					(int) (bounds.getY() + bounds.getHeight()));
 			
-			if (this.getLeftResizeControlBoundingBox().contains(e.getPoint()))
+			if (this.getLeftResizeControlBoundingBox().contains(point))
 				this.screenrulerDraggingData.draggingMode = DraggingMode.RESIZE_LEFT;
-			else if (this.getRightResizeControlBoundingBox().contains(e.getPoint()))
+			else if (this.getRightResizeControlBoundingBox().contains(point))
 				this.screenrulerDraggingData.draggingMode = DraggingMode.RESIZE_RIGHT;
 			else
 				this.screenrulerDraggingData.draggingMode = DraggingMode.MOVE;
 			
-			log.debug("New dragging mode: " + this.screenrulerDraggingData.draggingMode);
+			if (log.isDebugEnabled()) log.debug("New dragging mode: " + this.screenrulerDraggingData.draggingMode);
+			this.dragScheduler.start(this.screenrulerDraggingData.draggingMode);
+			this.workspace.publish(this, RulerEvent.Type.DRAG_STARTED);
+		}
+		else if (e.getButton() == MouseEvent.BUTTON3)
+		{
+			this.screenrulerDraggingData.componentRelativeMouseLocationFromLeft = this.getLogicalPoint(e);
+			this.screenrulerDraggingData.rulerStartValue = this.ruler.getRulerStartValue();
+			this.screenrulerDraggingData.rulerEndValue = this.ruler.getRulerEndValue();
+			this.screenrulerDraggingData.draggingMode = DraggingMode.PAN;
+			if (log.isDebugEnabled()) log.debug("New dragging mode: " + this.screenrulerDraggingData.draggingMode);
 		}
 	}
 
@@ -206,27 +676,59 @@ public class ScreenrulerFrame extends JFrame implements MouseListener, MouseMoti
 	@Override
 	public void mouseDragged(final MouseEvent e) 
 	{
+		if (this.screenrulerDraggingData.draggingMode == null) return;
+		
+		final Point mouse = this.orientation.toLogical(e.getLocationOnScreen());
+		final Rectangle bounds = this.getLogicalBounds();
 		if (this.screenrulerDraggingData.draggingMode == DraggingMode.RESIZE_LEFT)
 		{
 			final Rectangle newBounds = new Rectangle(
-					(int) (e.getLocationOnScreen().getX() - this.screenrulerDraggingData.componentRelativeMouseLocationFromLeft.getX()), 
-					(int) (this.getLocationOnScreen().getY()), 
-					(int) (this.screenrulerDraggingData.bottomRight.getX() - e.getLocationOnScreen().getX() - this.screenrulerDraggingData.componentRelativeMouseLocationFromLeft.getX()), 
-					this.getHeight());
-			if (newBounds.getWidth() >= this.configuration.getInt("screenrulerFrame.size[@minWidth]")) this.setBounds(newBounds);
+					(int) (mouse.getX() - this.screenrulerDraggingData.componentRelativeMouseLocationFromLeft.getX()), 
+					(int) (bounds.getY()), 
+					(int) (this.screenrulerDraggingData.bottomRight.getX() - mouse.getX() - this.screenrulerDraggingData.componentRelativeMouseLocationFromLeft.getX()), 
+					bounds.height);
+			if (!e.isAltDown())
+			{
+				final int rulerStart = newBounds.x + this.settings.getRulerInset();
+				final int offset = this.snap(bounds, rulerStart) - rulerStart;
+				newBounds.x += offset;
+				newBounds.width -= offset;
+			}
+			if (newBounds.getWidth() >= this.settings.getMinWidth()) this.dragScheduler.submit(this.orientation.toScreen(newBounds));
 		}
 		else if (this.screenrulerDraggingData.draggingMode == DraggingMode.RESIZE_RIGHT)
 		{
-			final Dimension newSize = new Dimension(
-					(int) (e.getLocationOnScreen().getX() - this.getLocationOnScreen().getX() + this.screenrulerDraggingData.componentRelativeMouseLocationFromRight.getX()), 
-					this.getHeight());
-			if (newSize.getWidth() >= this.configuration.getInt("screenrulerFrame.size[@minWidth]")) this.setSize(newSize);
+			final Rectangle newBounds = new Rectangle(
+					bounds.getLocation(),
+					new Dimension(
+							(int) (mouse.getX() - bounds.getX() + this.screenrulerDraggingData.componentRelativeMouseLocationFromRight.getX()), 
+							bounds.height));
+			if (!e.isAltDown())
+			{
+				final int rulerEnd = newBounds.x + newBounds.width - this.settings.getRulerInset();
+				newBounds.width += this.snap(bounds, rulerEnd) - rulerEnd;
+			}
+			if (newBounds.getWidth() >= this.settings.getMinWidth()) this.dragScheduler.submit(this.orientation.toScreen(newBounds));
+		}
+		else if (this.screenrulerDraggingData.draggingMode == DraggingMode.PAN)
+		{
+			// The value that has been grabbed follows the mouse
+			final double rulerStartValue = this.screenrulerDraggingData.rulerStartValue;
+			final double rulerEndValue = this.screenrulerDraggingData.rulerEndValue;
+			final double offset = (this.getLogicalPoint(e).getX() 
+					- this.screenrulerDraggingData.componentRelativeMouseLocationFromLeft.getX())
+					* (rulerEndValue - rulerStartValue) / this.getRulerBoundingBox().getWidth();
+			this.startRangeAnimation();
+			this.rangeAnimator.pan(this.ruler.getRulerStartValue(), this.ruler.getRulerEndValue(), 
+					rulerStartValue - offset, rulerEndValue - offset);
 		}
 		else if (this.screenrulerDraggingData.draggingMode == DraggingMode.MOVE)
 		{
-			this.setLocation(
-					(int) (e.getLocationOnScreen().getX() - this.screenrulerDraggingData.componentRelativeMouseLocationFromLeft.getX()),
-					(int) (e.getLocationOnScreen().getY() - this.screenrulerDraggingData.componentRelativeMouseLocationFromLeft.getY()));
+			this.dragScheduler.submit(this.orientation.toScreen(new Rectangle(
+					(int) (mouse.getX() - this.screenrulerDraggingData.componentRelativeMouseLocationFromLeft.getX()),
+					(int) (mouse.getY() - this.screenrulerDraggingData.componentRelativeMouseLocationFromLeft.getY()),
+					bounds.width, 
+					bounds.height)));
 		}
 	}	
 
@@ -236,22 +738,37 @@ public class ScreenrulerFrame extends JFrame implements MouseListener, MouseMoti
 	@Override
 	public void mouseReleased(final MouseEvent e) 
 	{
-		if (this.screenrulerDraggingData.draggingMode != null)
+		if (this.screenrulerDraggingData.draggingMode == DraggingMode.PAN)
+		{
+			// The animation ends the drag
+			if (log.isDebugEnabled()) log.debug("Releasing dragging mode: " + this.screenrulerDraggingData.draggingMode);
+			this.screenrulerDraggingData.draggingMode = null;
+		}
+		else if (this.screenrulerDraggingData.draggingMode != null)
 		{
-			log.debug("Releasing dragging mode: " + this.screenrulerDraggingData.draggingMode);
+			if (log.isDebugEnabled()) log.debug("Releasing dragging mode: " + this.screenrulerDraggingData.draggingMode);
+			this.dragScheduler.stop();
 			this.screenrulerDraggingData.draggingMode = null;
-			this.repaint();
+			this.workspace.getRepaintScheduler().requestRepaint(this);
+			this.workspace.publish(this, RulerEvent.Type.DRAG_ENDED);
 		}
 	}
 
+	/**
+	 * @return the bounding box for the ruler.
+	 */
+	private Rectangle getRulerBoundingBox()
+	{
+		final Dimension logicalSize = this.getLogicalSize();
+		return this.settings.getRulerBounds(logicalSize.width, logicalSize.height);
+	}
+
 	/**
 	 * @return the bounding box for the left resize control.
 	 */
 	private Rectangle getLeftResizeControlBoundingBox()
 	{
-		return new Rectangle(0, 0, 
-				this.configuration.getInt("screenrulerFrame.resizeControl.size[@width]"), 
-				this.configuration.getInt("screenrulerFrame.resizeControl.size[@height]"));
+		return this.settings.getLeftResizeControlBounds();
 	}
 
 	/**
@@ -259,11 +776,7 @@ public class ScreenrulerFrame extends JFrame implements MouseListener, MouseMoti
 	 */
 	private Rectangle getRightResizeControlBoundingBox()
 	{
-		return new Rectangle(
-				this.getWidth() - this.configuration.getInt("screenrulerFrame.resizeControl.size[@width]"), 
-				0, 
-				this.configuration.getInt("screenrulerFrame.resizeControl.size[@width]"), 
-				this.configuration.getInt("screenrulerFrame.resizeControl.size[@height]"));
+		return this.settings.getRightResizeControlBounds(this.getLogicalSize().width);
 	}
 
 	/**
@@ -271,7 +784,7 @@ public class ScreenrulerFrame extends JFrame implements MouseListener, MouseMoti
 	 */
 	private Rectangle getCloseButtonBoundingBox()
 	{
-		return new Rectangle(4, this.getHeight() - 20, 16, 16);
+		return this.settings.getCloseButtonBounds(this.getLogicalSize().height);
 	}
 
 	/**
@@ -282,9 +795,11 @@ public class ScreenrulerFrame extends JFrame implements MouseListener, MouseMoti
 	{
 		// Check if we are over the close button
 		final Rectangle closeButtonBoundingBox = this.getCloseButtonBoundingBox();
-		if (this.closeButton.setMouseOver(closeButtonBoundingBox.contains(e.getPoint()))) this.repaint(
-				(int) closeButtonBoundingBox.getX(), (int) closeButtonBoundingBox.getY(), 
-				(int) closeButtonBoundingBox.getWidth(), (int) closeButtonBoundingBox.getHeight());
+		if (this.closeButton.setMouseOver(closeButtonBoundingBox.contains(this.getLogicalPoint(e)))) 
+		{
+			this.workspace.getRepaintScheduler().requestRepaint(this, this.orientation
+					.getWindowTransform(this.getLogicalSize()).createTransformedShape(closeButtonBoundingBox).getBounds());
+		}
 	}
 
 	
@@ -296,7 +811,7 @@ public class ScreenrulerFrame extends JFrame implements MouseListener, MouseMoti
 	public void mouseClicked(final MouseEvent e) 
 	{
 		// Check if we have clicked the exit button
-		if (this.getCloseButtonBoundingBox().contains(e.getPoint())) System.exit(0);
+		if (this.getCloseButtonBoundingBox().contains(this.getLogicalPoint(e))) this.workspace.close(this);
 		
 	}
 
@@ -2,10 +2,6 @@ package de.thomasvoecking.screenruler.ui;
 
 import java.awt.Graphics;
 import java.awt.Rectangle;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-
-import javax.imageio.ImageIO;
 
 /**
  * ResizeControl enum.
@@ -23,7 +19,7 @@ public enum ScreenrulerResizeControl
 	/**
 	 * An arrow image for this direction. 
 	 */
-	final BufferedImage arrowImage;	
+	final ImageRegistry.Sprite arrowImage;	
 
 	/**
 	 * Constructor
@@ -32,15 +28,8 @@ public enum ScreenrulerResizeControl
 	 */
 	private ScreenrulerResizeControl(final String arrowImagePath) 
 	{
-		try 
-		{
-			this.arrowImage = ImageIO.read(ClassLoader.getSystemResource(arrowImagePath));
-		} 
-		catch (final IOException e) 
-		{
-			throw new RuntimeException(
-					"Resource \"" + arrowImagePath + "\" could not be read.", e);
-		}
+		// The image is decoded on first paint or by the preloading at startup
+		this.arrowImage = ImageRegistry.getDefault().getSprite(arrowImagePath);
 	}
 	
 	/**
@@ -51,11 +40,8 @@ public enum ScreenrulerResizeControl
 	 */
 	public void paint(final Graphics graphics, final Rectangle bounds)
 	{
-		graphics.drawImage(this.arrowImage,  
-				(int) bounds.getX(), (int) bounds.getY(), 
-				(int) (bounds.getX() + bounds.getWidth()), 
-				(int) (bounds.getY() + bounds.getHeight()), 
-				0, 0, this.arrowImage.getWidth(null), this.arrowImage.getHeight(null), null);
+		graphics.drawImage(this.arrowImage.getImage((int) bounds.getWidth(), (int) bounds.getHeight()), 
+				(int) bounds.getX(), (int) bounds.getY(), null);
 	}
 	
 }
@@ -0,0 +1,159 @@
+package de.thomasvoecking.screenruler.ui;
+
+/**
+ * The nested tick levels of a ruler field.
+ *
+ * A field is the distance between two major strokes, it is the base value of the ruler (see
+ * {@link Ruler#guessRulerBaseValue()}). The field is divided into 1, 2, 5, 10, 20, 50 or 100 steps, the finest
+ * division whose strokes are still far enough apart is chosen. The strokes of one field are enumerated by an
+ * integer index, the level of a stroke is the coarsest nested division its index is a multiple of: the field
+ * itself, its halves and its tenths, down to the chosen division.
+ *
+ * There are only a few hierarchies, they are created once and shared by all layouts.
+ *
+ * @author thomas
+ */
+final class TickHierarchy
+{
+
+	/**
+	 * The possible numbers of steps per field, from coarse to fine
+	 */
+	private static final int[] divisions = { 1, 2, 5, 10, 20, 50, 100 };
+
+	/**
+	 * The nested divisions the levels are built from. A division is a level of a hierarchy if it is a divisor of
+	 * the finest division of the hierarchy.
+	 */
+	private static final int[] levelDivisions = { 1, 2, 10, 20, 100 };
+
+	/**
+	 * One hierarchy per entry of {@link #divisions}
+	 */
+	private static final TickHierarchy[] hierarchies = new TickHierarchy[divisions.length];
+
+	static
+	{
+		for (int i = 0; i < divisions.length; i++) hierarchies[i] = new TickHierarchy(divisions[i]);
+	}
+
+	/**
+	 * The number of steps per field
+	 */
+	private final int division;
+
+	/**
+	 * The number of steps per field on each level, from the major level to the finest level
+	 */
+	private final int[] levelDivision;
+
+	/**
+	 * The distance between two strokes of each level, in steps of the finest level
+	 */
+	private final int[] levelStride;
+
+	/**
+	 * Constructor
+	 *
+	 * @param division The number of steps per field. Must be one of {@link #divisions}.
+	 */
+	private TickHierarchy(final int division)
+	{
+		this.division = division;
+
+		int levelCount = 0;
+		final int[] levels = new int[levelDivisions.length + 1];
+		for (final int levelDivision : levelDivisions)
+		{
+			if (levelDivision < division && division % levelDivision == 0) levels[levelCount++] = levelDivision;
+		}
+		levels[levelCount++] = division;
+
+		this.levelDivision = new int[levelCount];
+		this.levelStride = new int[levelCount];
+		for (int i = 0; i < levelCount; i++)
+		{
+			this.levelDivision[i] = levels[i];
+			this.levelStride[i] = division / levels[i];
+		}
+	}
+
+	/**
+	 * Returns the finest hierarchy whose strokes are at least the given distance apart.
+	 *
+	 * @param fieldWidth The distance between two major strokes in px
+	 * @param minimumStrokeDistance The minimum distance between two strokes in px
+	 * @return The hierarchy. Contains only the major level if the field is too small to be divided.
+	 */
+	static TickHierarchy forFieldWidth(final double fieldWidth, final int minimumStrokeDistance)
+	{
+		int i = divisions.length - 1;
+		while (i > 0 && fieldWidth / divisions[i] < minimumStrokeDistance) i--;
+		return hierarchies[i];
+	}
+
+	/**
+	 * @return The number of steps per field on the finest level
+	 */
+	int getDivision()
+	{
+		return this.division;
+	}
+
+	/**
+	 * @return The number of levels. The major level is level 0.
+	 */
+	int getLevelCount()
+	{
+		return this.levelDivision.length;
+	}
+
+	/**
+	 * @param level The level
+	 * @return The number of steps per field on this level
+	 */
+	int getLevelDivision(final int level)
+	{
+		return this.levelDivision[level];
+	}
+
+	/**
+	 * Returns the level of a stroke.
+	 *
+	 * @param index The index of the stroke, in steps of the finest level counted from value 0
+	 * @return The coarsest level the stroke belongs to
+	 */
+	int getLevel(final long index)
+	{
+		for (int level = 0; level < this.levelStride.length - 1; level++)
+		{
+			if (index % this.levelStride[level] == 0) return level;
+		}
+		return this.levelStride.length - 1;
+	}
+
+	/**
+	 * Returns the length of the strokes of a level. The length decreases with the logarithm of the division,
+	 * so a tenth is half as long as a major stroke.
+	 *
+	 * @param level The level
+	 * @param majorLength The length of the major strokes in px
+	 * @return The length of the strokes of this level in px
+	 */
+	int getLength(final int level, final int majorLength)
+	{
+		return (int) (majorLength / (1.0 + Math.log10(this.levelDivision[level])));
+	}
+
+	/**
+	 * Returns the length of the strokes of a level relative to the major strokes, see {@link #getLength(int, int)}.
+	 *
+	 * @param level The level
+	 * @return The length of the strokes of this level divided by the length of the major strokes
+	 */
+	double getLengthRatio(final int level)
+	{
+		return 1.0 / (1.0 + Math.log10(this.levelDivision[level]));
+	}
+
+}
@@ -0,0 +1,286 @@
+package de.thomasvoecking.screenruler.ui;
+
+/**
+ * Enumerates the strokes of a ruler one at a time, from the start to the end, without storing them.
+ *
+ * The strokes, their levels and the values of the major strokes are the same as in a {@link RulerLayout}, but the
+ * positions are not rounded to px and may be in any unit, e.g. mm for a printed ruler. This is meant for rulers
+ * that are too long to be laid out at once: the memory does not depend on the number of strokes. A
+ * {@link RulerLayout} walks a sequence once to find the strokes it positions for each width.
+ *
+ * @author thomas
+ */
+public final class TickSequence
+{
+
+	/**
+	 * Tolerance for the index of a stroke, so that values at the ruler ends are not missed by rounding errors
+	 */
+	static final double indexTolerance = 1e-9;
+
+	/**
+	 * The start value of the ruler
+	 */
+	private final double rulerStartValue;
+
+	/**
+	 * The end value of the ruler
+	 */
+	private final double rulerEndValue;
+
+	/**
+	 * The base value of the ruler
+	 */
+	private final double rulerBaseValue;
+
+	/**
+	 * The length of one unit of the ruler values
+	 */
+	private final double unitLength;
+
+	/**
+	 * The tick levels of the strokes
+	 */
+	private final TickHierarchy tickHierarchy;
+
+	/**
+	 * The start value in steps of the finest level
+	 */
+	private final double startIndex;
+
+	/**
+	 * The index of the first stroke between the ruler ends, in steps of the finest level counted from value 0
+	 */
+	private final long firstIndex;
+
+	/**
+	 * The index of the last stroke between the ruler ends
+	 */
+	private final long lastIndex;
+
+	/**
+	 * The index of the current stroke. {@link #firstIndex} - 1 for the stroke at the start of the ruler and
+	 * {@link #lastIndex} + 1 for the stroke at the end.
+	 */
+	private long index;
+
+	/**
+	 * Set once the stroke at the end of the ruler has been enumerated
+	 */
+	private boolean finished;
+
+	/**
+	 * The position of the current stroke
+	 */
+	private double position;
+
+	/**
+	 * The level of the current stroke
+	 */
+	private int level;
+
+	/**
+	 * The value of the current stroke
+	 */
+	private double value;
+
+	/**
+	 * Constructor
+	 *
+	 * @param rulerStartValue The start value of the ruler. Must be >= 0.
+	 * @param rulerEndValue The end value of the ruler. Must be greater than the start value.
+	 * @param rulerBaseValue The distance between two major strokes, see {@link Ruler#guessRulerBaseValue()}.
+	 *   Must be greater than 0.
+	 * @param unitLength The length of one unit of the ruler values, in the unit of the positions. Must be
+	 *   greater than 0.
+	 * @param minimumStrokeDistance The minimum distance between two strokes, in the unit of the positions. Must
+	 *   be greater than 0.
+	 */
+	public TickSequence(final double rulerStartValue, final double rulerEndValue, final double rulerBaseValue,
+			final double unitLength, final double minimumStrokeDistance)
+	{
+		this(rulerStartValue, rulerEndValue, rulerBaseValue, unitLength, getTickHierarchy(rulerStartValue,
+				rulerEndValue, rulerBaseValue, unitLength, minimumStrokeDistance));
+	}
+
+	/**
+	 * Checks the params of the public constructor.
+	 *
+	 * @param rulerStartValue The start value of the ruler
+	 * @param rulerEndValue The end value of the ruler
+	 * @param rulerBaseValue The distance between two major strokes
+	 * @param unitLength The length of one unit of the ruler values
+	 * @param minimumStrokeDistance The minimum distance between two strokes
+	 * @return The finest tick hierarchy whose strokes are at least the minimum distance apart
+	 */
+	private static TickHierarchy getTickHierarchy(final double rulerStartValue, final double rulerEndValue,
+			final double rulerBaseValue, final double unitLength, final double minimumStrokeDistance)
+	{
+		if (!(rulerStartValue >= 0))
+			throw new IllegalArgumentException("Param \"rulerStartValue\" must be >= 0, but is " + rulerStartValue);
+		if (!(rulerEndValue > rulerStartValue))
+			throw new IllegalArgumentException("Param \"rulerEndValue\" must be > \"rulerStartValue\", " +
+					"but rulerStartValue is " + rulerStartValue + " and rulerEndValue is " + rulerEndValue);
+		if (!(rulerBaseValue > 0))
+			throw new IllegalArgumentException("Param \"rulerBaseValue\" must be > 0, but is " + rulerBaseValue);
+		if (!(unitLength > 0))
+			throw new IllegalArgumentException("Param \"unitLength\" must be > 0, but is " + unitLength);
+		if (!(minimumStrokeDistance > 0))
+			throw new IllegalArgumentException("Param \"minimumStrokeDistance\" must be > 0, but is "
+					+ minimumStrokeDistance);
+
+		return TickHierarchy.forFieldWidth(rulerBaseValue * unitLength / minimumStrokeDistance, 1);
+	}
+
+	/**
+	 * Constructor for a given tick hierarchy. The params are not checked.
+	 *
+	 * @param rulerStartValue The start value of the ruler
+	 * @param rulerEndValue The end value of the ruler. Must be greater than the start value.
+	 * @param rulerBaseValue The distance between two major strokes
+	 * @param unitLength The length of one unit of the ruler values, in the unit of the positions
+	 * @param tickHierarchy The tick levels of the strokes
+	 */
+	TickSequence(final double rulerStartValue, final double rulerEndValue, final double rulerBaseValue,
+			final double unitLength, final TickHierarchy tickHierarchy)
+	{
+		this.rulerStartValue = rulerStartValue;
+		this.rulerEndValue = rulerEndValue;
+		this.rulerBaseValue = rulerBaseValue;
+		this.unitLength = unitLength;
+		this.tickHierarchy = tickHierarchy;
+
+		// The strokes are enumerated by their index in steps of the finest level, so that the values do not
+		// accumulate rounding errors. Only the strokes strictly between the ruler ends have an index.
+		final double step = rulerBaseValue / this.tickHierarchy.getDivision();
+		this.startIndex = rulerStartValue / step;
+		this.firstIndex = (long) Math.floor(this.startIndex + indexTolerance) + 1;
+		this.lastIndex = Math.max(this.firstIndex - 1, (long) Math.ceil(rulerEndValue / step - indexTolerance) - 1);
+		this.index = this.firstIndex - 2;
+	}
+
+	/**
+	 * Moves to the next stroke.
+	 *
+	 * @return false if there are no more strokes
+	 */
+	public boolean next()
+	{
+		if (this.finished) return false;
+
+		this.index++;
+		if (this.index < this.firstIndex)
+		{
+			this.position = 0;
+			this.level = RulerLayout.MAJOR_LEVEL;
+			this.value = this.rulerStartValue;
+		}
+		else if (this.index <= this.lastIndex)
+		{
+			final int division = this.tickHierarchy.getDivision();
+			final double stepLength = this.rulerBaseValue / division * this.unitLength;
+			this.position = (this.index - this.startIndex) * stepLength;
+			this.level = this.tickHierarchy.getLevel(this.index);
+			this.value = this.level == RulerLayout.MAJOR_LEVEL
+					? majorValue(this.index / division, this.rulerBaseValue)
+					: this.index * (this.rulerBaseValue / division);
+		}
+		else
+		{
+			this.position = (this.rulerEndValue - this.rulerStartValue) * this.unitLength;
+			this.level = RulerLayout.MAJOR_LEVEL;
+			this.value = this.rulerEndValue;
+			this.finished = true;
+		}
+		return true;
+	}
+
+	/**
+	 * @return The position of the current stroke, relative to the start of the ruler
+	 */
+	public double getPosition()
+	{
+		return this.position;
+	}
+
+	/**
+	 * @return The level of the current stroke. The major level is 0.
+	 */
+	public int getLevel()
+	{
+		return this.level;
+	}
+
+	/**
+	 * @return true if the current stroke is a major stroke. Only major strokes are labeled.
+	 */
+	public boolean isMajor()
+	{
+		return this.level == RulerLayout.MAJOR_LEVEL;
+	}
+
+	/**
+	 * @return The value of the current stroke. The value of a major stroke is exact, see
+	 *   {@link #majorValue(long, double)}.
+	 */
+	public double getValue()
+	{
+		return this.value;
+	}
+
+	/**
+	 * @return The length of the current stroke relative to the length of the major strokes
+	 */
+	public double getLengthRatio()
+	{
+		return this.tickHierarchy.getLengthRatio(this.level);
+	}
+
+	/**
+	 * @return The number of strokes, including the strokes at both ends
+	 */
+	public long getTickCount()
+	{
+		return this.lastIndex - this.firstIndex + 3;
+	}
+
+	/**
+	 * @return The number of steps per field on the finest level, see {@link TickHierarchy#getDivision()}
+	 */
+	public int getDivision()
+	{
+		return this.tickHierarchy.getDivision();
+	}
+
+	/**
+	 * @return The start value in steps of the finest level
+	 */
+	double getStartIndex()
+	{
+		return this.startIndex;
+	}
+
+	/**
+	 * @return The index of the first stroke between the ruler ends, in steps of the finest level counted from
+	 *   value 0
+	 */
+	long getFirstIndex()
+	{
+		return this.firstIndex;
+	}
+
+	/**
+	 * Returns the value of a major stroke. Fractional base values are divided instead of multiplied, so that
+	 * the labels do not show rounding errors (3 * 0.1 != 0.3, but 3 / 10.0 == 0.3).
+	 *
+	 * @param fieldIndex The index of the major stroke, counted from value 0
+	 * @param rulerBaseValue The base value of the ruler
+	 * @return The value
+	 */
+	static double majorValue(final long fieldIndex, final double rulerBaseValue)
+	{
+		if (rulerBaseValue >= 1) return fieldIndex * rulerBaseValue;
+		return fieldIndex / Math.rint(1 / rulerBaseValue);
+	}
+
+}
@@ -0,0 +1,63 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.thomasvoecking.screenruler.config.Translucency;
+
+/**
+ * Decides how the opacity of a window is applied on a display.
+ *
+ * @author thomas
+ */
+final class TranslucencyProbe
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(TranslucencyProbe.class);
+
+	/**
+	 * Utility class
+	 */
+	private TranslucencyProbe()
+	{
+		// not instantiable
+	}
+
+	/**
+	 * Resolves the configured translucency for a display.
+	 *
+	 * @param translucency The configured translucency
+	 * @param graphicsConfiguration The graphics configuration of the window
+	 * @return {@link Translucency#PERPIXEL} if it has been configured or {@link Translucency#AUTO} is configured,
+	 *   and the display supports it. {@link Translucency#UNIFORM} otherwise.
+	 */
+	static Translucency resolve(final Translucency translucency, final GraphicsConfiguration graphicsConfiguration)
+	{
+		if (translucency == Translucency.UNIFORM) return Translucency.UNIFORM;
+
+		final GraphicsDevice device = graphicsConfiguration.getDevice();
+		if (device.isWindowTranslucencySupported(GraphicsDevice.WindowTranslucency.PERPIXEL_TRANSLUCENT)
+				&& graphicsConfiguration.isTranslucencyCapable())
+		{
+			log.debug("Per-pixel translucency is supported by " + device.getIDstring());
+			return Translucency.PERPIXEL;
+		}
+
+		if (translucency == Translucency.PERPIXEL)
+		{
+			log.warn("Per-pixel translucency is not supported by " + device.getIDstring() + ", using a uniform opacity");
+		}
+		else
+		{
+			log.debug("Per-pixel translucency is not supported by " + device.getIDstring());
+		}
+		return Translucency.UNIFORM;
+	}
+
+}
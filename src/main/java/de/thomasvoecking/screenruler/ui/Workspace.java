@@ -0,0 +1,450 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.EventQueue;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.thomasvoecking.screenruler.automation.RulerController;
+import de.thomasvoecking.screenruler.config.ScreenrulerSettings;
+import de.thomasvoecking.screenruler.config.SettingsListener;
+import de.thomasvoecking.screenruler.config.SettingsSource;
+import de.thomasvoecking.screenruler.event.BackPressure;
+import de.thomasvoecking.screenruler.event.EventBus;
+import de.thomasvoecking.screenruler.event.RulerEvent;
+import de.thomasvoecking.screenruler.event.Subscription;
+import de.thomasvoecking.screenruler.journal.Measurement;
+import de.thomasvoecking.screenruler.journal.MeasurementJournal;
+
+/**
+ * Manages all open rulers of the application.
+ *
+ * The rulers share one {@link FrameClock} for dragging and repainting, one {@link RepaintScheduler}, one
+ * {@link LabelCache}, the images of the {@link ImageRegistry} and the settings. An additional ruler only costs
+ * its own layout and layer images.
+ *
+ * All changes of the rulers are published as {@link RulerEvent}s on an {@link EventBus}. The publishing only
+ * queues the events, so the subscribers, like the {@link MeasurementJournal}, never run on the event dispatch
+ * thread. The state of the rulers is also mirrored into snapshots, so it can be queried and changed through the
+ * {@link RulerController} interface from other threads.
+ *
+ * @author thomas
+ */
+public class Workspace implements SettingsListener, RulerController
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(Workspace.class);
+
+	/**
+	 * The maximum number of labels in the shared cache
+	 */
+	private static final int labelCacheSize = 2048;
+
+	/**
+	 * The offset in px between the initial positions of two rulers
+	 */
+	private static final int cascadeOffset = 30;
+
+	/**
+	 * The capacity of the event queue of the journal
+	 */
+	private static final int journalQueueCapacity = 1024;
+
+	/**
+	 * The maximum time in ms to wait for the subscribers when the application exits
+	 */
+	private static final int exitTimeout = 2000;
+
+	/**
+	 * Provides the settings of all rulers
+	 */
+	private final SettingsSource settingsSource;
+
+	/**
+	 * The clock of all rulers
+	 */
+	private final FrameClock frameClock;
+
+	/**
+	 * Issues the repaints of all rulers
+	 */
+	private final RepaintScheduler repaintScheduler;
+
+	/**
+	 * The cache for the labels of all rulers
+	 */
+	private final LabelCache labelCache = new LabelCache(labelCacheSize);
+
+	/**
+	 * The open rulers
+	 */
+	private final List<ScreenrulerFrame> frames = new ArrayList<ScreenrulerFrame>();
+
+	/**
+	 * The index of each open ruler within this session
+	 */
+	private final Map<ScreenrulerFrame, Integer> rulerIndices = new HashMap<ScreenrulerFrame, Integer>();
+
+	/**
+	 * The number of rulers that have been created. Used for the initial positions and the ruler indices.
+	 */
+	private int createdCount;
+
+	/**
+	 * The latest state of each open ruler by its index
+	 */
+	private final Map<Integer, Measurement> snapshots = new ConcurrentSkipListMap<Integer, Measurement>();
+
+	/**
+	 * Publishes all changes of the rulers
+	 */
+	private final EventBus eventBus = new EventBus();
+
+	/**
+	 * Publishes the changes of the bounds of the rulers
+	 */
+	private final ComponentAdapter boundsListener = new ComponentAdapter()
+	{
+		@Override
+		public void componentMoved(final ComponentEvent e)
+		{
+			Workspace.this.publish((ScreenrulerFrame) e.getComponent(), RulerEvent.Type.MOVED);
+		}
+
+		@Override
+		public void componentResized(final ComponentEvent e)
+		{
+			Workspace.this.publish((ScreenrulerFrame) e.getComponent(), RulerEvent.Type.RESIZED);
+		}
+	};
+
+	/**
+	 * The subscription of the journal. Null if the measurements are not recorded.
+	 */
+	private Subscription journalSubscription;
+
+	/**
+	 * Records the measurements. Null if they are not recorded.
+	 */
+	private JournalRecorder journalRecorder;
+
+	/**
+	 * Identifies this session in the journal
+	 */
+	private final long sessionId = System.currentTimeMillis();
+
+	/**
+	 * Constructor
+	 *
+	 * @param settingsSource Provides the settings of all rulers
+	 */
+	public Workspace(final SettingsSource settingsSource)
+	{
+		this.settingsSource = settingsSource;
+		this.frameClock = new FrameClock(getFrameRate(settingsSource.get()));
+		this.repaintScheduler = new RepaintScheduler(this.frameClock);
+		settingsSource.addSettingsListener(this);
+	}
+
+	/**
+	 * Creates a new ruler. The ruler is not visible until {@link ScreenrulerFrame#setVisible(boolean)} is called.
+	 *
+	 * @param unitName The name of the unit (like "cm")
+	 * @param rulerStartValue The start value
+	 * @param rulerEndValue The end value
+	 * @param orientation The orientation
+	 * @return The frame of the new ruler
+	 */
+	public ScreenrulerFrame createRuler(final String unitName, final double rulerStartValue, final double rulerEndValue,
+			final Orientation orientation)
+	{
+		final ScreenrulerFrame frame = new ScreenrulerFrame(this,
+				new Ruler(unitName, rulerStartValue, rulerEndValue, this.labelCache), orientation);
+		frame.setLocation(this.createdCount * cascadeOffset, this.createdCount * cascadeOffset);
+		this.rulerIndices.put(frame, Integer.valueOf(this.createdCount));
+		this.createdCount++;
+		this.frames.add(frame);
+		frame.addComponentListener(this.boundsListener);
+		this.publish(frame, RulerEvent.Type.CREATED);
+		log.debug("Created ruler " + this.frames.size() + ": " + rulerStartValue + " - " + rulerEndValue + " " + unitName
+				+ ", " + orientation);
+		return frame;
+	}
+
+	/**
+	 * Closes a ruler. The application exits when the last ruler is closed.
+	 *
+	 * @param frame The frame of the ruler
+	 */
+	void close(final ScreenrulerFrame frame)
+	{
+		// The last ruler stays open in the layout that is restored on the next start
+		final boolean last = this.frames.size() == 1;
+		this.publish(frame, RulerEvent.Type.CLOSED, !last);
+
+		frame.removeComponentListener(this.boundsListener);
+		this.frames.remove(frame);
+		this.rulerIndices.remove(frame);
+		this.repaintScheduler.cancel(frame);
+		this.settingsSource.removeSettingsListener(frame);
+		frame.dispose();
+		if (last)
+		{
+			log.debug("Last ruler closed");
+			this.eventBus.close(exitTimeout);
+			if (this.journalRecorder != null) this.journalRecorder.close();
+			System.exit(0);
+		}
+	}
+
+	/**
+	 * Sets the journal that receives the measurements. Should be called before the rulers are created. The
+	 * journal must be open and is closed when the last ruler is closed.
+	 *
+	 * @param journal The journal. May be null to stop recording.
+	 */
+	public void setJournal(final MeasurementJournal journal)
+	{
+		if (this.journalSubscription != null)
+		{
+			this.journalSubscription.cancel();
+			this.journalSubscription = null;
+			this.journalRecorder = null;
+		}
+		if (journal == null) return;
+
+		// The journal only needs the latest state of each ruler, and a stalled disk must not stall dragging. A drag 
+		// occupies at most three slots per ruler, so only hundreds of drags during a stall fill the queue.
+		this.journalRecorder = new JournalRecorder(journal);
+		this.journalSubscription = this.eventBus.subscribe("journal", this.journalRecorder, BackPressure.COALESCE,
+				journalQueueCapacity);
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.automation.RulerController#getEventBus()
+	 */
+	@Override
+	public EventBus getEventBus()
+	{
+		return this.eventBus;
+	}
+
+	/**
+	 * @param frame The frame of a ruler
+	 * @param closed true if the ruler is closed
+	 * @return The current state of the ruler
+	 */
+	private Measurement createMeasurement(final ScreenrulerFrame frame, final boolean closed)
+	{
+		final Ruler ruler = frame.getRuler();
+		return new Measurement(this.sessionId, this.rulerIndices.get(frame).intValue(), System.currentTimeMillis(),
+				frame.getBounds(), frame.getOrientation() == Orientation.VERTICAL, ruler.getUnitName(),
+				ruler.getRulerStartValue(), ruler.getRulerEndValue(), closed);
+	}
+
+	/**
+	 * Updates the snapshot of a ruler and publishes the change.
+	 *
+	 * @param frame The frame of the ruler
+	 * @param type The kind of change
+	 */
+	void publish(final ScreenrulerFrame frame, final RulerEvent.Type type)
+	{
+		this.publish(frame, type, type == RulerEvent.Type.CLOSED);
+	}
+
+	/**
+	 * Updates the snapshot of a ruler and publishes the change.
+	 *
+	 * @param frame The frame of the ruler
+	 * @param type The kind of change
+	 * @param closed The closed flag of the measurement
+	 */
+	private void publish(final ScreenrulerFrame frame, final RulerEvent.Type type, final boolean closed)
+	{
+		// Component events may still be delivered after the ruler has been closed
+		if (!this.rulerIndices.containsKey(frame)) return;
+
+		final Measurement measurement = this.createMeasurement(frame, closed);
+		if (type == RulerEvent.Type.CLOSED) this.snapshots.remove(Integer.valueOf(measurement.getRulerIndex()));
+		else this.snapshots.put(Integer.valueOf(measurement.getRulerIndex()), measurement);
+
+		this.eventBus.publish(new RulerEvent(type, measurement));
+	}
+
+	/**
+	 * @param rulerIndex The index of a ruler
+	 * @return The frame of the ruler. Null if it has been closed.
+	 */
+	private ScreenrulerFrame getFrame(final int rulerIndex)
+	{
+		for (final Map.Entry<ScreenrulerFrame, Integer> entry : this.rulerIndices.entrySet())
+		{
+			if (entry.getValue().intValue() == rulerIndex) return entry.getKey();
+		}
+		return null;
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.automation.RulerController#getMeasurements()
+	 */
+	@Override
+	public List<Measurement> getMeasurements()
+	{
+		return new ArrayList<Measurement>(this.snapshots.values());
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.automation.RulerController#getMeasurement(int)
+	 */
+	@Override
+	public Measurement getMeasurement(final int rulerIndex)
+	{
+		return this.snapshots.get(Integer.valueOf(rulerIndex));
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.automation.RulerController#setRulerRange(int, double, double)
+	 */
+	@Override
+	public void setRulerRange(final int rulerIndex, final double rulerStartValue, final double rulerEndValue)
+	{
+		// Checked here, the ruler would only fail on the event dispatch thread
+		this.checkRulerIndex(rulerIndex);
+		checkRulerRange(rulerStartValue, rulerEndValue);
+
+		EventQueue.invokeLater(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				final ScreenrulerFrame frame = Workspace.this.getFrame(rulerIndex);
+				if (frame == null) return;
+				frame.setRulerRange(rulerStartValue, rulerEndValue);
+				Workspace.this.publish(frame, RulerEvent.Type.RANGE_CHANGED);
+			}
+		});
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.automation.RulerController#setRulerBounds(int, java.awt.Rectangle)
+	 */
+	@Override
+	public void setRulerBounds(final int rulerIndex, final Rectangle bounds)
+	{
+		this.checkRulerIndex(rulerIndex);
+		if (bounds.isEmpty()) throw new IllegalArgumentException("Param \"bounds\" must not be empty, but is " + bounds);
+
+		final Rectangle newBounds = new Rectangle(bounds);
+		EventQueue.invokeLater(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				final ScreenrulerFrame frame = Workspace.this.getFrame(rulerIndex);
+				// The change is published by the bounds listener
+				if (frame != null) frame.setBounds(newBounds);
+			}
+		});
+	}
+
+	/**
+	 * @param rulerIndex The index of a ruler
+	 * @throws IllegalArgumentException if there is no open ruler with this index.
+	 */
+	private void checkRulerIndex(final int rulerIndex)
+	{
+		if (!this.snapshots.containsKey(Integer.valueOf(rulerIndex)))
+			throw new IllegalArgumentException("Ruler " + rulerIndex + " does not exist");
+	}
+
+	/**
+	 * Checks a ruler range before it is passed to the event dispatch thread. The layout of a ruler needs finite
+	 * values and a width that can be zoomed, see {@link RangeAnimator#maximumRangeWidth}.
+	 *
+	 * @param rulerStartValue The start value
+	 * @param rulerEndValue The end value
+	 * @throws IllegalArgumentException if the range is invalid.
+	 */
+	public static void checkRulerRange(final double rulerStartValue, final double rulerEndValue)
+	{
+		if (!(rulerStartValue >= 0))
+			throw new IllegalArgumentException("Param \"rulerStartValue\" must be >= 0, but is " + rulerStartValue);
+		if (!(rulerStartValue < rulerEndValue))
+			throw new IllegalArgumentException("Param \"rulerEndValue\" must be > \"rulerStartValue\", but rulerStartValue is " 
+					+ rulerStartValue + " and rulerEndValue is " + rulerEndValue);
+		if (!(rulerEndValue - rulerStartValue <= RangeAnimator.maximumRangeWidth))
+			throw new IllegalArgumentException("Param \"rulerEndValue\" must be at most " + RangeAnimator.maximumRangeWidth 
+					+ " above \"rulerStartValue\", but rulerStartValue is " + rulerStartValue + " and rulerEndValue is " 
+					+ rulerEndValue);
+	}
+
+	/**
+	 * @return The open rulers
+	 */
+	public List<ScreenrulerFrame> getFrames()
+	{
+		return Collections.unmodifiableList(this.frames);
+	}
+
+	/**
+	 * @return Provides the settings of all rulers
+	 */
+	SettingsSource getSettingsSource()
+	{
+		return this.settingsSource;
+	}
+
+	/**
+	 * @return The clock of all rulers
+	 */
+	FrameClock getFrameClock()
+	{
+		return this.frameClock;
+	}
+
+	/**
+	 * @return Issues the repaints of all rulers
+	 */
+	RepaintScheduler getRepaintScheduler()
+	{
+		return this.repaintScheduler;
+	}
+
+	/**
+	 * @see de.thomasvoecking.screenruler.config.SettingsListener#settingsChanged(de.thomasvoecking.screenruler.config.ScreenrulerSettings, de.thomasvoecking.screenruler.config.ScreenrulerSettings)
+	 */
+	@Override
+	public void settingsChanged(final ScreenrulerSettings oldSettings, final ScreenrulerSettings newSettings)
+	{
+		if (oldSettings.getDragFrameRate() != newSettings.getDragFrameRate())
+		{
+			this.frameClock.setFrameRate(getFrameRate(newSettings));
+		}
+	}
+
+	/**
+	 * @param settings The settings
+	 * @return The configured frame rate or the refresh rate of the default screen.
+	 */
+	private static int getFrameRate(final ScreenrulerSettings settings)
+	{
+		if (settings.getDragFrameRate() > 0) return settings.getDragFrameRate();
+		if (GraphicsEnvironment.isHeadless()) return FrameClock.defaultFrameRate;
+		return FrameClock.getRefreshRate(GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice());
+	}
+
+}
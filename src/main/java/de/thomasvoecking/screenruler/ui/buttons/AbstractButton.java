@@ -2,10 +2,8 @@ package de.thomasvoecking.screenruler.ui.buttons;
 
 import java.awt.Graphics;
 import java.awt.Rectangle;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
 
-import javax.imageio.ImageIO;
+import de.thomasvoecking.screenruler.ui.ImageRegistry;
 
 /**
  * Abstract button implementation
@@ -19,12 +17,12 @@ public abstract class AbstractButton
 	/**
 	 * The image that represents this button
 	 */
-	private final BufferedImage image;	
+	private final ImageRegistry.Sprite image;	
 	
 	/**
 	 * The image that represents this button in mouseover state
 	 */
-	private final BufferedImage imageMouseover;	
+	private final ImageRegistry.Sprite imageMouseover;	
 	
 	/**
 	 * Indicates that this button is in mouseover state
@@ -44,22 +42,14 @@ public abstract class AbstractButton
 	}
 	
 	/**
-	 * Loads an image
+	 * Registers an image. The image is decoded on first paint or by the preloading at startup.
 	 * 
 	 * @param path Path to the image
-	 * @return The image
+	 * @return The sprite of the image
 	 */
-	private BufferedImage loadImage(final String path)
+	private ImageRegistry.Sprite loadImage(final String path)
 	{
-		try 
-		{
-			return ImageIO.read(ClassLoader.getSystemResource(path));
-		} 
-		catch (final IOException e) 
-		{
-			throw new RuntimeException(
-					"Resource \"" + path + "\" could not be read.", e);
-		}		
+		return ImageRegistry.getDefault().getSprite(path);
 	}
 	
 	/**
@@ -70,11 +60,9 @@ public abstract class AbstractButton
 	 */
 	public void paint(final Graphics graphics, final Rectangle bounds)
 	{
-		graphics.drawImage(this.mouseOver ? this.imageMouseover : this.image,  
-				(int) bounds.getX(), (int) bounds.getY(), 
-				(int) (bounds.getX() + bounds.getWidth()), 
-				(int) (bounds.getY() + bounds.getHeight()), 
-				0, 0, this.image.getWidth(null), this.image.getHeight(null), null);
+		final ImageRegistry.Sprite sprite = this.mouseOver ? this.imageMouseover : this.image;
+		graphics.drawImage(sprite.getImage((int) bounds.getWidth(), (int) bounds.getHeight()), 
+				(int) bounds.getX(), (int) bounds.getY(), null);
 	}
 	
 	/**
@@ -90,4 +78,12 @@ public abstract class AbstractButton
 		return stateChanged;
 	}
 	
+	/**
+	 * @return true if this button is in mouseover state
+	 */
+	public boolean isMouseOver()
+	{
+		return this.mouseOver;
+	}
+	
 }
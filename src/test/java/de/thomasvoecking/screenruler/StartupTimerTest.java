@@ -0,0 +1,54 @@
+package de.thomasvoecking.screenruler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+
+/**
+ * Testcases for {@link StartupTimer}.
+ * 
+ * @author thomas
+ */
+public class StartupTimerTest 
+{
+
+	/**
+	 * Checks that overlapping phases are recorded and printed in the order they have been started.
+	 */
+	@Test
+	public void testPhases()
+	{
+		final StartupTimer startupTimer = new StartupTimer();
+		startupTimer.begin("config");
+		startupTimer.begin("images");
+		startupTimer.end("config");
+		startupTimer.begin("first paint");
+		
+		Assert.assertTrue(startupTimer.getDurationNanos("config") >= 0);
+		Assert.assertEquals(-1, startupTimer.getDurationNanos("images"));
+		Assert.assertEquals(-1, startupTimer.getDurationNanos("unknown"));
+		startupTimer.end("images");
+		Assert.assertTrue(startupTimer.getDurationNanos("images") >= startupTimer.getDurationNanos("config"));
+		
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		startupTimer.print(new PrintStream(out));
+		final String table = out.toString();
+		Assert.assertTrue(table, table.indexOf("jvm") < table.indexOf("config"));
+		Assert.assertTrue(table, table.indexOf("config") < table.indexOf("images"));
+		Assert.assertTrue(table, table.indexOf("images") < table.indexOf("first paint"));
+	}
+	
+	/**
+	 * Checks that phases can only be ended after they have been started.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testEndWithoutBegin()
+	{
+		new StartupTimer().end("config");
+	}
+	
+}
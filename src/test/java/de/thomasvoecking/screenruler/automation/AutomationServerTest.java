@@ -0,0 +1,340 @@
+package de.thomasvoecking.screenruler.automation;
+
+import java.awt.Rectangle;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+import de.thomasvoecking.screenruler.event.EventBus;
+import de.thomasvoecking.screenruler.event.RulerEvent;
+import de.thomasvoecking.screenruler.journal.Measurement;
+import de.thomasvoecking.screenruler.ui.Workspace;
+
+
+/**
+ * Testcases for {@link AutomationServer}.
+ *
+ * @author thomas
+ */
+public class AutomationServerTest
+{
+
+	/**
+	 * The maximum time in ms to wait for a line
+	 */
+	private static final int readTimeout = 5000;
+
+	/**
+	 * The served rulers
+	 */
+	private TestRulerController rulerController;
+
+	/**
+	 * The server
+	 */
+	private AutomationServer server;
+
+	/**
+	 * The open clients
+	 */
+	private final List<Socket> clients = new ArrayList<Socket>();
+
+	/**
+	 * Starts a server for two rulers.
+	 *
+	 * @throws IOException if the server could not be started.
+	 */
+	@Before
+	public void setUp() throws IOException
+	{
+		this.rulerController = new TestRulerController();
+		this.rulerController.change(new Measurement(1, 0, 0, new Rectangle(0, 0, 600, 80), false, "cm", 48, 129, false));
+		this.rulerController.change(new Measurement(1, 1, 0, new Rectangle(0, 100, 80, 600), true, "px", 0, 600, false));
+		this.server = new AutomationServer(this.rulerController, 0);
+		this.server.start();
+	}
+
+	/**
+	 * Stops the server and closes the clients.
+	 *
+	 * @throws IOException if the server could not be stopped.
+	 */
+	@After
+	public void tearDown() throws IOException
+	{
+		for (final Socket client : this.clients) client.close();
+		this.server.close();
+		Assert.assertTrue(this.rulerController.eventBus.getSubscriptions().isEmpty());
+	}
+
+	/**
+	 * Checks the queries.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	@Test
+	public void testQuery() throws IOException
+	{
+		final Socket client = this.connect();
+		final BufferedReader in = reader(client);
+
+		send(client, "LIST\nGET 1\n");
+		Assert.assertEquals("RULER 0 0 0 600 80 horizontal 48.0 129.0 cm", in.readLine());
+		Assert.assertEquals("RULER 1 0 100 80 600 vertical 0.0 600.0 px", in.readLine());
+		Assert.assertEquals("END", in.readLine());
+		Assert.assertEquals("RULER 1 0 100 80 600 vertical 0.0 600.0 px", in.readLine());
+
+		// A request may arrive in several parts
+		send(client, "GE");
+		send(client, "T 5\nget x\nFOO\n");
+		Assert.assertEquals("ERROR Ruler 5 does not exist", in.readLine());
+		Assert.assertTrue(in.readLine().startsWith("ERROR"));
+		Assert.assertEquals("ERROR Unknown request: FOO", in.readLine());
+	}
+
+	/**
+	 * Checks that changes are passed to the controller.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	@Test
+	public void testChange() throws IOException
+	{
+		final Socket client = this.connect();
+		final BufferedReader in = reader(client);
+
+		send(client, "SET 0 10 20.5\nMOVE 1 5 6 70 500\nSET 0 20 10\n");
+		Assert.assertEquals("OK", in.readLine());
+		Assert.assertEquals("OK", in.readLine());
+		Assert.assertTrue(in.readLine().startsWith("ERROR"));
+
+		final Measurement ruler0 = this.rulerController.getMeasurement(0);
+		Assert.assertEquals(10, ruler0.getRulerStartValue(), 0);
+		Assert.assertEquals(20.5, ruler0.getRulerEndValue(), 0);
+		Assert.assertEquals(new Rectangle(5, 6, 70, 500), this.rulerController.getMeasurement(1).getBounds());
+	}
+
+	/**
+	 * Checks that ranges the layout can not handle are rejected and do not change the ruler.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	@Test
+	public void testInvalidRange() throws IOException
+	{
+		final Socket client = this.connect();
+		final BufferedReader in = reader(client);
+
+		send(client, "SET 0 0 Infinity\nSET 0 NaN 10\nSET 0 10 2e9\nSET 0 1e300 Infinity\nSET 0 0 1e9\n");
+		for (int i = 0; i < 4; i++) Assert.assertTrue(in.readLine().startsWith("ERROR Param \""));
+		Assert.assertEquals("OK", in.readLine());
+
+		final Measurement ruler0 = this.rulerController.getMeasurement(0);
+		Assert.assertEquals(0, ruler0.getRulerStartValue(), 0);
+		Assert.assertEquals(1e9, ruler0.getRulerEndValue(), 0);
+	}
+
+	/**
+	 * Checks that all subscribers receive the changes, and that the changes of a ruler are coalesced until they
+	 * are sent.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	@Test
+	public void testSubscribe() throws IOException
+	{
+		final List<BufferedReader> subscribers = new ArrayList<BufferedReader>();
+		for (int i = 0; i < 20; i++)
+		{
+			final Socket client = this.connect();
+			send(client, "SUBSCRIBE\n");
+			subscribers.add(reader(client));
+		}
+		final Socket unsubscribed = this.connect();
+		send(unsubscribed, "SUBSCRIBE\nUNSUBSCRIBE\n");
+		final BufferedReader unsubscribedIn = reader(unsubscribed);
+		Assert.assertEquals("OK", unsubscribedIn.readLine());
+		Assert.assertEquals("OK", unsubscribedIn.readLine());
+		for (final BufferedReader in : subscribers) Assert.assertEquals("OK", in.readLine());
+
+		// A drag at a high frame rate
+		final int frames = 500;
+		for (int i = 1; i <= frames; i++)
+		{
+			this.rulerController.change(new Measurement(1, 0, i, new Rectangle(i, 0, 600, 80), false, "cm", 48, 129, false));
+		}
+		this.rulerController.change(new Measurement(1, 1, 0, new Rectangle(0, 100, 80, 600), true, "px", 0, 600, true));
+
+		for (final BufferedReader in : subscribers)
+		{
+			int events = 0;
+			int lastX = 0;
+			boolean closed = false;
+			while (lastX < frames || !closed)
+			{
+				final String[] event = in.readLine().split(" ");
+				if ("CLOSED".equals(event[0]))
+				{
+					Assert.assertEquals("1", event[1]);
+					closed = true;
+				}
+				else
+				{
+					Assert.assertEquals("EVENT", event[0]);
+					final int x = Integer.parseInt(event[2]);
+					Assert.assertTrue(x > lastX);
+					lastX = x;
+					events++;
+				}
+			}
+			Assert.assertTrue(events <= frames);
+		}
+
+		// Events are written in batches, not one write per event and subscriber
+		Assert.assertTrue(this.server.getWriteCount() < subscribers.size() * frames);
+
+		send(unsubscribed, "GET 0\n");
+		Assert.assertEquals("RULER 0 500 0 600 80 horizontal 48.0 129.0 cm", unsubscribedIn.readLine());
+	}
+
+	/**
+	 * Checks that a connection is closed if a request is too long.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	@Test
+	public void testLongRequest() throws IOException
+	{
+		final Socket client = this.connect();
+		final StringBuilder request = new StringBuilder("GET ");
+		while (request.length() < 2000) request.append('0');
+		send(client, request.toString());
+		try
+		{
+			Assert.assertNull(reader(client).readLine());
+		}
+		catch (final SocketException e)
+		{
+			// A reset also means that the connection has been closed
+		}
+	}
+
+	/**
+	 * @return A client connected to the server
+	 * @throws IOException if the client could not connect.
+	 */
+	private Socket connect() throws IOException
+	{
+		final Socket client = new Socket(InetAddress.getLoopbackAddress(), this.server.getPort());
+		client.setSoTimeout(readTimeout);
+		this.clients.add(client);
+		return client;
+	}
+
+	/**
+	 * @param client A client
+	 * @return Reads the lines sent to the client
+	 * @throws IOException if the stream could not be opened.
+	 */
+	private static BufferedReader reader(final Socket client) throws IOException
+	{
+		return new BufferedReader(new InputStreamReader(client.getInputStream(), "UTF-8"));
+	}
+
+	/**
+	 * @param client A client
+	 * @param text Sent by the client
+	 * @throws IOException if the text could not be sent.
+	 */
+	private static void send(final Socket client, final String text) throws IOException
+	{
+		final OutputStream out = client.getOutputStream();
+		out.write(text.getBytes("UTF-8"));
+		out.flush();
+	}
+
+	/**
+	 * A controller that applies all changes immediately
+	 *
+	 * @author thomas
+	 */
+	private static class TestRulerController implements RulerController
+	{
+
+		/**
+		 * The state of the rulers
+		 */
+		private final Map<Integer, Measurement> measurements = new ConcurrentSkipListMap<Integer, Measurement>();
+
+		/**
+		 * Publishes the changes
+		 */
+		private final EventBus eventBus = new EventBus();
+
+		/**
+		 * Changes a ruler and publishes the change.
+		 *
+		 * @param measurement The new state of the ruler
+		 */
+		void change(final Measurement measurement)
+		{
+			if (measurement.isClosed()) this.measurements.remove(Integer.valueOf(measurement.getRulerIndex()));
+			else this.measurements.put(Integer.valueOf(measurement.getRulerIndex()), measurement);
+			this.eventBus.publish(new RulerEvent(measurement.isClosed() ? RulerEvent.Type.CLOSED : RulerEvent.Type.MOVED,
+					measurement));
+		}
+
+		@Override
+		public List<Measurement> getMeasurements()
+		{
+			return new ArrayList<Measurement>(this.measurements.values());
+		}
+
+		@Override
+		public Measurement getMeasurement(final int rulerIndex)
+		{
+			return this.measurements.get(Integer.valueOf(rulerIndex));
+		}
+
+		@Override
+		public void setRulerRange(final int rulerIndex, final double rulerStartValue, final double rulerEndValue)
+		{
+			final Measurement old = this.getMeasurement(rulerIndex);
+			if (old == null) throw new IllegalArgumentException("Ruler " + rulerIndex + " does not exist");
+			Workspace.checkRulerRange(rulerStartValue, rulerEndValue);
+			this.change(new Measurement(old.getSessionId(), rulerIndex, old.getTimestamp() + 1, old.getBounds(),
+					old.isVertical(), old.getUnitName(), rulerStartValue, rulerEndValue, false));
+		}
+
+		@Override
+		public void setRulerBounds(final int rulerIndex, final Rectangle bounds)
+		{
+			final Measurement old = this.getMeasurement(rulerIndex);
+			if (old == null) throw new IllegalArgumentException("Ruler " + rulerIndex + " does not exist");
+			this.change(new Measurement(old.getSessionId(), rulerIndex, old.getTimestamp() + 1, bounds,
+					old.isVertical(), old.getUnitName(), old.getRulerStartValue(), old.getRulerEndValue(), false));
+		}
+
+		@Override
+		public EventBus getEventBus()
+		{
+			return this.eventBus;
+		}
+
+	}
+
+}
@@ -0,0 +1,71 @@
+package de.thomasvoecking.screenruler.capture;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+
+/**
+ * Testcases for {@link EdgeDetector}.
+ * 
+ * @author thomas
+ */
+public class EdgeDetectorTest 
+{
+
+	/**
+	 * The edges in "edges.png": a dark box from 100 to 180 and a gray box from 250 to 300. The faint lines 
+	 * in the background are no edges.
+	 */
+	private static final int[] expectedEdges = { 100, 180, 250, 300 };
+	
+	/**
+	 * Checks the edges of a screenshot along the x axis.
+	 * 
+	 * @throws Exception if the screenshot could not be read.
+	 */
+	@Test
+	public void testHorizontalStrip() throws Exception
+	{
+		final ImageScreenSource screen = ImageScreenSource.read(ClassLoader.getSystemResource("edges.png"));
+		final Rectangle strip = new Rectangle(0, 20, 400, 6);
+		final int[] pixels = new int[strip.width * strip.height];
+		screen.capture(strip, pixels, 0, strip.width);
+		
+		final int[] edges = new EdgeDetector(32).findEdges(pixels, 0, strip.width, 1, strip.height, strip.width);
+		Assert.assertEquals(Arrays.toString(edges), Arrays.toString(expectedEdges));
+	}
+	
+	/**
+	 * Checks that a strip along the y axis gives the same edges as the transposed strip along the x axis, 
+	 * also when it is long enough to be split into several tasks.
+	 */
+	@Test
+	public void testVerticalStrip()
+	{
+		final int length = 5000;
+		final int depth = 4;
+		final int[] rows = new int[length * depth];
+		final int[] columns = new int[length * depth];
+		for (int i = 0; i < length; i++)
+		{
+			final int rgb = (i / 100) % 2 == 0 ? 0xffffff : 0x202020;
+			for (int j = 0; j < depth; j++)
+			{
+				rows[j * length + i] = rgb;
+				columns[i * depth + j] = rgb;
+			}
+		}
+		
+		final EdgeDetector edgeDetector = new EdgeDetector(32);
+		final int[] edges = edgeDetector.findEdges(rows, 0, length, 1, depth, length);
+		Assert.assertEquals(length / 100 - 1, edges.length);
+		Assert.assertEquals(100, edges[0]);
+		Assert.assertEquals(length - 100, edges[edges.length - 1]);
+		Assert.assertTrue(Arrays.equals(edges, edgeDetector.findEdges(columns, 0, length, depth, depth, 1)));
+	}
+	
+}
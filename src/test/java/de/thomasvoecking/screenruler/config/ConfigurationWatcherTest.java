@@ -0,0 +1,103 @@
+package de.thomasvoecking.screenruler.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+
+/**
+ * Testcases for {@link ConfigurationWatcher}.
+ * 
+ * @author thomas
+ */
+public class ConfigurationWatcherTest 
+{
+
+	/**
+	 * The directory of the watched configuration
+	 */
+	private File directory;
+	
+	/**
+	 * The watched configuration
+	 */
+	private File configurationFile;
+	
+	/**
+	 * Copies the shipped configuration into a temporary directory.
+	 * 
+	 * @throws IOException if the directory could not be created.
+	 * @throws ConfigurationException if the configuration could not be copied.
+	 */
+	@Before
+	public void setUp() throws IOException, ConfigurationException
+	{
+		this.directory = File.createTempFile("screenruler", "");
+		Assert.assertTrue(this.directory.delete());
+		Assert.assertTrue(this.directory.mkdir());
+		this.configurationFile = new File(this.directory, "configuration.xml");
+		new XMLConfiguration("config/configuration.xml").save(this.configurationFile);
+	}
+	
+	/**
+	 * Removes the temporary directory.
+	 */
+	@After
+	public void tearDown()
+	{
+		this.configurationFile.delete();
+		this.directory.delete();
+	}
+	
+	/**
+	 * Checks that a changed configuration is swapped in and an invalid one is ignored.
+	 * 
+	 * @throws Exception if the test fails.
+	 */
+	@Test
+	public void testReload() throws Exception
+	{
+		final SettingsSource settingsSource = new SettingsSource(
+				ScreenrulerSettings.fromConfiguration(new XMLConfiguration(this.configurationFile)));
+		final CountDownLatch changed = new CountDownLatch(1);
+		settingsSource.addSettingsListener(new SettingsListener() 
+		{
+			@Override
+			public void settingsChanged(final ScreenrulerSettings oldSettings, final ScreenrulerSettings newSettings) 
+			{
+				changed.countDown();
+			}
+		});
+		
+		final ConfigurationWatcher watcher = new ConfigurationWatcher(this.configurationFile, settingsSource);
+		watcher.start();
+		try
+		{
+			final XMLConfiguration configuration = new XMLConfiguration(this.configurationFile);
+			
+			configuration.setProperty("screenrulerFrame.window[@opacity]", "2.0");
+			configuration.save(this.configurationFile);
+			watcher.reload();
+			Assert.assertEquals(0.7f, settingsSource.get().getWindowOpacity(), 0.000001f);
+
+			configuration.setProperty("screenrulerFrame.window[@opacity]", "0.5");
+			configuration.save(this.configurationFile);
+			Assert.assertTrue(changed.await(10, TimeUnit.SECONDS));
+			Assert.assertEquals(0.5f, settingsSource.get().getWindowOpacity(), 0.000001f);
+		}
+		finally
+		{
+			watcher.stop();
+		}
+	}
+	
+}
@@ -0,0 +1,96 @@
+package de.thomasvoecking.screenruler.config;
+
+import java.awt.Rectangle;
+import java.util.Locale;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+
+/**
+ * Testcases for {@link ScreenrulerSettings}.
+ * 
+ * @author thomas
+ */
+public class ScreenrulerSettingsTest 
+{
+
+	/**
+	 * Compiles the shipped configuration.
+	 * 
+	 * @throws ConfigurationException if the configuration could not be read.
+	 */
+	@Test
+	public void testFromConfiguration() throws ConfigurationException
+	{
+		final ScreenrulerSettings settings = ScreenrulerSettings.fromConfiguration(
+				new XMLConfiguration("config/configuration.xml"));
+		
+		Assert.assertEquals(0.7f, settings.getWindowOpacity(), 0.000001f);
+		Assert.assertEquals(600, settings.getWidth());
+		Assert.assertEquals(65, settings.getHeight());
+		Assert.assertEquals(200, settings.getMinWidth());
+		Assert.assertEquals(20, settings.getRulerInset());
+		Assert.assertEquals(new Rectangle(0, 0, 10, 30), settings.getLeftResizeControlBounds());
+		Assert.assertEquals(new Rectangle(590, 0, 10, 30), settings.getRightResizeControlBounds(600));
+		Assert.assertEquals(new Rectangle(20, 0, 560, 65), settings.getRulerBounds(600, 65));
+		Assert.assertEquals(new Rectangle(4, 45, 16, 16), settings.getCloseButtonBounds(65));
+		Assert.assertFalse(settings.isBackgroundRendering());
+		Assert.assertEquals(Translucency.AUTO, settings.getTranslucency());
+	}
+	
+	/**
+	 * Checks that the translucency is read independent of the default locale. In Turkish, "i" is upper-cased 
+	 * to a dotted "İ".
+	 * 
+	 * @throws ConfigurationException if the configuration could not be read.
+	 */
+	@Test
+	public void testTranslucencyInTurkishLocale() throws ConfigurationException
+	{
+		final Locale defaultLocale = Locale.getDefault();
+		Locale.setDefault(new Locale("tr", "TR"));
+		try
+		{
+			final XMLConfiguration configuration = new XMLConfiguration("config/configuration.xml");
+			configuration.setProperty("screenrulerFrame.window[@translucency]", "perpixel");
+			Assert.assertEquals(Translucency.PERPIXEL, ScreenrulerSettings.fromConfiguration(configuration).getTranslucency());
+		}
+		finally
+		{
+			Locale.setDefault(defaultLocale);
+		}
+	}
+	
+	/**
+	 * Checks the validation.
+	 */
+	@Test
+	public void testValidation()
+	{
+		try
+		{
+			new ScreenrulerSettings(1.5f, 600, 65, 200, 10, 30, 0, false, Translucency.AUTO);
+			Assert.fail("Opacity > 1 must be rejected");
+		}
+		catch (final IllegalArgumentException e) { /* expected */ }
+		
+		try
+		{
+			new ScreenrulerSettings(0.7f, 100, 65, 200, 10, 30, 0, false, Translucency.AUTO);
+			Assert.fail("Width < minWidth must be rejected");
+		}
+		catch (final IllegalArgumentException e) { /* expected */ }
+		
+		try
+		{
+			new ScreenrulerSettings(0.7f, 600, 65, 30, 10, 30, 0, false, Translucency.AUTO);
+			Assert.fail("minWidth without space for the ruler must be rejected");
+		}
+		catch (final IllegalArgumentException e) { /* expected */ }
+	}
+	
+}
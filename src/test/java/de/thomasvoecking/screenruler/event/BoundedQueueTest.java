@@ -0,0 +1,111 @@
+package de.thomasvoecking.screenruler.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+
+/**
+ * Testcases for {@link BoundedQueue}.
+ *
+ * @author thomas
+ */
+public class BoundedQueueTest
+{
+
+	/**
+	 * Checks the capacity and the order of the elements over several laps of the ring.
+	 */
+	@Test
+	public void testSingleThreaded()
+	{
+		final BoundedQueue<Integer> queue = new BoundedQueue<Integer>(5);
+		Assert.assertEquals(8, queue.getCapacity());
+		Assert.assertNull(queue.poll());
+
+		int next = 0;
+		for (int lap = 0; lap < 5; lap++)
+		{
+			for (int i = 0; i < 8; i++)
+			{
+				Assert.assertTrue(queue.offer(Integer.valueOf(lap * 8 + i)));
+			}
+			Assert.assertFalse(queue.offer(Integer.valueOf(-1)));
+			Assert.assertEquals(8, queue.size());
+
+			for (int i = 0; i < 8; i++)
+			{
+				Assert.assertEquals(next++, queue.poll().intValue());
+			}
+			Assert.assertNull(queue.poll());
+		}
+	}
+
+	/**
+	 * Checks that every element offered by several producers is polled exactly once, in the order of its
+	 * producer.
+	 *
+	 * @throws InterruptedException if the test is interrupted.
+	 */
+	@Test
+	public void testProducers() throws InterruptedException
+	{
+		final int producerCount = 4;
+		final int elementCount = 100000;
+		final BoundedQueue<int[]> queue = new BoundedQueue<int[]>(64);
+		final CountDownLatch start = new CountDownLatch(1);
+
+		final List<Thread> producers = new ArrayList<Thread>();
+		for (int p = 0; p < producerCount; p++)
+		{
+			final int producer = p;
+			final Thread thread = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						start.await();
+					}
+					catch (final InterruptedException e)
+					{
+						return;
+					}
+					for (int i = 0; i < elementCount; i++)
+					{
+						final int[] element = new int[] { producer, i };
+						while (!queue.offer(element))
+						{
+							Thread.yield();
+						}
+					}
+				}
+			});
+			thread.start();
+			producers.add(thread);
+		}
+
+		start.countDown();
+		final int[] expected = new int[producerCount];
+		int received = 0;
+		while (received < producerCount * elementCount)
+		{
+			final int[] element = queue.poll();
+			if (element == null)
+			{
+				Thread.yield();
+				continue;
+			}
+			Assert.assertEquals(expected[element[0]]++, element[1]);
+			received++;
+		}
+		for (final Thread thread : producers) thread.join();
+		Assert.assertNull(queue.poll());
+	}
+
+}
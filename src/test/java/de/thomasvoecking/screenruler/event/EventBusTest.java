@@ -0,0 +1,240 @@
+package de.thomasvoecking.screenruler.event;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+import de.thomasvoecking.screenruler.journal.Measurement;
+
+
+/**
+ * Testcases for {@link EventBus}.
+ *
+ * @author thomas
+ */
+public class EventBusTest
+{
+
+	/**
+	 * The maximum time in ms to wait for a dispatcher
+	 */
+	private static final int timeout = 5000;
+
+	/**
+	 * The bus
+	 */
+	private final EventBus eventBus = new EventBus();
+
+	/**
+	 * Stops all dispatchers.
+	 */
+	@After
+	public void tearDown()
+	{
+		Assert.assertTrue(this.eventBus.close(timeout));
+	}
+
+	/**
+	 * Checks that events are dropped while a slow listener is busy, and that the publisher does not wait for it.
+	 *
+	 * @throws InterruptedException if the test is interrupted.
+	 */
+	@Test
+	public void testDrop() throws InterruptedException
+	{
+		final BlockingListener listener = new BlockingListener();
+		final Subscription subscription = this.eventBus.subscribe("drop", listener, BackPressure.DROP, 4);
+
+		this.eventBus.publish(event(RulerEvent.Type.MOVED, 0, 0));
+		Assert.assertTrue(listener.started.await(timeout, TimeUnit.MILLISECONDS));
+		for (int x = 1; x < 10; x++)
+		{
+			this.eventBus.publish(event(RulerEvent.Type.MOVED, 0, x));
+		}
+		Assert.assertEquals(5, subscription.getDroppedCount());
+
+		listener.release.countDown();
+		Assert.assertTrue(this.eventBus.close(timeout));
+		Assert.assertEquals(5, subscription.getDeliveredCount());
+		Assert.assertEquals(list(0, 1, 2, 3, 4), listener.getPositions());
+	}
+
+	/**
+	 * Checks that state events of the same ruler and type replace each other while they are queued, and that the
+	 * other events are delivered in order.
+	 *
+	 * @throws InterruptedException if the test is interrupted.
+	 */
+	@Test
+	public void testCoalesce() throws InterruptedException
+	{
+		final BlockingListener listener = new BlockingListener();
+		final Subscription subscription = this.eventBus.subscribe("coalesce", listener, BackPressure.COALESCE, 4);
+
+		this.eventBus.publish(event(RulerEvent.Type.DRAG_STARTED, 0, 0));
+		Assert.assertTrue(listener.started.await(timeout, TimeUnit.MILLISECONDS));
+		for (int x = 1; x <= 1000; x++)
+		{
+			this.eventBus.publish(event(RulerEvent.Type.MOVED, 0, x));
+			this.eventBus.publish(event(RulerEvent.Type.MOVED, 1, -x));
+		}
+		this.eventBus.publish(event(RulerEvent.Type.DRAG_ENDED, 0, 1000));
+
+		// A change after the drag must not replace the queued change of the drag
+		this.eventBus.publish(event(RulerEvent.Type.MOVED, 0, 2000));
+		Assert.assertEquals(0, subscription.getDroppedCount());
+		Assert.assertEquals(1998, subscription.getCoalescedCount());
+
+		listener.release.countDown();
+		Assert.assertTrue(this.eventBus.close(timeout));
+		Assert.assertEquals(list(0, 1000, -1000, 1000, 2000), listener.getPositions());
+		Assert.assertEquals(RulerEvent.Type.DRAG_ENDED, listener.events.get(3).getType());
+	}
+
+	/**
+	 * Checks that the publisher waits for a full queue and no event is lost.
+	 *
+	 * @throws InterruptedException if the test is interrupted.
+	 */
+	@Test
+	public void testBlock() throws InterruptedException
+	{
+		final BlockingListener listener = new BlockingListener();
+		listener.release.countDown();
+		final Subscription subscription = this.eventBus.subscribe("block", listener, BackPressure.BLOCK, 2);
+
+		final List<Integer> expected = new ArrayList<Integer>();
+		for (int x = 0; x < 10000; x++)
+		{
+			this.eventBus.publish(event(RulerEvent.Type.MOVED, 0, x));
+			expected.add(Integer.valueOf(x));
+		}
+
+		Assert.assertTrue(this.eventBus.close(timeout));
+		Assert.assertEquals(0, subscription.getDroppedCount());
+		Assert.assertEquals(expected, listener.getPositions());
+	}
+
+	/**
+	 * Checks that a cancelled subscription receives no further events and a failing listener does not stop its
+	 * dispatcher.
+	 *
+	 * @throws InterruptedException if the test is interrupted.
+	 */
+	@Test
+	public void testCancel() throws InterruptedException
+	{
+		final BlockingListener listener = new BlockingListener()
+		{
+			@Override
+			public void rulerEvent(final RulerEvent event)
+			{
+				super.rulerEvent(event);
+				throw new IllegalStateException("Failing listener");
+			}
+		};
+		listener.release.countDown();
+		final Subscription subscription = this.eventBus.subscribe("cancel", listener, BackPressure.DROP, 16);
+		final BlockingListener otherListener = new BlockingListener();
+		otherListener.release.countDown();
+		final Subscription other = this.eventBus.subscribe("other", otherListener, BackPressure.DROP, 16);
+		Assert.assertEquals(2, this.eventBus.getSubscriptions().size());
+
+		this.eventBus.publish(event(RulerEvent.Type.CREATED, 0, 0));
+		this.eventBus.publish(event(RulerEvent.Type.MOVED, 0, 1));
+		subscription.cancel();
+		Assert.assertEquals(Collections.singletonList(other), this.eventBus.getSubscriptions());
+		this.eventBus.publish(event(RulerEvent.Type.MOVED, 0, 2));
+
+		Assert.assertTrue(subscription.awaitTermination(timeout));
+		Assert.assertEquals(list(0, 1), listener.getPositions());
+		other.cancel();
+		Assert.assertTrue(other.awaitTermination(timeout));
+		Assert.assertEquals(list(0, 1, 2), otherListener.getPositions());
+	}
+
+	/**
+	 * @param type The type
+	 * @param rulerIndex The index of the ruler
+	 * @param x The x position of the ruler
+	 * @return An event
+	 */
+	private static RulerEvent event(final RulerEvent.Type type, final int rulerIndex, final int x)
+	{
+		return new RulerEvent(type, new Measurement(1, rulerIndex, 0, new Rectangle(x, 0, 500, 80), false, "cm", 0, 10,
+				type == RulerEvent.Type.CLOSED));
+	}
+
+	/**
+	 * @param positions Positions
+	 * @return The positions as list
+	 */
+	private static List<Integer> list(final int... positions)
+	{
+		final List<Integer> list = new ArrayList<Integer>();
+		for (final int position : positions) list.add(Integer.valueOf(position));
+		return list;
+	}
+
+	/**
+	 * Records the events and blocks on the first one until it is released.
+	 *
+	 * @author thomas
+	 */
+	private static class BlockingListener implements RulerEventListener
+	{
+
+		/**
+		 * Counted down when the first event is received
+		 */
+		final CountDownLatch started = new CountDownLatch(1);
+
+		/**
+		 * Releases the listener
+		 */
+		final CountDownLatch release = new CountDownLatch(1);
+
+		/**
+		 * The received events
+		 */
+		final List<RulerEvent> events = Collections.synchronizedList(new ArrayList<RulerEvent>());
+
+		@Override
+		public void rulerEvent(final RulerEvent event)
+		{
+			this.events.add(event);
+			this.started.countDown();
+			try
+			{
+				this.release.await();
+			}
+			catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * @return The x positions of the received events
+		 */
+		List<Integer> getPositions()
+		{
+			final List<Integer> positions = new ArrayList<Integer>();
+			synchronized (this.events)
+			{
+				for (final RulerEvent event : this.events) positions.add(Integer.valueOf(event.getMeasurement().getBounds().x));
+			}
+			return positions;
+		}
+
+	}
+
+}
@@ -0,0 +1,159 @@
+package de.thomasvoecking.screenruler.export;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+import de.thomasvoecking.screenruler.ui.Ruler;
+
+
+/**
+ * Testcases for {@link BatchExporter} and {@link RulerSpec}.
+ *
+ * @author thomas
+ */
+public class BatchExporterTest
+{
+
+	/**
+	 * The temporary directory
+	 */
+	private File directory;
+
+	/**
+	 * Creates a temporary directory.
+	 *
+	 * @throws IOException if the directory could not be created.
+	 */
+	@Before
+	public void setUp() throws IOException
+	{
+		this.directory = File.createTempFile("screenruler", "");
+		Assert.assertTrue(this.directory.delete());
+		Assert.assertTrue(this.directory.mkdir());
+	}
+
+	/**
+	 * Removes the temporary directory.
+	 */
+	@After
+	public void tearDown()
+	{
+		for (final File file : this.directory.listFiles()) file.delete();
+		this.directory.delete();
+	}
+
+	/**
+	 * Checks that more images than fit into the work queue are exported and look like the rulers painted
+	 * directly, and that a larger previous file is replaced.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	@Test
+	public void testExport() throws Exception
+	{
+		final FileOutputStream previous = new FileOutputStream(new File(this.directory, "first.png"));
+		previous.write(new byte[100000]);
+		previous.close();
+
+		final StringBuilder specs = new StringBuilder("# Calibration images\n\ncm:48:129:560:65:first.png\n");
+		for (int i = 0; i < 20; i++) specs.append("mm:").append(i).append(":").append(i + 10).append(":").append(200 + 40 * i).append(":40\n");
+		final BatchExporter exporter = new BatchExporter(this.directory, 2);
+		exporter.export(new BufferedReader(new StringReader(specs.toString())));
+
+		Assert.assertEquals(21, exporter.getExportedCount());
+		Assert.assertEquals(0, exporter.getFailedCount());
+		Assert.assertEquals(21, this.directory.listFiles().length);
+		long length = 0;
+		for (final File file : this.directory.listFiles()) length += file.length();
+		Assert.assertEquals(length, exporter.getWrittenBytes());
+
+		assertImageEquals(paint(new Ruler("cm", 48, 129), 560, 65), ImageIO.read(new File(this.directory, "first.png")));
+		assertImageEquals(paint(new Ruler("mm", 19, 29), 960, 40), ImageIO.read(new File(this.directory, "mm_19_29_960x40.png")));
+		assertImageEquals(paint(new Ruler("mm", 0, 10), 200, 40), ImageIO.read(new File(this.directory, "mm_0_10_200x40.png")));
+	}
+
+	/**
+	 * Checks that an invalid spec is reported with its line number.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	@Test
+	public void testInvalidSpec() throws Exception
+	{
+		final BatchExporter exporter = new BatchExporter(this.directory, 1);
+		try
+		{
+			exporter.export(new BufferedReader(new StringReader("cm:0:10:100:20\n# comment\ncm:10:0:100:20\n")));
+			Assert.fail("An end value below the start value must be rejected");
+		}
+		catch (final IllegalArgumentException e)
+		{
+			Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Line 3: "));
+		}
+		Assert.assertEquals(1, exporter.getExportedCount());
+
+		for (final String spec : new String[] { "cm:0:10:100", "cm:0:10:100:20:a.png:b", "cm:0:10:0:20", "cm:0:10:100:-1", "cm:0:x:100:20" })
+		{
+			try
+			{
+				RulerSpec.parse(spec, null);
+				Assert.fail("Spec \"" + spec + "\" must be rejected");
+			}
+			catch (final IllegalArgumentException e) { /* expected */ }
+		}
+	}
+
+	/**
+	 * @param ruler The ruler
+	 * @param width The width of the image
+	 * @param height The height of the image
+	 * @return The ruler painted on a white grayscale image
+	 */
+	private static BufferedImage paint(final Ruler ruler, final int width, final int height)
+	{
+		final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		final Graphics2D g2 = image.createGraphics();
+		g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+		g2.setColor(Color.WHITE);
+		g2.fillRect(0, 0, width, height);
+		g2.setColor(Color.BLACK);
+		ruler.paint(g2, new Rectangle(0, 0, width, height));
+		g2.dispose();
+		return image;
+	}
+
+	/**
+	 * @param expected The expected image
+	 * @param actual The actual image
+	 */
+	private static void assertImageEquals(final BufferedImage expected, final BufferedImage actual)
+	{
+		Assert.assertEquals(expected.getWidth(), actual.getWidth());
+		Assert.assertEquals(expected.getHeight(), actual.getHeight());
+		for (int x = 0; x < expected.getWidth(); x++)
+		{
+			for (int y = 0; y < expected.getHeight(); y++)
+			{
+				Assert.assertEquals(x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+			}
+		}
+	}
+
+}
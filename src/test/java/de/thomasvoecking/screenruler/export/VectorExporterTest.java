@@ -0,0 +1,153 @@
+package de.thomasvoecking.screenruler.export;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import junit.framework.Assert;
+
+
+/**
+ * Testcases for {@link SvgExporter} and {@link PdfExporter}.
+ *
+ * @author thomas
+ */
+public class VectorExporterTest
+{
+
+	/**
+	 * Checks the strokes and labels of a short ruler in SVG.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	@Test
+	public void testSvg() throws Exception
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new SvgExporter("cm", 0, 10, 10).export(Channels.newChannel(bytes));
+
+		final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(new ByteArrayInputStream(bytes.toByteArray()));
+		Assert.assertEquals("110mm", document.getDocumentElement().getAttribute("width"));
+		Assert.assertEquals("0 0 110 15", document.getDocumentElement().getAttribute("viewBox"));
+
+		// A stroke per mm and a label per cm
+		final NodeList paths = document.getElementsByTagName("path");
+		Assert.assertEquals(1, paths.getLength());
+		final String d = ((Element) paths.item(0)).getAttribute("d");
+		Assert.assertEquals(101, d.split("M").length - 1);
+		Assert.assertTrue(d, d.startsWith("M5 0v8M6 0v"));
+		Assert.assertTrue(d, d.endsWith("M105 0v8"));
+
+		final NodeList texts = document.getElementsByTagName("text");
+		Assert.assertEquals(11, texts.getLength());
+		Assert.assertEquals("0.0 cm", texts.item(0).getTextContent());
+		Assert.assertEquals("55", ((Element) texts.item(5)).getAttribute("x"));
+		Assert.assertEquals("10.0 cm", texts.item(10).getTextContent());
+	}
+
+	/**
+	 * Checks that a ruler longer than a page is split into pages and that the cross reference table points at
+	 * the objects.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	@Test
+	public void testPdf() throws Exception
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new PdfExporter("cm", 0, 60, 10).export(Channels.newChannel(bytes));
+		final String pdf = new String(bytes.toByteArray(), "ISO-8859-1");
+
+		Assert.assertTrue(pdf.startsWith("%PDF-1.4\n"));
+		Assert.assertTrue(pdf.endsWith("%%EOF\n"));
+		Assert.assertTrue(pdf.contains("/Type /Pages /Count 3 /Kids [ 4 0 R 7 0 R 10 0 R ]"));
+		Assert.assertTrue(pdf.contains("(60.0 cm) Tj"));
+
+		final Matcher startxref = Pattern.compile("startxref\n(\\d+)\n").matcher(pdf);
+		Assert.assertTrue(startxref.find());
+		final int xref = Integer.parseInt(startxref.group(1));
+		Assert.assertTrue(pdf.startsWith("xref\n0 13\n", xref));
+		for (int i = 1; i < 13; i++)
+		{
+			final int entry = xref + "xref\n0 13\n".length() + 20 * i;
+			final int offset = Integer.parseInt(pdf.substring(entry, entry + 10));
+			Assert.assertTrue(pdf.substring(entry, entry + 20), pdf.startsWith(i + " 0 obj\n", offset));
+		}
+
+		// The length objects hold the lengths of the content streams
+		final Matcher streams = Pattern.compile("/Length (\\d+) 0 R >>\nstream\n").matcher(pdf);
+		int streamCount = 0;
+		while (streams.find())
+		{
+			final int end = pdf.indexOf("endstream\n", streams.end());
+			Assert.assertTrue(pdf.contains("\n" + streams.group(1) + " 0 obj\n" + (end - streams.end()) + "\nendobj\n"));
+			streamCount++;
+		}
+		Assert.assertEquals(3, streamCount);
+	}
+
+	/**
+	 * Checks that all strokes of a tape of 50 m are written.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	@Test
+	public void testLongRuler() throws Exception
+	{
+		final long[] strokeCount = new long[1];
+		new SvgExporter("cm", 0, 5000, 10).export(new WritableByteChannel()
+		{
+			@Override
+			public boolean isOpen()
+			{
+				return true;
+			}
+
+			@Override
+			public void close()
+			{
+				// Nothing to close
+			}
+
+			@Override
+			public int write(final ByteBuffer buffer)
+			{
+				final int length = buffer.remaining();
+				while (buffer.hasRemaining()) if (buffer.get() == 'M') strokeCount[0]++;
+				return length;
+			}
+		});
+		Assert.assertEquals(50001, strokeCount[0]);
+	}
+
+	/**
+	 * Checks that invalid rulers are rejected.
+	 */
+	@Test
+	public void testInvalidRuler()
+	{
+		final double[][] arguments = { { -1, 10, 10 }, { 10, 5, 10 }, { 0, 10, 0 } };
+		for (final double[] a : arguments)
+		{
+			try
+			{
+				new SvgExporter("cm", a[0], a[1], a[2]);
+				Assert.fail("Ruler " + java.util.Arrays.toString(a) + " must be rejected");
+			}
+			catch (final IllegalArgumentException e) { /* expected */ }
+		}
+	}
+
+}
@@ -0,0 +1,298 @@
+package de.thomasvoecking.screenruler.journal;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+
+/**
+ * Testcases for {@link MeasurementJournal} and {@link JournalView}.
+ *
+ * @author thomas
+ */
+public class MeasurementJournalTest
+{
+
+	/**
+	 * The temporary directory
+	 */
+	private File directory;
+
+	/**
+	 * The journal file. Its directory does not exist before the journal is opened.
+	 */
+	private File file;
+
+	/**
+	 * Creates a temporary directory.
+	 *
+	 * @throws IOException if the directory could not be created.
+	 */
+	@Before
+	public void setUp() throws IOException
+	{
+		this.directory = File.createTempFile("screenruler", "");
+		Assert.assertTrue(this.directory.delete());
+		Assert.assertTrue(this.directory.mkdir());
+		this.file = new File(new File(this.directory, "journal"), "measurements.journal");
+	}
+
+	/**
+	 * Removes the temporary directory.
+	 */
+	@After
+	public void tearDown()
+	{
+		this.file.delete();
+		this.file.getParentFile().delete();
+		this.directory.delete();
+	}
+
+	/**
+	 * Checks that appended measurements are read back unchanged after the journal has been reopened.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	@Test
+	public void testRoundTrip() throws IOException
+	{
+		final List<Measurement> measurements = new ArrayList<Measurement>();
+		measurements.add(new Measurement(1, 0, 100, new Rectangle(10, 20, 300, 80), false, "cm", 48, 129, false));
+		measurements.add(new Measurement(1, 1, 101, new Rectangle(-1920, 0, 80, 600), true, "\u00b5m", -0.5, 1e6, false));
+		measurements.add(new Measurement(1, 1, 102, new Rectangle(0, 0, 1, 1), true, "", 0, 1, true));
+
+		final MeasurementJournal journal = new MeasurementJournal(this.file);
+		journal.open();
+		for (final Measurement measurement : measurements) journal.append(measurement);
+		Assert.assertEquals(3, journal.map().size());
+		journal.close();
+
+		journal.open();
+		final JournalView view = journal.map();
+		Assert.assertEquals(3, view.size());
+		for (int i = 0; i < measurements.size(); i++)
+		{
+			Assert.assertEquals(measurements.get(i), view.get(i));
+			Assert.assertEquals(100 + i, view.getTimestamp(i));
+		}
+		journal.close();
+	}
+
+	/**
+	 * Checks that an incomplete or corrupted last frame is cut off and that the journal is appended after the last
+	 * valid frame.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	@Test
+	public void testTornTail() throws IOException
+	{
+		final MeasurementJournal journal = new MeasurementJournal(this.file);
+		journal.open();
+		journal.append(measurement(1, 0, 100));
+		journal.append(measurement(1, 0, 101));
+		journal.close();
+		final long validLength = this.file.length();
+
+		// Incomplete frame
+		final FileOutputStream out = new FileOutputStream(this.file, true);
+		out.write(new byte[] { 0, 0, 0, 70, 1, 2, 3 });
+		out.close();
+
+		journal.open();
+		Assert.assertEquals(2, journal.map().size());
+		Assert.assertEquals(validLength, this.file.length());
+		journal.append(measurement(1, 0, 102));
+		journal.close();
+
+		// Corrupted payload of the last frame
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(this.file, "rw");
+		randomAccessFile.seek(validLength + 12);
+		randomAccessFile.write(0xff);
+		randomAccessFile.close();
+
+		journal.open();
+		Assert.assertEquals(2, journal.map().size());
+		journal.append(measurement(1, 0, 103));
+		final JournalView view = journal.map();
+		Assert.assertEquals(3, view.size());
+		Assert.assertEquals(103, view.getTimestamp(2));
+		journal.close();
+	}
+
+	/**
+	 * Checks that the frames are read across the buffer of the channel when the tail of a large journal is cut off.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	@Test
+	public void testTornTailOfLargeJournal() throws IOException
+	{
+		final MeasurementJournal journal = new MeasurementJournal(this.file);
+		journal.open();
+		for (int i = 0; i < 10000; i++) journal.append(measurement(1, i % 7, i));
+		journal.close();
+		final long validLength = this.file.length();
+
+		final FileOutputStream out = new FileOutputStream(this.file, true);
+		out.write(new byte[] { 0, 0, 0, 70, 1, 2, 3 });
+		out.close();
+
+		journal.open();
+		Assert.assertEquals(validLength, this.file.length());
+		final JournalView view = journal.map();
+		Assert.assertEquals(10000, view.size());
+		Assert.assertEquals(9999, view.getTimestamp(9999));
+		journal.close();
+	}
+
+	/**
+	 * Checks that a journal that is too large to be mapped is rejected.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	@Test
+	public void testTooLarge() throws IOException
+	{
+		final MeasurementJournal journal = new MeasurementJournal(this.file);
+		journal.open();
+		journal.close();
+
+		// Sparse on most file systems
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(this.file, "rw");
+		randomAccessFile.setLength(Integer.MAX_VALUE + 1L);
+		randomAccessFile.close();
+
+		try
+		{
+			journal.open();
+			Assert.fail("A journal larger than 2 GB has been opened");
+		}
+		catch (final IOException e)
+		{
+			Assert.assertTrue(e.getMessage().contains("larger than 2 GB"));
+		}
+		Assert.assertEquals(Integer.MAX_VALUE + 1L, this.file.length());
+	}
+
+	/**
+	 * Checks that the layout contains the last state of each ruler of the last session that has not been closed.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	@Test
+	public void testLayout() throws IOException
+	{
+		final MeasurementJournal journal = new MeasurementJournal(this.file);
+		journal.open();
+		Assert.assertTrue(journal.map().findLayout().isEmpty());
+
+		journal.append(measurement(1, 0, 100));
+		journal.append(measurement(1, 3, 101));
+		journal.append(measurement(2, 2, 200));
+		journal.append(measurement(2, 0, 201));
+		journal.append(measurement(2, 1, 202));
+		journal.append(measurement(2, 0, 203));
+		journal.append(new Measurement(2, 1, 204, new Rectangle(0, 0, 100, 50), false, "cm", 0, 10, true));
+
+		final List<Measurement> layout = journal.map().findLayout();
+		Assert.assertEquals(2, layout.size());
+		Assert.assertEquals(measurement(2, 0, 203), layout.get(0));
+		Assert.assertEquals(measurement(2, 2, 200), layout.get(1));
+		journal.close();
+	}
+
+	/**
+	 * Checks the search by period and by value.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	@Test
+	public void testSearch() throws IOException
+	{
+		final MeasurementJournal journal = new MeasurementJournal(this.file);
+		journal.open();
+		for (int i = 0; i < 1000; i++)
+		{
+			journal.append(new Measurement(1, 0, 1000 + i * 10, new Rectangle(0, 0, 100, 50), false, i % 2 == 0 ? "cm" : "in",
+					i, i + 5, false));
+		}
+		final JournalView view = journal.map();
+
+		final List<Measurement> period = view.search(1995, 2031);
+		Assert.assertEquals(4, period.size());
+		Assert.assertEquals(2000, period.get(0).getTimestamp());
+		Assert.assertEquals(2030, period.get(3).getTimestamp());
+		Assert.assertTrue(view.search(0, 1000).isEmpty());
+		Assert.assertEquals(1000, view.search(0, Long.MAX_VALUE).size());
+
+		final List<Measurement> covering = view.searchByValue("cm", 500.5);
+		Assert.assertEquals(3, covering.size());
+		Assert.assertEquals(496, covering.get(0).getRulerStartValue(), 0);
+		Assert.assertEquals(498, covering.get(1).getRulerStartValue(), 0);
+		Assert.assertEquals(500, covering.get(2).getRulerStartValue(), 0);
+		Assert.assertTrue(view.searchByValue("px", 500.5).isEmpty());
+		journal.close();
+	}
+
+	/**
+	 * Checks that a journal can only be opened once at a time.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	@Test
+	public void testLocked() throws IOException
+	{
+		final MeasurementJournal journal = new MeasurementJournal(this.file);
+		journal.open();
+		try
+		{
+			new MeasurementJournal(this.file).open();
+			Assert.fail("Journal has been opened twice");
+		}
+		catch (final IOException e)
+		{
+			// expected
+		}
+		journal.append(measurement(1, 0, 100));
+		journal.close();
+	}
+
+	/**
+	 * Checks that a file that is no journal is not opened.
+	 *
+	 * @throws IOException if the file could not be written.
+	 */
+	@Test(expected = IOException.class)
+	public void testNoJournal() throws IOException
+	{
+		Assert.assertTrue(this.file.getParentFile().mkdir());
+		final FileOutputStream out = new FileOutputStream(this.file);
+		out.write("<configuration/>".getBytes("UTF-8"));
+		out.close();
+		new MeasurementJournal(this.file).open();
+	}
+
+	/**
+	 * @param sessionId The session
+	 * @param rulerIndex The ruler
+	 * @param timestamp The time
+	 * @return A measurement of a horizontal ruler
+	 */
+	private static Measurement measurement(final long sessionId, final int rulerIndex, final long timestamp)
+	{
+		return new Measurement(sessionId, rulerIndex, timestamp, new Rectangle(rulerIndex * 30, 0, 500, 80), false, "cm",
+				timestamp, timestamp + 100, false);
+	}
+
+}
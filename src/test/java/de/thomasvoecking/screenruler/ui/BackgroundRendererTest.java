@@ -0,0 +1,218 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+import de.thomasvoecking.screenruler.config.ScreenrulerSettings;
+import de.thomasvoecking.screenruler.config.Translucency;
+import de.thomasvoecking.screenruler.ui.buttons.CloseButton;
+
+
+/**
+ * Testcases for {@link BackgroundRenderer}.
+ *
+ * @author thomas
+ */
+public class BackgroundRendererTest
+{
+
+	/**
+	 * The maximum time in ms to wait for the render thread
+	 */
+	private static final int timeout = 5000;
+
+	/**
+	 * The width of the frame
+	 */
+	private static final int width = 600;
+
+	/**
+	 * The height of the frame
+	 */
+	private static final int height = 65;
+
+	/**
+	 * The settings
+	 */
+	private final ScreenrulerSettings settings = new ScreenrulerSettings(0.7f, width, height, 200, 10, 30, 0, true, Translucency.AUTO);
+
+	/**
+	 * Released once per published frame
+	 */
+	private final Semaphore publishedFrames = new Semaphore(0);
+
+	/**
+	 * The renderer under test
+	 */
+	private BackgroundRenderer renderer;
+
+	/**
+	 * Stops the renderer.
+	 */
+	@After
+	public void tearDown()
+	{
+		if (this.renderer != null) Assert.assertTrue(this.renderer.stop(timeout));
+	}
+
+	/**
+	 * Checks that a frame composed from a background rendered ruler looks the same as a frame that has been
+	 * rendered on the calling thread.
+	 *
+	 * @throws InterruptedException if the test is interrupted.
+	 */
+	@Test
+	public void testCompose() throws InterruptedException
+	{
+		final Ruler ruler = new Ruler("cm", 48, 129);
+		this.renderer = this.createRenderer(new Ruler("cm", 48, 129));
+		final ScreenrulerCompositor compositor = createCompositor(ruler);
+		compositor.setBackgroundRenderer(this.renderer);
+		this.renderer.start();
+
+		// The first frame is rendered on the calling thread
+		final BufferedImage expected = this.paint(createCompositor(new Ruler("cm", 48, 129)));
+		assertImageEquals(expected, this.paint(compositor));
+
+		Assert.assertTrue(this.publishedFrames.tryAcquire(timeout, TimeUnit.MILLISECONDS));
+		assertImageEquals(expected, this.paint(compositor));
+
+		ruler.setRulerBounds(12.3, 13.9);
+		this.paint(compositor);
+		Assert.assertTrue(this.publishedFrames.tryAcquire(timeout, TimeUnit.MILLISECONDS));
+		assertImageEquals(this.paint(createCompositor(new Ruler("cm", 12.3, 13.9))), this.paint(compositor));
+		Assert.assertEquals(2, this.renderer.getRenderedCount());
+		Assert.assertEquals(0, this.renderer.getDroppedCount());
+		// The third paint shows the old range, unless the new one has already been rendered
+		Assert.assertTrue(this.renderer.getStaleCount() <= 1);
+	}
+
+	/**
+	 * Checks that the event dispatch thread does not wait for a slow frame, that only the latest request is
+	 * rendered and that dropped and stale frames are counted.
+	 *
+	 * @throws InterruptedException if the test is interrupted.
+	 */
+	@Test
+	public void testSlowFrame() throws InterruptedException
+	{
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		this.renderer = this.createRenderer(new Ruler("cm", 0, 10)
+		{
+			@Override
+			public void paint(final Graphics graphics, final Rectangle bounds)
+			{
+				started.countDown();
+				try
+				{
+					release.await();
+				}
+				catch (final InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				super.paint(graphics, bounds);
+			}
+		});
+		this.renderer.start();
+
+		final BackgroundRenderer.Request first = this.request(0, 10);
+		this.renderer.submit(first);
+		Assert.assertTrue(started.await(timeout, TimeUnit.MILLISECONDS));
+		this.renderer.submit(this.request(0, 20));
+		final BackgroundRenderer.Request last = this.request(0, 30);
+		this.renderer.submit(last);
+		Assert.assertNull(this.renderer.getFrame(last));
+
+		release.countDown();
+		Assert.assertTrue(this.publishedFrames.tryAcquire(2, timeout, TimeUnit.MILLISECONDS));
+		final BackgroundRenderer.Frame frame = this.renderer.getFrame(last);
+		Assert.assertEquals(last, frame.getRequest());
+		Assert.assertEquals(2, this.renderer.getRenderedCount());
+		Assert.assertEquals(1, this.renderer.getDroppedCount());
+		Assert.assertEquals(0, this.renderer.getStaleCount());
+
+		Assert.assertSame(frame, this.renderer.getFrame(this.request(0, 40)));
+		Assert.assertEquals(1, this.renderer.getStaleCount());
+	}
+
+	/**
+	 * @param ruler The ruler for the render thread
+	 * @return A renderer that releases {@link #publishedFrames} for each frame
+	 */
+	private BackgroundRenderer createRenderer(final Ruler ruler)
+	{
+		return new BackgroundRenderer(ruler, new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				BackgroundRendererTest.this.publishedFrames.release();
+			}
+		});
+	}
+
+	/**
+	 * @param rulerStartValue The start value
+	 * @param rulerEndValue The end value
+	 * @return A request for the whole frame
+	 */
+	private BackgroundRenderer.Request request(final double rulerStartValue, final double rulerEndValue)
+	{
+		return new BackgroundRenderer.Request(rulerStartValue, rulerEndValue, width, height,
+				this.settings.getRulerBounds(width, height), Color.WHITE, Color.BLACK, null);
+	}
+
+	/**
+	 * @param ruler The ruler
+	 * @return A compositor for the ruler
+	 */
+	private static ScreenrulerCompositor createCompositor(final Ruler ruler)
+	{
+		return new ScreenrulerCompositor(ruler, ScreenrulerResizeControl.LEFT, ScreenrulerResizeControl.RIGHT,
+				new CloseButton());
+	}
+
+	/**
+	 * @param compositor The compositor
+	 * @return The painted frame
+	 */
+	private BufferedImage paint(final ScreenrulerCompositor compositor)
+	{
+		final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		final Graphics2D g2 = image.createGraphics();
+		compositor.paint(g2, width, height, this.settings.getRulerBounds(width, height),
+				this.settings.getLeftResizeControlBounds(), this.settings.getRightResizeControlBounds(width),
+				this.settings.getCloseButtonBounds(height));
+		g2.dispose();
+		return image;
+	}
+
+	/**
+	 * @param expected The expected image
+	 * @param actual The actual image
+	 */
+	private static void assertImageEquals(final BufferedImage expected, final BufferedImage actual)
+	{
+		for (int x = 0; x < width; x++)
+		{
+			for (int y = 0; y < height; y++)
+			{
+				Assert.assertEquals(x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+
+/**
+ * Testcases for {@link DragScheduler}.
+ *
+ * @author thomas
+ */
+public class DragSchedulerTest
+{
+
+	/**
+	 * Checks that targets within one frame are coalesced and the latest one is applied.
+	 */
+	@Test
+	public void testCoalescing()
+	{
+		final List<Rectangle> applied = new ArrayList<Rectangle>();
+		// A very low frame rate, so that all submits happen within the first frame
+		final DragScheduler dragScheduler = new DragScheduler(new FrameClock(1), new DragScheduler.DragTarget()
+		{
+			@Override
+			public void applyDrag(final Rectangle bounds)
+			{
+				applied.add(bounds);
+			}
+		});
+
+		dragScheduler.start(DraggingMode.MOVE);
+		dragScheduler.submit(new Rectangle(0, 0, 100, 10));
+		Assert.assertEquals(1, applied.size());
+
+		dragScheduler.submit(new Rectangle(1, 0, 100, 10));
+		dragScheduler.submit(new Rectangle(2, 0, 100, 10));
+		dragScheduler.submit(new Rectangle(3, 0, 100, 10));
+		Assert.assertEquals(1, applied.size());
+		Assert.assertEquals(2, dragScheduler.getCoalescedCount());
+
+		dragScheduler.stop();
+		Assert.assertEquals(2, applied.size());
+		Assert.assertEquals(new Rectangle(3, 0, 100, 10), applied.get(1));
+		Assert.assertEquals(4, dragScheduler.getSubmittedCount());
+		Assert.assertEquals(2, dragScheduler.getAppliedCount());
+		Assert.assertEquals(2, dragScheduler.getCoalescedCount());
+	}
+
+}
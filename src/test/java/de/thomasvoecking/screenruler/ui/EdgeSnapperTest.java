@@ -0,0 +1,87 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+import de.thomasvoecking.screenruler.capture.ImageScreenSource;
+
+
+/**
+ * Testcases for {@link EdgeSnapper}.
+ * 
+ * @author thomas
+ */
+public class EdgeSnapperTest 
+{
+
+	/**
+	 * Checks snapping of a horizontal ruler against "edges.png", which has edges at 100, 180, 250 and 300.
+	 * 
+	 * @throws Exception if the screenshot could not be read.
+	 */
+	@Test
+	public void testHorizontal() throws Exception
+	{
+		final EdgeSnapper edgeSnapper = new EdgeSnapper(ImageScreenSource.read(ClassLoader.getSystemResource("edges.png")));
+		final Rectangle bounds = new Rectangle(50, 30, 200, 20);
+		
+		Assert.assertEquals(100, edgeSnapper.snap(bounds, Orientation.HORIZONTAL, 95));
+		Assert.assertEquals(100, edgeSnapper.snap(bounds, Orientation.HORIZONTAL, 100));
+		Assert.assertEquals(180, edgeSnapper.snap(bounds, Orientation.HORIZONTAL, 187));
+		Assert.assertEquals(170, edgeSnapper.snap(bounds, Orientation.HORIZONTAL, 170));
+		Assert.assertEquals(300, edgeSnapper.snap(bounds, Orientation.HORIZONTAL, 308));
+		Assert.assertEquals(309, edgeSnapper.snap(bounds, Orientation.HORIZONTAL, 309));
+		
+		// Resizing does not move the strip
+		bounds.width += 40;
+		Assert.assertEquals(250, edgeSnapper.snap(bounds, Orientation.HORIZONTAL, 246));
+		Assert.assertEquals(1, edgeSnapper.getCaptureCount());
+		
+		// Moving across the axis does
+		bounds.y += 1;
+		Assert.assertEquals(250, edgeSnapper.snap(bounds, Orientation.HORIZONTAL, 246));
+		Assert.assertEquals(2, edgeSnapper.getCaptureCount());
+	}
+	
+	/**
+	 * Checks that nothing is snapped if the strip is outside of the screen.
+	 * 
+	 * @throws Exception if the screenshot could not be read.
+	 */
+	@Test
+	public void testOffScreen() throws Exception
+	{
+		final EdgeSnapper edgeSnapper = new EdgeSnapper(ImageScreenSource.read(ClassLoader.getSystemResource("edges.png")));
+		Assert.assertEquals(95, edgeSnapper.snap(new Rectangle(50, 0, 200, 20), Orientation.HORIZONTAL, 95));
+		Assert.assertEquals(0, edgeSnapper.getCaptureCount());
+	}
+	
+	/**
+	 * Checks snapping of a vertical ruler, where the strip runs along the screen y axis right of the window.
+	 */
+	@Test
+	public void testVertical()
+	{
+		final BufferedImage image = new BufferedImage(60, 400, BufferedImage.TYPE_INT_RGB);
+		final Graphics2D g2 = image.createGraphics();
+		g2.setColor(Color.WHITE);
+		g2.fillRect(0, 0, 60, 400);
+		g2.setColor(Color.DARK_GRAY);
+		g2.fillRect(30, 100, 6, 80);
+		g2.dispose();
+		
+		final EdgeSnapper edgeSnapper = new EdgeSnapper(new ImageScreenSource(image));
+		final Rectangle bounds = Orientation.VERTICAL.toLogical(new Rectangle(10, 5, 20, 50));
+		Assert.assertEquals(100, edgeSnapper.snap(bounds, Orientation.VERTICAL, 95));
+		Assert.assertEquals(180, edgeSnapper.snap(bounds, Orientation.VERTICAL, 183));
+		Assert.assertEquals(140, edgeSnapper.snap(bounds, Orientation.VERTICAL, 140));
+		Assert.assertEquals(1, edgeSnapper.getCaptureCount());
+	}
+	
+}
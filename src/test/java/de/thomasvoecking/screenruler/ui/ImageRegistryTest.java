@@ -0,0 +1,53 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+
+/**
+ * Testcases for {@link ImageRegistry}.
+ * 
+ * @author thomas
+ */
+public class ImageRegistryTest 
+{
+
+	/**
+	 * Checks that resources are decoded once and scaled variants are cached per size.
+	 */
+	@Test
+	public void testCaching()
+	{
+		final ImageRegistry imageRegistry = new ImageRegistry();
+		final ImageRegistry.Sprite sprite = imageRegistry.getSprite("exit.png");
+		Assert.assertSame(sprite, imageRegistry.getSprite("exit.png"));
+		Assert.assertSame(sprite.getImage(), sprite.getImage());
+		
+		final BufferedImage small = sprite.getImage(16, 16);
+		Assert.assertEquals(16, small.getWidth());
+		Assert.assertEquals(16, small.getHeight());
+		Assert.assertSame(small, sprite.getImage(16, 16));
+		
+		final BufferedImage large = sprite.getImage(10, 30);
+		Assert.assertEquals(10, large.getWidth());
+		Assert.assertEquals(30, large.getHeight());
+		Assert.assertSame(small, sprite.getImage(16, 16));
+		Assert.assertSame(large, sprite.getImage(10, 30));
+		
+		final BufferedImage original = sprite.getImage();
+		Assert.assertSame(original, sprite.getImage(original.getWidth(), original.getHeight()));
+	}
+	
+	/**
+	 * Checks that missing resources are reported when the image is requested.
+	 */
+	@Test(expected = RuntimeException.class)
+	public void testMissingResource()
+	{
+		new ImageRegistry().getSprite("missing.png").getImage();
+	}
+	
+}
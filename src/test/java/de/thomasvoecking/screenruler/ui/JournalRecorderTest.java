@@ -0,0 +1,124 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+import de.thomasvoecking.screenruler.event.BackPressure;
+import de.thomasvoecking.screenruler.event.EventBus;
+import de.thomasvoecking.screenruler.event.RulerEvent;
+import de.thomasvoecking.screenruler.event.Subscription;
+import de.thomasvoecking.screenruler.journal.JournalView;
+import de.thomasvoecking.screenruler.journal.Measurement;
+import de.thomasvoecking.screenruler.journal.MeasurementJournal;
+
+
+/**
+ * Testcases for {@link JournalRecorder}.
+ *
+ * @author thomas
+ */
+public class JournalRecorderTest
+{
+
+	/**
+	 * The maximum time in ms to wait for the recorder
+	 */
+	private static final long timeout = 5000;
+
+	/**
+	 * The journal file
+	 */
+	private File file;
+
+	/**
+	 * The journal
+	 */
+	private MeasurementJournal journal;
+
+	/**
+	 * Opens a journal in a temporary file.
+	 *
+	 * @throws IOException if the journal could not be opened.
+	 */
+	@Before
+	public void setUp() throws IOException
+	{
+		this.file = File.createTempFile("screenruler", ".journal");
+		Assert.assertTrue(this.file.delete());
+		this.journal = new MeasurementJournal(this.file);
+		this.journal.open();
+	}
+
+	/**
+	 * Closes and removes the journal.
+	 *
+	 * @throws IOException if the journal could not be closed.
+	 */
+	@After
+	public void tearDown() throws IOException
+	{
+		this.journal.close();
+		this.file.delete();
+	}
+
+	/**
+	 * Checks that the end of a drag is recorded if the queue of the recorder is full, so the changes after the
+	 * drag are recorded again.
+	 *
+	 * @throws IOException if the journal could not be read.
+	 * @throws InterruptedException if the test is interrupted.
+	 */
+	@Test
+	public void testFullQueue() throws IOException, InterruptedException
+	{
+		final JournalRecorder recorder = new JournalRecorder(this.journal);
+		final EventBus eventBus = new EventBus();
+		final Subscription subscription = eventBus.subscribe("journal", recorder, BackPressure.COALESCE, 4);
+
+		// The recorder waits for its lock while the queue is filled
+		synchronized (recorder)
+		{
+			eventBus.publish(event(RulerEvent.Type.DRAG_STARTED, 0, 0));
+			final long end = System.currentTimeMillis() + timeout;
+			while (subscription.getQueuedCount() > 0 && System.currentTimeMillis() < end) Thread.sleep(1);
+
+			for (int rulerIndex = 1; rulerIndex <= 4; rulerIndex++)
+			{
+				eventBus.publish(event(RulerEvent.Type.MOVED, rulerIndex, 1));
+			}
+			eventBus.publish(event(RulerEvent.Type.MOVED, 0, 100));
+			eventBus.publish(event(RulerEvent.Type.DRAG_ENDED, 0, 100));
+			eventBus.publish(event(RulerEvent.Type.MOVED, 0, 200));
+			eventBus.publish(event(RulerEvent.Type.CLOSED, 1, 1));
+		}
+		Assert.assertTrue(eventBus.close(timeout));
+		Assert.assertEquals(0, subscription.getDroppedCount());
+
+		// The moves of the other rulers, the end of the drag, the move after it and the close
+		final JournalView view = this.journal.map();
+		Assert.assertEquals(7, view.size());
+		Assert.assertEquals(100, view.get(4).getBounds().x);
+		Assert.assertEquals(200, view.get(5).getBounds().x);
+		Assert.assertTrue(view.get(6).isClosed());
+	}
+
+	/**
+	 * @param type The type of the event
+	 * @param rulerIndex The index of the ruler
+	 * @param x The x position of the ruler
+	 * @return The event
+	 */
+	private static RulerEvent event(final RulerEvent.Type type, final int rulerIndex, final int x)
+	{
+		return new RulerEvent(type, new Measurement(1, rulerIndex, 0, new Rectangle(x, 0, 500, 80), false, "cm", 0, 10,
+				type == RulerEvent.Type.CLOSED));
+	}
+
+}
@@ -0,0 +1,82 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+
+/**
+ * Testcases for {@link LabelCache}.
+ *
+ * @author thomas
+ */
+public class LabelCacheTest
+{
+
+	/**
+	 * The font render context used for all tests
+	 */
+	private static final FontRenderContext fontRenderContext = new FontRenderContext(null, true, false);
+
+	/**
+	 * Checks that labels are measured once and reused.
+	 */
+	@Test
+	public void testGet()
+	{
+		final LabelCache labelCache = new LabelCache(10);
+		final Font font = new Font(Font.DIALOG, Font.PLAIN, 9);
+
+		final LabelCache.Label label = labelCache.get("50.0 cm", font, fontRenderContext);
+		Assert.assertTrue(label.getWidth() > 0);
+		Assert.assertEquals(label.getWidth() / 2.0, label.getCenterX(), 0.000001);
+		Assert.assertSame(label, labelCache.get("50.0 cm", font, fontRenderContext));
+
+		Assert.assertNotSame(label, labelCache.get("50.0 cm", font.deriveFont(10f), fontRenderContext));
+		Assert.assertNotSame(label, labelCache.get("60.0 cm", font, fontRenderContext));
+		Assert.assertEquals(3, labelCache.size());
+		Assert.assertEquals(1, labelCache.getHitCount());
+		Assert.assertEquals(3, labelCache.getMissCount());
+	}
+
+	/**
+	 * Checks that the least recently used label is evicted.
+	 */
+	@Test
+	public void testEviction()
+	{
+		final LabelCache labelCache = new LabelCache(2);
+		final Font font = new Font(Font.DIALOG, Font.PLAIN, 9);
+
+		final LabelCache.Label first = labelCache.get("1.0 cm", font, fontRenderContext);
+		final LabelCache.Label second = labelCache.get("2.0 cm", font, fontRenderContext);
+		labelCache.get("1.0 cm", font, fontRenderContext);
+		labelCache.get("3.0 cm", font, fontRenderContext);
+
+		Assert.assertEquals(2, labelCache.size());
+		Assert.assertSame(first, labelCache.get("1.0 cm", font, fontRenderContext));
+		Assert.assertNotSame(second, labelCache.get("2.0 cm", font, fontRenderContext));
+	}
+
+	/**
+	 * Checks that the estimated width matches the measured width without measuring the label.
+	 */
+	@Test
+	public void testAdvance()
+	{
+		final LabelCache labelCache = new LabelCache(2);
+		final Font font = new Font(Font.DIALOG, Font.PLAIN, 9);
+
+		for (final String text : new String[] { "12.5 cm", "1.0E-4 mm", "100.0 in" })
+		{
+			final long missCount = labelCache.getMissCount();
+			final double advance = labelCache.getAdvance(text, font, fontRenderContext);
+			Assert.assertEquals(missCount, labelCache.getMissCount());
+			Assert.assertEquals(text, labelCache.get(text, font, fontRenderContext).getWidth(), advance, 0.01);
+		}
+	}
+
+}
@@ -0,0 +1,152 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+import de.thomasvoecking.screenruler.capture.ImageScreenSource;
+
+
+/**
+ * Testcases for {@link Loupe}.
+ * 
+ * @author thomas
+ */
+public class LoupeTest 
+{
+
+	/**
+	 * The width and height of the captured region
+	 */
+	private static final int size = 11;
+	
+	/**
+	 * The zoom
+	 */
+	private static final int zoom = 4;
+	
+	/**
+	 * @return A screen where each pixel encodes its own position
+	 */
+	private static ImageScreenSource createScreen()
+	{
+		final BufferedImage image = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < image.getHeight(); y++)
+		{
+			for (int x = 0; x < image.getWidth(); x++)
+			{
+				image.setRGB(x, y, (x << 8) | y);
+			}
+		}
+		return new ImageScreenSource(image);
+	}
+	
+	/**
+	 * Checks the zoomed view against the screen: every zoomed pixel shows its screen pixel and is followed 
+	 * by a grid line.
+	 * 
+	 * @param loupe The loupe
+	 * @param image The rendered image
+	 */
+	private static void assertView(final Loupe loupe, final BufferedImage image)
+	{
+		final Rectangle region = loupe.getCapturedRegion();
+		for (int y = 0; y < size; y++)
+		{
+			for (int x = 0; x < size; x++)
+			{
+				final int rgb = image.getRGB(x * zoom, y * zoom) & 0xffffff;
+				Assert.assertEquals("Pixel " + x + "," + y, ((region.x + x) << 8) | (region.y + y), rgb);
+				Assert.assertEquals(rgb, image.getRGB(x * zoom + zoom - 2, y * zoom + zoom - 2) & 0xffffff);
+				Assert.assertEquals(0x808080, image.getRGB(x * zoom + zoom - 1, y * zoom) & 0xffffff);
+				Assert.assertEquals(0x808080, image.getRGB(x * zoom, y * zoom + zoom - 1) & 0xffffff);
+			}
+		}
+	}
+	
+	/**
+	 * Checks that only the exposed strips are captured when the cursor moves.
+	 */
+	@Test
+	public void testIncrementalCapture()
+	{
+		final ImageScreenSource screen = createScreen();
+		final Loupe loupe = new Loupe(screen, size, zoom);
+		Assert.assertNull(loupe.getImage());
+		
+		Assert.assertTrue(loupe.update(new Point(50, 50)));
+		Assert.assertEquals(new Rectangle(45, 45, size, size), loupe.getCapturedRegion());
+		Assert.assertEquals(size * size, screen.getCapturedPixelCount());
+		assertView(loupe, loupe.getImage());
+		
+		final Point[] moves = { new Point(53, 52), new Point(51, 49), new Point(51, 49), new Point(49, 49), new Point(49, 52) };
+		final long[] expectedCounts = { 3 * size + 2 * (size - 3), 2 * size + 3 * (size - 2), 0, 2 * size, 3 * size };
+		for (int i = 0; i < moves.length; i++)
+		{
+			final long capturedBefore = screen.getCapturedPixelCount();
+			Assert.assertTrue(loupe.update(moves[i]));
+			Assert.assertEquals("Move " + i, expectedCounts[i], screen.getCapturedPixelCount() - capturedBefore);
+			assertView(loupe, loupe.getImage());
+		}
+	}
+	
+	/**
+	 * Checks that the whole region is captured regularly and on jumps.
+	 */
+	@Test
+	public void testFullCapture()
+	{
+		final ImageScreenSource screen = createScreen();
+		final Loupe loupe = new Loupe(screen, size, zoom);
+		for (int i = 0; i < Loupe.fullCaptureInterval; i++)
+		{
+			loupe.update(new Point(50, 50));
+		}
+		Assert.assertEquals(size * size, screen.getCapturedPixelCount());
+		loupe.update(new Point(50, 50));
+		Assert.assertEquals(2 * size * size, screen.getCapturedPixelCount());
+		
+		// A jump further than the region
+		loupe.update(new Point(150, 50));
+		Assert.assertEquals(3 * size * size, screen.getCapturedPixelCount());
+		assertView(loupe, loupe.getImage());
+	}
+	
+	/**
+	 * Checks that the region stays on the screen.
+	 */
+	@Test
+	public void testScreenEdges()
+	{
+		final Loupe loupe = new Loupe(createScreen(), size, zoom);
+		loupe.update(new Point(1, 99));
+		Assert.assertEquals(new Rectangle(0, 100 - size, size, size), loupe.getCapturedRegion());
+		assertView(loupe, loupe.getImage());
+	}
+	
+	/**
+	 * Checks that the shown image is not rendered into while the capture goes on.
+	 */
+	@Test
+	public void testImageRotation()
+	{
+		final Loupe loupe = new Loupe(createScreen(), size, zoom);
+		loupe.update(new Point(50, 50));
+		final BufferedImage shown = loupe.getImage();
+		for (int i = 1; i <= 5; i++)
+		{
+			Assert.assertTrue(loupe.update(new Point(50 + i, 50)));
+		}
+		Assert.assertEquals(0, loupe.getDroppedFrameCount());
+		Assert.assertEquals((45 << 8) | 45, shown.getRGB(0, 0) & 0xffffff);
+		
+		final BufferedImage latest = loupe.getImage();
+		Assert.assertNotSame(shown, latest);
+		Assert.assertEquals((50 << 8) | 45, latest.getRGB(0, 0) & 0xffffff);
+	}
+	
+}
@@ -0,0 +1,61 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+
+/**
+ * Testcases for {@link Orientation}.
+ * 
+ * @author thomas
+ */
+public class OrientationTest 
+{
+
+	/**
+	 * Checks that a horizontal ruler uses screen coordinates.
+	 */
+	@Test
+	public void testHorizontal()
+	{
+		final Rectangle bounds = new Rectangle(100, 200, 600, 65);
+		Assert.assertEquals(bounds, Orientation.HORIZONTAL.toScreen(bounds));
+		Assert.assertEquals(bounds, Orientation.HORIZONTAL.toLogical(bounds));
+		Assert.assertEquals(new Point(3, 4), Orientation.HORIZONTAL.toLogical(new Point(3, 4)));
+		Assert.assertTrue(Orientation.HORIZONTAL.getWindowTransform(new Dimension(600, 65)).isIdentity());
+	}
+	
+	/**
+	 * Checks that a vertical ruler runs from top to bottom and that the mappings are consistent.
+	 */
+	@Test
+	public void testVertical()
+	{
+		final Rectangle logicalBounds = new Rectangle(100, -265, 600, 65);
+		final Rectangle screenBounds = Orientation.VERTICAL.toScreen(logicalBounds);
+		Assert.assertEquals(new Rectangle(200, 100, 65, 600), screenBounds);
+		Assert.assertEquals(logicalBounds, Orientation.VERTICAL.toLogical(screenBounds));
+		Assert.assertEquals(new Dimension(65, 600), Orientation.VERTICAL.toScreen(new Dimension(600, 65)));
+		
+		// Moving the mouse down on the screen moves it along the ruler
+		final Point top = Orientation.VERTICAL.toLogical(new Point(230, 100));
+		final Point bottom = Orientation.VERTICAL.toLogical(new Point(230, 700));
+		Assert.assertEquals(600, bottom.x - top.x);
+		Assert.assertEquals(top.y, bottom.y);
+		
+		// The logical window is mapped into the window
+		final AffineTransform transform = Orientation.VERTICAL.getWindowTransform(new Dimension(600, 65));
+		Assert.assertEquals(new Rectangle(0, 0, 65, 600), 
+				transform.createTransformedShape(new Rectangle(0, 0, 600, 65)).getBounds());
+		// The strokes start at the right edge
+		Assert.assertEquals(new Rectangle(40, 0, 25, 1), 
+				transform.createTransformedShape(new Rectangle(0, 0, 1, 25)).getBounds());
+	}
+	
+}
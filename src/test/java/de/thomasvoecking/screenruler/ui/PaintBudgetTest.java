@@ -0,0 +1,275 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+import de.thomasvoecking.screenruler.config.ScreenrulerSettings;
+import de.thomasvoecking.screenruler.config.Translucency;
+import de.thomasvoecking.screenruler.ui.RecordingGraphics2D.Call;
+import de.thomasvoecking.screenruler.ui.buttons.CloseButton;
+
+
+/**
+ * Draw call budgets for all painted components, recorded with {@link RecordingGraphics2D}.
+ * 
+ * @author thomas
+ */
+public class PaintBudgetTest 
+{
+
+	/**
+	 * The ruler ranges to check
+	 */
+	private static final double[][] ranges = { { 48, 129 }, { 0, 10 }, { 0, 1 }, { 0.55, 0.7 }, { 3, 1000 }, { 12.3, 13.9 } };
+	
+	/**
+	 * The ruler widths to check
+	 */
+	private static final int[] widths = { 200, 560, 1200, 5000 };
+	
+	/**
+	 * The space left and right of the ruler. Labels are centered on their tick, so the label at the end 
+	 * of the ruler may overhang it by half of its width.
+	 */
+	private static final int padding = 40;
+	
+	/**
+	 * The height of the ruler
+	 */
+	private static final int height = 65;
+	
+	/**
+	 * Checks the budget of {@link Ruler#paint(java.awt.Graphics, Rectangle)}: one shape per tick level, 
+	 * one glyph vector per drawn label and no text measuring on the graphics.
+	 */
+	@Test
+	public void testRulerBudget()
+	{
+		for (final double[] range : ranges)
+		{
+			for (final int width : widths)
+			{
+				final String description = range[0] + ".." + range[1] + " @ " + width + "px";
+				final Ruler ruler = new Ruler("cm", range[0], range[1]);
+				final RecordingGraphics2D g2 = new RecordingGraphics2D(
+						new BufferedImage(width + 2 * padding, height, BufferedImage.TYPE_INT_RGB));
+				g2.setColor(Color.BLACK);
+				final Rectangle bounds = new Rectangle(padding, 0, width, height);
+				
+				ruler.paint(g2, bounds);
+				final RulerLayout layout = ruler.getLayout(width);
+				this.assertRulerBudget(description, g2, layout);
+				// Only the drawn labels are measured
+				final int cachedLabels = ruler.getLabelCache().size();
+				Assert.assertEquals(description, g2.getCount(Call.DRAW_GLYPH_VECTOR), ruler.getLabelCache().getMissCount());
+				Assert.assertEquals(description, g2.getCount(Call.DRAW_GLYPH_VECTOR), cachedLabels);
+				
+				// A repaint must not measure any labels
+				g2.reset();
+				ruler.paint(g2, bounds);
+				this.assertRulerBudget(description, g2, layout);
+				Assert.assertEquals(description, cachedLabels, ruler.getLabelCache().size());
+			}
+		}
+	}
+	
+	/**
+	 * Checks the budget of one ruler paint.
+	 * 
+	 * @param description The description of the ruler
+	 * @param g2 The recording graphics
+	 * @param layout The layout of the ruler
+	 */
+	private void assertRulerBudget(final String description, final RecordingGraphics2D g2, final RulerLayout layout)
+	{
+		Assert.assertEquals(description, layout.getLevelCount(), g2.getCount(Call.DRAW_SHAPE));
+		Assert.assertEquals(description, 0, g2.getCount(Call.DRAW_LINE));
+		Assert.assertEquals(description, 0, g2.getCount(Call.DRAW_STRING));
+		Assert.assertTrue(description, g2.getCount(Call.DRAW_GLYPH_VECTOR) > 0);
+		Assert.assertTrue(description, g2.getCount(Call.DRAW_GLYPH_VECTOR) <= layout.getLabelCount());
+		Assert.assertEquals(description, 0, g2.getCount(Call.SET_FONT));
+		Assert.assertEquals(description, 0, g2.getCount(Call.GET_FONT_METRICS));
+		Assert.assertEquals(description, 0, g2.getDuplicateSegmentCount());
+		Assert.assertEquals(description, layout.getTickCount(), g2.getSegmentCount());
+		Assert.assertEquals(description + ": " + g2.getOffBoundsDraws(), 0, g2.getOffBoundsDraws().size());
+	}
+	
+	/**
+	 * Checks the budget of the resize controls and the close button: one image blit each.
+	 */
+	@Test
+	public void testControlBudget()
+	{
+		final RecordingGraphics2D g2 = new RecordingGraphics2D(new BufferedImage(100, height, BufferedImage.TYPE_INT_ARGB));
+		ScreenrulerResizeControl.LEFT.paint(g2, new Rectangle(0, 0, 10, 30));
+		ScreenrulerResizeControl.RIGHT.paint(g2, new Rectangle(90, 0, 10, 30));
+		Assert.assertEquals(2, g2.getCount(Call.DRAW_IMAGE));
+		Assert.assertEquals(2, g2.getDrawCount());
+		
+		g2.reset();
+		final CloseButton closeButton = new CloseButton();
+		closeButton.paint(g2, new Rectangle(4, 45, 16, 16));
+		closeButton.setMouseOver(true);
+		closeButton.paint(g2, new Rectangle(4, 45, 16, 16));
+		Assert.assertEquals(2, g2.getCount(Call.DRAW_IMAGE));
+		Assert.assertEquals(2, g2.getDrawCount());
+		Assert.assertEquals(g2.getOffBoundsDraws().toString(), 0, g2.getOffBoundsDraws().size());
+	}
+	
+	/**
+	 * Checks the budget of the frame contents: one blit of the back buffer per paint, and the ruler is only 
+	 * painted again if its range or its area changes.
+	 */
+	@Test
+	public void testFrameBudget()
+	{
+		final int width = 600;
+		final int[] rulerPaints = new int[1];
+		final Ruler ruler = new Ruler("cm", 48, 129)
+		{
+			@Override
+			public void paint(final Graphics graphics, final Rectangle bounds) 
+			{
+				rulerPaints[0]++;
+				super.paint(graphics, bounds);
+			}
+		};
+		final CloseButton closeButton = new CloseButton();
+		final ScreenrulerCompositor compositor = new ScreenrulerCompositor(ruler, 
+				ScreenrulerResizeControl.LEFT, ScreenrulerResizeControl.RIGHT, closeButton);
+		final ScreenrulerSettings settings = new ScreenrulerSettings(0.7f, width, height, 200, 10, 30, 0, false, Translucency.AUTO);
+		final RecordingGraphics2D g2 = new RecordingGraphics2D(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+		
+		for (int i = 0; i < 3; i++)
+		{
+			compositor.paint(g2, width, height, settings.getRulerBounds(width, height), 
+					settings.getLeftResizeControlBounds(), settings.getRightResizeControlBounds(width), 
+					settings.getCloseButtonBounds(height));
+		}
+		Assert.assertEquals(1, rulerPaints[0]);
+		Assert.assertEquals(3, g2.getCount(Call.DRAW_IMAGE));
+		Assert.assertEquals(3, g2.getDrawCount());
+		Assert.assertEquals(0, g2.getCount(Call.CLEAR_RECT));
+		Assert.assertEquals(g2.getOffBoundsDraws().toString(), 0, g2.getOffBoundsDraws().size());
+		
+		// Hovering the close button must not paint the ruler again
+		closeButton.setMouseOver(true);
+		compositor.paint(g2, width, height, settings.getRulerBounds(width, height), 
+				settings.getLeftResizeControlBounds(), settings.getRightResizeControlBounds(width), 
+				settings.getCloseButtonBounds(height));
+		Assert.assertEquals(1, rulerPaints[0]);
+		Assert.assertEquals(4, g2.getDrawCount());
+		
+		// A new range paints the ruler again
+		ruler.setRulerEndValue(130);
+		compositor.paint(g2, width, height, settings.getRulerBounds(width, height), 
+				settings.getLeftResizeControlBounds(), settings.getRightResizeControlBounds(width), 
+				settings.getCloseButtonBounds(height));
+		Assert.assertEquals(2, rulerPaints[0]);
+	}
+	
+	/**
+	 * Checks that a resized frame looks the same as a frame that has been painted at its size from scratch, 
+	 * while the layer images are reused.
+	 */
+	@Test
+	public void testFrameResize()
+	{
+		final int width = 600;
+		final ScreenrulerSettings settings = new ScreenrulerSettings(0.7f, width, height, 200, 10, 30, 0, false, Translucency.AUTO);
+		final ScreenrulerCompositor compositor = new ScreenrulerCompositor(new Ruler("cm", 48, 129), 
+				ScreenrulerResizeControl.LEFT, ScreenrulerResizeControl.RIGHT, new CloseButton());
+		final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		final RecordingGraphics2D g2 = new RecordingGraphics2D(image);
+		
+		for (int frameWidth = width; frameWidth >= 500; frameWidth -= 3)
+		{
+			g2.clearRect(0, 0, width, height);
+			g2.reset();
+			compositor.paint(g2, frameWidth, height, settings.getRulerBounds(frameWidth, height), 
+					settings.getLeftResizeControlBounds(), settings.getRightResizeControlBounds(frameWidth), 
+					settings.getCloseButtonBounds(height));
+			Assert.assertEquals(1, g2.getDrawCount());
+			Assert.assertEquals(g2.getOffBoundsDraws().toString(), 0, g2.getOffBoundsDraws().size());
+			
+			final BufferedImage expected = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			final Graphics2D expectedGraphics = expected.createGraphics();
+			new ScreenrulerCompositor(new Ruler("cm", 48, 129), ScreenrulerResizeControl.LEFT, 
+					ScreenrulerResizeControl.RIGHT, new CloseButton()).paint(expectedGraphics, frameWidth, height, 
+							settings.getRulerBounds(frameWidth, height), settings.getLeftResizeControlBounds(), 
+							settings.getRightResizeControlBounds(frameWidth), settings.getCloseButtonBounds(height));
+			expectedGraphics.dispose();
+			
+			for (int x = 0; x < width; x++)
+			{
+				for (int y = 0; y < height; y++)
+				{
+					Assert.assertEquals(frameWidth + "px: " + x + "," + y, expected.getRGB(x, y), image.getRGB(x, y));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Checks that a change of the range only renders the ruler layer again and composes the frame.
+	 */
+	@Test
+	public void testRangeChange()
+	{
+		final int width = 600;
+		final ScreenrulerSettings settings = new ScreenrulerSettings(0.7f, width, height, 200, 10, 30, 0, false, Translucency.AUTO);
+		final Ruler ruler = new Ruler("cm", 48, 129);
+		final ScreenrulerCompositor compositor = new ScreenrulerCompositor(ruler, 
+				ScreenrulerResizeControl.LEFT, ScreenrulerResizeControl.RIGHT, new CloseButton());
+		final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		final Graphics2D g2 = image.createGraphics();
+		
+		for (int i = 0; i < 10; i++)
+		{
+			final long renderCount = compositor.getLayerRenderCount();
+			ruler.setRulerBounds(48 + i, 129 - i);
+			compositor.paint(g2, width, height, settings.getRulerBounds(width, height), 
+					settings.getLeftResizeControlBounds(), settings.getRightResizeControlBounds(width), 
+					settings.getCloseButtonBounds(height));
+			// All four layers for the first frame, then the ruler and the frame
+			Assert.assertEquals(i == 0 ? 4 : 2, compositor.getLayerRenderCount() - renderCount);
+		}
+		g2.dispose();
+	}
+	
+	/**
+	 * Checks that only the background is translucent if the background color is, and that the frame replaces 
+	 * the previous contents of the target.
+	 */
+	@Test
+	public void testTranslucentBackground()
+	{
+		final int width = 600;
+		final ScreenrulerSettings settings = new ScreenrulerSettings(0.7f, width, height, 200, 10, 30, 0, false, Translucency.AUTO);
+		final ScreenrulerCompositor compositor = new ScreenrulerCompositor(new Ruler("cm", 48, 129), 
+				ScreenrulerResizeControl.LEFT, ScreenrulerResizeControl.RIGHT, new CloseButton());
+		compositor.setColors(new Color(255, 255, 255, 179), Color.BLACK);
+		
+		final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		final Graphics2D g2 = image.createGraphics();
+		g2.setColor(Color.RED);
+		g2.fillRect(0, 0, width, height);
+		compositor.paint(g2, width, height, settings.getRulerBounds(width, height), 
+				settings.getLeftResizeControlBounds(), settings.getRightResizeControlBounds(width), 
+				settings.getCloseButtonBounds(height));
+		g2.dispose();
+		
+		Assert.assertEquals(0xB3FFFFFF, image.getRGB(width / 2, height - 1));
+		// The start tick
+		final int tickX = settings.getRulerBounds(width, height).x;
+		Assert.assertEquals(0xFF000000, image.getRGB(tickX, 1));
+	}
+	
+}
@@ -0,0 +1,155 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+import de.thomasvoecking.screenruler.config.ScreenrulerSettings;
+import de.thomasvoecking.screenruler.config.Translucency;
+import de.thomasvoecking.screenruler.ui.buttons.CloseButton;
+
+
+/**
+ * Testcases for {@link PerformanceHud} and {@link PaintStatistics}.
+ *
+ * @author thomas
+ */
+public class PerformanceHudTest
+{
+
+	/**
+	 * Checks that each paint time falls into a bucket whose bounds contain it and that the buckets are at most a
+	 * quarter wider than their lower bound.
+	 */
+	@Test
+	public void testBuckets()
+	{
+		long lowerBound = 0;
+		for (int bucket = 0; bucket < PaintStatistics.bucketCount - 1; bucket++)
+		{
+			final long upperBound = PaintStatistics.getUpperBound(bucket);
+			Assert.assertEquals(bucket, PaintStatistics.getBucket(lowerBound));
+			Assert.assertEquals(bucket, PaintStatistics.getBucket(upperBound - 1));
+			Assert.assertTrue(upperBound - lowerBound <= Math.max(1, lowerBound / 4));
+			lowerBound = upperBound;
+		}
+		Assert.assertEquals(PaintStatistics.bucketCount - 1, PaintStatistics.getBucket(Long.MAX_VALUE));
+		Assert.assertEquals(0, PaintStatistics.getBucket(-1));
+	}
+
+	/**
+	 * Checks the percentiles of the frames recorded between two snapshots.
+	 */
+	@Test
+	public void testPercentiles()
+	{
+		final PaintStatistics paintStatistics = new PaintStatistics();
+		paintStatistics.record(50000000L, 100);
+		final PaintStatistics.Snapshot first = paintStatistics.snapshot(0);
+
+		for (int i = 0; i < 90; i++) paintStatistics.record(100000L, 10);
+		for (int i = 0; i < 9; i++) paintStatistics.record(1000000L, 10);
+		paintStatistics.record(20000000L, 10);
+		final PaintStatistics.Snapshot interval = paintStatistics.snapshot(1000000000L).since(first);
+
+		Assert.assertEquals(1000000000L, interval.getTime());
+		Assert.assertEquals(100, interval.getFrameCount());
+		Assert.assertEquals(1000, interval.getAllocatedBytes());
+		Assert.assertEquals(PaintStatistics.getUpperBound(PaintStatistics.getBucket(100)), interval.getPercentile(0.5));
+		Assert.assertEquals(PaintStatistics.getUpperBound(PaintStatistics.getBucket(100)), interval.getPercentile(0.9));
+		Assert.assertEquals(PaintStatistics.getUpperBound(PaintStatistics.getBucket(1000)), interval.getPercentile(0.95));
+		Assert.assertEquals(PaintStatistics.getUpperBound(PaintStatistics.getBucket(20000)), interval.getPercentile(1.0));
+		Assert.assertEquals(0, paintStatistics.snapshot(0).since(paintStatistics.snapshot(0)).getPercentile(0.5));
+	}
+
+	/**
+	 * Checks that the overlay shows the numbers of the last interval only.
+	 */
+	@Test
+	public void testUpdate()
+	{
+		final DragScheduler dragScheduler = new DragScheduler(new FrameClock(1), new DragScheduler.DragTarget()
+		{
+			@Override
+			public void applyDrag(final Rectangle bounds)
+			{
+				// not needed
+			}
+		});
+		final Ruler ruler = new Ruler("cm", 48, 129);
+		final ScreenrulerCompositor compositor = new ScreenrulerCompositor(ruler, ScreenrulerResizeControl.LEFT,
+				ScreenrulerResizeControl.RIGHT, new CloseButton());
+		paint(compositor);
+		final PerformanceHud performanceHud = new PerformanceHud(dragScheduler, compositor, ruler.getLabelCache(), 0);
+
+		// The pending target may be applied by the clock at any time
+		dragScheduler.start(DraggingMode.MOVE);
+		for (int i = 0; i < 4; i++) dragScheduler.submit(new Rectangle(i, 0, 100, 10));
+		paint(compositor);
+		paint(compositor);
+		performanceHud.getPaintStatistics().record(2000000L, 2048);
+		performanceHud.getPaintStatistics().record(2000000L, 2048);
+		final long appliedCount = dragScheduler.getTotalAppliedCount();
+		performanceHud.update(1000000000L);
+
+		String[] lines = performanceHud.getLines();
+		Assert.assertEquals(4, lines.length);
+		Assert.assertTrue(lines[0], lines[0].startsWith("paint p50 2.0 ms"));
+		Assert.assertTrue(lines[1], lines[1].startsWith("2 fps"));
+		Assert.assertEquals("drag 4/s  window " + appliedCount + "/s", lines[2]);
+		Assert.assertEquals("hits layers 100%  labels -", lines[3]);
+
+		dragScheduler.stop();
+		ruler.setRulerBounds(12.3, 13.9);
+		compositor.invalidate();
+		paint(compositor);
+		performanceHud.update(2000000000L);
+
+		lines = performanceHud.getLines();
+		Assert.assertTrue(lines[0], lines[0].startsWith("paint p50 0 us"));
+		Assert.assertTrue(lines[1], lines[1].startsWith("0 fps"));
+		Assert.assertEquals("drag 0/s  window " + (dragScheduler.getTotalAppliedCount() - appliedCount) + "/s", lines[2]);
+		Assert.assertTrue(lines[3], lines[3].startsWith("hits layers 0%  labels "));
+
+		final BufferedImage image = new BufferedImage(600, 65, BufferedImage.TYPE_INT_RGB);
+		final Graphics2D g2 = image.createGraphics();
+		g2.setColor(Color.WHITE);
+		g2.fillRect(0, 0, 600, 65);
+		performanceHud.paint(g2, new Rectangle(10, 0, 580, 65));
+		g2.dispose();
+		Assert.assertEquals(Color.WHITE.getRGB(), image.getRGB(5, 5));
+		Assert.assertTrue(image.getRGB(11, 1) != Color.WHITE.getRGB());
+	}
+
+	/**
+	 * Checks the formatting of the numbers.
+	 */
+	@Test
+	public void testFormat()
+	{
+		Assert.assertEquals("999 us", PerformanceHud.formatMicros(999));
+		Assert.assertEquals("1.5 ms", PerformanceHud.formatMicros(1520));
+		Assert.assertEquals("1023 B", PerformanceHud.formatBytes(1023));
+		Assert.assertEquals("2.5 KB", PerformanceHud.formatBytes(2560));
+		Assert.assertEquals("-", PerformanceHud.formatRate(0, 0));
+		Assert.assertEquals("75%", PerformanceHud.formatRate(3, 4));
+	}
+
+	/**
+	 * @param compositor The compositor
+	 */
+	private static void paint(final ScreenrulerCompositor compositor)
+	{
+		final ScreenrulerSettings settings = new ScreenrulerSettings(0.7f, 600, 65, 200, 10, 30, 0, false, Translucency.AUTO);
+		final Graphics2D g2 = new BufferedImage(600, 65, BufferedImage.TYPE_INT_RGB).createGraphics();
+		compositor.paint(g2, 600, 65, settings.getRulerBounds(600, 65), settings.getLeftResizeControlBounds(),
+				settings.getRightResizeControlBounds(600), settings.getCloseButtonBounds(65));
+		g2.dispose();
+	}
+
+}
@@ -0,0 +1,179 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+
+/**
+ * Testcases for {@link RangeAnimator}.
+ *
+ * @author thomas
+ */
+public class RangeAnimatorTest
+{
+
+	/**
+	 * The applied ranges
+	 */
+	private final List<double[]> applied = new ArrayList<double[]>();
+
+	/**
+	 * The number of finished animations
+	 */
+	private int finishedCount;
+
+	/**
+	 * A clock that never ticks, the frames are driven by the tests. The first tick of a running clock comes 
+	 * after 1 ms, whatever the frame rate.
+	 */
+	private final FrameClock frameClock = new FrameClock(1)
+	{
+		@Override
+		void addFrameListener(final FrameListener listener)
+		{
+			// Not started
+		}
+
+		@Override
+		void removeFrameListener(final FrameListener listener)
+		{
+			// Not started
+		}
+	};
+
+	/**
+	 * The animator
+	 */
+	private final RangeAnimator rangeAnimator = new RangeAnimator(this.frameClock, new RangeAnimator.RangeTarget()
+	{
+		@Override
+		public void applyRange(final double rulerStartValue, final double rulerEndValue)
+		{
+			RangeAnimatorTest.this.applied.add(new double[] { rulerStartValue, rulerEndValue });
+		}
+
+		@Override
+		public void animationFinished()
+		{
+			RangeAnimatorTest.this.finishedCount++;
+		}
+	});
+
+	/**
+	 * Checks that the range is interpolated for the time of each frame and ends at the target.
+	 */
+	@Test
+	public void testInterpolation()
+	{
+		final long now = System.nanoTime();
+		this.rangeAnimator.animateTo(0, 10, 0, 20, now);
+		Assert.assertTrue(this.rangeAnimator.isRunning());
+
+		this.rangeAnimator.frame(now + RangeAnimator.duration / 2);
+		Assert.assertEquals(1, this.applied.size());
+		Assert.assertEquals(0, this.applied.get(0)[0], 0);
+		// Eased out: more than half of the way after half of the time
+		Assert.assertTrue(this.applied.get(0)[1] > 15 && this.applied.get(0)[1] < 20);
+		Assert.assertEquals(0, this.finishedCount);
+
+		this.rangeAnimator.frame(now + RangeAnimator.duration);
+		Assert.assertEquals(2, this.applied.size());
+		Assert.assertEquals(20, this.applied.get(1)[1], 0);
+		Assert.assertEquals(1, this.finishedCount);
+		Assert.assertFalse(this.rangeAnimator.isRunning());
+
+		this.rangeAnimator.frame(now + 2 * RangeAnimator.duration);
+		Assert.assertEquals(2, this.applied.size());
+	}
+
+	/**
+	 * Checks that a new target continues the animation from the current range.
+	 */
+	@Test
+	public void testNewTarget()
+	{
+		final long now = System.nanoTime();
+		this.rangeAnimator.animateTo(0, 10, 0, 20, now);
+		this.rangeAnimator.frame(now + RangeAnimator.duration / 2);
+		final double currentEndValue = this.applied.get(0)[1];
+
+		this.rangeAnimator.animateTo(0, currentEndValue, 0, 5, now + RangeAnimator.duration / 2);
+		this.rangeAnimator.frame(now + RangeAnimator.duration / 2 + 1);
+		Assert.assertEquals(currentEndValue, this.applied.get(1)[1], 0.001);
+
+		this.rangeAnimator.frame(now + RangeAnimator.duration * 3 / 2);
+		Assert.assertEquals(5, this.applied.get(2)[1], 0);
+		Assert.assertEquals(1, this.finishedCount);
+	}
+
+	/**
+	 * Checks that ticks are dropped after a slow frame, and that the next frame jumps ahead.
+	 */
+	@Test
+	public void testDroppedFrames()
+	{
+		this.frameClock.setFrameRate(1000);
+		final long frameInterval = this.frameClock.getFrameIntervalNanos();
+		final long now = System.nanoTime();
+		this.rangeAnimator.animateTo(0, 10, 0, 20, now);
+		this.rangeAnimator.frame(now + frameInterval);
+		Assert.assertEquals(1, this.applied.size());
+
+		// Rendering took four frames, three more than the budget: the ticks until then are dropped
+		this.rangeAnimator.reportRenderTime(4 * frameInterval, now + frameInterval);
+		this.rangeAnimator.frame(now + 2 * frameInterval);
+		this.rangeAnimator.frame(now + 3 * frameInterval);
+		Assert.assertEquals(1, this.applied.size());
+		Assert.assertEquals(2, this.rangeAnimator.getDroppedCount());
+
+		this.rangeAnimator.frame(now + 4 * frameInterval);
+		Assert.assertEquals(2, this.applied.size());
+		Assert.assertEquals(2, this.rangeAnimator.getAppliedCount());
+
+		this.rangeAnimator.frame(now + RangeAnimator.duration);
+		Assert.assertEquals(20, this.applied.get(2)[1], 0);
+		this.frameClock.setFrameRate(1);
+	}
+
+	/**
+	 * Checks that zooming keeps the value at the anchor in place and does not move the range below 0.
+	 */
+	@Test
+	public void testZoom()
+	{
+		this.rangeAnimator.zoom(10, 20, 0.5, 0.5);
+		// A second notch during the animation adds up
+		this.rangeAnimator.zoom(10, 20, 0.5, 0.5);
+		this.rangeAnimator.frame(System.nanoTime() + RangeAnimator.duration);
+		Assert.assertEquals(13.75, this.applied.get(0)[0], 0.000001);
+		Assert.assertEquals(16.25, this.applied.get(0)[1], 0.000001);
+
+		this.rangeAnimator.zoom(0, 10, 2, 0.5);
+		this.rangeAnimator.frame(System.nanoTime() + RangeAnimator.duration);
+		Assert.assertEquals(0, this.applied.get(1)[0], 0);
+		Assert.assertEquals(20, this.applied.get(1)[1], 0.000001);
+
+		this.rangeAnimator.pan(0, 20, -5, 15);
+		this.rangeAnimator.frame(System.nanoTime() + RangeAnimator.duration);
+		Assert.assertEquals(0, this.applied.get(2)[0], 0);
+		Assert.assertEquals(20, this.applied.get(2)[1], 0.000001);
+	}
+
+	/**
+	 * Checks that zooming in at large values stops at a width that can still be represented.
+	 */
+	@Test
+	public void testZoomAtLargeValues()
+	{
+		for (int i = 0; i < 10; i++) this.rangeAnimator.zoom(1e11, 1e11 + 1, 1e-3, 0.5);
+		this.rangeAnimator.frame(System.nanoTime() + RangeAnimator.duration);
+		final double[] range = this.applied.get(this.applied.size() - 1);
+		Assert.assertTrue(range[0] < range[1]);
+		Assert.assertEquals(RangeAnimator.minimumRangeUlps * Math.ulp(1e11), range[1] - range[0], Math.ulp(1e11));
+	}
+
+}
@@ -0,0 +1,788 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Paint;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.RenderingHints.Key;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.text.AttributedCharacterIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A {@link Graphics2D} that records all drawing operations and forwards them to the graphics of a
+ * {@link BufferedImage}.
+ *
+ * Counts the calls per {@link Call}, records the device space bounds of every draw and every stroke
+ * segment, so tests can assert draw call budgets, duplicate strokes and draws outside of the target.
+ * Graphics objects created with {@link #create()} share the recording of their parent.
+ *
+ * @author thomas
+ */
+public class RecordingGraphics2D extends Graphics2D
+{
+
+	/**
+	 * The logger
+	 */
+	private static final Log log = LogFactory.getLog(RecordingGraphics2D.class);
+
+	/**
+	 * The recorded operations
+	 *
+	 * @author thomas
+	 */
+	public enum Call
+	{
+		/** {@link Graphics#drawLine(int, int, int, int)} */
+		DRAW_LINE,
+
+		/** {@link Graphics2D#draw(Shape)} */
+		DRAW_SHAPE,
+
+		/** {@link Graphics2D#fill(Shape)} and all fill* methods */
+		FILL,
+
+		/** All drawString variants */
+		DRAW_STRING,
+
+		/** {@link Graphics2D#drawGlyphVector(GlyphVector, float, float)} */
+		DRAW_GLYPH_VECTOR,
+
+		/** All drawImage variants */
+		DRAW_IMAGE,
+
+		/** All other draw* methods (ovals, arcs, polygons...) */
+		DRAW_OTHER,
+
+		/** {@link Graphics#setFont(Font)} with a different font */
+		SET_FONT,
+
+		/** {@link Graphics#getFontMetrics(Font)} */
+		GET_FONT_METRICS,
+
+		/** {@link Graphics#clearRect(int, int, int, int)} */
+		CLEAR_RECT
+	}
+
+	/**
+	 * The recording, shared between all graphics created from the same root
+	 *
+	 * @author thomas
+	 */
+	private static final class Recording
+	{
+		/**
+		 * The bounds of the target
+		 */
+		private final Rectangle targetBounds;
+
+		/**
+		 * Number of calls per type
+		 */
+		private final Map<Call, Integer> counts = new EnumMap<Call, Integer>(Call.class);
+
+		/**
+		 * All stroke segments in device space
+		 */
+		private final Set<List<Double>> segments = new HashSet<List<Double>>();
+
+		/**
+		 * The number of segments that have been stroked more than once
+		 */
+		private int duplicateSegments;
+
+		/**
+		 * Descriptions of all draws that are not completely inside of the target
+		 */
+		private final List<String> offBoundsDraws = new ArrayList<String>();
+
+		/**
+		 * Constructor
+		 *
+		 * @param targetBounds The bounds of the target
+		 */
+		Recording(final Rectangle targetBounds)
+		{
+			this.targetBounds = targetBounds;
+		}
+	}
+
+	/**
+	 * The recording
+	 */
+	private final Recording recording;
+
+	/**
+	 * The graphics that performs the drawing
+	 */
+	private final Graphics2D delegate;
+
+	/**
+	 * Constructor
+	 *
+	 * @param image The target image
+	 */
+	public RecordingGraphics2D(final BufferedImage image)
+	{
+		this(new Recording(new Rectangle(0, 0, image.getWidth(), image.getHeight())), image.createGraphics());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param recording The recording
+	 * @param delegate The graphics that performs the drawing
+	 */
+	private RecordingGraphics2D(final Recording recording, final Graphics2D delegate)
+	{
+		this.recording = recording;
+		this.delegate = delegate;
+	}
+
+	/**
+	 * @param call The type of call
+	 * @return The number of recorded calls of this type
+	 */
+	public int getCount(final Call call)
+	{
+		final Integer count = this.recording.counts.get(call);
+		return count == null ? 0 : count;
+	}
+
+	/**
+	 * @return The number of recorded draw calls of any type
+	 */
+	public int getDrawCount()
+	{
+		return this.getCount(Call.DRAW_LINE) + this.getCount(Call.DRAW_SHAPE) + this.getCount(Call.FILL)
+			+ this.getCount(Call.DRAW_STRING) + this.getCount(Call.DRAW_GLYPH_VECTOR) + this.getCount(Call.DRAW_IMAGE)
+			+ this.getCount(Call.DRAW_OTHER) + this.getCount(Call.CLEAR_RECT);
+	}
+
+	/**
+	 * @return The number of stroke segments that have been drawn more than once
+	 */
+	public int getDuplicateSegmentCount()
+	{
+		return this.recording.duplicateSegments;
+	}
+
+	/**
+	 * @return The number of distinct stroke segments
+	 */
+	public int getSegmentCount()
+	{
+		return this.recording.segments.size();
+	}
+
+	/**
+	 * @return Descriptions of all draws that are not completely inside of the target
+	 */
+	public List<String> getOffBoundsDraws()
+	{
+		return this.recording.offBoundsDraws;
+	}
+
+	/**
+	 * Resets the recording.
+	 */
+	public void reset()
+	{
+		this.recording.counts.clear();
+		this.recording.segments.clear();
+		this.recording.duplicateSegments = 0;
+		this.recording.offBoundsDraws.clear();
+	}
+
+	/**
+	 * Records a call.
+	 *
+	 * @param call The type of the call
+	 * @param userBounds The bounds of the drawn area in user space. May be null if the call does not draw.
+	 */
+	private void record(final Call call, final Rectangle2D userBounds)
+	{
+		final Integer count = this.recording.counts.get(call);
+		this.recording.counts.put(call, count == null ? 1 : count + 1);
+
+		if (userBounds == null) return;
+		final Rectangle2D deviceBounds = this.delegate.getTransform().createTransformedShape(userBounds).getBounds2D();
+		log.trace(call + " " + deviceBounds);
+
+		// A stroke covers the pixels right of and below its path
+		final double maxX = deviceBounds.getMaxX() + (call == Call.DRAW_LINE || call == Call.DRAW_SHAPE ? 1 : 0);
+		final double maxY = deviceBounds.getMaxY() + (call == Call.DRAW_LINE || call == Call.DRAW_SHAPE ? 1 : 0);
+		final Rectangle target = this.recording.targetBounds;
+		if (deviceBounds.getMinX() < target.getMinX() || deviceBounds.getMinY() < target.getMinY()
+				|| maxX > target.getMaxX() || maxY > target.getMaxY())
+		{
+			this.recording.offBoundsDraws.add(call + " " + deviceBounds);
+		}
+	}
+
+	/**
+	 * Records all segments of a stroked shape.
+	 *
+	 * @param shape The shape in user space
+	 */
+	private void recordSegments(final Shape shape)
+	{
+		final double[] coords = new double[6];
+		double lastX = 0;
+		double lastY = 0;
+		for (final PathIterator it = shape.getPathIterator(this.delegate.getTransform()); !it.isDone(); it.next())
+		{
+			final int type = it.currentSegment(coords);
+			if (type == PathIterator.SEG_LINETO)
+			{
+				this.recordSegment(lastX, lastY, coords[0], coords[1]);
+			}
+			lastX = coords[0];
+			lastY = coords[1];
+		}
+	}
+
+	/**
+	 * Records one segment in device space.
+	 *
+	 * @param x1 Start x
+	 * @param y1 Start y
+	 * @param x2 End x
+	 * @param y2 End y
+	 */
+	private void recordSegment(final double x1, final double y1, final double x2, final double y2)
+	{
+		// Line2D does not implement equals, so use a list of the coordinates as key
+		final List<Double> segment = Arrays.asList(x1, y1, x2, y2);
+		if (!this.recording.segments.add(segment)) this.recording.duplicateSegments++;
+	}
+
+	/**
+	 * @param image The image
+	 * @param x Left edge
+	 * @param y Top edge
+	 * @return The bounds of the image at the given position
+	 */
+	private static Rectangle2D imageBounds(final Image image, final int x, final int y)
+	{
+		return new Rectangle(x, y, image.getWidth(null), image.getHeight(null));
+	}
+
+	// --- drawing operations ---
+
+	@Override
+	public void drawLine(final int x1, final int y1, final int x2, final int y2)
+	{
+		this.record(Call.DRAW_LINE, new Line2D.Double(x1, y1, x2, y2).getBounds2D());
+		this.recordSegment(this.transformX(x1, y1), this.transformY(x1, y1), this.transformX(x2, y2), this.transformY(x2, y2));
+		this.delegate.drawLine(x1, y1, x2, y2);
+	}
+
+	/**
+	 * @param x User space x
+	 * @param y User space y
+	 * @return Device space x
+	 */
+	private double transformX(final double x, final double y)
+	{
+		return this.delegate.getTransform().transform(new Point2D.Double(x, y), null).getX();
+	}
+
+	/**
+	 * @param x User space x
+	 * @param y User space y
+	 * @return Device space y
+	 */
+	private double transformY(final double x, final double y)
+	{
+		return this.delegate.getTransform().transform(new Point2D.Double(x, y), null).getY();
+	}
+
+	@Override
+	public void draw(final Shape s)
+	{
+		this.record(Call.DRAW_SHAPE, s.getBounds2D());
+		this.recordSegments(s);
+		this.delegate.draw(s);
+	}
+
+	@Override
+	public void fill(final Shape s)
+	{
+		this.record(Call.FILL, s.getBounds2D());
+		this.delegate.fill(s);
+	}
+
+	@Override
+	public void fillRect(final int x, final int y, final int width, final int height)
+	{
+		this.record(Call.FILL, new Rectangle(x, y, width, height));
+		this.delegate.fillRect(x, y, width, height);
+	}
+
+	@Override
+	public void clearRect(final int x, final int y, final int width, final int height)
+	{
+		this.record(Call.CLEAR_RECT, new Rectangle(x, y, width, height));
+		this.delegate.clearRect(x, y, width, height);
+	}
+
+	@Override
+	public void drawRoundRect(final int x, final int y, final int width, final int height, final int arcWidth, final int arcHeight)
+	{
+		this.record(Call.DRAW_OTHER, new Rectangle(x, y, width, height));
+		this.delegate.drawRoundRect(x, y, width, height, arcWidth, arcHeight);
+	}
+
+	@Override
+	public void fillRoundRect(final int x, final int y, final int width, final int height, final int arcWidth, final int arcHeight)
+	{
+		this.record(Call.FILL, new Rectangle(x, y, width, height));
+		this.delegate.fillRoundRect(x, y, width, height, arcWidth, arcHeight);
+	}
+
+	@Override
+	public void drawOval(final int x, final int y, final int width, final int height)
+	{
+		this.record(Call.DRAW_OTHER, new Rectangle(x, y, width, height));
+		this.delegate.drawOval(x, y, width, height);
+	}
+
+	@Override
+	public void fillOval(final int x, final int y, final int width, final int height)
+	{
+		this.record(Call.FILL, new Rectangle(x, y, width, height));
+		this.delegate.fillOval(x, y, width, height);
+	}
+
+	@Override
+	public void drawArc(final int x, final int y, final int width, final int height, final int startAngle, final int arcAngle)
+	{
+		this.record(Call.DRAW_OTHER, new Rectangle(x, y, width, height));
+		this.delegate.drawArc(x, y, width, height, startAngle, arcAngle);
+	}
+
+	@Override
+	public void fillArc(final int x, final int y, final int width, final int height, final int startAngle, final int arcAngle)
+	{
+		this.record(Call.FILL, new Rectangle(x, y, width, height));
+		this.delegate.fillArc(x, y, width, height, startAngle, arcAngle);
+	}
+
+	@Override
+	public void drawPolyline(final int[] xPoints, final int[] yPoints, final int nPoints)
+	{
+		this.record(Call.DRAW_OTHER, new Polygon(xPoints, yPoints, nPoints).getBounds2D());
+		this.delegate.drawPolyline(xPoints, yPoints, nPoints);
+	}
+
+	@Override
+	public void drawPolygon(final int[] xPoints, final int[] yPoints, final int nPoints)
+	{
+		this.record(Call.DRAW_OTHER, new Polygon(xPoints, yPoints, nPoints).getBounds2D());
+		this.delegate.drawPolygon(xPoints, yPoints, nPoints);
+	}
+
+	@Override
+	public void fillPolygon(final int[] xPoints, final int[] yPoints, final int nPoints)
+	{
+		this.record(Call.FILL, new Polygon(xPoints, yPoints, nPoints).getBounds2D());
+		this.delegate.fillPolygon(xPoints, yPoints, nPoints);
+	}
+
+	@Override
+	public void drawString(final String str, final int x, final int y)
+	{
+		this.drawString(str, (float) x, (float) y);
+	}
+
+	@Override
+	public void drawString(final String str, final float x, final float y)
+	{
+		final Rectangle2D bounds = this.delegate.getFont().getStringBounds(str, this.delegate.getFontRenderContext());
+		bounds.setRect(x + bounds.getX(), y + bounds.getY(), bounds.getWidth(), bounds.getHeight());
+		this.record(Call.DRAW_STRING, bounds);
+		this.delegate.drawString(str, x, y);
+	}
+
+	@Override
+	public void drawString(final AttributedCharacterIterator iterator, final int x, final int y)
+	{
+		this.record(Call.DRAW_STRING, null);
+		this.delegate.drawString(iterator, x, y);
+	}
+
+	@Override
+	public void drawString(final AttributedCharacterIterator iterator, final float x, final float y)
+	{
+		this.record(Call.DRAW_STRING, null);
+		this.delegate.drawString(iterator, x, y);
+	}
+
+	@Override
+	public void drawGlyphVector(final GlyphVector g, final float x, final float y)
+	{
+		final Rectangle2D bounds = g.getLogicalBounds();
+		bounds.setRect(x + bounds.getX(), y + bounds.getY(), bounds.getWidth(), bounds.getHeight());
+		this.record(Call.DRAW_GLYPH_VECTOR, bounds);
+		this.delegate.drawGlyphVector(g, x, y);
+	}
+
+	@Override
+	public boolean drawImage(final Image img, final int x, final int y, final ImageObserver observer)
+	{
+		this.record(Call.DRAW_IMAGE, imageBounds(img, x, y));
+		return this.delegate.drawImage(img, x, y, observer);
+	}
+
+	@Override
+	public boolean drawImage(final Image img, final int x, final int y, final int width, final int height,
+			final ImageObserver observer)
+	{
+		this.record(Call.DRAW_IMAGE, new Rectangle(x, y, width, height));
+		return this.delegate.drawImage(img, x, y, width, height, observer);
+	}
+
+	@Override
+	public boolean drawImage(final Image img, final int x, final int y, final Color bgcolor, final ImageObserver observer)
+	{
+		this.record(Call.DRAW_IMAGE, imageBounds(img, x, y));
+		return this.delegate.drawImage(img, x, y, bgcolor, observer);
+	}
+
+	@Override
+	public boolean drawImage(final Image img, final int x, final int y, final int width, final int height,
+			final Color bgcolor, final ImageObserver observer)
+	{
+		this.record(Call.DRAW_IMAGE, new Rectangle(x, y, width, height));
+		return this.delegate.drawImage(img, x, y, width, height, bgcolor, observer);
+	}
+
+	@Override
+	public boolean drawImage(final Image img, final int dx1, final int dy1, final int dx2, final int dy2,
+			final int sx1, final int sy1, final int sx2, final int sy2, final ImageObserver observer)
+	{
+		this.record(Call.DRAW_IMAGE, new Rectangle(dx1, dy1, dx2 - dx1, dy2 - dy1));
+		return this.delegate.drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, observer);
+	}
+
+	@Override
+	public boolean drawImage(final Image img, final int dx1, final int dy1, final int dx2, final int dy2,
+			final int sx1, final int sy1, final int sx2, final int sy2, final Color bgcolor, final ImageObserver observer)
+	{
+		this.record(Call.DRAW_IMAGE, new Rectangle(dx1, dy1, dx2 - dx1, dy2 - dy1));
+		return this.delegate.drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, bgcolor, observer);
+	}
+
+	@Override
+	public boolean drawImage(final Image img, final AffineTransform xform, final ImageObserver obs)
+	{
+		this.record(Call.DRAW_IMAGE, xform.createTransformedShape(imageBounds(img, 0, 0)).getBounds2D());
+		return this.delegate.drawImage(img, xform, obs);
+	}
+
+	@Override
+	public void drawImage(final BufferedImage img, final BufferedImageOp op, final int x, final int y)
+	{
+		this.record(Call.DRAW_IMAGE, imageBounds(img, x, y));
+		this.delegate.drawImage(img, op, x, y);
+	}
+
+	@Override
+	public void drawRenderedImage(final RenderedImage img, final AffineTransform xform)
+	{
+		this.record(Call.DRAW_IMAGE, xform.createTransformedShape(
+				new Rectangle(img.getMinX(), img.getMinY(), img.getWidth(), img.getHeight())).getBounds2D());
+		this.delegate.drawRenderedImage(img, xform);
+	}
+
+	@Override
+	public void drawRenderableImage(final RenderableImage img, final AffineTransform xform)
+	{
+		this.record(Call.DRAW_IMAGE, null);
+		this.delegate.drawRenderableImage(img, xform);
+	}
+
+	@Override
+	public void copyArea(final int x, final int y, final int width, final int height, final int dx, final int dy)
+	{
+		this.record(Call.DRAW_OTHER, new Rectangle(x + dx, y + dy, width, height));
+		this.delegate.copyArea(x, y, width, height, dx, dy);
+	}
+
+	// --- state ---
+
+	@Override
+	public Graphics create()
+	{
+		return new RecordingGraphics2D(this.recording, (Graphics2D) this.delegate.create());
+	}
+
+	@Override
+	public void dispose()
+	{
+		this.delegate.dispose();
+	}
+
+	@Override
+	public Font getFont()
+	{
+		return this.delegate.getFont();
+	}
+
+	@Override
+	public void setFont(final Font font)
+	{
+		if (font != null && !font.equals(this.delegate.getFont())) this.record(Call.SET_FONT, null);
+		this.delegate.setFont(font);
+	}
+
+	@Override
+	public FontMetrics getFontMetrics(final Font f)
+	{
+		this.record(Call.GET_FONT_METRICS, null);
+		return this.delegate.getFontMetrics(f);
+	}
+
+	@Override
+	public Color getColor()
+	{
+		return this.delegate.getColor();
+	}
+
+	@Override
+	public void setColor(final Color c)
+	{
+		this.delegate.setColor(c);
+	}
+
+	@Override
+	public void setPaintMode()
+	{
+		this.delegate.setPaintMode();
+	}
+
+	@Override
+	public void setXORMode(final Color c1)
+	{
+		this.delegate.setXORMode(c1);
+	}
+
+	@Override
+	public Rectangle getClipBounds()
+	{
+		return this.delegate.getClipBounds();
+	}
+
+	@Override
+	public void clipRect(final int x, final int y, final int width, final int height)
+	{
+		this.delegate.clipRect(x, y, width, height);
+	}
+
+	@Override
+	public void setClip(final int x, final int y, final int width, final int height)
+	{
+		this.delegate.setClip(x, y, width, height);
+	}
+
+	@Override
+	public Shape getClip()
+	{
+		return this.delegate.getClip();
+	}
+
+	@Override
+	public void setClip(final Shape clip)
+	{
+		this.delegate.setClip(clip);
+	}
+
+	@Override
+	public boolean hit(final Rectangle rect, final Shape s, final boolean onStroke)
+	{
+		return this.delegate.hit(rect, s, onStroke);
+	}
+
+	@Override
+	public GraphicsConfiguration getDeviceConfiguration()
+	{
+		return this.delegate.getDeviceConfiguration();
+	}
+
+	@Override
+	public void setComposite(final Composite comp)
+	{
+		this.delegate.setComposite(comp);
+	}
+
+	@Override
+	public void setPaint(final Paint paint)
+	{
+		this.delegate.setPaint(paint);
+	}
+
+	@Override
+	public void setStroke(final Stroke s)
+	{
+		this.delegate.setStroke(s);
+	}
+
+	@Override
+	public void setRenderingHint(final Key hintKey, final Object hintValue)
+	{
+		this.delegate.setRenderingHint(hintKey, hintValue);
+	}
+
+	@Override
+	public Object getRenderingHint(final Key hintKey)
+	{
+		return this.delegate.getRenderingHint(hintKey);
+	}
+
+	@Override
+	public void setRenderingHints(final Map<?, ?> hints)
+	{
+		this.delegate.setRenderingHints(hints);
+	}
+
+	@Override
+	public void addRenderingHints(final Map<?, ?> hints)
+	{
+		this.delegate.addRenderingHints(hints);
+	}
+
+	@Override
+	public RenderingHints getRenderingHints()
+	{
+		return this.delegate.getRenderingHints();
+	}
+
+	@Override
+	public void translate(final int x, final int y)
+	{
+		this.delegate.translate(x, y);
+	}
+
+	@Override
+	public void translate(final double tx, final double ty)
+	{
+		this.delegate.translate(tx, ty);
+	}
+
+	@Override
+	public void rotate(final double theta)
+	{
+		this.delegate.rotate(theta);
+	}
+
+	@Override
+	public void rotate(final double theta, final double x, final double y)
+	{
+		this.delegate.rotate(theta, x, y);
+	}
+
+	@Override
+	public void scale(final double sx, final double sy)
+	{
+		this.delegate.scale(sx, sy);
+	}
+
+	@Override
+	public void shear(final double shx, final double shy)
+	{
+		this.delegate.shear(shx, shy);
+	}
+
+	@Override
+	public void transform(final AffineTransform tx)
+	{
+		this.delegate.transform(tx);
+	}
+
+	@Override
+	public void setTransform(final AffineTransform tx)
+	{
+		this.delegate.setTransform(tx);
+	}
+
+	@Override
+	public AffineTransform getTransform()
+	{
+		return this.delegate.getTransform();
+	}
+
+	@Override
+	public Paint getPaint()
+	{
+		return this.delegate.getPaint();
+	}
+
+	@Override
+	public Composite getComposite()
+	{
+		return this.delegate.getComposite();
+	}
+
+	@Override
+	public void setBackground(final Color color)
+	{
+		this.delegate.setBackground(color);
+	}
+
+	@Override
+	public Color getBackground()
+	{
+		return this.delegate.getBackground();
+	}
+
+	@Override
+	public Stroke getStroke()
+	{
+		return this.delegate.getStroke();
+	}
+
+	@Override
+	public void clip(final Shape s)
+	{
+		this.delegate.clip(s);
+	}
+
+	@Override
+	public FontRenderContext getFontRenderContext()
+	{
+		return this.delegate.getFontRenderContext();
+	}
+
+}
@@ -0,0 +1,117 @@
+package de.thomasvoecking.screenruler.ui;
+
+import java.awt.Component;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+
+/**
+ * Testcases for {@link RepaintScheduler}.
+ * 
+ * @author thomas
+ */
+public class RepaintSchedulerTest 
+{
+
+	/**
+	 * Checks that the requests of several components are issued together and merged per component.
+	 */
+	@Test
+	public void testCoalescing()
+	{
+		final List<Rectangle> repaints = new ArrayList<Rectangle>();
+		final RepaintScheduler repaintScheduler = new RepaintScheduler(new FrameClock(1));
+		final List<Component> components = new ArrayList<Component>();
+		for (int i = 0; i < 24; i++)
+		{
+			components.add(new RecordingComponent(repaints));
+		}
+		
+		for (final Component component : components)
+		{
+			repaintScheduler.requestRepaint(component, new Rectangle(4, 45, 16, 16));
+			repaintScheduler.requestRepaint(component, new Rectangle(0, 0, 10, 30));
+		}
+		repaintScheduler.requestRepaint(components.get(0));
+		Assert.assertEquals(0, repaints.size());
+		
+		repaintScheduler.frame();
+		Assert.assertEquals(components.size(), repaints.size());
+		Assert.assertEquals(components.size(), repaintScheduler.getRepaintCount());
+		Assert.assertEquals(new Rectangle(0, 0, 0, 0), repaints.get(0));
+		Assert.assertEquals(new Rectangle(0, 0, 20, 61), repaints.get(1));
+		
+		// Nothing is pending anymore
+		repaintScheduler.frame();
+		Assert.assertEquals(components.size(), repaints.size());
+	}
+	
+	/**
+	 * Checks that the requests of a closed component are dropped.
+	 */
+	@Test
+	public void testCancel()
+	{
+		final List<Rectangle> repaints = new ArrayList<Rectangle>();
+		final RepaintScheduler repaintScheduler = new RepaintScheduler(new FrameClock(1));
+		final Component component = new RecordingComponent(repaints);
+		repaintScheduler.requestRepaint(component);
+		repaintScheduler.cancel(component);
+		repaintScheduler.frame();
+		Assert.assertEquals(0, repaints.size());
+	}
+	
+	/**
+	 * Records the repainted areas. A repaint of the whole component is recorded as an empty rectangle.
+	 * 
+	 * @author thomas
+	 */
+	private static class RecordingComponent extends Component
+	{
+		
+		/**
+		 * SUID
+		 */
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * The repainted areas
+		 */
+		private final List<Rectangle> repaints;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param repaints The repainted areas
+		 */
+		RecordingComponent(final List<Rectangle> repaints)
+		{
+			this.repaints = repaints;
+		}
+		
+		/**
+		 * @see java.awt.Component#repaint()
+		 */
+		@Override
+		public void repaint() 
+		{
+			this.repaints.add(new Rectangle());
+		}
+		
+		/**
+		 * @see java.awt.Component#repaint(int, int, int, int)
+		 */
+		@Override
+		public void repaint(final int x, final int y, final int width, final int height) 
+		{
+			this.repaints.add(new Rectangle(x, y, width, height));
+		}
+		
+	}
+	
+}
@@ -0,0 +1,131 @@
+package de.thomasvoecking.screenruler.ui;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+
+/**
+ * Testcases for {@link RulerLayout}.
+ *
+ * @author thomas
+ */
+public class RulerLayoutTest
+{
+
+	/**
+	 * Checks the strokes and labels of a simple layout.
+	 */
+	@Test
+	public void testLayout()
+	{
+		final Ruler ruler = new Ruler("cm", 0, 10);
+		final RulerLayout layout = ruler.getLayout(1000);
+
+		int majorCount = 0;
+		int innerCount = 0;
+		for (int i = 0; i < layout.getTickCount(); i++)
+		{
+			if (layout.getTickLevel(i) == RulerLayout.MAJOR_LEVEL)
+			{
+				Assert.assertEquals(0, layout.getTickX(i) % 100);
+				majorCount++;
+			}
+			else
+			{
+				Assert.assertEquals(0, layout.getTickX(i) % 10);
+				innerCount++;
+			}
+		}
+		Assert.assertEquals(11, majorCount);
+		Assert.assertEquals(90, innerCount);
+
+		Assert.assertEquals(11, layout.getLabelCount());
+		Assert.assertEquals(0.0, layout.getLabelValue(0), 0.000001);
+		Assert.assertEquals(0, layout.getLabelX(0));
+		Assert.assertEquals(10.0, layout.getLabelValue(10), 0.000001);
+		Assert.assertEquals(1000, layout.getLabelX(10));
+	}
+
+	/**
+	 * Checks that a zoomed-in ruler shows nested sub-scales and that the labels show no rounding errors.
+	 */
+	@Test
+	public void testZoomedLayout()
+	{
+		final Ruler ruler = new Ruler("cm", 0, 1);
+		final RulerLayout layout = ruler.getLayout(8000);
+		Assert.assertEquals(5, layout.getLevelCount());
+
+		// 10 fields of 0.1 cm, each divided into 100 steps of 8 px
+		final int[] levelCounts = new int[layout.getLevelCount()];
+		for (int i = 0; i < layout.getTickCount(); i++)
+		{
+			Assert.assertEquals(0, layout.getTickX(i) % 8);
+			levelCounts[layout.getTickLevel(i)]++;
+		}
+		Assert.assertEquals(11, levelCounts[RulerLayout.MAJOR_LEVEL]);
+		Assert.assertEquals(10, levelCounts[1]);
+		Assert.assertEquals(80, levelCounts[2]);
+		Assert.assertEquals(100, levelCounts[3]);
+		Assert.assertEquals(800, levelCounts[4]);
+
+		Assert.assertEquals(11, layout.getLabelCount());
+		for (int i = 0; i < layout.getLabelCount(); i++)
+		{
+			Assert.assertEquals(Double.toString(i / 10.0), Double.toString(layout.getLabelValue(i)));
+		}
+	}
+
+	/**
+	 * Checks that a layout is only recomputed if its parameters change.
+	 */
+	@Test
+	public void testLayoutCaching()
+	{
+		final Ruler ruler = new Ruler("cm", 48, 129);
+		final RulerLayout layout = ruler.getLayout(560);
+		Assert.assertSame(layout, ruler.getLayout(560));
+
+		Assert.assertNotSame(layout, ruler.getLayout(561));
+
+		final RulerLayout resizedLayout = ruler.getLayout(561);
+		ruler.setRulerEndValue(130);
+		Assert.assertNotSame(resizedLayout, ruler.getLayout(561));
+
+		// The tick shapes are cached per level and stroke length
+		final RulerLayout shapeLayout = ruler.getLayout(561);
+		Assert.assertSame(shapeLayout.getTickShape(0, 10), shapeLayout.getTickShape(0, 10));
+		Assert.assertEquals(20.0, shapeLayout.getTickShape(0, 20).getBounds2D().getHeight(), 0);
+		Assert.assertEquals(10.0, shapeLayout.getTickShape(0, 10).getBounds2D().getHeight(), 0);
+	}
+
+	/**
+	 * Checks that a layout computed from the layout of another width equals a layout computed from scratch,
+	 * also when the width crosses a tick level.
+	 */
+	@Test
+	public void testResizedLayout()
+	{
+		final Ruler ruler = new Ruler("cm", 12.3, 13.9);
+		for (int width = 1200; width >= 100; width -= 7)
+		{
+			final RulerLayout layout = ruler.getLayout(width);
+			final RulerLayout expected = new RulerLayout(12.3, 13.9, ruler.guessRulerBaseValue(), width, 7);
+			Assert.assertEquals(expected.getLevelCount(), layout.getLevelCount());
+			Assert.assertEquals(expected.getTickCount(), layout.getTickCount());
+			for (int i = 0; i < expected.getTickCount(); i++)
+			{
+				Assert.assertEquals(expected.getTickX(i), layout.getTickX(i));
+				Assert.assertEquals(expected.getTickLevel(i), layout.getTickLevel(i));
+			}
+			Assert.assertEquals(expected.getLabelCount(), layout.getLabelCount());
+			for (int i = 0; i < expected.getLabelCount(); i++)
+			{
+				Assert.assertEquals(expected.getLabelValue(i), layout.getLabelValue(i), 0);
+				Assert.assertEquals(expected.getLabelX(i), layout.getLabelX(i));
+			}
+		}
+	}
+
+}
@@ -1,5 +1,18 @@
 package de.thomasvoecking.screenruler.ui;
 
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
 import org.junit.Test;
 
 import junit.framework.Assert;
@@ -42,4 +55,100 @@ public class RulerTest
 
 	}
 	
+	/**
+	 * Checks that the strokes and the labels are painted at the same offset if the ruler does not start at the
+	 * top of the graphics.
+	 */
+	@Test
+	public void testPaintOffset()
+	{
+		final Ruler ruler = new Ruler("cm", 48, 52);
+		final BufferedImage expected = paint(ruler, new Rectangle(0, 0, 300, 40));
+		final BufferedImage actual = paint(ruler, new Rectangle(0, 20, 300, 40));
+		for (int x = 0; x < 300; x++)
+		{
+			for (int y = 0; y < 40; y++)
+			{
+				Assert.assertEquals(x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y + 20));
+			}
+		}
+	}
+
+	/**
+	 * @param ruler The ruler
+	 * @param bounds The bounds of the ruler
+	 * @return The ruler painted black on a white image of 300 x 60 px
+	 */
+	private static BufferedImage paint(final Ruler ruler, final Rectangle bounds)
+	{
+		final BufferedImage image = new BufferedImage(300, 60, BufferedImage.TYPE_INT_RGB);
+		final Graphics2D g2 = image.createGraphics();
+		g2.setColor(Color.WHITE);
+		g2.fillRect(0, 0, 300, 60);
+		g2.setColor(Color.BLACK);
+		ruler.paint(g2, bounds);
+		g2.dispose();
+		return image;
+	}
+	
+	/**
+	 * Checks the flight recorder events of {@link Ruler#paint(java.awt.Graphics, Rectangle)}.
+	 * 
+	 * @throws IOException if the recording could not be written.
+	 */
+	@Test
+	public void testFlightRecorderEvents() throws IOException
+	{
+		final Ruler ruler = new Ruler("cm", 48, 129);
+		final BufferedImage image = new BufferedImage(600, 65, BufferedImage.TYPE_INT_RGB);
+		final File file = File.createTempFile("screenruler", ".jfr");
+		final List<RecordedEvent> paints = new ArrayList<RecordedEvent>();
+		final List<RecordedEvent> layouts = new ArrayList<RecordedEvent>();
+		try
+		{
+			final Recording recording = new Recording();
+			try
+			{
+				recording.enable("de.thomasvoecking.screenruler.RulerPaint");
+				recording.enable("de.thomasvoecking.screenruler.RulerLayout");
+				recording.start();
+				final Graphics2D g2 = image.createGraphics();
+				ruler.paint(g2, new Rectangle(0, 0, 560, 65));
+				ruler.paint(g2, new Rectangle(0, 0, 560, 65));
+				ruler.paint(g2, new Rectangle(0, 0, 550, 65));
+				g2.dispose();
+				recording.stop();
+				recording.dump(file.toPath());
+			}
+			finally
+			{
+				recording.close();
+			}
+			
+			for (final RecordedEvent event : RecordingFile.readAllEvents(file.toPath()))
+			{
+				if (event.getEventType().getName().endsWith("RulerPaint")) paints.add(event);
+				if (event.getEventType().getName().endsWith("RulerLayout")) layouts.add(event);
+			}
+		}
+		finally
+		{
+			Assert.assertTrue(file.delete());
+		}
+		
+		Assert.assertEquals(3, paints.size());
+		Assert.assertEquals(560, paints.get(0).getInt("width"));
+		Assert.assertEquals(ruler.getLayout(560).getTickCount(), paints.get(0).getInt("tickCount"));
+		Assert.assertTrue(paints.get(0).getInt("labelCount") > 0);
+		Assert.assertTrue(paints.get(0).getInt("labelCount") <= ruler.getLayout(560).getLabelCount());
+		Assert.assertEquals(550, paints.get(2).getInt("width"));
+		
+		// The second paint reuses the layout
+		Assert.assertEquals(2, layouts.size());
+		Assert.assertFalse(layouts.get(0).getBoolean("incremental"));
+		Assert.assertEquals(48.0, layouts.get(0).getDouble("rulerStartValue"), 0.000001);
+		Assert.assertTrue(layouts.get(1).getBoolean("incremental"));
+		Assert.assertEquals(550, layouts.get(1).getInt("width"));
+	}
+	
 }
@@ -0,0 +1,64 @@
+package de.thomasvoecking.screenruler.ui;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+
+/**
+ * Testcases for {@link TickHierarchy}.
+ *
+ * @author thomas
+ */
+public class TickHierarchyTest
+{
+
+	/**
+	 * Checks that the finest division is chosen whose strokes are still far enough apart.
+	 */
+	@Test
+	public void testDivision()
+	{
+		Assert.assertEquals(1, TickHierarchy.forFieldWidth(10, 7).getDivision());
+		Assert.assertEquals(2, TickHierarchy.forFieldWidth(14, 7).getDivision());
+		Assert.assertEquals(5, TickHierarchy.forFieldWidth(69, 7).getDivision());
+		Assert.assertEquals(10, TickHierarchy.forFieldWidth(70, 7).getDivision());
+		Assert.assertEquals(20, TickHierarchy.forFieldWidth(300, 7).getDivision());
+		Assert.assertEquals(50, TickHierarchy.forFieldWidth(350, 7).getDivision());
+		Assert.assertEquals(100, TickHierarchy.forFieldWidth(100000, 7).getDivision());
+		Assert.assertSame(TickHierarchy.forFieldWidth(80, 7), TickHierarchy.forFieldWidth(90, 7));
+	}
+
+	/**
+	 * Checks the nesting of the levels and the length of their strokes.
+	 */
+	@Test
+	public void testLevels()
+	{
+		final TickHierarchy fifths = TickHierarchy.forFieldWidth(50, 7);
+		Assert.assertEquals(2, fifths.getLevelCount());
+		Assert.assertEquals(0, fifths.getLevel(10));
+		Assert.assertEquals(1, fifths.getLevel(12));
+
+		final TickHierarchy hundredths = TickHierarchy.forFieldWidth(1000, 7);
+		Assert.assertEquals(5, hundredths.getLevelCount());
+		final int[] expectedDivisions = { 1, 2, 10, 20, 100 };
+		for (int level = 0; level < expectedDivisions.length; level++)
+		{
+			Assert.assertEquals(expectedDivisions[level], hundredths.getLevelDivision(level));
+		}
+		Assert.assertEquals(0, hundredths.getLevel(300));
+		Assert.assertEquals(1, hundredths.getLevel(350));
+		Assert.assertEquals(2, hundredths.getLevel(370));
+		Assert.assertEquals(3, hundredths.getLevel(375));
+		Assert.assertEquals(4, hundredths.getLevel(371));
+
+		Assert.assertEquals(25, hundredths.getLength(0, 25));
+		Assert.assertEquals(12, hundredths.getLength(2, 25));
+		for (int level = 1; level < hundredths.getLevelCount(); level++)
+		{
+			Assert.assertTrue(hundredths.getLength(level, 25) < hundredths.getLength(level - 1, 25));
+		}
+	}
+
+}
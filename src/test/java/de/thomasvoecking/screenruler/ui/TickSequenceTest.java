@@ -0,0 +1,107 @@
+package de.thomasvoecking.screenruler.ui;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+
+/**
+ * Testcases for {@link TickSequence}.
+ *
+ * @author thomas
+ */
+public class TickSequenceTest
+{
+
+	/**
+	 * Checks that the strokes are the strokes of a {@link RulerLayout} of the same range. The layout rounds the
+	 * positions down to px and skips the inner strokes next to the ruler ends.
+	 */
+	@Test
+	public void testSameStrokesAsLayout()
+	{
+		final Ruler ruler = new Ruler("cm", 12.3, 13.9);
+		for (final int width : new int[] { 100, 640, 1000, 4321 })
+		{
+			final RulerLayout layout = new RulerLayout(12.3, 13.9, ruler.guessRulerBaseValue(), width, 7);
+			final TickSequence ticks = new TickSequence(12.3, 13.9, ruler.guessRulerBaseValue(), width / 1.6, 7);
+			Assert.assertEquals(layout.getTickCount(), ticks.getTickCount());
+
+			int tick = 0;
+			int label = 0;
+			while (ticks.next())
+			{
+				final int x = (int) Math.floor(ticks.getPosition() + 1e-9);
+				final boolean end = x == 0 && tick == 0 || tick == layout.getTickCount() - 1;
+				if (!end && (ticks.isMajor() ? x <= 0 || x >= width : x <= 1 || x >= width - 1)) continue;
+
+				Assert.assertEquals(layout.getTickX(tick), x);
+				Assert.assertEquals(layout.getTickLevel(tick), ticks.getLevel());
+				if (ticks.isMajor())
+				{
+					Assert.assertEquals(layout.getLabelX(label), x);
+					Assert.assertEquals(layout.getLabelValue(label), ticks.getValue(), 0);
+					label++;
+				}
+				tick++;
+			}
+			Assert.assertEquals(layout.getTickCount(), tick);
+			Assert.assertEquals(layout.getLabelCount(), label);
+		}
+	}
+
+	/**
+	 * Checks the strokes of a long ruler in mm.
+	 */
+	@Test
+	public void testLongRuler()
+	{
+		// A tape of 50 m with a stroke per mm and a label per cm
+		final TickSequence ticks = new TickSequence(0, 5000, 1, 10, 1);
+		Assert.assertEquals(10, ticks.getDivision());
+		Assert.assertEquals(50001, ticks.getTickCount());
+
+		long count = 0;
+		long majorCount = 0;
+		double previous = -1;
+		while (ticks.next())
+		{
+			Assert.assertTrue(ticks.getPosition() > previous);
+			previous = ticks.getPosition();
+			if (ticks.isMajor())
+			{
+				Assert.assertEquals(majorCount, ticks.getValue(), 0);
+				Assert.assertEquals(1.0, ticks.getLengthRatio(), 0);
+				majorCount++;
+			}
+			else
+			{
+				Assert.assertTrue(ticks.getLengthRatio() < 1);
+			}
+			count++;
+		}
+		Assert.assertEquals(50001, count);
+		Assert.assertEquals(5001, majorCount);
+		Assert.assertEquals(50000, previous, 0.000001);
+	}
+
+	/**
+	 * Checks that invalid ranges are rejected.
+	 */
+	@Test
+	public void testInvalidArguments()
+	{
+		final double[][] arguments = { { -1, 10, 1, 10, 1 }, { 10, 10, 1, 10, 1 }, { 0, 10, 0, 10, 1 },
+				{ 0, 10, 1, Double.NaN, 1 }, { 0, 10, 1, 10, 0 } };
+		for (final double[] a : arguments)
+		{
+			try
+			{
+				new TickSequence(a[0], a[1], a[2], a[3], a[4]);
+				Assert.fail("Arguments " + java.util.Arrays.toString(a) + " must be rejected");
+			}
+			catch (final IllegalArgumentException e) { /* expected */ }
+		}
+	}
+
+}